@@ -19,8 +19,10 @@
 package fr.utbm.info.da53.lw2;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.SortedMap;
 
+import fr.utbm.info.da53.lw2.context.CompiledInterpreter;
 import fr.utbm.info.da53.lw2.context.DebugInterpreter;
 import fr.utbm.info.da53.lw2.context.Interpreter;
 import fr.utbm.info.da53.lw2.context.LineBasedInterpreter;
@@ -29,6 +31,8 @@ import fr.utbm.info.da53.lw2.error.ErrorRepository;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.error.LoggableException;
 import fr.utbm.info.da53.lw2.parser.BasicParser;
+import fr.utbm.info.da53.lw2.syntaxtree.TreeSimplifier;
+import fr.utbm.info.da53.lw2.syntaxtree.TypeInference;
 import fr.utbm.info.da53.lw2.ui.InterpreterDialog;
 
 /**
@@ -40,12 +44,34 @@ import fr.utbm.info.da53.lw2.ui.InterpreterDialog;
 public class BasicInterpreter {
 	
 	/** Run the parser and the interpreter.
+	 * <p>
+	 * The option <code>-O</code> enables the simplification of
+	 * the syntax trees and the inference of the types of the
+	 * variables before the execution. The option <code>-C</code>
+	 * runs the program with the {@link CompiledInterpreter}.
 	 * 
-	 * @param args
+	 * @param arguments
 	 */
-	public static void main(String args[]) {
+	public static void main(String arguments[]) {
 		BasicParser parser;
 		String filename;
+		String[] args = arguments;
+		boolean simplify = false;
+		boolean compile = false;
+		
+		while (args.length>0 && args[0].startsWith("-")) { //$NON-NLS-1$
+			if ("-O".equals(args[0])) { //$NON-NLS-1$
+				simplify = true;
+			}
+			else if ("-C".equals(args[0])) { //$NON-NLS-1$
+				compile = true;
+			}
+			else {
+				System.err.println("Unknown option: "+args[0]); //$NON-NLS-1$
+				return ;
+			}
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
 
 		if(args.length == 0){
 			System.out.println("Input your TinyBasic code:");
@@ -74,11 +100,26 @@ public class BasicInterpreter {
 			ErrorRepository.add(e);
 		}
 		
+		if (simplify && code!=null && !ErrorRepository.hasError()) {
+			TreeSimplifier simplifier = new TreeSimplifier(code);
+			code = simplifier.simplify();
+			System.out.println(simplifier.getReport().toString());
+			TypeInference inference = new TypeInference(code);
+			code = inference.optimize();
+			System.out.println(inference.getReport().toString());
+		}
+		
 		System.out.println("Running the code into the interpreter");
 		DebugInterpreter debugContext = null;
 
 		if (code!=null && !code.isEmpty()) {
-			Interpreter interpreter = new LineBasedInterpreter(code, parser.getSymbolTable());
+			Interpreter interpreter;
+			if (compile) {
+				interpreter = new CompiledInterpreter(code, parser.getSymbolTable());
+			}
+			else {
+				interpreter = new LineBasedInterpreter(code, parser.getSymbolTable());
+			}
 			try {
 				debugContext = interpreter.debug();
 			}
@@ -0,0 +1,286 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utbm.info.da53.lw2.context.BufferedStandardInput;
+import fr.utbm.info.da53.lw2.context.BufferedStandardOutput;
+import fr.utbm.info.da53.lw2.context.LineProfiler;
+import fr.utbm.info.da53.lw2.context.StandardInput;
+import fr.utbm.info.da53.lw2.session.InterpreterSession;
+import fr.utbm.info.da53.lw2.session.ParsedProgram;
+
+/**
+ * Interpreter of BASIC without user interface.
+ * <p>
+ * Usage: <code>BatchInterpreter [-C] [-O] [-P] [-i input] [-o directory] file...</code>.
+ * Each file is parsed and run until its end; the outputs of the
+ * programs are written on the standard output, or in the file
+ * <code>directory/name.out</code> when the option <code>-o</code>
+ * is given. The INPUT statements read the file given with the
+ * option <code>-i</code>, or the file <code>name.in</code> next
+ * to the program if it exists. The options <code>-C</code> and
+ * <code>-O</code> have the same meaning as for {@link BasicInterpreter};
+ * the option <code>-P</code> enables the {@link LineProfiler}.
+ * <p>
+ * For each program, the wall time, the number of statements and
+ * the number of statements per second are written on the standard
+ * error. This class does not use the Swing classes, so that
+ * it may be run on a computer without display.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class BatchInterpreter {
+	
+	/** Maximal number of lines in the reports of the profiler.
+	 */
+	private static final int PROFILE_LINES = 20;
+	
+	/** Extension of the files read by the INPUT statements.
+	 */
+	private static final String INPUT_EXTENSION = ".in"; //$NON-NLS-1$
+
+	/** Extension of the files in which the outputs are written.
+	 */
+	private static final String OUTPUT_EXTENSION = ".out"; //$NON-NLS-1$
+
+	private boolean compile = false;
+	private boolean optimize = false;
+	private boolean profile = false;
+	private File input = null;
+	private File outputDirectory = null;
+	private final PrintStream report;
+	
+	/**
+	 * @param report is the stream on which the reports are written.
+	 */
+	public BatchInterpreter(PrintStream report) {
+		this.report = report;
+	}
+	
+	/** Set if the programs are run with the compiled interpreter.
+	 * 
+	 * @param compile
+	 */
+	public void setCompiled(boolean compile) {
+		this.compile = compile;
+	}
+	
+	/** Set if the syntax trees are simplified before the run.
+	 * 
+	 * @param optimize
+	 */
+	public void setOptimized(boolean optimize) {
+		this.optimize = optimize;
+	}
+	
+	/** Set if the lines of the programs are profiled.
+	 * 
+	 * @param profile
+	 */
+	public void setProfiled(boolean profile) {
+		this.profile = profile;
+	}
+
+	/** Set the file read by the INPUT statements of all the programs.
+	 * 
+	 * @param input is the file, or <code>null</code> to read the file
+	 * <code>name.in</code> next to each program.
+	 */
+	public void setInput(File input) {
+		this.input = input;
+	}
+
+	/** Set the directory in which the outputs of the programs are written.
+	 * 
+	 * @param directory is the directory, or <code>null</code> to write
+	 * on the standard output.
+	 */
+	public void setOutputDirectory(File directory) {
+		this.outputDirectory = directory;
+	}
+
+	/** Parse and run the given program.
+	 * 
+	 * @param file is the program.
+	 * @return <code>true</code> if the program has run without error.
+	 * @throws IOException
+	 */
+	public boolean run(File file) throws IOException {
+		String name = file.getName();
+		ParsedProgram program;
+		try (InputStream stream = new FileInputStream(file)) {
+			program = ParsedProgram.parse(name, stream);
+		}
+		if (this.optimize) {
+			program = program.optimize(this.report);
+		}
+		if (!program.isRunnable() || program.getErrors().hasError()) {
+			program.getErrors().print(this.report);
+			this.report.println(name + "\tFAILED\t0\t0\t0.0"); //$NON-NLS-1$
+			return false;
+		}
+		program.getErrors().print(this.report);
+
+		InterpreterSession session = program.newSession(this.compile);
+		LineProfiler profiler = null;
+		if (this.profile) {
+			profiler = new LineProfiler(program.getCode());
+			session.setProfiler(profiler);
+		}
+		
+		OutputStream outputStream = null;
+		InputStream inputStream = null;
+		boolean success;
+		long duration;
+		try {
+			BufferedStandardOutput stdout;
+			if (this.outputDirectory!=null) {
+				outputStream = new FileOutputStream(new File(this.outputDirectory, baseName(name) + OUTPUT_EXTENSION));
+				stdout = new BufferedStandardOutput(outputStream);
+			}
+			else {
+				stdout = new BufferedStandardOutput(System.out);
+			}
+			session.setStandardOutput(stdout);
+			
+			File inputFile = getInputFile(file);
+			StandardInput stdin;
+			if (inputFile!=null) {
+				inputStream = new FileInputStream(inputFile);
+				stdin = new BufferedStandardInput(inputStream, null);
+			}
+			else {
+				stdin = new BufferedStandardInput(new StringReader(""), null); //$NON-NLS-1$
+			}
+			session.setStandardInput(stdin);
+			
+			long start = System.nanoTime();
+			success = session.run();
+			duration = System.nanoTime() - start;
+		}
+		finally {
+			if (inputStream!=null) {
+				inputStream.close();
+			}
+			if (outputStream!=null) {
+				outputStream.close();
+			}
+		}
+		
+		session.getErrors().print(this.report);
+		long statements = session.getStatementCount();
+		this.report.println(name + "\t" //$NON-NLS-1$
+				+ (success ? "OK" : "FAILED") + "\t" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ (duration / 1000000) + "\t" //$NON-NLS-1$
+				+ statements + "\t" //$NON-NLS-1$
+				+ String.format("%.1f", (duration==0) ? 0. : statements * 1e9 / duration)); //$NON-NLS-1$
+		if (profiler!=null) {
+			profiler.writeHotLines(this.report, PROFILE_LINES);
+		}
+		return success;
+	}
+	
+	private File getInputFile(File program) throws FileNotFoundException {
+		if (this.input!=null) {
+			if (!this.input.isFile()) {
+				throw new FileNotFoundException(this.input.getPath());
+			}
+			return this.input;
+		}
+		File file = new File(program.getParentFile(), baseName(program.getName()) + INPUT_EXTENSION);
+		return file.isFile() ? file : null;
+	}
+	
+	private static String baseName(String name) {
+		int index = name.lastIndexOf('.');
+		return (index>0) ? name.substring(0, index) : name;
+	}
+
+	/** Run the programs.
+	 * 
+	 * @param arguments
+	 */
+	public static void main(String arguments[]) {
+		BatchInterpreter interpreter = new BatchInterpreter(System.err);
+		List<File> files = new ArrayList<File>();
+		
+		for(int i=0; i<arguments.length; ++i) {
+			String arg = arguments[i];
+			if ("-C".equals(arg)) { //$NON-NLS-1$
+				interpreter.setCompiled(true);
+			}
+			else if ("-O".equals(arg)) { //$NON-NLS-1$
+				interpreter.setOptimized(true);
+			}
+			else if ("-P".equals(arg)) { //$NON-NLS-1$
+				interpreter.setProfiled(true);
+			}
+			else if ("-i".equals(arg) && i+1<arguments.length) { //$NON-NLS-1$
+				interpreter.setInput(new File(arguments[++i]));
+			}
+			else if ("-o".equals(arg) && i+1<arguments.length) { //$NON-NLS-1$
+				interpreter.setOutputDirectory(new File(arguments[++i]));
+			}
+			else if (arg.startsWith("-")) { //$NON-NLS-1$
+				System.err.println("Unknown option: "+arg); //$NON-NLS-1$
+				return;
+			}
+			else {
+				files.add(new File(arg));
+			}
+		}
+		
+		if (files.isEmpty()) {
+			System.err.println("Usage: BatchInterpreter [-C] [-O] [-P] [-i input] [-o directory] file..."); //$NON-NLS-1$
+			return;
+		}
+		
+		System.err.println("program\tstatus\ttime (ms)\tstatements\tstatements/s"); //$NON-NLS-1$
+		int failures = 0;
+		for(File file : files) {
+			try {
+				if (!interpreter.run(file)) {
+					++failures;
+				}
+			}
+			catch(IOException e) {
+				System.err.println(file.getName() + "\t" + e); //$NON-NLS-1$
+				++failures;
+			}
+		}
+		System.out.flush();
+		if (failures>0) {
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,289 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utbm.info.da53.lw2.error.InterpreterCanceledException;
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Abstract implementation of an Interpreter that is managing
+ * the listeners and the standard input and output.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public abstract class AbstractInterpreter implements Interpreter {
+
+	private StandardInput stdin = new StdIn();
+	private StandardOutput stdout = new BufferedStandardOutput(System.out);
+	private final List<InterpreterListener> listeners = new ArrayList<InterpreterListener>();
+	private volatile boolean killed = false;
+	private volatile boolean canceled = false;
+	private boolean exitVirtualMachine = true;
+	private long statementCount = 0;
+	private long statementLimit = Long.MAX_VALUE;
+	private LineProfiler profiler = null;
+	
+	/**
+	 */
+	public AbstractInterpreter() {
+		//
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addInterpreterListener(InterpreterListener listener) {
+		synchronized(this.listeners) {
+			this.listeners.add(listener);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeInterpreterListener(InterpreterListener listener) {
+		synchronized(this.listeners) {
+			this.listeners.remove(listener);
+		}
+	}
+
+	/**
+	 * Replies the listeners.
+	 * @return the listeners.
+	 */
+	protected InterpreterListener[] getListeners() {
+		synchronized(this.listeners) {
+			InterpreterListener[] list = new InterpreterListener[this.listeners.size()];
+			this.listeners.toArray(list);
+			return list;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void exit() {
+		getStandardOutput().flush();
+		this.killed = true;
+		boolean notified = false;
+		for(InterpreterListener listener : getListeners()) {
+			notified = true;
+			listener.interpreterKilled(this);
+		}
+		if (!notified && this.exitVirtualMachine) System.exit(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isKilled() {
+		return this.killed;
+	}
+	
+	/** Stop the program without notifying the listeners.
+	 * The interpreter stops after the statement that is currently
+	 * running, including inside the loops.
+	 * This function may be invoked from any thread.
+	 */
+	public void terminate() {
+		this.killed = true;
+	}
+	
+	/** Stop the running statement without terminating the program.
+	 * The interpreter throws an {@link InterpreterCanceledException}
+	 * at the start of the next iteration of a loop, or of the next
+	 * subroutine call, so that a statement that never ends is stopped.
+	 * This function may be invoked from any thread.
+	 */
+	public void cancel() {
+		this.canceled = true;
+	}
+	
+	/** Forget a cancellation that was not consumed by a loop,
+	 * e.g. when the statement has ended before the next iteration.
+	 */
+	void clearCancellation() {
+		this.canceled = false;
+	}
+	
+	/** Invoked by the implementations before running the body of
+	 * a loop or a subroutine.
+	 * 
+	 * @param context is the context of the running statement.
+	 * @throws InterpreterCanceledException if the statement was canceled.
+	 * @see #cancel()
+	 */
+	protected final void checkCancellation(ExecutionContext context) throws InterpreterCanceledException {
+		if (this.canceled) {
+			this.canceled = false;
+			throw new InterpreterCanceledException(context.getCurrentLine());
+		}
+	}
+	
+	/** Cancel the stop of the program, so that the statements
+	 * may be run again. This function is used by the debugger
+	 * when it goes back before the end of the program.
+	 */
+	void resume() {
+		this.killed = false;
+	}
+	
+	/** Move to the statement at the given line, or to the first
+	 * statement after this line. This statement is the next one
+	 * that is run by {@link #runStatement(ExecutionContext)}.
+	 * 
+	 * @param line
+	 */
+	abstract void seek(int line);
+	
+	/** Replies the number of statements that were run, including
+	 * the statements inside the loops and the subroutines.
+	 * 
+	 * @return the number of statements.
+	 */
+	public long getStatementCount() {
+		return this.statementCount;
+	}
+	
+	/** Set the maximal number of statements that may be run.
+	 * When the limit is reached, the program is terminated.
+	 * 
+	 * @param limit
+	 * @see #terminate()
+	 */
+	public void setStatementLimit(long limit) {
+		this.statementLimit = limit;
+	}
+	
+	/** Replies if the program was terminated because the maximal
+	 * number of statements was reached.
+	 * 
+	 * @return <code>true</code> if the limit was reached.
+	 */
+	public boolean isStatementLimitReached() {
+		return this.statementCount>this.statementLimit;
+	}
+	
+	/** Set the profiler that is notified when the statements are run.
+	 * 
+	 * @param profiler is the profiler, or <code>null</code> to disable the profiling.
+	 */
+	public void setProfiler(LineProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	/** Replies the profiler that is notified when the statements are run.
+	 * 
+	 * @return the profiler, or <code>null</code> if the profiling is disabled.
+	 */
+	public LineProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/** Invoked by the implementations before running a statement.
+	 */
+	protected final void countStatement() {
+		if (++this.statementCount>this.statementLimit) {
+			this.killed = true;
+		}
+	}
+
+	/** Set if {@link #exit()} stops the virtual machine when
+	 * no listener is notified. If not, the interpreter only
+	 * stops to run statements.
+	 * 
+	 * @param exit
+	 */
+	public void setExitVirtualMachine(boolean exit) {
+		this.exitVirtualMachine = exit;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStandardInput(StandardInput stdin) {
+		if (stdin==null)
+			this.stdin = new StdIn();
+		else
+			this.stdin = stdin;
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StandardInput getStandardInput() {
+		return this.stdin;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStandardOutput(StandardOutput stdout) {
+		if (stdout==null)
+			this.stdout = new BufferedStandardOutput(System.out);
+		else
+			this.stdout = stdout;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StandardOutput getStandardOutput() {
+		return this.stdout;
+	}
+
+	/**
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private class StdIn implements StandardInput {
+
+		/**
+		 */
+		public StdIn() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Value readString(String message) {
+			StandardOutput stdout = getStandardOutput();
+			stdout.print(message);
+			stdout.flush();
+			return BufferedStandardInput.getSystemInput().readLine();
+		}
+		
+	}
+
+}
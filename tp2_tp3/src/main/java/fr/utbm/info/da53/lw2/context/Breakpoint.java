@@ -0,0 +1,112 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+/**
+ * Breakpoint on a line of the program.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class Breakpoint {
+
+	private final int line;
+	private final BreakpointCondition condition;
+	private boolean enabled = true;
+	private long hitCount = 0;
+
+	/**
+	 * @param line is the line of the breakpoint.
+	 * @param condition is the condition to stop on, or <code>null</code> to always stop.
+	 */
+	public Breakpoint(int line, BreakpointCondition condition) {
+		this.line = line;
+		this.condition = condition;
+	}
+
+	/** Replies the line of the breakpoint.
+	 * 
+	 * @return the line.
+	 */
+	public int getLine() {
+		return this.line;
+	}
+
+	/** Replies the condition of the breakpoint.
+	 * 
+	 * @return the condition, or <code>null</code> if the breakpoint is unconditional.
+	 */
+	public BreakpointCondition getCondition() {
+		return this.condition;
+	}
+
+	/** Replies if the breakpoint is enabled.
+	 * 
+	 * @return <code>true</code> if enabled.
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/** Set if the breakpoint is enabled.
+	 * 
+	 * @param enabled
+	 */
+	void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/** Replies the number of times the program stopped on this breakpoint.
+	 * 
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return this.hitCount;
+	}
+
+	/** Reset the hit count.
+	 */
+	public void resetHitCount() {
+		this.hitCount = 0;
+	}
+
+	/** Increment the hit count.
+	 */
+	void hit() {
+		++this.hitCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("BREAK "); //$NON-NLS-1$
+		b.append(this.line);
+		if (this.condition!=null) {
+			b.append(" IF ..."); //$NON-NLS-1$
+		}
+		if (!this.enabled) {
+			b.append(" (disabled)"); //$NON-NLS-1$
+		}
+		return b.toString();
+	}
+
+}
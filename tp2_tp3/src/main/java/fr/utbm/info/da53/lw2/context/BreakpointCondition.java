@@ -0,0 +1,41 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+
+/**
+ * Condition attached to a breakpoint.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+@FunctionalInterface
+public interface BreakpointCondition {
+
+	/** Replies if the breakpoint must stop the program
+	 * in the given context.
+	 * 
+	 * @param context is the context in which the breakpoint is reached.
+	 * @return <code>true</code> if the program must stop, <code>false</code> otherwise.
+	 * @throws InterpreterException
+	 */
+	public boolean isSatisfied(ExecutionContext context) throws InterpreterException;
+
+}
@@ -0,0 +1,168 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+
+/**
+ * Set of breakpoints of a debugging session.
+ * <p>
+ * The lines with an enabled breakpoint are stored in a bit set
+ * so that the test done after each statement is a single lookup;
+ * the conditions are evaluated only when an armed line is reached.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class Breakpoints {
+
+	private final BitSet armedLines = new BitSet();
+	private final SortedMap<Integer,Breakpoint> breakpoints = new TreeMap<Integer,Breakpoint>();
+
+	/**
+	 */
+	public Breakpoints() {
+		//
+	}
+
+	/** Add an unconditional breakpoint.
+	 * 
+	 * @param line
+	 * @return the breakpoint.
+	 */
+	public Breakpoint add(int line) {
+		return add(line, null);
+	}
+
+	/** Add a breakpoint. If a breakpoint is already on the line, it is replaced.
+	 * 
+	 * @param line
+	 * @param condition is the condition to stop on, or <code>null</code> to always stop.
+	 * @return the breakpoint.
+	 */
+	public Breakpoint add(int line, BreakpointCondition condition) {
+		if (line<=0) throw new IllegalArgumentException();
+		Breakpoint breakpoint = new Breakpoint(line, condition);
+		this.breakpoints.put(line, breakpoint);
+		this.armedLines.set(line);
+		return breakpoint;
+	}
+
+	/** Remove the breakpoint on the given line.
+	 * 
+	 * @param line
+	 * @return the removed breakpoint, or <code>null</code>.
+	 */
+	public Breakpoint remove(int line) {
+		Breakpoint breakpoint = this.breakpoints.remove(line);
+		if (breakpoint!=null) {
+			this.armedLines.clear(line);
+		}
+		return breakpoint;
+	}
+
+	/** Add an unconditional breakpoint on the line if there is none,
+	 * or remove the existing one.
+	 * 
+	 * @param line
+	 * @return <code>true</code> if a breakpoint was added, <code>false</code> if removed.
+	 */
+	public boolean toggle(int line) {
+		if (remove(line)!=null) {
+			return false;
+		}
+		add(line);
+		return true;
+	}
+
+	/** Enable or disable the breakpoint on the given line.
+	 * 
+	 * @param line
+	 * @param enabled
+	 */
+	public void setEnabled(int line, boolean enabled) {
+		Breakpoint breakpoint = this.breakpoints.get(line);
+		if (breakpoint!=null) {
+			breakpoint.setEnabled(enabled);
+			this.armedLines.set(line, enabled);
+		}
+	}
+
+	/** Replies the breakpoint on the given line.
+	 * 
+	 * @param line
+	 * @return the breakpoint, or <code>null</code>.
+	 */
+	public Breakpoint get(int line) {
+		return this.breakpoints.get(line);
+	}
+
+	/** Replies if an enabled breakpoint is on the given line.
+	 * 
+	 * @param line
+	 * @return <code>true</code> if the line is armed.
+	 */
+	public boolean isArmed(int line) {
+		return line>0 && this.armedLines.get(line);
+	}
+
+	/** Replies the breakpoints sorted by line.
+	 * 
+	 * @return the breakpoints.
+	 */
+	public Collection<Breakpoint> getBreakpoints() {
+		return Collections.unmodifiableCollection(this.breakpoints.values());
+	}
+
+	/** Remove all the breakpoints.
+	 */
+	public void clear() {
+		this.breakpoints.clear();
+		this.armedLines.clear();
+	}
+
+	/** Replies the breakpoint that stops the program when
+	 * the given line is reached in the given context.
+	 * The hit count of the breakpoint is incremented.
+	 * 
+	 * @param context
+	 * @param line
+	 * @return the breakpoint, or <code>null</code> if the program must not stop.
+	 * @throws InterpreterException
+	 */
+	public Breakpoint hit(ExecutionContext context, int line) throws InterpreterException {
+		if (!isArmed(line)) {
+			return null;
+		}
+		Breakpoint breakpoint = this.breakpoints.get(line);
+		BreakpointCondition condition = breakpoint.getCondition();
+		if (condition!=null && !condition.isSatisfied(context)) {
+			return null;
+		}
+		breakpoint.hit();
+		return breakpoint;
+	}
+
+}
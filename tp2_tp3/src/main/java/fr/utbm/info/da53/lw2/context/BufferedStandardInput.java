@@ -0,0 +1,110 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Standard input that reads the values line by line from a buffered
+ * reader. The reader is created once, so that the characters that are
+ * read in advance from a file or from a pipe are not lost between two
+ * INPUT statements.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class BufferedStandardInput implements StandardInput {
+
+	/** Size of the buffer in characters.
+	 */
+	public static final int BUFFER_SIZE = 65536;
+	
+	private static BufferedStandardInput systemInput = null;
+	
+	/** Replies the standard input that is reading from <code>System.in</code>.
+	 * There is a single instance for all the interpreters.
+	 * 
+	 * @return the standard input.
+	 */
+	public static synchronized BufferedStandardInput getSystemInput() {
+		if (systemInput==null) {
+			systemInput = new BufferedStandardInput(System.in, null);
+		}
+		return systemInput;
+	}
+	
+	private final BufferedReader reader;
+	private final StandardOutput prompt;
+	
+	/**
+	 * @param stream is the stream from which the values are read.
+	 * @param prompt is the output on which the messages are written, or <code>null</code>
+	 * if the messages are not displayed.
+	 */
+	public BufferedStandardInput(InputStream stream, StandardOutput prompt) {
+		this(new InputStreamReader(stream), prompt);
+	}
+
+	/**
+	 * @param reader is the reader from which the values are read.
+	 * @param prompt is the output on which the messages are written, or <code>null</code>
+	 * if the messages are not displayed.
+	 */
+	public BufferedStandardInput(Reader reader, StandardOutput prompt) {
+		this.reader = new BufferedReader(reader, BUFFER_SIZE);
+		this.prompt = prompt;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value readString(String message) {
+		if (this.prompt!=null) {
+			if (message!=null) {
+				this.prompt.print(message);
+			}
+			this.prompt.flush();
+		}
+		return readLine();
+	}
+	
+	/** Read a value from the next line.
+	 * 
+	 * @return the value; {@link Value#UNDEF} if the line cannot be read;
+	 * <code>null</code> at the end of the input.
+	 */
+	public synchronized Value readLine() {
+		String line;
+		try {
+			line = this.reader.readLine();
+		}
+		catch (IOException ex) {
+			return Value.UNDEF;
+		}
+		return Value.parseValue(line);
+	}
+	
+}
@@ -0,0 +1,112 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Standard output that writes in a buffer. The buffer is written
+ * when it is full, when {@link #flush()} is invoked, before any
+ * INPUT statement, and when the interpreter stops.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class BufferedStandardOutput implements StandardOutput {
+
+	/** Size of the buffer in characters.
+	 */
+	public static final int BUFFER_SIZE = 65536;
+	
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	
+	private final Writer writer;
+	
+	/**
+	 * @param stream is the stream in which the output is written.
+	 */
+	public BufferedStandardOutput(OutputStream stream) {
+		this(new OutputStreamWriter(stream));
+	}
+
+	/**
+	 * @param writer is the writer in which the output is written.
+	 */
+	public BufferedStandardOutput(Writer writer) {
+		this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void println(String message) {
+		try {
+			this.writer.write(message);
+			this.writer.write(LINE_SEPARATOR);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void print(String message) {
+		try {
+			this.writer.write(message);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void println() {
+		try {
+			this.writer.write(LINE_SEPARATOR);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void flush() {
+		try {
+			this.writer.flush();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
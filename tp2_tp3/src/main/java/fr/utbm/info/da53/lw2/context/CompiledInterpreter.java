@@ -0,0 +1,282 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw2.error.ErrorRepository;
+import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.error.InterpreterWarning;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+
+/**
+ * Interpreter that compiles the statements before running them.
+ * <p>
+ * Each statement is replaced by the result of {@link Statement#compile(SymbolTable)},
+ * in which the sub-statements and the expressions are bound once for all,
+ * and the variables are bound to their slots in the symbol table.
+ * The lines are stored in a sorted array, so that the next statement
+ * is found by a move in the array, and a jump by a binary search.
+ * The context of an iteration of a loop is reused by the next
+ * iterations when the loop body does not give it to a subroutine.
+ * The outputs and the warnings are the same as the ones of the
+ * {@link LineBasedInterpreter}.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class CompiledInterpreter extends AbstractInterpreter {
+
+	/** Maximal number of contexts of loop iterations that are kept for reuse.
+	 */
+	private static final int MAX_SPARE_CONTEXTS = 16;
+
+	private final SortedMap<Integer,Statement> code;
+	private final SymbolTable symbolTable;
+	private final int[] lines;
+	private final Statement[] statements;
+	private int current;
+	
+	/** Contexts of the loop iterations that could be reused.
+	 */
+	private final ExecutionContext[] spareContexts = new ExecutionContext[MAX_SPARE_CONTEXTS];
+	private int spareContextCount = 0;
+	
+	/**
+	 * @param code
+	 * @param symbolTable
+	 */
+	public CompiledInterpreter(SortedMap<Integer,Statement> code, SymbolTable symbolTable) {
+		this.code = code;
+		this.symbolTable = symbolTable;
+		int size = (code==null) ? 0 : code.size();
+		this.lines = new int[size];
+		this.statements = new Statement[size];
+		if (code!=null) {
+			int i = 0;
+			for(Entry<Integer,Statement> entry : code.entrySet()) {
+				this.lines[i] = entry.getKey();
+				Statement statement = entry.getValue();
+				this.statements[i] = (statement==null) ? null : statement.compile(symbolTable);
+				++i;
+			}
+		}
+		this.current = (size>0) ? 0 : -1;
+	}
+	
+	/** Create an interpreter that shares the compiled statements
+	 * of the given interpreter, and that stores the values of the
+	 * variables in the given symbol table.
+	 * 
+	 * @param program is the interpreter that has compiled the program.
+	 * @param symbolTable
+	 */
+	public CompiledInterpreter(CompiledInterpreter program, SymbolTable symbolTable) {
+		this.code = program.code;
+		this.symbolTable = symbolTable;
+		this.lines = program.lines;
+		this.statements = program.statements;
+		this.current = (this.lines.length>0) ? 0 : -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ExecutionContext runStatement(ExecutionContext context) throws InterpreterException {
+		assert(context!=null);
+		ExecutionContext nextContext = null;
+
+		if (this.current>=0) {
+			int following = this.current + 1;
+			if (following>=this.lines.length) {
+				following = -1;
+			}
+			
+			int currentLine = this.lines[this.current];
+			Statement currentStatement = this.statements[this.current];
+			
+			if (currentStatement!=null) {
+				context.setCurrentLine(currentLine);
+				if (following>=0)
+					context.setNextLine(this.lines[following]);
+				else
+					context.setNextLine(-1);
+				
+				countStatement();
+				LineProfiler profiler = getProfiler();
+				if (profiler!=null) {
+					profiler.enterStatement(currentLine, context);
+				}
+				nextContext = currentStatement.run(context);
+				if (profiler!=null) {
+					profiler.exitStatement(context, nextContext);
+				}
+				
+				int nextLine = nextContext.getNextLine();
+				if (nextLine>0 && (following<0 || nextLine!=this.lines[following])) {
+					following = detectNextCS(context.getCurrentLine(), nextLine);
+				}
+				
+				nextContext.setCurrentLine(following<0 ? -1 : nextLine);
+				nextContext.setNextLine(-1);
+				
+				if (isKilled()) {
+					nextContext.setCurrentLine(-1);
+					following = -1;
+				}
+			}
+			else {
+				ErrorRepository.add(new InterpreterWarning(InterpreterErrorType.NOTHING_TO_RUN, context.getCurrentLine()));
+			}
+			
+			this.current = following;
+			
+		}
+		else {
+			ErrorRepository.add(new InterpreterWarning(InterpreterErrorType.NOTHING_TO_RUN, context.getCurrentLine()));
+		}
+		return nextContext;
+	}
+	
+	/** Replies the index of the statement at the given line, or
+	 * of the first statement after this line.
+	 * 
+	 * @param currentLine is the line of the jump.
+	 * @param nextLine is the target of the jump.
+	 * @return the index of the statement, or <code>-1</code> if none.
+	 */
+	private int detectNextCS(int currentLine, int nextLine) {
+		int index = Arrays.binarySearch(this.lines, nextLine);
+		if (index>=0) {
+			return index;
+		}
+		index = -(index + 1);
+		if (index<this.lines.length) {
+			ErrorRepository.add(
+					new InterpreterWarning(InterpreterErrorType.LINE_NOT_FOUND,
+					currentLine,
+					Integer.toString(nextLine)));
+			return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void seek(int line) {
+		int index = Arrays.binarySearch(this.lines, line);
+		if (index<0) {
+			index = -(index + 1);
+		}
+		this.current = (index<this.lines.length) ? index : -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() throws InterpreterException {
+		ExecutionContext context = new ExecutionContext(this, this.symbolTable);
+		try {
+			do {
+				context = runStatement(context);
+			}
+			while (context!=null && context.getCurrentLine()>0);
+			if (context!=null) {
+				context.close();
+			}
+		}
+		finally {
+			getStandardOutput().flush();
+		}
+		this.symbolTable.resetValues();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reentrantRun(ExecutionContext executionContext, Statement statement)
+			throws InterpreterException {
+		if (statement!=null && !isKilled()) {
+			checkCancellation(executionContext);
+			countStatement();
+			ExecutionContext origin;
+			if (this.spareContextCount>0) {
+				origin = this.spareContexts[--this.spareContextCount];
+				origin.attach(executionContext);
+			}
+			else {
+				origin = new ExecutionContext(executionContext);
+			}
+			ExecutionContext context = origin;
+			context = statement.run(context);
+			LineProfiler profiler = getProfiler();
+			if (profiler!=null) {
+				profiler.iteration(origin, context);
+			}
+			if (context!=origin && context!=null && context.getCurrentLine()>0) {
+				int index = detectNextCS(context.getCurrentLine(), context.getNextLine());
+				context.setCurrentLine(index<0 ? -1 : context.getNextLine());
+				context.setNextLine(-1);
+				this.current = index;
+				do {
+					context = runStatement(context);
+				}
+				while (context!=origin && context!=null && context.getCurrentLine()>0);
+			}
+			if (context!=null) {
+				context.close();
+				if (context==origin && this.spareContextCount<this.spareContexts.length) {
+					// The context is not referenced anymore by the sub-statements
+					this.spareContexts[this.spareContextCount++] = origin;
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DebugInterpreter debug() throws InterpreterException {
+		ExecutionContext context = new ExecutionContext(this, this.symbolTable);
+		if (this.current>=0) {
+			context.setCurrentLine(this.lines[this.current]);
+		}
+		this.symbolTable.resetValues();
+		return new DebugInterpreter(this,context);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<Integer, Statement> getCode() {
+		return Collections.unmodifiableSortedMap(this.code);
+	}
+
+}
@@ -18,12 +18,21 @@
  */
 package fr.utbm.info.da53.lw2.context;
 
+import java.util.Set;
 import java.util.SortedMap;
 
+import fr.utbm.info.da53.lw2.error.InterpreterCanceledException;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
 
 /**
  * Context of for debugging.
+ * <p>
+ * When the time travel is enabled, the steps are recorded in an
+ * {@link ExecutionJournal}, and the debugger may go back to a
+ * previous step. In this case, the contexts are not closed at the
+ * end of the program, so that the debugger may go back from the end.
  * 
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
@@ -33,6 +42,9 @@ public class DebugInterpreter {
 	private final Interpreter interpreter;
 	private final ExecutionContext rootContext;
 	private ExecutionContext currentContext;
+	private final Breakpoints breakpoints = new Breakpoints();
+	private volatile boolean canceled = false;
+	private ExecutionJournal journal = null;
 	
 	/**
 	 * @param interpreter
@@ -68,24 +80,221 @@ public class DebugInterpreter {
 		return this.currentContext;
 	}
 	
-	/** Run the program until it stop.
+	/** Replies the breakpoints.
+	 * 
+	 * @return the breakpoints.
+	 */
+	public Breakpoints getBreakpoints() {
+		return this.breakpoints;
+	}
+
+	/** Replies the variables that have changed since the last
+	 * invocation of this function.
+	 * 
+	 * @return the changed variables.
+	 */
+	public Set<SymbolTableEntry> getChangedVariables() {
+		return this.rootContext.pollChanges();
+	}
+
+	/** Enable the recording of the steps with the default
+	 * size of journal.
+	 * 
+	 * @see #enableTimeTravel(int, int)
+	 */
+	public void enableTimeTravel() {
+		enableTimeTravel(ExecutionJournal.DEFAULT_CAPACITY, ExecutionJournal.DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/** Enable the recording of the steps, so that the debugger
+	 * may go back to the previous steps. The steps that were run
+	 * before this invocation cannot be restored.
+	 * 
+	 * @param capacity is the maximal number of changes in the journal.
+	 * @param checkpointInterval is the number of steps between two copies of all the variables.
+	 * @throws IllegalStateException if the interpreter cannot go back to a line.
+	 */
+	public void enableTimeTravel(int capacity, int checkpointInterval) {
+		SymbolTable table = this.rootContext.getSymbolTable();
+		if (!(this.interpreter instanceof AbstractInterpreter) || table==null) {
+			throw new IllegalStateException();
+		}
+		this.journal = new ExecutionJournal(table, capacity, checkpointInterval);
+		table.setJournal(this.journal);
+	}
+	
+	/** Disable the recording of the steps.
+	 */
+	public void disableTimeTravel() {
+		SymbolTable table = this.rootContext.getSymbolTable();
+		if (table!=null && table.getJournal()==this.journal) {
+			table.setJournal(null);
+		}
+		this.journal = null;
+	}
+	
+	/** Replies if the steps are recorded.
+	 * 
+	 * @return <code>true</code> if the debugger may go back to the previous steps.
+	 */
+	public boolean isTimeTravelEnabled() {
+		return this.journal!=null;
+	}
+
+	/** Replies the number of the current step since the
+	 * time travel was enabled.
+	 * 
+	 * @return the number of the step, or <code>-1</code> if the steps are not recorded.
+	 */
+	public long getStep() {
+		ExecutionJournal j = this.journal;
+		return (j==null) ? -1 : j.getStep();
+	}
+	
+	/** Replies if the previous step could be restored.
+	 * 
+	 * @return <code>true</code> if {@link #stepBack()} is possible.
+	 */
+	public boolean canStepBack() {
+		ExecutionJournal j = this.journal;
+		return j!=null && j.canRewind(j.getStep()-1);
+	}
+	
+	/** Restore the state before the last step.
+	 * 
+	 * @return <code>true</code> if the state was restored;
+	 * <code>false</code> if the step was not recorded.
+	 */
+	public boolean stepBack() {
+		ExecutionJournal j = this.journal;
+		return j!=null && rewind(j.getStep()-1);
+	}
+	
+	/** Restore the state before the last run of the given line.
+	 * 
+	 * @param line
+	 * @return <code>true</code> if the state was restored;
+	 * <code>false</code> if the line was not run during the recorded steps.
+	 */
+	public boolean runBackToLine(int line) {
+		ExecutionJournal j = this.journal;
+		if (j!=null) {
+			long step = j.findStep(line);
+			if (step>=0) {
+				return rewind(step);
+			}
+		}
+		return false;
+	}
+	
+	/** Restore the state before the given step.
+	 * The program continues from this step, and the
+	 * journal forgets the next steps.
+	 * 
+	 * @param step is the number of the step.
+	 * @return <code>true</code> if the state was restored;
+	 * <code>false</code> if the step was not recorded.
+	 * @see #getStep()
+	 */
+	public boolean rewind(long step) {
+		ExecutionJournal j = this.journal;
+		if (j==null || !j.canRewind(step)) {
+			return false;
+		}
+		this.currentContext = j.rewind(step, this.currentContext, this.rootContext);
+		AbstractInterpreter i = (AbstractInterpreter)this.interpreter;
+		i.resume();
+		i.seek(this.currentContext.getCurrentLine());
+		return true;
+	}
+
+	/** Run the current statement, and record it in the journal.
+	 * 
 	 * @throws InterpreterException
 	 */
-	public void runToEnd() throws InterpreterException {
-		do {
+	private void runStatement() throws InterpreterException {
+		ExecutionJournal j = this.journal;
+		if (j!=null && this.currentContext!=null && this.currentContext.getCurrentLine()>0) {
+			j.beginStep(this.currentContext);
+		}
+		try {
 			this.currentContext = this.interpreter.runStatement(this.currentContext);
 		}
-		while (this.currentContext!=null && this.currentContext.getCurrentLine()>0);
-		if (this.currentContext!=null) {
+		catch(InterpreterCanceledException e) {
+			// The canceled statement is run again from its start
+			// when the program is continued
+			((AbstractInterpreter)this.interpreter).seek(this.currentContext.getCurrentLine());
+			throw e;
+		}
+	}
+	
+	/** Close the context at the end of the program, when the steps are not recorded.
+	 */
+	private void closeContext() {
+		if (this.journal==null && this.currentContext!=null && this.currentContext.getCurrentLine()<=0) {
 			this.currentContext.close();
 		}
 	}
 
+	/** Cancel the current run of the program.
+	 * The run stops after the current statement, and
+	 * it may be continued later.
+	 * When the current statement is a loop or a subroutine call,
+	 * it is stopped at the start of its next iteration with an
+	 * {@link InterpreterCanceledException}; the variables keep the
+	 * values of the stopped iteration, and the statement is run again
+	 * from its start when the program is continued.
+	 * This function may be invoked from any thread.
+	 */
+	public void cancel() {
+		this.canceled = true;
+		if (this.interpreter instanceof AbstractInterpreter) {
+			((AbstractInterpreter)this.interpreter).cancel();
+		}
+	}
+	
+	/** Forget the previous cancellations before a new run.
+	 */
+	private void resetCancellation() {
+		this.canceled = false;
+		if (this.interpreter instanceof AbstractInterpreter) {
+			((AbstractInterpreter)this.interpreter).clearCancellation();
+		}
+	}
+
+	/** Replies if the next statement may be run,
+	 * and reset the cancellation flag if not.
+	 * 
+	 * @return <code>true</code> if the program may continue.
+	 */
+	private boolean isRunnable() {
+		if (this.canceled) {
+			this.canceled = false;
+			return false;
+		}
+		return this.currentContext!=null && this.currentContext.getCurrentLine()>0;
+	}
+
+	/** Run the program until it stop.
+	 * @throws InterpreterException
+	 */
+	public void runToEnd() throws InterpreterException {
+		resetCancellation();
+		do {
+			runStatement();
+		}
+		while (isRunnable());
+		closeContext();
+		this.interpreter.getStandardOutput().flush();
+	}
+
 	/** Run one step.
 	 * @throws InterpreterException
 	 */
 	public void step() throws InterpreterException {
-		this.currentContext = this.interpreter.runStatement(this.currentContext);
+		resetCancellation();
+		runStatement();
+		this.interpreter.getStandardOutput().flush();
 	}
 
 	/** Run the program until the given line reached.
@@ -94,11 +303,39 @@ public class DebugInterpreter {
 	 * @throws InterpreterException
 	 */
 	public void runUntilLine(int line) throws InterpreterException {
+		resetCancellation();
 		do {
-			this.currentContext = this.interpreter.runStatement(this.currentContext);
+			runStatement();
+		}
+		while (isRunnable() && this.currentContext.getCurrentLine()!=line);
+		this.interpreter.getStandardOutput().flush();
+	}
+
+	/** Run the program until a breakpoint is reached or the program stops.
+	 * The statement on the current line is always run, so that
+	 * calling this function again continues after the breakpoint.
+	 * 
+	 * @return the reached breakpoint, or <code>null</code> if the program has stopped.
+	 * @throws InterpreterException
+	 */
+	public Breakpoint runToBreakpoint() throws InterpreterException {
+		Breakpoint breakpoint = null;
+		resetCancellation();
+		do {
+			runStatement();
+			if (this.currentContext!=null) {
+				int line = this.currentContext.getCurrentLine();
+				if (this.breakpoints.isArmed(line)) {
+					breakpoint = this.breakpoints.hit(this.currentContext, line);
+				}
+			}
+		}
+		while (breakpoint==null && isRunnable());
+		if (breakpoint==null) {
+			closeContext();
 		}
-		while (this.currentContext!=null && this.currentContext.getCurrentLine()>0
-				&& this.currentContext.getCurrentLine()!=line);
+		this.interpreter.getStandardOutput().flush();
+		return breakpoint;
 	}
 
 }
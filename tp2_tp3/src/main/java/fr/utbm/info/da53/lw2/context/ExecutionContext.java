@@ -37,6 +37,9 @@ public class ExecutionContext {
 		
 	private final WeakReference<Interpreter> interpreter;
 	private SymbolTable topTable;
+	/** Symbol table of the root context.
+	 */
+	private SymbolTable rootTable;
 	private ExecutionContext parent;
 	private int currentLine = -1;
 	private int nextLine = -1;
@@ -70,15 +73,32 @@ public class ExecutionContext {
 				this.topTable = new SymbolTable();
 			else
 				this.topTable = table;
+			this.rootTable = this.topTable;
 		}
 		else {
 			this.interpreter = null;
 			this.topTable = null;
+			this.rootTable = parent.rootTable;
 			this.nextLine = parent.nextLine;
 			this.currentLine = parent.currentLine;
 		}
 	}
 	
+	/** Attach this context to the given parent, as if this
+	 * context was created with {@link #ExecutionContext(ExecutionContext)}.
+	 * This function permits to reuse a closed context that
+	 * was not a root context.
+	 * 
+	 * @param parent
+	 */
+	void attach(ExecutionContext parent) {
+		assert(parent!=null && this.topTable==null && this.interpreter==null);
+		this.parent = parent;
+		this.rootTable = parent.rootTable;
+		this.nextLine = parent.nextLine;
+		this.currentLine = parent.currentLine;
+	}
+	
 	/** Replies the interpreter.
 	 * 
 	 * @return the interpreter.
@@ -109,9 +129,19 @@ public class ExecutionContext {
 		if (this.topTable!=null)
 			this.topTable.clear();
 		this.topTable = null;
+		this.rootTable = null;
 		this.parent = null;
 	}
 	
+	/** Replies the symbol table of this context.
+	 * 
+	 * @return the symbol table, or <code>null</code> if the variables
+	 * are stored in the parent contexts.
+	 */
+	SymbolTable getSymbolTable() {
+		return this.topTable;
+	}
+	
 	/** Set the current executed line.
 	 * 
 	 * @param lineNumber
@@ -163,6 +193,24 @@ public class ExecutionContext {
 		return snap;
 	}
 
+	/** Replies the entries of the symbol tables that were changed
+	 * since the last invocation of this function.
+	 * 
+	 * @return the changed entries.
+	 * @see SymbolTable#pollChanges()
+	 */
+	public Set<SymbolTableEntry> pollChanges() {
+		Set<SymbolTableEntry> changes = new TreeSet<SymbolTableEntry>();
+		ExecutionContext context = this;
+		while (context!=null) {
+			if (context.topTable!=null) {
+				changes.addAll(context.topTable.pollChanges());
+			}
+			context = context.getParent();
+		}
+		return changes;
+	}
+
 	/** Replies the value of a variable.
 	 * 
 	 * @param variableName
@@ -180,6 +228,17 @@ public class ExecutionContext {
 		return null;
 	}
 
+	/** Replies the variable at the given slot of the symbol table.
+	 * 
+	 * @param slot
+	 * @return the variable entry
+	 * @see SymbolTableEntry#slot()
+	 */
+	public SymbolTableEntry getSymbolTableEntry(int slot) {
+		SymbolTable table = this.rootTable;
+		return (table==null) ? null : table.get(slot);
+	}
+
 	/** Declare a variable.
 	 * 
 	 * @param variableName
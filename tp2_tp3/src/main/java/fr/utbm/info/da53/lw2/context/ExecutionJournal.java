@@ -0,0 +1,484 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableJournal;
+import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.ValueArray;
+
+/**
+ * Journal of the steps of a debugged program, which permits
+ * to go back to a previous step.
+ * <p>
+ * Before each step, the journal records the line of the statement and the
+ * depth of the contexts. Before each write in the symbol table, it records the
+ * slot and the previous value; only the first write of a step in a variable or
+ * in an array element is recorded. These entries are stored in a ring of
+ * fixed-size chunks: when the ring is full, the oldest chunk is reused, and
+ * the oldest steps cannot be undone anymore.
+ * <p>
+ * Every <i>n</i> steps, a checkpoint copies all the values and the contexts.
+ * To go back to a step, the journal restores the first checkpoint after
+ * this step, and undoes the entries that were recorded between the step and
+ * the checkpoint. The cost does not depend on the distance to the step.
+ * <p>
+ * The outputs and the inputs of the program are not recorded: the
+ * statements are not run again when going back.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ExecutionJournal implements SymbolTableJournal {
+
+	/** Default number of entries in the journal.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+	
+	/** Default number of steps between two checkpoints.
+	 */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 4096;
+	
+	private static final int CHUNK_SIZE = 4096;
+	
+	private static final byte STEP = 0;
+	private static final byte VALUE = 1;
+	private static final byte ELEMENT = 2;
+	
+	private final SymbolTable symbolTable;
+	private final Chunk[] chunks;
+	private final int checkpointInterval;
+	private final Deque<Checkpoint> checkpoints = new ArrayDeque<Checkpoint>();
+	
+	/** Index of the first entry in the journal.
+	 */
+	private long firstEntry = 0;
+	/** Index of the entry after the last entry in the journal.
+	 */
+	private long endEntry = 0;
+	/** Oldest step that could be undone.
+	 */
+	private long firstStep = 0;
+	/** Number of the next step.
+	 */
+	private long step = 0;
+	
+	/** Slots that were written during the current step.
+	 */
+	private final BitSet writtenSlots = new BitSet();
+	/** Elements that were written during the current step.
+	 */
+	private final Map<ValueArray,BitSet> writtenElements = new IdentityHashMap<ValueArray,BitSet>();
+	
+	/**
+	 * @param symbolTable is the observed symbol table.
+	 * @param capacity is the maximal number of entries in the journal.
+	 * @param checkpointInterval is the number of steps between two checkpoints.
+	 */
+	public ExecutionJournal(SymbolTable symbolTable, int capacity, int checkpointInterval) {
+		assert(symbolTable!=null);
+		this.symbolTable = symbolTable;
+		this.chunks = new Chunk[Math.max(2, (capacity + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+		this.checkpointInterval = Math.max(1, checkpointInterval);
+	}
+	
+	/** Replies the number of the next step, which is also the
+	 * number of recorded steps.
+	 * 
+	 * @return the number of the next step.
+	 */
+	public long getStep() {
+		return this.step;
+	}
+	
+	/** Replies the oldest step that could be restored.
+	 * 
+	 * @return the oldest step.
+	 */
+	public long getFirstStep() {
+		return this.firstStep;
+	}
+	
+	/** Replies if the given step could be restored.
+	 * 
+	 * @param target
+	 * @return <code>true</code> if the step could be restored.
+	 */
+	public boolean canRewind(long target) {
+		return target>=this.firstStep && target<this.step;
+	}
+	
+	/** Replies the last step that has run the given line.
+	 * 
+	 * @param line
+	 * @return the step, or <code>-1</code> if the line was not run
+	 * during the recorded steps.
+	 */
+	public long findStep(int line) {
+		long s = this.step;
+		for(long entry=this.endEntry-1; entry>=this.firstEntry && s>this.firstStep; --entry) {
+			Chunk chunk = chunk(entry);
+			int offset = offset(entry);
+			if (chunk.kinds[offset]==STEP) {
+				--s;
+				if (chunk.slots[offset]==line) {
+					return s;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	/** Record the beginning of a step.
+	 * 
+	 * @param context is the context in which the step is run.
+	 */
+	public void beginStep(ExecutionContext context) {
+		this.writtenSlots.clear();
+		if (!this.writtenElements.isEmpty()) {
+			this.writtenElements.clear();
+		}
+		if (this.step % this.checkpointInterval == 0) {
+			this.checkpoints.addLast(new Checkpoint(this.step, this.endEntry,
+					this.symbolTable.saveValues(), context));
+		}
+		ExecutionContext parent = context.getParent();
+		int entry = append(STEP, context.getCurrentLine(), depth(context),
+				(parent==null) ? -1 : parent.getNextLine(), null, null);
+		Chunk chunk = chunk(this.endEntry-1);
+		if (chunk.firstStep<0) {
+			chunk.firstStep = this.step;
+			chunk.firstStepOffset = entry;
+		}
+		++this.step;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void beforeWrite(int slot, Value oldValue) {
+		if (!this.writtenSlots.get(slot)) {
+			this.writtenSlots.set(slot);
+			Value old = new Value();
+			old.set(oldValue);
+			append(VALUE, slot, 0, 0, old, null);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void beforeWriteAt(int slot, ValueArray array, int index) {
+		BitSet indexes = this.writtenElements.get(array);
+		if (indexes==null) {
+			indexes = new BitSet();
+			this.writtenElements.put(array, indexes);
+		}
+		if (index>=0 && !indexes.get(index)) {
+			indexes.set(index);
+			int size = array.size();
+			Value old = null;
+			if (index<size) {
+				old = new Value();
+				old.set(array.get(index));
+			}
+			append(ELEMENT, slot, index, size, array, old);
+		}
+	}
+	
+	/** Restore the state of the program before the given step.
+	 * The steps after the given step are removed from the journal.
+	 * 
+	 * @param target is the step to restore.
+	 * @param current is the current context.
+	 * @param root is the root context.
+	 * @return the context of the restored step.
+	 * @see #canRewind(long)
+	 */
+	public ExecutionContext rewind(long target, ExecutionContext current, ExecutionContext root) {
+		assert(canRewind(target));
+		
+		ExecutionContext context = current;
+		long entry = this.endEntry;
+		long s = this.step;
+		
+		Checkpoint checkpoint = null;
+		for(Checkpoint c : this.checkpoints) {
+			if (c.step>=target) {
+				checkpoint = c;
+				break;
+			}
+		}
+		if (checkpoint!=null) {
+			this.symbolTable.restoreValues(checkpoint.values);
+			context = checkpoint.restoreContexts(root);
+			entry = checkpoint.entry;
+			s = checkpoint.step;
+		}
+		
+		while (s>target) {
+			--entry;
+			Chunk chunk = chunk(entry);
+			int offset = offset(entry);
+			switch(chunk.kinds[offset]) {
+			case STEP:
+				--s;
+				context = restoreContext(context, root,
+						chunk.slots[offset], chunk.values1[offset], chunk.values2[offset]);
+				break;
+			case VALUE:
+				this.symbolTable.restoreValue(chunk.slots[offset], (Value)chunk.objects1[offset]);
+				break;
+			case ELEMENT:
+				this.symbolTable.restoreValueAt(chunk.slots[offset],
+						(ValueArray)chunk.objects1[offset],
+						chunk.values1[offset],
+						(Value)chunk.objects2[offset],
+						chunk.values2[offset]);
+				break;
+			default:
+			}
+		}
+		
+		truncate(entry);
+		this.step = target;
+		while (!this.checkpoints.isEmpty() && this.checkpoints.getLast().step>target) {
+			this.checkpoints.removeLast();
+		}
+		this.writtenSlots.clear();
+		this.writtenElements.clear();
+		return context;
+	}
+	
+	private static ExecutionContext restoreContext(ExecutionContext current, ExecutionContext root,
+			int line, int depth, int parentNextLine) {
+		ExecutionContext context = (current==null) ? root : current;
+		int d = depth(context);
+		while (d>depth) {
+			context = context.getParent();
+			--d;
+		}
+		while (d<depth) {
+			context = new ExecutionContext(context);
+			++d;
+		}
+		context.setCurrentLine(line);
+		context.setNextLine(-1);
+		if (context.getParent()!=null) {
+			context.getParent().setNextLine(parentNextLine);
+		}
+		return context;
+	}
+	
+	private static int depth(ExecutionContext context) {
+		int depth = 0;
+		ExecutionContext parent = context.getParent();
+		while (parent!=null) {
+			++depth;
+			parent = parent.getParent();
+		}
+		return depth;
+	}
+	
+	private Chunk chunk(long entry) {
+		return this.chunks[(int)((entry / CHUNK_SIZE) % this.chunks.length)];
+	}
+	
+	private static int offset(long entry) {
+		return (int)(entry % CHUNK_SIZE);
+	}
+	
+	/** Add an entry at the end of the journal.
+	 * 
+	 * @return the offset of the entry in its chunk.
+	 */
+	private int append(byte kind, int slot, int value1, int value2, Object object1, Object object2) {
+		int offset = offset(this.endEntry);
+		int index = (int)((this.endEntry / CHUNK_SIZE) % this.chunks.length);
+		if (offset==0) {
+			if (this.endEntry - this.firstEntry >= (long)CHUNK_SIZE * this.chunks.length) {
+				dropFirstChunk();
+			}
+			if (this.chunks[index]==null) {
+				this.chunks[index] = new Chunk();
+			}
+			this.chunks[index].firstStep = -1;
+		}
+		Chunk chunk = this.chunks[index];
+		chunk.kinds[offset] = kind;
+		chunk.slots[offset] = slot;
+		chunk.values1[offset] = value1;
+		chunk.values2[offset] = value2;
+		chunk.objects1[offset] = object1;
+		chunk.objects2[offset] = object2;
+		++this.endEntry;
+		return offset;
+	}
+	
+	/** Remove the oldest chunk of the journal, and update the
+	 * oldest step that could be undone.
+	 */
+	private void dropFirstChunk() {
+		chunk(this.firstEntry).clear();
+		this.firstEntry += CHUNK_SIZE;
+		this.firstStep = this.step;
+		for(long entry=this.firstEntry; entry<this.endEntry; entry+=CHUNK_SIZE) {
+			Chunk chunk = chunk(entry);
+			if (chunk.firstStep>=0) {
+				this.firstStep = chunk.firstStep;
+				break;
+			}
+		}
+		Iterator<Checkpoint> iterator = this.checkpoints.iterator();
+		while (iterator.hasNext() && iterator.next().step<this.firstStep) {
+			iterator.remove();
+		}
+	}
+	
+	/** Remove the entries at the given index and after.
+	 */
+	private void truncate(long end) {
+		for(long entry=end; entry<this.endEntry; ++entry) {
+			Chunk chunk = chunk(entry);
+			int offset = offset(entry);
+			chunk.objects1[offset] = null;
+			chunk.objects2[offset] = null;
+			if (chunk.firstStepOffset==offset) {
+				chunk.firstStep = -1;
+			}
+		}
+		this.endEntry = end;
+	}
+	
+	/**
+	 * Chunk of entries in a journal.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static class Chunk {
+		
+		final byte[] kinds = new byte[CHUNK_SIZE];
+		/** Slot of the variable, or line of the step.
+		 */
+		final int[] slots = new int[CHUNK_SIZE];
+		/** Index of the element, or depth of the context.
+		 */
+		final int[] values1 = new int[CHUNK_SIZE];
+		/** Size of the array, or next line of the parent context.
+		 */
+		final int[] values2 = new int[CHUNK_SIZE];
+		/** Previous value, or changed array.
+		 */
+		final Object[] objects1 = new Object[CHUNK_SIZE];
+		/** Previous element of the array.
+		 */
+		final Object[] objects2 = new Object[CHUNK_SIZE];
+		/** Number of the first step in this chunk.
+		 */
+		long firstStep = -1;
+		int firstStepOffset = -1;
+		
+		/**
+		 */
+		public Chunk() {
+			//
+		}
+		
+		/** Release the values of the entries.
+		 */
+		public void clear() {
+			Arrays.fill(this.objects1, null);
+			Arrays.fill(this.objects2, null);
+			this.firstStep = -1;
+			this.firstStepOffset = -1;
+		}
+		
+	}
+	
+	/**
+	 * Copy of the state of a program.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static class Checkpoint {
+		
+		final long step;
+		final long entry;
+		final SymbolTable.Snapshot values;
+		/** Current and next lines of the contexts, from the root context.
+		 */
+		final int[] lines;
+		
+		/**
+		 * @param step is the number of the step.
+		 * @param entry is the index of the first entry of the step.
+		 * @param values are the values of the variables.
+		 * @param context is the context of the step.
+		 */
+		public Checkpoint(long step, long entry, SymbolTable.Snapshot values, ExecutionContext context) {
+			this.step = step;
+			this.entry = entry;
+			this.values = values;
+			List<ExecutionContext> contexts = new ArrayList<ExecutionContext>();
+			ExecutionContext c = context;
+			while (c!=null) {
+				contexts.add(c);
+				c = c.getParent();
+			}
+			this.lines = new int[contexts.size()*2];
+			for(int i=0, j=contexts.size()-1; j>=0; i+=2, --j) {
+				this.lines[i] = contexts.get(j).getCurrentLine();
+				this.lines[i+1] = contexts.get(j).getNextLine();
+			}
+		}
+		
+		/** Restore the contexts.
+		 * 
+		 * @param root is the root context.
+		 * @return the context of the step.
+		 */
+		public ExecutionContext restoreContexts(ExecutionContext root) {
+			ExecutionContext context = root;
+			for(int i=0; i<this.lines.length; i+=2) {
+				if (i>0) {
+					context = new ExecutionContext(context);
+				}
+				context.setCurrentLine(this.lines[i]);
+				context.setNextLine(this.lines[i+1]);
+			}
+			return context;
+		}
+		
+	}
+	
+}
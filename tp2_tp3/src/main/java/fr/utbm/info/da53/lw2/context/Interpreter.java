@@ -95,6 +95,13 @@ public interface Interpreter {
 	 */
 	public void exit();
 
+	/** Replies if the program was stopped by {@link #exit()}.
+	 * The interpreter does not run statements after the exit.
+	 * 
+	 * @return <code>true</code> if the program has exited.
+	 */
+	public boolean isKilled();
+
 	/** Add a listener on the interpreter events.
 	 * 
 	 * @param listener
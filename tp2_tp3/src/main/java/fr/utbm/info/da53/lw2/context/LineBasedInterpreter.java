@@ -18,13 +18,8 @@
  */
 package fr.utbm.info.da53.lw2.context;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 
@@ -33,23 +28,19 @@ import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.error.InterpreterWarning;
 import fr.utbm.info.da53.lw2.symbol.SymbolTable;
-import fr.utbm.info.da53.lw2.type.Value;
 
 /**
- * Abstract implementation of an Interpreter.
+ * Interpreter that runs the syntax trees line by line.
  * 
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
  */
-public class LineBasedInterpreter implements Interpreter {
+public class LineBasedInterpreter extends AbstractInterpreter {
 
 	private final SortedMap<Integer,Statement> code;
 	private final SymbolTable symbolTable;
 	private Iterator<Entry<Integer,Statement>> stream;
 	private Entry<Integer,Statement> current;
-	private StandardInput stdin = new StdIn();
-	private StandardOutput stdout = new StdOut();
-	private final List<InterpreterListener> listeners = new ArrayList<InterpreterListener>();
 	
 	/**
 	 * @param code
@@ -68,51 +59,6 @@ public class LineBasedInterpreter implements Interpreter {
 		}
 	}
 	
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void addInterpreterListener(InterpreterListener listener) {
-		synchronized(this.listeners) {
-			this.listeners.add(listener);
-		}
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void removeInterpreterListener(InterpreterListener listener) {
-		synchronized(this.listeners) {
-			this.listeners.remove(listener);
-		}
-	}
-
-	/**
-	 * Replies the listeners.
-	 * @return the listeners.
-	 */
-	protected InterpreterListener[] getListeners() {
-		synchronized(this.listeners) {
-			InterpreterListener[] list = new InterpreterListener[this.listeners.size()];
-			this.listeners.toArray(list);
-			return list;
-		}
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void exit() {
-		boolean notified = false;
-		for(InterpreterListener listener : getListeners()) {
-			notified = true;
-			listener.interpreterKilled(this);
-		}
-		if (!notified) System.exit(0);
-	}
-
 	/**
 	 * {@inheritDoc}
 	 */
@@ -137,7 +83,15 @@ public class LineBasedInterpreter implements Interpreter {
 				else
 					context.setNextLine(-1);
 				
+				countStatement();
+				LineProfiler profiler = getProfiler();
+				if (profiler!=null) {
+					profiler.enterStatement(currentLine, context);
+				}
 				nextContext = currentStatement.run(context);
+				if (profiler!=null) {
+					profiler.exitStatement(context, nextContext);
+				}
 				
 				int nextLine = nextContext.getNextLine();
 				if (nextLine>0 && (followingEntry==null || nextLine!=followingEntry.getKey())) {
@@ -146,6 +100,11 @@ public class LineBasedInterpreter implements Interpreter {
 				
 				nextContext.setCurrentLine(followingEntry==null ? -1 : nextLine);
 				nextContext.setNextLine(-1);
+				
+				if (isKilled()) {
+					nextContext.setCurrentLine(-1);
+					followingEntry = null;
+				}
 			}
 			else {
 				ErrorRepository.add(new InterpreterWarning(InterpreterErrorType.NOTHING_TO_RUN, context.getCurrentLine()));
@@ -176,18 +135,34 @@ public class LineBasedInterpreter implements Interpreter {
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	void seek(int line) {
+		if (this.code!=null) {
+			this.stream = this.code.tailMap(line).entrySet().iterator();
+			this.current = this.stream.hasNext() ? this.stream.next() : null;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void run() throws InterpreterException {
 		ExecutionContext context = new ExecutionContext(this, this.symbolTable);
-		do {
-			context = runStatement(context);
+		try {
+			do {
+				context = runStatement(context);
+			}
+			while (context!=null && context.getCurrentLine()>0);
+			if (context!=null) {
+				context.close();
+			}
 		}
-		while (context!=null && context.getCurrentLine()>0);
-		if (context!=null) {
-			context.close();
+		finally {
+			getStandardOutput().flush();
 		}
 		this.symbolTable.resetValues();
 	}
@@ -198,10 +173,16 @@ public class LineBasedInterpreter implements Interpreter {
 	@Override
 	public void reentrantRun(ExecutionContext executionContext, Statement statement)
 			throws InterpreterException {
-		if (statement!=null) {
+		if (statement!=null && !isKilled()) {
+			checkCancellation(executionContext);
+			countStatement();
 			ExecutionContext origin = new ExecutionContext(executionContext);
 			ExecutionContext context = origin;
 			context = statement.run(context);
+			LineProfiler profiler = getProfiler();
+			if (profiler!=null) {
+				profiler.iteration(origin, context);
+			}
 			if (context!=origin && context!=null && context.getCurrentLine()>0) {
 				Entry<Integer,Statement> entry = detectNextCS(context.getCurrentLine(), context.getNextLine());
 				context.setCurrentLine(entry==null ? -1 : context.getNextLine());
@@ -239,113 +220,4 @@ public class LineBasedInterpreter implements Interpreter {
 		return Collections.unmodifiableSortedMap(this.code);
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void setStandardInput(StandardInput stdin) {
-		if (stdin==null)
-			this.stdin = new StdIn();
-		else
-			this.stdin = stdin;
-
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public StandardInput getStandardInput() {
-		return this.stdin;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void setStandardOutput(StandardOutput stdout) {
-		if (stdout==null)
-			this.stdout = new StdOut();
-		else
-			this.stdout = stdout;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public StandardOutput getStandardOutput() {
-		return this.stdout;
-	}
-
-	/**
-	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
-	 * @version $Name$ $Revision$ $Date$
-	 */
-	private class StdIn implements StandardInput {
-
-		/**
-		 */
-		public StdIn() {
-			//
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public Value readString(String message) {
-			StandardOutput stdout = getStandardOutput();
-			stdout.print(message);
-			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-			String line;
-			try {
-				line = reader.readLine();
-			}
-			catch (IOException ex) {
-				return Value.UNDEF;
-			}
-			return Value.parseValue(line);
-		}
-		
-	}
-
-	/**
-	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
-	 * @version $Name$ $Revision$ $Date$
-	 */
-	private static class StdOut implements StandardOutput {
-
-		/**
-		 */
-		public StdOut() {
-			//
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void println(String message) {
-			System.out.println(message);
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void print(String message) {
-			System.out.print(message);
-		}
-		
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void println() {
-			System.out.println();
-		}
-
-	}
-
-}
\ No newline at end of file
+}
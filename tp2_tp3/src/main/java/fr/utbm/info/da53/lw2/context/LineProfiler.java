@@ -0,0 +1,460 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.context;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+/**
+ * Profiler of the lines of a program.
+ * <p>
+ * The profiler is enabled by {@link AbstractInterpreter#setProfiler(LineProfiler)};
+ * the interpreter notifies it before and after each statement, and when
+ * a subroutine is called inside a loop. For each line, the profiler records
+ * the number of runs, the number of loop iterations, the inclusive time
+ * (including the subroutines called from the line and the statements run
+ * inside its loops) and the exclusive time. The GOSUB calls are recorded as
+ * edges between the calling line and the called line. The exclusive times
+ * are also recorded per stack of calls for building flame graphs.
+ * <p>
+ * All the values are stored in arrays indexed by the position of the line
+ * in the program.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class LineProfiler {
+
+	private static final int ROOT = 0;
+	
+	private final int[] lines;
+	private final Object[] statements;
+	private final long[] counts;
+	private final long[] iterations;
+	private final long[] inclusiveTimes;
+	private final long[] exclusiveTimes;
+	
+	// Stack of the running statements
+	private int[] frameLines = new int[16];
+	private int[] frameNodes = new int[16];
+	private long[] frameStarts = new long[16];
+	private long[] frameChildTimes = new long[16];
+	private ExecutionContext[] frameParents = new ExecutionContext[16];
+	private int frameCount = 0;
+	
+	// Stack of the GOSUB calls
+	private int[] callNodes = new int[16];
+	private int[] callLines = new int[16];
+	private int[] callEdges = new int[16];
+	private long[] callStarts = new long[16];
+	private boolean[] callNested = new boolean[16];
+	private int callCount = 0;
+	
+	// GOSUB edges
+	private final LongIntHashMap edgeIndexes = new LongIntHashMap();
+	private int[] edgeSources = new int[16];
+	private int[] edgeTargets = new int[16];
+	private long[] edgeCounts = new long[16];
+	private long[] edgeTimes = new long[16];
+	private int edgeCount = 0;
+	
+	// Calling context tree
+	private final LongIntHashMap nodeIndexes = new LongIntHashMap();
+	private int[] nodeParents = new int[16];
+	private int[] nodeLines = new int[16];
+	private long[] nodeTimes = new long[16];
+	private int nodeCount = 1;
+	
+	/**
+	 * @param code is the code of the program to profile.
+	 */
+	public LineProfiler(SortedMap<Integer,Statement> code) {
+		int size = code.size();
+		this.lines = new int[size];
+		this.statements = new Object[size];
+		int i = 0;
+		for(Entry<Integer,Statement> entry : code.entrySet()) {
+			this.lines[i] = entry.getKey();
+			this.statements[i] = entry.getValue();
+			++i;
+		}
+		this.counts = new long[size];
+		this.iterations = new long[size];
+		this.inclusiveTimes = new long[size];
+		this.exclusiveTimes = new long[size];
+		this.nodeParents[ROOT] = -1;
+		this.nodeLines[ROOT] = -1;
+	}
+	
+	/** Invoked before running the statement on the given line.
+	 * 
+	 * @param line
+	 * @param context is the context given to the statement.
+	 */
+	void enterStatement(int line, ExecutionContext context) {
+		int index = Arrays.binarySearch(this.lines, line);
+		int n = this.frameCount;
+		if (n==this.frameLines.length) {
+			int capacity = n * 2;
+			this.frameLines = Arrays.copyOf(this.frameLines, capacity);
+			this.frameNodes = Arrays.copyOf(this.frameNodes, capacity);
+			this.frameStarts = Arrays.copyOf(this.frameStarts, capacity);
+			this.frameChildTimes = Arrays.copyOf(this.frameChildTimes, capacity);
+			this.frameParents = Arrays.copyOf(this.frameParents, capacity);
+		}
+		// The context is detached from its parent when it returns from a subroutine
+		this.frameParents[n] = context.getParent();
+		this.frameLines[n] = index;
+		if (index>=0) {
+			++this.counts[index];
+			this.frameNodes[n] = getNode(
+					this.callCount>0 ? this.callNodes[this.callCount-1] : ROOT,
+					index);
+		}
+		else {
+			this.frameNodes[n] = -1;
+		}
+		this.frameChildTimes[n] = 0;
+		this.frameCount = n + 1;
+		this.frameStarts[n] = System.nanoTime();
+	}
+	
+	/** Invoked after running a statement.
+	 * 
+	 * @param context is the context given to the statement.
+	 * @param nextContext is the context replied by the statement.
+	 */
+	void exitStatement(ExecutionContext context, ExecutionContext nextContext) {
+		long now = System.nanoTime();
+		if (this.frameCount==0) return;
+		int n = --this.frameCount;
+		long elapsed = now - this.frameStarts[n];
+		int index = this.frameLines[n];
+		if (index>=0) {
+			this.inclusiveTimes[index] += elapsed;
+			long exclusive = elapsed - this.frameChildTimes[n];
+			this.exclusiveTimes[index] += exclusive;
+			this.nodeTimes[this.frameNodes[n]] += exclusive;
+		}
+		if (n>0) {
+			this.frameChildTimes[n-1] += elapsed;
+		}
+		ExecutionContext parent = this.frameParents[n];
+		this.frameParents[n] = null;
+		if (nextContext!=context && nextContext!=null) {
+			if (nextContext.getParent()==context) {
+				pushCall(this.frameNodes[n], index, nextContext.getNextLine(), now, false);
+			}
+			else if (parent==nextContext) {
+				popCall(now);
+			}
+		}
+	}
+	
+	/** Invoked when a statement is run inside a loop.
+	 * 
+	 * @param context is the context of the statement inside the loop.
+	 * @param nextContext is the context replied by the statement inside the loop.
+	 */
+	void iteration(ExecutionContext context, ExecutionContext nextContext) {
+		if (this.frameCount==0) return;
+		int n = this.frameCount - 1;
+		int index = this.frameLines[n];
+		if (index>=0) {
+			++this.iterations[index];
+		}
+		if (nextContext!=context && nextContext!=null && nextContext.getParent()==context) {
+			pushCall(this.frameNodes[n], index, nextContext.getNextLine(), System.nanoTime(), true);
+		}
+	}
+	
+	private void pushCall(int node, int index, int targetLine, long now, boolean nested) {
+		if (index<0 || node<0) return;
+		int n = this.callCount;
+		if (n==this.callNodes.length) {
+			int capacity = n * 2;
+			this.callNodes = Arrays.copyOf(this.callNodes, capacity);
+			this.callLines = Arrays.copyOf(this.callLines, capacity);
+			this.callEdges = Arrays.copyOf(this.callEdges, capacity);
+			this.callStarts = Arrays.copyOf(this.callStarts, capacity);
+			this.callNested = Arrays.copyOf(this.callNested, capacity);
+		}
+		int edge = getEdge(this.lines[index], targetLine);
+		++this.edgeCounts[edge];
+		this.callNodes[n] = node;
+		this.callLines[n] = index;
+		this.callEdges[n] = edge;
+		this.callStarts[n] = now;
+		this.callNested[n] = nested;
+		this.callCount = n + 1;
+	}
+	
+	private void popCall(long now) {
+		if (this.callCount==0) return;
+		int n = --this.callCount;
+		long elapsed = now - this.callStarts[n];
+		this.edgeTimes[this.callEdges[n]] += elapsed;
+		if (!this.callNested[n]) {
+			// The time of a call inside a loop is already in the time of the loop statement.
+			this.inclusiveTimes[this.callLines[n]] += elapsed;
+		}
+	}
+	
+	private int getEdge(int source, int target) {
+		long key = (((long)source) << 32) | (target & 0xFFFFFFFFL);
+		int edge = this.edgeIndexes.get(key);
+		if (edge<0) {
+			edge = this.edgeCount++;
+			if (edge==this.edgeSources.length) {
+				int capacity = edge * 2;
+				this.edgeSources = Arrays.copyOf(this.edgeSources, capacity);
+				this.edgeTargets = Arrays.copyOf(this.edgeTargets, capacity);
+				this.edgeCounts = Arrays.copyOf(this.edgeCounts, capacity);
+				this.edgeTimes = Arrays.copyOf(this.edgeTimes, capacity);
+			}
+			this.edgeSources[edge] = source;
+			this.edgeTargets[edge] = target;
+			this.edgeIndexes.put(key, edge);
+		}
+		return edge;
+	}
+	
+	private int getNode(int parent, int index) {
+		long key = (((long)parent) << 32) | index;
+		int node = this.nodeIndexes.get(key);
+		if (node<0) {
+			node = this.nodeCount++;
+			if (node==this.nodeParents.length) {
+				int capacity = node * 2;
+				this.nodeParents = Arrays.copyOf(this.nodeParents, capacity);
+				this.nodeLines = Arrays.copyOf(this.nodeLines, capacity);
+				this.nodeTimes = Arrays.copyOf(this.nodeTimes, capacity);
+			}
+			this.nodeParents[node] = parent;
+			this.nodeLines[node] = index;
+			this.nodeTimes[node] = 0;
+			this.nodeIndexes.put(key, node);
+		}
+		return node;
+	}
+	
+	/** Replies the number of runs of the statement on the given line.
+	 * 
+	 * @param line
+	 * @return the number of runs.
+	 */
+	public long getCount(int line) {
+		int index = Arrays.binarySearch(this.lines, line);
+		return (index<0) ? 0 : this.counts[index];
+	}
+
+	/** Replies the inclusive time of the given line.
+	 * 
+	 * @param line
+	 * @return the time in nanoseconds.
+	 */
+	public long getInclusiveTime(int line) {
+		int index = Arrays.binarySearch(this.lines, line);
+		return (index<0) ? 0 : this.inclusiveTimes[index];
+	}
+
+	/** Replies the exclusive time of the given line.
+	 * 
+	 * @param line
+	 * @return the time in nanoseconds.
+	 */
+	public long getExclusiveTime(int line) {
+		int index = Arrays.binarySearch(this.lines, line);
+		return (index<0) ? 0 : this.exclusiveTimes[index];
+	}
+	
+	/** Reset the recorded values.
+	 */
+	public void reset() {
+		Arrays.fill(this.counts, 0);
+		Arrays.fill(this.iterations, 0);
+		Arrays.fill(this.inclusiveTimes, 0);
+		Arrays.fill(this.exclusiveTimes, 0);
+		Arrays.fill(this.frameParents, null);
+		this.frameCount = 0;
+		this.callCount = 0;
+		this.edgeIndexes.clear();
+		this.edgeCount = 0;
+		this.nodeIndexes.clear();
+		this.nodeCount = 1;
+		this.nodeTimes[ROOT] = 0;
+	}
+	
+	/** Write the lines sorted by decreasing exclusive times.
+	 * 
+	 * @param output
+	 * @param limit is the maximal number of lines to write.
+	 * @throws IOException
+	 */
+	public void writeHotLines(Appendable output, int limit) throws IOException {
+		Integer[] order = new Integer[this.lines.length];
+		long total = 0;
+		for(int i=0; i<order.length; ++i) {
+			order[i] = i;
+			total += this.exclusiveTimes[i];
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(this.exclusiveTimes[b], this.exclusiveTimes[a]));
+		output.append(String.format("%8s %12s %12s %12s %12s %7s  %s\n", //$NON-NLS-1$
+				"LINE", "COUNT", "ITERATIONS", "INCL. (ms)", "EXCL. (ms)", "EXCL.%", "STATEMENT")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+		for(int i=0; i<order.length && i<limit; ++i) {
+			int index = order[i];
+			if (this.counts[index]==0) break;
+			output.append(String.format("%8d %12d %12d %12.3f %12.3f %6.2f%%  %s\n", //$NON-NLS-1$
+					this.lines[index],
+					this.counts[index],
+					this.iterations[index],
+					this.inclusiveTimes[index] / 1e6,
+					this.exclusiveTimes[index] / 1e6,
+					(total==0) ? 0. : this.exclusiveTimes[index] * 100. / total,
+					this.statements[index]));
+		}
+		if (this.edgeCount>0) {
+			output.append(String.format("\n%8s %8s %12s %12s\n", //$NON-NLS-1$
+					"FROM", "GOSUB", "CALLS", "TIME (ms)")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			for(int edge=0; edge<this.edgeCount; ++edge) {
+				output.append(String.format("%8d %8d %12d %12.3f\n", //$NON-NLS-1$
+						this.edgeSources[edge],
+						this.edgeTargets[edge],
+						this.edgeCounts[edge],
+						this.edgeTimes[edge] / 1e6));
+			}
+		}
+	}
+
+	/** Write the exclusive times in microseconds for each stack of GOSUB calls,
+	 * with the collapsed format used by the flame graph tools:
+	 * <code>main;10;120;200 1234</code>.
+	 * 
+	 * @param output
+	 * @throws IOException
+	 */
+	public void writeCollapsedStacks(Appendable output) throws IOException {
+		StringBuilder stack = new StringBuilder();
+		int[] path = new int[16];
+		for(int node=1; node<this.nodeCount; ++node) {
+			long micros = this.nodeTimes[node] / 1000;
+			if (micros>0) {
+				int length = 0;
+				int n = node;
+				while (n!=ROOT) {
+					if (length==path.length) {
+						path = Arrays.copyOf(path, length * 2);
+					}
+					path[length++] = this.lines[this.nodeLines[n]];
+					n = this.nodeParents[n];
+				}
+				stack.setLength(0);
+				stack.append("main"); //$NON-NLS-1$
+				for(int i=length-1; i>=0; --i) {
+					stack.append(';');
+					stack.append(path[i]);
+				}
+				stack.append(' ');
+				stack.append(micros);
+				stack.append('\n');
+				output.append(stack);
+			}
+		}
+	}
+	
+	/**
+	 * Hash table from long keys to positive int values, with open addressing.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static class LongIntHashMap {
+
+		private long[] keys = new long[64];
+		private int[] values = new int[64];
+		private int size = 0;
+		
+		/**
+		 */
+		public LongIntHashMap() {
+			Arrays.fill(this.values, -1);
+		}
+		
+		private static int hash(long key, int mask) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int)(h ^ (h >>> 32)) & mask;
+		}
+		
+		/** Replies the value for the key.
+		 * 
+		 * @param key
+		 * @return the value, or <code>-1</code>.
+		 */
+		public int get(long key) {
+			int mask = this.keys.length - 1;
+			int i = hash(key, mask);
+			while (this.values[i]>=0) {
+				if (this.keys[i]==key) return this.values[i];
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+		
+		/** Put a value for a key that is not in the table.
+		 * 
+		 * @param key
+		 * @param value
+		 */
+		public void put(long key, int value) {
+			if ((this.size + 1) * 2 > this.keys.length) {
+				long[] oldKeys = this.keys;
+				int[] oldValues = this.values;
+				this.keys = new long[oldKeys.length * 2];
+				this.values = new int[oldKeys.length * 2];
+				Arrays.fill(this.values, -1);
+				for(int i=0; i<oldKeys.length; ++i) {
+					if (oldValues[i]>=0) insert(oldKeys[i], oldValues[i]);
+				}
+			}
+			insert(key, value);
+			++this.size;
+		}
+		
+		private void insert(long key, int value) {
+			int mask = this.keys.length - 1;
+			int i = hash(key, mask);
+			while (this.values[i]>=0) {
+				i = (i + 1) & mask;
+			}
+			this.keys[i] = key;
+			this.values[i] = value;
+		}
+		
+		/** Remove all the values.
+		 */
+		public void clear() {
+			Arrays.fill(this.values, -1);
+			this.size = 0;
+		}
+		
+	}
+
+}
@@ -42,4 +42,11 @@ public interface StandardOutput {
 	 */
 	public void println();
 
+	/** Force the buffered characters to be written.
+	 * By default, the output is not buffered.
+	 */
+	default void flush() {
+		//
+	}
+
 }
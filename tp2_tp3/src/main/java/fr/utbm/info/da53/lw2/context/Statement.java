@@ -19,6 +19,7 @@
 package fr.utbm.info.da53.lw2.context;
 
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 
 /**
  * Statement in TinyBasic.
@@ -36,4 +37,17 @@ public interface Statement {
 	 */
 	public ExecutionContext run(ExecutionContext context) throws InterpreterException;
 	
+	/** Replies a statement that has the same behavior as this statement,
+	 * and in which the sub-statements and the expressions were
+	 * bound once for all. The variables that are declared in the
+	 * given symbol table are bound to their slots, which are the
+	 * same in all the copies of this table.
+	 * 
+	 * @param symbolTable is the table of the variables of the program.
+	 * @return the compiled statement; by default this statement.
+	 */
+	default Statement compile(SymbolTable symbolTable) {
+		return this;
+	}
+	
 }
@@ -0,0 +1,88 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.error;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List of the warnings and the exceptions generated
+ * by the compiler or the interpreter for one program.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ * @see ErrorRepository
+ */
+public class ErrorLog {
+
+	private final List<Loggable> messages = new ArrayList<Loggable>();
+
+	/**
+	 */
+	public ErrorLog() {
+		//
+	}
+
+	/** Add a message in the log.
+	 * 
+	 * @param m
+	 */
+	public synchronized void add(Loggable m) {
+		this.messages.add(m);
+	}
+	
+	/** Replies if this log has error.
+	 * 
+	 * @return <code>true</code> if an error or a warning is inside.
+	 */
+	public synchronized boolean hasError() {
+		return !this.messages.isEmpty();
+	}
+
+	/** Replies the messages in the log.
+	 * 
+	 * @return a copy of the messages.
+	 */
+	public synchronized List<Loggable> getMessages() {
+		return new ArrayList<Loggable>(this.messages);
+	}
+
+	/** Clear the log.
+	 */
+	public synchronized void clear() {
+		this.messages.clear();
+	}
+
+	/** Print the content of the log.
+	 * @param stream
+	 */
+	public synchronized void print(PrintStream stream) {
+		try {
+			for(Loggable l : this.messages) {
+				l.print(stream);
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
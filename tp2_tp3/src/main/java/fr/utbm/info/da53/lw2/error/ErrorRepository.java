@@ -21,28 +21,56 @@ package fr.utbm.info.da53.lw2.error;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * This class permits to store the warnings and the exceptions
  * generated by the compiler.
+ * <p>
+ * The messages are stored in the {@link ErrorLog} that is
+ * bound to the current thread with {@link #setCurrentLog(ErrorLog)},
+ * or in a log shared by all the threads if none is bound.
  * 
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
  */
 public class ErrorRepository {
 
-	private static final List<Loggable> messages = new ArrayList<Loggable>();
+	private static final ErrorLog sharedLog = new ErrorLog();
+	
+	private static final ThreadLocal<ErrorLog> currentLog = new ThreadLocal<ErrorLog>();
+
+	/** Replies the log in which the messages of the current thread are stored.
+	 * 
+	 * @return the log of the current thread.
+	 */
+	public static ErrorLog getCurrentLog() {
+		ErrorLog log = currentLog.get();
+		return (log==null) ? sharedLog : log;
+	}
+	
+	/** Bind the given log to the current thread.
+	 * 
+	 * @param log is the log to bind, or <code>null</code> to use the shared log.
+	 * @return the log that was previously bound to the thread, or <code>null</code>
+	 * if the thread was using the shared log.
+	 */
+	public static ErrorLog setCurrentLog(ErrorLog log) {
+		ErrorLog previous = currentLog.get();
+		if (log==null) {
+			currentLog.remove();
+		}
+		else {
+			currentLog.set(log);
+		}
+		return previous;
+	}
 
 	/** Add a message in the repository.
 	 * 
 	 * @param m
 	 */
 	public static void add(Loggable m) {
-		synchronized(ErrorRepository.class) {
-			messages.add(m);
-		}
+		getCurrentLog().add(m);
 	}
 	
 	/** Replies if this repository has error.
@@ -50,17 +78,13 @@ public class ErrorRepository {
 	 * @return <code>true</code> if an error or a warning is inside.
 	 */
 	public static boolean hasError() {
-		synchronized(ErrorRepository.class) {
-			return !messages.isEmpty();
-		}
+		return getCurrentLog().hasError();
 	}
 
 	/** Clear the repository.
 	 */
 	public static void clear() {
-		synchronized(ErrorRepository.class) {
-			messages.clear();
-		}
+		getCurrentLog().clear();
 	}
 
 	/** Print the content of the repository.
@@ -73,16 +97,7 @@ public class ErrorRepository {
 	 * @param stream
 	 */
 	public static void print(PrintStream stream) {
-		synchronized(ErrorRepository.class) {
-			try {
-				for(Loggable l : messages) {
-					l.print(stream);
-				}
-			}
-			catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
+		getCurrentLog().print(stream);
 	}
 
 	/** Print an error message on the stream.
@@ -0,0 +1,42 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.error;
+
+/**
+ * Exception thrown by an interpreter when the running statement
+ * is stopped on request, e.g. by the Stop button of the debugger.
+ * It is thrown at the start of an iteration of a loop or of a
+ * subroutine call, so that the program stops even when a single
+ * statement never ends.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class InterpreterCanceledException extends InterpreterException {
+
+	private static final long serialVersionUID = 4391652870318765612L;
+
+	/**
+	 * @param line is the line of the statement that was stopped.
+	 */
+	public InterpreterCanceledException(int line) {
+		super(InterpreterErrorType.CANCELED, line);
+	}
+
+}
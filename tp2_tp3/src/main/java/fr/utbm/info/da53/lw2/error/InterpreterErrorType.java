@@ -90,7 +90,15 @@ public enum InterpreterErrorType {
 	
 	/** A variable was not set.
 	 */
-	UNSET_VALUE;
+	UNSET_VALUE,
+	
+	/** The interpreter has crashed, e.g. with a stack overflow.
+	 */
+	INTERNAL_ERROR,
+	
+	/** The running statement was stopped on request.
+	 */
+	CANCELED;
 
 	/** Replies the error message.
 	 * 
@@ -0,0 +1,283 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.util.function.IntPredicate;
+
+import fr.utbm.info.da53.lw2.context.AbstractInterpreter;
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Interpreter;
+import fr.utbm.info.da53.lw2.context.LineProfiler;
+import fr.utbm.info.da53.lw2.context.StandardInput;
+import fr.utbm.info.da53.lw2.context.StandardOutput;
+import fr.utbm.info.da53.lw2.error.ErrorLog;
+import fr.utbm.info.da53.lw2.error.ErrorRepository;
+import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+
+/**
+ * Run of a {@link ParsedProgram} that is isolated from the
+ * other runs: the session has its own symbol table, its own
+ * standard input and output, and its own log of messages.
+ * The END statement stops the session, not the virtual machine.
+ * <p>
+ * A session is run once, by one thread at a time: either
+ * completely with {@link #run()}, or by slices of statements
+ * with {@link #runStatements(int, IntPredicate)}.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class InterpreterSession {
+
+	private final ParsedProgram program;
+	private final AbstractInterpreter interpreter;
+	private final SymbolTable symbolTable;
+	private final ErrorLog errors = new ErrorLog();
+	private ExecutionContext context = null;
+	private int nextLine = -1;
+	private boolean started = false;
+	private volatile boolean terminated = false;
+	private boolean failed = false;
+	
+	/**
+	 * @param program is the program to run.
+	 * @param interpreter is the interpreter that is running the program.
+	 * @param symbolTable is the symbol table used by the interpreter.
+	 */
+	InterpreterSession(ParsedProgram program, AbstractInterpreter interpreter, SymbolTable symbolTable) {
+		this.program = program;
+		this.interpreter = interpreter;
+		this.symbolTable = symbolTable;
+		this.interpreter.setExitVirtualMachine(false);
+	}
+	
+	/** Replies the program run by this session.
+	 * 
+	 * @return the program.
+	 */
+	public ParsedProgram getProgram() {
+		return this.program;
+	}
+
+	/** Replies the interpreter of this session.
+	 * 
+	 * @return the interpreter.
+	 */
+	public Interpreter getInterpreter() {
+		return this.interpreter;
+	}
+
+	/** Replies the number of statements run by this session.
+	 * 
+	 * @return the number of statements, including the ones inside loops.
+	 */
+	public long getStatementCount() {
+		return this.interpreter.getStatementCount();
+	}
+
+	/** Set the maximal number of statements that this session may run.
+	 * 
+	 * @param limit
+	 */
+	public void setStatementLimit(long limit) {
+		this.interpreter.setStatementLimit(limit);
+	}
+	
+	/** Replies if the session was stopped because it has reached
+	 * its maximal number of statements.
+	 * 
+	 * @return <code>true</code> if the limit was reached.
+	 */
+	public boolean isStatementLimitReached() {
+		return this.interpreter.isStatementLimitReached();
+	}
+
+	/** Replies the line of the next statement to run.
+	 * 
+	 * @return the line, or <code>-1</code> if the session has not started or is terminated.
+	 */
+	public int getNextLine() {
+		return this.terminated ? -1 : this.nextLine;
+	}
+
+	/** Replies if the program is terminated.
+	 * 
+	 * @return <code>true</code> if no more statement will be run.
+	 */
+	public boolean isTerminated() {
+		return this.terminated;
+	}
+
+	/** Replies if the interpreter has failed.
+	 * 
+	 * @return <code>true</code> if an error has stopped the program.
+	 */
+	public boolean isFailed() {
+		return this.failed;
+	}
+	
+	/** Stop the program. If a statement is running,
+	 * the program stops at its end, including inside the loops.
+	 * This function may be invoked from any thread.
+	 */
+	public void terminate() {
+		this.interpreter.terminate();
+	}
+	
+	/** Replies the messages generated during the run.
+	 * 
+	 * @return the messages.
+	 */
+	public ErrorLog getErrors() {
+		return this.errors;
+	}
+
+	/** Set the profiler of the lines of the program.
+	 * 
+	 * @param profiler is the profiler, or <code>null</code> to disable the profiling.
+	 */
+	public void setProfiler(LineProfiler profiler) {
+		this.interpreter.setProfiler(profiler);
+	}
+	
+	/** Set the standard input of the program.
+	 * 
+	 * @param stdin
+	 */
+	public void setStandardInput(StandardInput stdin) {
+		this.interpreter.setStandardInput(stdin);
+	}
+
+	/** Set the standard output of the program.
+	 * 
+	 * @param stdout
+	 */
+	public void setStandardOutput(StandardOutput stdout) {
+		this.interpreter.setStandardOutput(stdout);
+	}
+
+	/** Run the program in the current thread.
+	 * The messages generated by the interpreter are stored in
+	 * the log of this session.
+	 * 
+	 * @return <code>true</code> if the program has run without error,
+	 * <code>false</code> if the interpreter has failed.
+	 * @throws IllegalStateException if the session was already run.
+	 */
+	public boolean run() {
+		synchronized(this) {
+			if (this.started) throw new IllegalStateException();
+		}
+		while (!this.terminated) {
+			runStatements(Integer.MAX_VALUE, null);
+		}
+		return this.program.isRunnable() && !this.failed;
+	}
+	
+	/** Run at most the given number of top-level statements in the current thread.
+	 * The messages generated by the interpreter are stored in
+	 * the log of this session.
+	 * 
+	 * @param maxStatements is the maximal number of statements to run.
+	 * @param filter is invoked with the line of the next statement;
+	 * if it replies <code>false</code> the run stops before the statement.
+	 * It may be <code>null</code>.
+	 * @return the number of statements that were run.
+	 */
+	public int runStatements(int maxStatements, IntPredicate filter) {
+		synchronized(this) {
+			if (!this.started) {
+				this.started = true;
+				if (!this.program.isRunnable()) {
+					this.terminated = true;
+					return 0;
+				}
+				this.context = new ExecutionContext(this.interpreter, this.symbolTable);
+				this.nextLine = this.program.getCode().firstKey().intValue();
+			}
+		}
+		if (this.terminated) {
+			return 0;
+		}
+		int count = 0;
+		ErrorLog previous = ErrorRepository.setCurrentLog(this.errors);
+		try {
+			while (count<maxStatements) {
+				if (this.interpreter.isKilled()) {
+					this.terminated = true;
+					break;
+				}
+				if (filter!=null && !filter.test(this.nextLine)) {
+					break;
+				}
+				this.context = this.interpreter.runStatement(this.context);
+				++count;
+				if (this.context==null || this.context.getCurrentLine()<=0) {
+					if (this.context!=null) {
+						this.context.close();
+					}
+					this.terminated = true;
+					break;
+				}
+				this.nextLine = this.context.getCurrentLine();
+			}
+		}
+		catch(InterpreterException e) {
+			this.errors.add(e);
+			this.failed = true;
+			this.terminated = true;
+		}
+		finally {
+			if (this.terminated) {
+				this.interpreter.getStandardOutput().flush();
+			}
+			ErrorRepository.setCurrentLog(previous);
+		}
+		return count;
+	}
+	
+	/** Stop the session after an unexpected error of the interpreter,
+	 * e.g. a stack overflow. The error is stored in the log of this
+	 * session, and the session is marked as failed.
+	 * 
+	 * @param error
+	 */
+	void crashed(Throwable error) {
+		this.errors.add(new InterpreterException(InterpreterErrorType.INTERNAL_ERROR, this.nextLine, error));
+		this.failed = true;
+		this.terminated = true;
+		try {
+			this.interpreter.getStandardOutput().flush();
+		}
+		catch(Throwable e) {
+			// The output of the crashed session is lost
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.program.toString();
+	}
+
+}
@@ -0,0 +1,223 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw2.context.AbstractInterpreter;
+import fr.utbm.info.da53.lw2.context.CompiledInterpreter;
+import fr.utbm.info.da53.lw2.context.LineBasedInterpreter;
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.ErrorLog;
+import fr.utbm.info.da53.lw2.error.ErrorRepository;
+import fr.utbm.info.da53.lw2.error.LoggableException;
+import fr.utbm.info.da53.lw2.parser.BasicParser;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.syntaxtree.InputTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.TreeSimplifier;
+import fr.utbm.info.da53.lw2.syntaxtree.TypeInference;
+
+/**
+ * Program that is parsed once, and that may be run
+ * by several {@link InterpreterSession sessions}.
+ * <p>
+ * The syntax trees are shared by the sessions. Their structure is
+ * never modified by the interpreters, but the binary operators record
+ * the types of their operands to specialize themselves, and this
+ * state is shared by all the sessions. It is updated without lock:
+ * several sessions may specialize or deoptimize the same operator
+ * concurrently, which is harmless since each specialized operator
+ * re-checks the types of its operands before using its specialized
+ * implementation. Each session has its own copy of the symbol table.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ParsedProgram {
+
+	private final String name;
+	private final SortedMap<Integer,Statement> code;
+	private final SymbolTable declarations;
+	private final ErrorLog errors;
+	private final Map<Integer,Integer> inputLines = new HashMap<Integer,Integer>();
+	private CompiledInterpreter compiledProgram = null;
+	
+	/**
+	 * @param name is the name of the program.
+	 * @param code is the code of the program.
+	 * @param declarations is the symbol table filled by the parser.
+	 * @param errors are the messages generated by the parser.
+	 */
+	public ParsedProgram(String name, SortedMap<Integer,Statement> code, SymbolTable declarations, ErrorLog errors) {
+		this.name = name;
+		this.code = (code==null) ? null : Collections.unmodifiableSortedMap(code);
+		this.declarations = declarations.copy();
+		this.errors = errors;
+		if (this.code!=null) {
+			for(Entry<Integer,Statement> entry : this.code.entrySet()) {
+				int count = InputTreeNode.getInputCount(entry.getValue());
+				if (count>0) {
+					this.inputLines.put(entry.getKey(), count);
+				}
+			}
+		}
+	}
+	
+	/** Parse a program. The messages of the parser are stored
+	 * in the log of the program, not in the log of the current thread.
+	 * 
+	 * @param name is the name of the program.
+	 * @param stream is the source code.
+	 * @return the parsed program.
+	 */
+	public static ParsedProgram parse(String name, InputStream stream) {
+		ErrorLog log = new ErrorLog();
+		ErrorLog previous = ErrorRepository.setCurrentLog(log);
+		try {
+			BasicParser parser = new BasicParser(stream);
+			SortedMap<Integer,Statement> code = null;
+			try {
+				code = parser.executeCompiler();
+			}
+			catch(LoggableException e) {
+				log.add(e);
+			}
+			return new ParsedProgram(name, code, parser.getSymbolTable(), log);
+		}
+		finally {
+			ErrorRepository.setCurrentLog(previous);
+		}
+	}
+	
+	/** Replies a copy of this program in which the syntax trees
+	 * are simplified and the types of the variables are inferred.
+	 * 
+	 * @param report is the stream on which the reports of the
+	 * optimizations are written, or <code>null</code>.
+	 * @return the optimized program, or this program if it cannot be run.
+	 * @see TreeSimplifier
+	 * @see TypeInference
+	 */
+	public ParsedProgram optimize(PrintStream report) {
+		if (!isRunnable() || this.errors.hasError()) {
+			return this;
+		}
+		TreeSimplifier simplifier = new TreeSimplifier(this.code);
+		SortedMap<Integer,Statement> optimized = simplifier.simplify();
+		TypeInference inference = new TypeInference(optimized);
+		optimized = inference.optimize();
+		if (report!=null) {
+			report.println(simplifier.getReport().toString());
+			report.println(inference.getReport().toString());
+		}
+		return new ParsedProgram(this.name, optimized, this.declarations, this.errors);
+	}
+	
+	/** Replies the name of the program.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/** Replies the code of the program.
+	 * 
+	 * @return the code, or <code>null</code> if the program cannot be parsed.
+	 */
+	public SortedMap<Integer,Statement> getCode() {
+		return this.code;
+	}
+	
+	/** Replies the messages generated by the parser.
+	 * 
+	 * @return the messages.
+	 */
+	public ErrorLog getErrors() {
+		return this.errors;
+	}
+	
+	/** Replies the number of values read by the INPUT statements
+	 * on the given line.
+	 * 
+	 * @param line
+	 * @return the number of values, <code>0</code> if the line does not read the standard input.
+	 * @see InputTreeNode#getInputCount(Statement)
+	 */
+	public int getInputCount(int line) {
+		Integer count = this.inputLines.get(line);
+		return (count==null) ? 0 : count.intValue();
+	}
+	
+	/** Replies if one of the lines reads the standard input.
+	 * 
+	 * @return <code>true</code> if the program contains an INPUT statement.
+	 */
+	public boolean hasInput() {
+		return !this.inputLines.isEmpty();
+	}
+
+	/** Replies if the program has statements to run.
+	 * 
+	 * @return <code>true</code> if the program may be run.
+	 */
+	public boolean isRunnable() {
+		return this.code!=null && !this.code.isEmpty();
+	}
+
+	/** Create a session that runs this program.
+	 * 
+	 * @param compiled indicates if the session uses a {@link CompiledInterpreter}
+	 * or a {@link LineBasedInterpreter}.
+	 * @return the new session.
+	 */
+	public InterpreterSession newSession(boolean compiled) {
+		SymbolTable symbolTable = this.declarations.copy();
+		AbstractInterpreter interpreter;
+		if (compiled) {
+			interpreter = new CompiledInterpreter(getCompiledProgram(), symbolTable);
+		}
+		else {
+			interpreter = new LineBasedInterpreter(this.code, symbolTable);
+		}
+		return new InterpreterSession(this, interpreter, symbolTable);
+	}
+	
+	private synchronized CompiledInterpreter getCompiledProgram() {
+		if (this.compiledProgram==null) {
+			this.compiledProgram = new CompiledInterpreter(this.code, this.declarations);
+		}
+		return this.compiledProgram;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+}
@@ -0,0 +1,261 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session that is run by a {@link SessionScheduler}.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ScheduledSession {
+
+	/**
+	 * State of a scheduled session.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	public enum State {
+		/** The session waits for a carrier thread. */
+		READY,
+		/** The session is run by a carrier thread. */
+		RUNNING,
+		/** The session waits for lines on its standard input. */
+		PARKED,
+		/** The session is terminated. */
+		TERMINATED;
+	}
+
+	/**
+	 * Cause of the termination of a scheduled session.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	public enum Termination {
+		/** The program has reached its end. */
+		FINISHED,
+		/** The interpreter has failed. */
+		FAILED,
+		/** The program has run its maximal number of statements. */
+		STATEMENT_BUDGET,
+		/** The program has used its maximal CPU time. */
+		CPU_BUDGET,
+		/** The session was canceled. */
+		CANCELED;
+	}
+
+	private final SessionScheduler scheduler;
+	private final InterpreterSession session;
+	private final SessionInput input;
+	private final long cpuBudget;
+	private final CountDownLatch termination = new CountDownLatch(1);
+	
+	private State state = State.READY;
+	private volatile Termination requestedTermination = null;
+	private Termination cause = null;
+	private volatile long cpuTime = 0;
+	
+	/**
+	 * @param scheduler
+	 * @param session
+	 * @param input
+	 * @param cpuBudget is the maximal CPU time in nanoseconds.
+	 */
+	ScheduledSession(SessionScheduler scheduler, InterpreterSession session, SessionInput input, long cpuBudget) {
+		this.scheduler = scheduler;
+		this.session = session;
+		this.input = input;
+		this.cpuBudget = cpuBudget;
+	}
+	
+	/** Replies the scheduled session.
+	 * 
+	 * @return the session.
+	 */
+	public InterpreterSession getSession() {
+		return this.session;
+	}
+
+	/** Replies the standard input of the session.
+	 * 
+	 * @return the standard input, or <code>null</code>.
+	 */
+	public SessionInput getInput() {
+		return this.input;
+	}
+	
+	/** Replies the state of the session.
+	 * 
+	 * @return the state.
+	 */
+	public synchronized State getState() {
+		return this.state;
+	}
+
+	/** Replies the cause of the termination.
+	 * 
+	 * @return the cause, or <code>null</code> if the session is not terminated.
+	 */
+	public synchronized Termination getTermination() {
+		return this.cause;
+	}
+	
+	/** Replies the CPU time used by the session at the end of its last quantum.
+	 * 
+	 * @return the CPU time in nanoseconds.
+	 */
+	public long getCpuTime() {
+		return this.cpuTime;
+	}
+	
+	/** Replies the maximal CPU time of the session.
+	 * 
+	 * @return the CPU time in nanoseconds.
+	 */
+	public long getCpuBudget() {
+		return this.cpuBudget;
+	}
+
+	/** Stop the session.
+	 */
+	public void cancel() {
+		requestTermination(Termination.CANCELED);
+	}
+	
+	/** Wait for the termination of the session.
+	 * 
+	 * @return the cause of the termination.
+	 * @throws InterruptedException
+	 */
+	public Termination await() throws InterruptedException {
+		this.termination.await();
+		return getTermination();
+	}
+
+	/** Wait for the termination of the session.
+	 * 
+	 * @param timeout
+	 * @param unit
+	 * @return the cause of the termination, or <code>null</code> if the timeout has elapsed.
+	 * @throws InterruptedException
+	 */
+	public Termination await(long timeout, TimeUnit unit) throws InterruptedException {
+		this.termination.await(timeout, unit);
+		return getTermination();
+	}
+	
+	/** Stop the session for the given cause.
+	 * 
+	 * @param cause
+	 */
+	void requestTermination(Termination cause) {
+		if (this.requestedTermination==null) {
+			this.requestedTermination = cause;
+		}
+		this.session.terminate();
+		if (this.input!=null) {
+			this.input.close();
+		}
+		wakeUp();
+	}
+	
+	/** Add CPU time to the session.
+	 * 
+	 * @param time in nanoseconds.
+	 * @return <code>true</code> if the CPU budget is exhausted.
+	 */
+	boolean addCpuTime(long time) {
+		this.cpuTime += time;
+		return this.cpuTime>this.cpuBudget;
+	}
+	
+	/** Replies if the next statement may be run without waiting for inputs.
+	 * 
+	 * @param line is the line of the next statement.
+	 * @return <code>true</code> if the statement may be run.
+	 */
+	boolean isRunnable(int line) {
+		int count = this.session.getProgram().getInputCount(line);
+		return count==0 || this.input==null || this.input.isAvailable(count);
+	}
+	
+	/** Change the state of the session.
+	 * 
+	 * @param state
+	 * @return <code>true</code> if the state was changed, <code>false</code>
+	 * if the session was woken up and must be run again.
+	 */
+	synchronized boolean setState(State state) {
+		if (state==State.PARKED) {
+			int line = this.session.getNextLine();
+			if (line<0 || isRunnable(line) || this.requestedTermination!=null) {
+				return false;
+			}
+		}
+		this.state = state;
+		return true;
+	}
+	
+	/** Put the parked session back in the ready queue.
+	 */
+	void wakeUp() {
+		synchronized(this) {
+			if (this.state!=State.PARKED) {
+				return;
+			}
+			this.state = State.READY;
+		}
+		this.scheduler.enqueue(this);
+	}
+	
+	/** Mark the session as terminated.
+	 */
+	void terminated() {
+		synchronized(this) {
+			this.state = State.TERMINATED;
+			if (this.requestedTermination!=null) {
+				this.cause = this.requestedTermination;
+			}
+			else if (this.session.isStatementLimitReached()) {
+				this.cause = Termination.STATEMENT_BUDGET;
+			}
+			else if (this.session.isFailed()) {
+				this.cause = Termination.FAILED;
+			}
+			else {
+				this.cause = Termination.FINISHED;
+			}
+		}
+		this.termination.countDown();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.session.toString();
+	}
+
+}
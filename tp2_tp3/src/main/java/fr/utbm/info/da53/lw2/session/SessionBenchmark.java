@@ -0,0 +1,148 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.utbm.info.da53.lw2.context.BufferedStandardInput;
+import fr.utbm.info.da53.lw2.context.BufferedStandardOutput;
+import fr.utbm.info.da53.lw2.context.StandardOutput;
+
+/**
+ * Measure the number of programs run per second
+ * according to the number of threads.
+ * <p>
+ * Usage: <code>SessionBenchmark [-C] file [programs]</code>.
+ * The program is parsed once and run <code>programs</code> times
+ * (default 1000) with 1, 2, 4... threads up to the number of
+ * processors. The option <code>-C</code> uses the compiled interpreter.
+ * The outputs of the programs are discarded, and their inputs are empty.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class SessionBenchmark {
+	
+	/**
+	 * @param arguments
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String arguments[]) throws IOException, InterruptedException {
+		String[] args = arguments;
+		boolean compiled = false;
+		if (args.length>0 && "-C".equals(args[0])) { //$NON-NLS-1$
+			compiled = true;
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		if (args.length<1 || args.length>2) {
+			System.err.println("Usage: SessionBenchmark [-C] file [programs]"); //$NON-NLS-1$
+			return;
+		}
+		File file = new File(args[0]);
+		int count = (args.length>1) ? Integer.parseInt(args[1]) : 1000;
+		
+		ParsedProgram program;
+		try (InputStream stream = new FileInputStream(file)) {
+			program = ParsedProgram.parse(file.getName(), stream);
+		}
+		if (!program.isRunnable()) {
+			program.getErrors().print(System.err);
+			return;
+		}
+		
+		int processors = Runtime.getRuntime().availableProcessors();
+		// Warm up
+		run(program, compiled, processors, count);
+		
+		System.out.println("threads\tprograms\ttime (ms)\tprograms/s"); //$NON-NLS-1$
+		int threads = 1;
+		while (threads<=processors) {
+			long duration = run(program, compiled, threads, count);
+			System.out.println(threads + "\t" + count + "\t" //$NON-NLS-1$ //$NON-NLS-2$
+					+ (duration / 1000000) + "\t" //$NON-NLS-1$
+					+ String.format("%.1f", count * 1e9 / duration)); //$NON-NLS-1$
+			if (threads<processors && threads*2>processors) {
+				threads = processors;
+			}
+			else {
+				threads *= 2;
+			}
+		}
+	}
+	
+	private static long run(ParsedProgram program, boolean compiled, int threads, int count) throws InterruptedException {
+		List<InterpreterSession> sessions = new ArrayList<InterpreterSession>(count);
+		for(int i=0; i<count; ++i) {
+			InterpreterSession session = program.newSession(compiled);
+			StandardOutput stdout = new BufferedStandardOutput(new NullOutputStream());
+			session.setStandardOutput(stdout);
+			session.setStandardInput(new BufferedStandardInput(new StringReader(""), stdout)); //$NON-NLS-1$
+			sessions.add(session);
+		}
+		SessionRunner runner = new SessionRunner(threads);
+		try {
+			long start = System.nanoTime();
+			runner.runAll(sessions);
+			return System.nanoTime() - start;
+		}
+		finally {
+			runner.shutdown();
+		}
+	}
+
+	/**
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static class NullOutputStream extends OutputStream {
+
+		/**
+		 */
+		public NullOutputStream() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(int b) {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(byte[] b, int off, int len) {
+			//
+		}
+
+	}
+
+}
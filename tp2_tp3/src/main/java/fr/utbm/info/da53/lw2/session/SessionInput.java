@@ -0,0 +1,123 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.util.ArrayDeque;
+
+import fr.utbm.info.da53.lw2.context.StandardInput;
+import fr.utbm.info.da53.lw2.context.StandardOutput;
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Standard input of a session that is filled by another thread.
+ * <p>
+ * The lines are queued by {@link #offer(String)}. The
+ * {@link SessionScheduler} does not run a statement that needs more
+ * lines than the available ones, so that the carrier threads are
+ * not blocked by the INPUT statements; only an INPUT inside a loop
+ * may wait for its next lines.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class SessionInput implements StandardInput {
+
+	private final ArrayDeque<String> lines = new ArrayDeque<String>();
+	private final StandardOutput prompt;
+	private boolean closed = false;
+	private Runnable listener = null;
+	
+	/**
+	 * @param prompt is the output on which the messages of the INPUT statements are written.
+	 */
+	public SessionInput(StandardOutput prompt) {
+		this.prompt = prompt;
+	}
+	
+	/** Set the function invoked when lines are added or when the input is closed.
+	 * 
+	 * @param listener
+	 */
+	synchronized void setListener(Runnable listener) {
+		this.listener = listener;
+	}
+	
+	/** Add a line at the end of the input.
+	 * 
+	 * @param line
+	 */
+	public void offer(String line) {
+		Runnable l;
+		synchronized(this) {
+			if (this.closed) throw new IllegalStateException();
+			this.lines.addLast(line);
+			notifyAll();
+			l = this.listener;
+		}
+		if (l!=null) l.run();
+	}
+	
+	/** Close the input. The next reads after the last line reply <code>null</code>.
+	 */
+	public void close() {
+		Runnable l;
+		synchronized(this) {
+			this.closed = true;
+			notifyAll();
+			l = this.listener;
+		}
+		if (l!=null) l.run();
+	}
+	
+	/** Replies if the given number of lines may be read without waiting.
+	 * 
+	 * @param count
+	 * @return <code>true</code> if the lines are available or if the input is closed.
+	 */
+	public synchronized boolean isAvailable(int count) {
+		return this.closed || this.lines.size()>=count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value readString(String message) {
+		if (this.prompt!=null) {
+			if (message!=null) {
+				this.prompt.print(message);
+			}
+			this.prompt.flush();
+		}
+		String line;
+		synchronized(this) {
+			while (this.lines.isEmpty() && !this.closed) {
+				try {
+					wait();
+				}
+				catch (InterruptedException e) {
+					return Value.UNDEF;
+				}
+			}
+			line = this.lines.pollFirst();
+		}
+		return Value.parseValue(line);
+	}
+
+}
@@ -0,0 +1,93 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Run {@link InterpreterSession sessions} concurrently
+ * on a pool of threads.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class SessionRunner {
+
+	private final ExecutorService executor;
+	
+	/**
+	 * @param threads is the number of threads that are running the sessions.
+	 */
+	public SessionRunner(int threads) {
+		this.executor = Executors.newFixedThreadPool(threads, (runnable) -> {
+			Thread thread = new Thread(runnable, "lw2-session"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/** Submit a session to run.
+	 * 
+	 * @param session
+	 * @return the future result of {@link InterpreterSession#run()}.
+	 */
+	public Future<Boolean> submit(final InterpreterSession session) {
+		return this.executor.submit(() -> Boolean.valueOf(session.run()));
+	}
+
+	/** Run the given sessions, and wait for their terminations.
+	 * 
+	 * @param sessions
+	 * @return the results of {@link InterpreterSession#run()}, in the order of the sessions.
+	 * @throws InterruptedException
+	 */
+	public List<Boolean> runAll(Collection<? extends InterpreterSession> sessions) throws InterruptedException {
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(sessions.size());
+		for(InterpreterSession session : sessions) {
+			futures.add(submit(session));
+		}
+		List<Boolean> results = new ArrayList<Boolean>(futures.size());
+		for(Future<Boolean> future : futures) {
+			try {
+				results.add(future.get());
+			}
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+				if (cause instanceof Error) throw (Error)cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+		return results;
+	}
+
+	/** Stop the threads of this runner after the
+	 * termination of the submitted sessions.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+}
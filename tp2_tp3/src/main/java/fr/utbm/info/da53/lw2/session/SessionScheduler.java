@@ -0,0 +1,265 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduler that runs many {@link InterpreterSession sessions}
+ * on a small number of carrier threads.
+ * <p>
+ * A carrier thread runs a quantum of top-level statements of a
+ * session, then puts the session back at the end of the ready queue.
+ * A session that reaches an INPUT statement without enough lines on
+ * its {@link SessionInput} is parked until lines are offered.
+ * <p>
+ * The number of statements of a session is limited by its interpreter.
+ * The CPU time is checked at the end of each quantum and by a watchdog
+ * thread, so that a statement that never ends (a FOR or a WHILE loop)
+ * is terminated when the session exceeds its CPU budget.
+ * <p>
+ * A session whose interpreter crashes, e.g. with a stack overflow,
+ * is terminated as failed, and its carrier thread runs the other
+ * sessions.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class SessionScheduler {
+
+	/** Period of the watchdog in milliseconds.
+	 */
+	public static final long WATCHDOG_PERIOD = 10;
+	
+	private final int quantum;
+	private final LinkedBlockingQueue<ScheduledSession> readyQueue = new LinkedBlockingQueue<ScheduledSession>();
+	private final Carrier[] carriers;
+	private final Thread watchdog;
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private final boolean cpuTimeSupported;
+	private final AtomicInteger activeSessions = new AtomicInteger();
+	private volatile boolean shutdown = false;
+
+	/**
+	 * @param carriers is the number of carrier threads.
+	 * @param quantum is the number of top-level statements run before switching to another session.
+	 */
+	public SessionScheduler(int carriers, int quantum) {
+		if (carriers<=0 || quantum<=0) throw new IllegalArgumentException();
+		this.quantum = quantum;
+		this.cpuTimeSupported = this.threadBean.isThreadCpuTimeSupported()
+				&& this.threadBean.isCurrentThreadCpuTimeSupported();
+		if (this.cpuTimeSupported && !this.threadBean.isThreadCpuTimeEnabled()) {
+			this.threadBean.setThreadCpuTimeEnabled(true);
+		}
+		this.carriers = new Carrier[carriers];
+		for(int i=0; i<carriers; ++i) {
+			this.carriers[i] = new Carrier(i);
+			this.carriers[i].start();
+		}
+		this.watchdog = new Thread(() -> watch(), "lw2-watchdog"); //$NON-NLS-1$
+		this.watchdog.setDaemon(true);
+		this.watchdog.start();
+	}
+	
+	/** Schedule a session without limits.
+	 * 
+	 * @param session
+	 * @param input is the standard input of the session, or <code>null</code>
+	 * if the standard input is already set and never parks the session.
+	 * @return the scheduled session.
+	 */
+	public ScheduledSession submit(InterpreterSession session, SessionInput input) {
+		return submit(session, input, Long.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/** Schedule a session.
+	 * 
+	 * @param session
+	 * @param input is the standard input of the session, or <code>null</code>
+	 * if the standard input is already set and never parks the session.
+	 * @param statementBudget is the maximal number of statements, including the ones inside loops.
+	 * @param cpuBudget is the maximal CPU time of the session in nanoseconds.
+	 * @return the scheduled session.
+	 */
+	public ScheduledSession submit(InterpreterSession session, SessionInput input, long statementBudget, long cpuBudget) {
+		if (this.shutdown) throw new IllegalStateException();
+		ScheduledSession scheduled = new ScheduledSession(this, session, input, cpuBudget);
+		session.setStatementLimit(statementBudget);
+		if (input!=null) {
+			session.setStandardInput(input);
+			input.setListener(() -> scheduled.wakeUp());
+		}
+		this.activeSessions.incrementAndGet();
+		enqueue(scheduled);
+		return scheduled;
+	}
+	
+	/** Replies the number of sessions that are not terminated.
+	 * 
+	 * @return the number of sessions.
+	 */
+	public int getActiveSessionCount() {
+		return this.activeSessions.get();
+	}
+
+	/** Stop the carrier threads. The sessions that are not
+	 * terminated are not run anymore.
+	 */
+	public void shutdown() {
+		this.shutdown = true;
+		for(Carrier carrier : this.carriers) {
+			carrier.interrupt();
+		}
+		this.watchdog.interrupt();
+	}
+	
+	/** Add a session in the ready queue.
+	 * 
+	 * @param session
+	 */
+	void enqueue(ScheduledSession session) {
+		this.readyQueue.add(session);
+	}
+	
+	private long getCpuTime() {
+		if (this.cpuTimeSupported) {
+			return this.threadBean.getCurrentThreadCpuTime();
+		}
+		return System.nanoTime();
+	}
+
+	private void watch() {
+		while (!this.shutdown) {
+			try {
+				Thread.sleep(WATCHDOG_PERIOD);
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			for(Carrier carrier : this.carriers) {
+				ScheduledSession session = carrier.running;
+				if (session!=null) {
+					long start = carrier.quantumStart;
+					long now = this.cpuTimeSupported
+							? this.threadBean.getThreadCpuTime(carrier.getId())
+							: System.nanoTime();
+					if (carrier.running==session && start>=0 && now>=0
+						&& session.getCpuTime() + (now - start) > session.getCpuBudget()) {
+						session.requestTermination(ScheduledSession.Termination.CPU_BUDGET);
+					}
+				}
+			}
+		}
+	}
+	
+	/** Run one quantum of the session in the current carrier thread.
+	 * 
+	 * @param carrier
+	 * @param session
+	 */
+	void runQuantum(Carrier carrier, ScheduledSession session) {
+		if (!session.setState(ScheduledSession.State.RUNNING)) {
+			return;
+		}
+		InterpreterSession interpreterSession = session.getSession();
+		boolean parkable = session.getInput()!=null && interpreterSession.getProgram().hasInput();
+		carrier.quantumStart = getCpuTime();
+		carrier.running = session;
+		int count;
+		try {
+			count = interpreterSession.runStatements(this.quantum,
+					parkable ? (line) -> session.isRunnable(line) : null);
+		}
+		catch(Throwable e) {
+			// The interpreter has crashed, e.g. with a stack overflow:
+			// the session is terminated, and the carrier runs the next one
+			interpreterSession.crashed(e);
+			count = 0;
+		}
+		finally {
+			carrier.running = null;
+		}
+		if (session.addCpuTime(getCpuTime() - carrier.quantumStart)) {
+			session.requestTermination(ScheduledSession.Termination.CPU_BUDGET);
+		}
+		if (!interpreterSession.isTerminated() && interpreterSession.getInterpreter().isKilled()) {
+			// Stop the session and flush its output
+			interpreterSession.runStatements(1, null);
+		}
+		if (interpreterSession.isTerminated()) {
+			// Decrement before releasing the threads that wait the session
+			this.activeSessions.decrementAndGet();
+			session.terminated();
+		}
+		else if (count<this.quantum && session.setState(ScheduledSession.State.PARKED)) {
+			// Parked until the input is available
+		}
+		else {
+			session.setState(ScheduledSession.State.READY);
+			enqueue(session);
+		}
+	}
+	
+	/**
+	 * Carrier thread.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private class Carrier extends Thread {
+
+		/** Session that is running.
+		 */
+		volatile ScheduledSession running = null;
+		
+		/** CPU time at the start of the current quantum.
+		 */
+		volatile long quantumStart = -1;
+		
+		/**
+		 * @param index
+		 */
+		public Carrier(int index) {
+			super("lw2-carrier-" + index); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			SessionScheduler scheduler = SessionScheduler.this;
+			while (!scheduler.shutdown) {
+				try {
+					scheduler.runQuantum(this, scheduler.readyQueue.take());
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+		
+	}
+
+}
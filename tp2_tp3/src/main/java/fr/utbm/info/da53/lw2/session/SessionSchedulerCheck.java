@@ -0,0 +1,114 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import fr.utbm.info.da53.lw2.context.BufferedStandardInput;
+import fr.utbm.info.da53.lw2.context.BufferedStandardOutput;
+import fr.utbm.info.da53.lw2.context.StandardOutput;
+
+/**
+ * Check that a session that crashes its interpreter does not
+ * stop the {@link SessionScheduler}.
+ * <p>
+ * Usage: <code>SessionSchedulerCheck [-C]</code>.
+ * A program that overflows the stack of the carrier thread is
+ * submitted to a scheduler with one carrier, followed by a program
+ * that terminates normally. The crashed session must be terminated
+ * as failed, and the second session must be run to its end.
+ * The option <code>-C</code> uses the compiled interpreter.
+ * The check throws an {@link IllegalStateException} when it fails.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class SessionSchedulerCheck {
+
+	/** Program that recurses with GOSUB until the stack overflows.
+	 */
+	private static final String CRASHING_PROGRAM = "10 LET I = 0\n20 FOR I = 1 TO 2 GOSUB 20 NEXT I"; //$NON-NLS-1$
+
+	/** Program that terminates normally.
+	 */
+	private static final String NORMAL_PROGRAM = "10 LET X = 6 * 7\n20 PRINT X\n30 END"; //$NON-NLS-1$
+
+	/** Maximal duration of the wait of each session in seconds.
+	 */
+	private static final long TIMEOUT = 60;
+
+	/**
+	 * @param args
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		boolean compiled = args.length>0 && "-C".equals(args[0]); //$NON-NLS-1$
+
+		ParsedProgram crashing = parse("crash.tb", CRASHING_PROGRAM); //$NON-NLS-1$
+		ParsedProgram normal = parse("normal.tb", NORMAL_PROGRAM); //$NON-NLS-1$
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		SessionScheduler scheduler = new SessionScheduler(1, 100);
+		try {
+			ScheduledSession crashed = scheduler.submit(newSession(crashing, compiled, new ByteArrayOutputStream()), null);
+			ScheduledSession finished = scheduler.submit(newSession(normal, compiled, output), null);
+
+			check(crashed.await(TIMEOUT, TimeUnit.SECONDS)==ScheduledSession.Termination.FAILED,
+					"the crashed session is not terminated as failed: " + crashed.getTermination()); //$NON-NLS-1$
+			check(crashed.getSession().getErrors().hasError(),
+					"the crash is not logged"); //$NON-NLS-1$
+			check(finished.await(TIMEOUT, TimeUnit.SECONDS)==ScheduledSession.Termination.FINISHED,
+					"the session after the crash is not finished: " + finished.getTermination()); //$NON-NLS-1$
+			check(new String(output.toByteArray(), StandardCharsets.UTF_8).trim().equals("42"), //$NON-NLS-1$
+					"unexpected output of the session after the crash"); //$NON-NLS-1$
+			check(scheduler.getActiveSessionCount()==0,
+					"active sessions after the runs: " + scheduler.getActiveSessionCount()); //$NON-NLS-1$
+		}
+		finally {
+			scheduler.shutdown();
+		}
+		System.out.println("OK"); //$NON-NLS-1$
+	}
+
+	private static ParsedProgram parse(String name, String code) {
+		ParsedProgram program = ParsedProgram.parse(name,
+				new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)));
+		check(program.isRunnable(), "the program " + name + " cannot be parsed"); //$NON-NLS-1$ //$NON-NLS-2$
+		return program;
+	}
+
+	private static InterpreterSession newSession(ParsedProgram program, boolean compiled, ByteArrayOutputStream output) {
+		InterpreterSession session = program.newSession(compiled);
+		StandardOutput stdout = new BufferedStandardOutput(output);
+		session.setStandardOutput(stdout);
+		session.setStandardInput(new BufferedStandardInput(new StringReader(""), stdout)); //$NON-NLS-1$
+		return session;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+}
@@ -18,12 +18,20 @@
  */
 package fr.utbm.info.da53.lw2.symbol;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.ValueArray;
+import fr.utbm.info.da53.lw2.type.VariableType;
 
 /**
  * Symbol table store tokens which define a part of Tiny Basic dialect of the BASIC language.
@@ -44,6 +52,22 @@ public class SymbolTable implements Iterable<SymbolTableEntry> {
 	
 	private final Map<String,SymbolTableEntry> symbols = new TreeMap<String,SymbolTableEntry>();
 	
+	/** Entries indexed by their slots.
+	 */
+	private final List<SymbolTableEntry> slots = new ArrayList<SymbolTableEntry>();
+	
+	/** Slots of the entries that were changed since the last
+	 * invocation of {@link #pollChanges()}.
+	 */
+	private final BitSet dirtySlots = new BitSet();
+	
+	/** Changed slots in the order of their first change.
+	 */
+	private int[] changeLog = new int[16];
+	private int changeLogSize = 0;
+	
+	private SymbolTableJournal journal = null;
+	
 	/**
 	 */
 	public SymbolTable() {
@@ -61,11 +85,27 @@ public class SymbolTable implements Iterable<SymbolTableEntry> {
 		String id = formatIdentifier(identifier);
 		SymbolTableEntry entry = this.symbols.get(id);
 		if (entry!=null) return entry;
-		entry = new SymbolTableEntry(id, line);
+		entry = new SymbolTableEntry(this, this.slots.size(), id, line);
 		this.symbols.put(id, entry);
+		this.slots.add(entry);
 		return entry;
 	}
 	
+	/** Replies a new symbol table that contains the same
+	 * symbols as this table, without value.
+	 * The symbols are declared in the same order, so that
+	 * they have the same slots in the two tables.
+	 * 
+	 * @return the new symbol table.
+	 */
+	public SymbolTable copy() {
+		SymbolTable table = new SymbolTable();
+		for(SymbolTableEntry entry : this.slots) {
+			table.declare(entry.id(), entry.line());
+		}
+		return table;
+	}
+	
 	/** Return the entry for the given lexeme.
 	 * 
 	 * @param lexeme
@@ -76,6 +116,17 @@ public class SymbolTable implements Iterable<SymbolTableEntry> {
 		return this.symbols.get(formatIdentifier(lexeme));
 	}
 	
+	/** Return the entry at the given slot.
+	 * 
+	 * @param slot
+	 * @return the entry, or <code>null</code> if not found.
+	 * @see SymbolTableEntry#slot()
+	 */
+	public SymbolTableEntry get(int slot) {
+		if (slot<0 || slot>=this.slots.size()) return null;
+		return this.slots.get(slot);
+	}
+	
 	/** Return if the given lexeme is defined in the symbol table.
 	 * 
 	 * @param lexeme
@@ -90,6 +141,159 @@ public class SymbolTable implements Iterable<SymbolTableEntry> {
 	 */
 	public void clear() {
 		this.symbols.clear();
+		this.slots.clear();
+		this.dirtySlots.clear();
+		this.changeLogSize = 0;
+	}
+	
+	/** Mark the entry at the given slot as changed.
+	 * 
+	 * @param slot
+	 */
+	void markChanged(int slot) {
+		if (!this.dirtySlots.get(slot)) {
+			this.dirtySlots.set(slot);
+			if (this.changeLogSize>=this.changeLog.length) {
+				this.changeLog = Arrays.copyOf(this.changeLog, this.changeLog.length*2);
+			}
+			this.changeLog[this.changeLogSize++] = slot;
+		}
+	}
+	
+	/** Replies the entries that were changed since the last
+	 * invocation of this function, in the order of their first change.
+	 * The change log is not synchronized: this function must be
+	 * invoked when the interpreter is not running.
+	 * 
+	 * @return the changed entries.
+	 */
+	public List<SymbolTableEntry> pollChanges() {
+		List<SymbolTableEntry> changes = new ArrayList<SymbolTableEntry>(this.changeLogSize);
+		for(int i=0; i<this.changeLogSize; ++i) {
+			int slot = this.changeLog[i];
+			if (slot<this.slots.size()) {
+				changes.add(this.slots.get(slot));
+			}
+		}
+		this.dirtySlots.clear();
+		this.changeLogSize = 0;
+		return changes;
+	}
+	
+	/** Set the observer of the writes in this table.
+	 * 
+	 * @param journal is the observer, or <code>null</code> to remove it.
+	 */
+	public void setJournal(SymbolTableJournal journal) {
+		this.journal = journal;
+	}
+	
+	/** Replies the observer of the writes in this table.
+	 * 
+	 * @return the observer, or <code>null</code> if none.
+	 */
+	public SymbolTableJournal getJournal() {
+		return this.journal;
+	}
+	
+	/** Notify the journal that the value at the given slot will change.
+	 * 
+	 * @param slot
+	 * @param value is the current value.
+	 */
+	void beforeWrite(int slot, Value value) {
+		SymbolTableJournal j = this.journal;
+		if (j!=null) {
+			j.beforeWrite(slot, value);
+		}
+	}
+
+	/** Notify the journal that an element of the array at the given slot will change.
+	 * 
+	 * @param slot
+	 * @param array is the current array.
+	 * @param index is the index of the element.
+	 */
+	void beforeWriteAt(int slot, ValueArray array, int index) {
+		SymbolTableJournal j = this.journal;
+		if (j!=null) {
+			j.beforeWriteAt(slot, array, index);
+		}
+	}
+	
+	/** Replies a copy of the values of the variables.
+	 * The contents of the arrays are copied, and the arrays
+	 * are restored in place, so that the variables that share
+	 * an array still share it after the restoration.
+	 * 
+	 * @return the values.
+	 * @see #restoreValues(Snapshot)
+	 */
+	public Snapshot saveValues() {
+		Value[] values = new Value[this.slots.size()];
+		Map<ValueArray,ValueArray> arrays = new IdentityHashMap<ValueArray,ValueArray>();
+		for(int i=0; i<values.length; ++i) {
+			Value value = this.slots.get(i).getValue();
+			values[i] = new Value();
+			values[i].set(value);
+			if (value.isSet() && value.getType()==VariableType.ARRAY) {
+				ValueArray array = value.getValueArray();
+				if (!arrays.containsKey(array)) {
+					arrays.put(array, array.clone());
+				}
+			}
+		}
+		return new Snapshot(values, arrays);
+	}
+	
+	/** Replace the values of the variables by the given values.
+	 * The journal is not notified, and the variables are marked as changed.
+	 * The snapshot is not changed, so that it may be restored again.
+	 * 
+	 * @param snapshot are the values.
+	 * @see #saveValues()
+	 */
+	public void restoreValues(Snapshot snapshot) {
+		for(Entry<ValueArray,ValueArray> entry : snapshot.arrays.entrySet()) {
+			entry.getKey().assign(entry.getValue());
+		}
+		for(int i=0; i<this.slots.size(); ++i) {
+			this.slots.get(i).getValue().set((i<snapshot.values.length) ? snapshot.values[i] : null);
+			markChanged(i);
+		}
+	}
+	
+	/** Replace the value of the variable at the given slot.
+	 * The journal is not notified, and the variable is marked as changed.
+	 * 
+	 * @param slot
+	 * @param value
+	 */
+	public void restoreValue(int slot, Value value) {
+		if (slot<this.slots.size()) {
+			this.slots.get(slot).getValue().set(value);
+			markChanged(slot);
+		}
+	}
+	
+	/** Replace an element of an array that is stored in the
+	 * variable at the given slot.
+	 * The journal is not notified, and the variable is marked as changed.
+	 * 
+	 * @param slot
+	 * @param array is the array to change.
+	 * @param index is the index of the element.
+	 * @param element is the element, or <code>null</code> if the array must be truncated. 
+	 * @param size is the size of the array.
+	 */
+	public void restoreValueAt(int slot, ValueArray array, int index, Value element, int size) {
+		array.truncate(size);
+		if (element!=null && index<size) {
+			array.setAt(index, element);
+		}
+		if (slot<this.slots.size()) {
+			markChanged(slot);
+		}
 	}
 	
 	/** Reset all the values of the symbol table.
@@ -123,4 +327,31 @@ public class SymbolTable implements Iterable<SymbolTableEntry> {
 		return Collections.unmodifiableCollection(this.symbols.values()).iterator();
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Copy of the values of the variables of a symbol table.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 * @see SymbolTable#saveValues()
+	 */
+	public static class Snapshot {
+		
+		/** Values indexed by the slots; the arrays are the original arrays.
+		 */
+		final Value[] values;
+		/** Copies of the contents of the original arrays.
+		 */
+		final Map<ValueArray,ValueArray> arrays;
+		
+		/**
+		 * @param values
+		 * @param arrays
+		 */
+		Snapshot(Value[] values, Map<ValueArray,ValueArray> arrays) {
+			this.values = values;
+			this.arrays = arrays;
+		}
+		
+	}
+
+}
@@ -18,10 +18,10 @@
  */
 package fr.utbm.info.da53.lw2.symbol;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.ValueArray;
 import fr.utbm.info.da53.lw2.type.VariableType;
 
 /**
@@ -32,21 +32,36 @@ import fr.utbm.info.da53.lw2.type.VariableType;
  */
 public class SymbolTableEntry implements Comparable<SymbolTableEntry> {
 		
+	private final SymbolTable table;
+	private final int slot;
 	private final String identifier;
 	private final int firstOccurrenceLine;
 	private final Value value = new Value();
 	
 	/**
+	 * @param table is the table that contains this entry.
+	 * @param slot is the index of the entry in the table.
 	 * @param identifier is the lexeme represented by this entry.
 	 * @param line is the line of the token.
 	 */
-	SymbolTableEntry(String identifier, int line) {
+	SymbolTableEntry(SymbolTable table, int slot, String identifier, int line) {
+		assert(table!=null);
 		assert(identifier!=null);
 		assert(line>=1);
+		this.table = table;
+		this.slot = slot;
 		this.identifier = identifier;
 		this.firstOccurrenceLine = line;
 	}
 	
+	/** Replies the index of this entry in its symbol table.
+	 * 
+	 * @return the slot.
+	 */
+	public int slot() {
+		return this.slot;
+	}
+	
 	/** Return the identifier.
 	 * @return the identifier.
 	 */
@@ -75,7 +90,9 @@ public class SymbolTableEntry implements Comparable<SymbolTableEntry> {
 	 * @param value
 	 */
 	public void setValue(Number value) {
+		this.table.beforeWrite(this.slot, this.value);
 		this.value.set(value);
+		this.table.markChanged(this.slot);
 	}
 
 	/** Set the value at the given index in an array.
@@ -84,23 +101,18 @@ public class SymbolTableEntry implements Comparable<SymbolTableEntry> {
 	 * @param index
 	 */
 	public void setValueAt(Value value, int index) {
-		List<Value> vals;
+		ValueArray vals;
 		if (this.value.getType()==VariableType.ARRAY) {
 			vals = this.value.getValueArray();
+			this.table.beforeWriteAt(this.slot, vals, index);
 		}
 		else {
-			vals = new ArrayList<Value>(index+1);
-		}
-		if (index>=vals.size()) {
-			while (vals.size()<index) {
-				vals.add(Value.UNDEF);
-			}
-			vals.add(value==null ? Value.UNDEF : value);
-		}
-		else if (index>=0) {
-			vals.set(index, value==null ? Value.UNDEF : value);
+			this.table.beforeWrite(this.slot, this.value);
+			vals = new ValueArray();
 		}
+		vals.setAt(index, value);
 		this.value.set(vals);
+		this.table.markChanged(this.slot);
 	}
 
 	/** Set the value.
@@ -108,7 +120,9 @@ public class SymbolTableEntry implements Comparable<SymbolTableEntry> {
 	 * @param value
 	 */
 	public void setValue(Value value) {
+		this.table.beforeWrite(this.slot, this.value);
 		this.value.set(value);
+		this.table.markChanged(this.slot);
 	}
 
 	/** Set the value.
@@ -116,7 +130,9 @@ public class SymbolTableEntry implements Comparable<SymbolTableEntry> {
 	 * @param value
 	 */
 	public void setValue(List<Value> value) {
+		this.table.beforeWrite(this.slot, this.value);
 		this.value.set(value);
+		this.table.markChanged(this.slot);
 	}
 
 	/** Set the value.
@@ -124,7 +140,9 @@ public class SymbolTableEntry implements Comparable<SymbolTableEntry> {
 	 * @param value
 	 */
 	public void setValue(String value) {
+		this.table.beforeWrite(this.slot, this.value);
 		this.value.set(value);
+		this.table.markChanged(this.slot);
 	}
 
 	/**
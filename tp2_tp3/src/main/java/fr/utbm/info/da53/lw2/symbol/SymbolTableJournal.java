@@ -0,0 +1,49 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.symbol;
+
+import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.ValueArray;
+
+/**
+ * Observer of the writes in a symbol table, which is notified
+ * before the values are changed.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ * @see SymbolTable#setJournal(SymbolTableJournal)
+ */
+public interface SymbolTableJournal {
+
+	/** Invoked before the value of a variable is replaced.
+	 * 
+	 * @param slot is the slot of the variable.
+	 * @param oldValue is the value of the variable, which is changed after the invocation.
+	 */
+	public void beforeWrite(int slot, Value oldValue);
+
+	/** Invoked before an element of an array is replaced.
+	 * 
+	 * @param slot is the slot of the variable that contains the array.
+	 * @param array is the array, which is changed after the invocation.
+	 * @param index is the index of the element.
+	 */
+	public void beforeWriteAt(int slot, ValueArray array, int index);
+
+}
@@ -18,10 +18,15 @@
  */
 package fr.utbm.info.da53.lw2.syntaxtree;
 
+import java.util.BitSet;
+
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.VariableType;
 
 /**
  * Node for any binary operator.
@@ -31,6 +36,35 @@ import fr.utbm.info.da53.lw2.type.Value;
  */
 public abstract class AbstractBinaryOperatorTreeNode extends AbstractValueTreeNode {
 	
+	/** Specialization of the operator according to the types
+	 * of the operands that were observed during the execution.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	static enum Specialization {
+		/** The operator was never evaluated.
+		 */
+		UNINITIALIZED,
+		/** The operands were always numbers.
+		 */
+		NUMBER,
+		/** At least one of the operands was always a string.
+		 */
+		STRING,
+		/** The operands have any type.
+		 */
+		GENERIC;
+	}
+	
+	/** The syntax trees may be shared by several threads, see
+	 * {@link fr.utbm.info.da53.lw2.session.ParsedProgram}. The field
+	 * is volatile so that a specialization is published safely; the
+	 * concurrent updates are harmless since the guards re-check the
+	 * types of the operands.
+	 */
+	private volatile Specialization specialization = Specialization.UNINITIALIZED;
+	
 	/**
 	 * @param leftOperand
 	 * @param rightOperand
@@ -95,6 +129,129 @@ public abstract class AbstractBinaryOperatorTreeNode extends AbstractValueTreeNo
 			right = Value.UNDEF;
 		}
 		
+		return evaluate(executionContext, left, right);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompiledExpression compile(SymbolTable symbolTable) {
+		final CompiledExpression left = compile(getLeftOperand(), symbolTable);
+		final CompiledExpression right = compile(getRightOperand(), symbolTable);
+		if (left==null || right==null) {
+			return this;
+		}
+		final CompiledExpression generic = (executionContext) -> evaluate(
+				executionContext,
+				left.evaluate(executionContext),
+				right.evaluate(executionContext));
+		return compileNumber(symbolTable, getLeftOperand(), getRightOperand(), generic);
+	}
+	
+	/** Replies an expression that computes this operator on primitive
+	 * numbers when the variables of the operands contain numbers, and
+	 * that evaluates the given generic expression otherwise.
+	 * 
+	 * @param symbolTable is the table of the variables of the program.
+	 * @param leftOperand
+	 * @param rightOperand
+	 * @param generic is the expression to evaluate when the guard fails.
+	 * @return the compiled expression, or the generic expression if the operands
+	 * could not be computed on primitive numbers.
+	 */
+	CompiledExpression compileNumber(SymbolTable symbolTable, AbstractValueTreeNode leftOperand,
+			AbstractValueTreeNode rightOperand, final CompiledExpression generic) {
+		if (!isPrimitiveNumberComputable()) {
+			return generic;
+		}
+		BitSet slots = new BitSet();
+		final CompiledNumberExpression left = compileNumber(leftOperand, symbolTable, slots);
+		final CompiledNumberExpression right = compileNumber(rightOperand, symbolTable, slots);
+		if (left==null || right==null) {
+			return generic;
+		}
+		final int[] guard = slots.stream().toArray();
+		return (executionContext) -> {
+			if (containNumbers(executionContext, guard)) {
+				return computeNumber(
+						executionContext,
+						left.evaluateNumber(executionContext),
+						right.evaluateNumber(executionContext));
+			}
+			return generic.evaluate(executionContext);
+		};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, BitSet slots) {
+		return compileNumber(symbolTable, getLeftOperand(), getRightOperand(), slots);
+	}
+
+	/** Replies an expression that computes the numerical result of
+	 * this operator on primitive numbers.
+	 * 
+	 * @param symbolTable is the table of the variables of the program.
+	 * @param leftOperand
+	 * @param rightOperand
+	 * @param slots is filled with the slots of the variables that are read by the expression.
+	 * @return the compiled expression, or <code>null</code> if the result
+	 * is not a number or if the operands could not be computed on primitive numbers.
+	 */
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, AbstractValueTreeNode leftOperand,
+			AbstractValueTreeNode rightOperand, BitSet slots) {
+		if (!isPrimitiveNumberComputable()) {
+			return null;
+		}
+		final CompiledNumberExpression left = compileNumber(leftOperand, symbolTable, slots);
+		final CompiledNumberExpression right = compileNumber(rightOperand, symbolTable, slots);
+		if (left==null || right==null) {
+			return null;
+		}
+		return (executionContext) -> NumberUtil.round(computeNumber(
+				left.evaluateNumber(executionContext),
+				right.evaluateNumber(executionContext)));
+	}
+	
+	/** Compute the result from the values of the operands.
+	 * 
+	 * @param executionContext is the context of execution.
+	 * @param left is the left operand.
+	 * @param right is the right operand.
+	 * @return the value, never <code>null</code>.
+	 * @throws InterpreterException
+	 */
+	private Value evaluate(ExecutionContext executionContext, Value left, Value right) throws InterpreterException {
+		Specialization s = this.specialization;
+		if (s==Specialization.NUMBER) {
+			// Guard of the specialized operator
+			if (left.isSet() && right.isSet()
+				&& left.getType()==VariableType.NUMBER
+				&& right.getType()==VariableType.NUMBER) {
+				return computeNumber(executionContext,
+						left.getValue(Number.class),
+						right.getValue(Number.class));
+			}
+			// Deoptimization
+			this.specialization = Specialization.GENERIC;
+		}
+		else if (s==Specialization.STRING) {
+			// Guard of the specialized operator
+			if (left.isSet() && right.isSet()
+				&& (left.getType()==VariableType.STRING
+				|| right.getType()==VariableType.STRING)) {
+				return computeString(executionContext, left, right);
+			}
+			// Deoptimization
+			this.specialization = Specialization.GENERIC;
+		}
+		else if (s==Specialization.UNINITIALIZED) {
+			this.specialization = specialize(left, right);
+		}
+		
 		if (left.isUnset()) {
 			warn(executionContext, InterpreterErrorType.UNSET_VALUE, "left operand of "+getOperatorString()); //$NON-NLS-1$
 		}
@@ -110,6 +267,33 @@ public abstract class AbstractBinaryOperatorTreeNode extends AbstractValueTreeNo
 		return Value.UNDEF; 
 	}
 	
+	/** Replies the specialization that corresponds to the types
+	 * of the given operands.
+	 */
+	private Specialization specialize(Value left, Value right) {
+		if (isNumberSpecializable()
+			&& left.isSet() && right.isSet()
+			&& left.getType()==VariableType.NUMBER
+			&& right.getType()==VariableType.NUMBER) {
+			return Specialization.NUMBER;
+		}
+		if (isStringSpecializable()
+			&& left.isSet() && right.isSet()
+			&& (left.getType()==VariableType.STRING
+			|| right.getType()==VariableType.STRING)) {
+			return Specialization.STRING;
+		}
+		return Specialization.GENERIC;
+	}
+	
+	/** Replies the current specialization of this operator.
+	 * 
+	 * @return the specialization.
+	 */
+	Specialization getSpecialization() {
+		return this.specialization;
+	}
+	
 	/** Compute the result.
 	 * 
 	 * @param executionContext is the context of execution.
@@ -120,6 +304,101 @@ public abstract class AbstractBinaryOperatorTreeNode extends AbstractValueTreeNo
 	 */
 	protected abstract Value compute(ExecutionContext executionContext, Value left, Value right) throws InterpreterException;
 
+	/** Replies if this operator has a specialized implementation
+	 * for numerical operands.
+	 * 
+	 * @return <code>true</code> if {@link #computeNumber(ExecutionContext, Number, Number)}
+	 * is implemented.
+	 */
+	protected boolean isNumberSpecializable() {
+		return false;
+	}
+	
+	/** Compute the result when the two operands are numbers.
+	 * This function must reply the same value as
+	 * {@link #compute(ExecutionContext, Value, Value)} for
+	 * numerical operands.
+	 * The implementations compute on the numerical values, and
+	 * build the result with
+	 * {@link fr.utbm.info.da53.lw2.type.NumberUtil#toNumber(double)};
+	 * they must not go through the decimal representations of
+	 * the operands or of the result, since this function is invoked
+	 * on the hot paths of the specialized and check-free operators.
+	 * 
+	 * @param executionContext is the context of execution.
+	 * @param left is the left operand.
+	 * @param right is the right operand.
+	 * @return the value, never <code>null</code>.
+	 * @throws InterpreterException
+	 */
+	protected Value computeNumber(ExecutionContext executionContext, Number left, Number right) throws InterpreterException {
+		return compute(executionContext, new Value(left), new Value(right));
+	}
+
+	/** Replies if this operator could be computed on primitive numbers
+	 * with {@link #computeNumber(ExecutionContext, double, double)}.
+	 * The operators that reply a number must also implement
+	 * {@link #computeNumber(double, double)}.
+	 * 
+	 * @return <code>true</code> if the operator is computed on primitive numbers.
+	 */
+	protected boolean isPrimitiveNumberComputable() {
+		return false;
+	}
+	
+	/** Compute the result from the values of two numerical operands.
+	 * This function must reply the same value as
+	 * {@link #computeNumber(ExecutionContext, Number, Number)}
+	 * for operands that have the given values.
+	 * By default, the result of {@link #computeNumber(double, double)}
+	 * is converted with {@link NumberUtil#toValue(double)}.
+	 * 
+	 * @param executionContext is the context of execution.
+	 * @param left is the value of the left operand.
+	 * @param right is the value of the right operand.
+	 * @return the value, never <code>null</code>.
+	 * @throws InterpreterException
+	 */
+	protected Value computeNumber(ExecutionContext executionContext, double left, double right) throws InterpreterException {
+		return NumberUtil.toValue(computeNumber(left, right));
+	}
+
+	/** Compute the numerical result from the values of two numerical
+	 * operands, before its conversion with {@link NumberUtil#toNumber(double)}.
+	 * 
+	 * @param left is the value of the left operand.
+	 * @param right is the value of the right operand.
+	 * @return the result.
+	 */
+	protected double computeNumber(double left, double right) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Replies if this operator has a specialized implementation
+	 * when one of its operands is a string.
+	 * 
+	 * @return <code>true</code> if {@link #computeString(ExecutionContext, Value, Value)}
+	 * is implemented.
+	 */
+	protected boolean isStringSpecializable() {
+		return false;
+	}
+	
+	/** Compute the result when at least one of the operands is a string.
+	 * This function must reply the same value as
+	 * {@link #compute(ExecutionContext, Value, Value)} for
+	 * such operands.
+	 * 
+	 * @param executionContext is the context of execution.
+	 * @param left is the left operand, always set.
+	 * @param right is the right operand, always set.
+	 * @return the value, never <code>null</code>.
+	 * @throws InterpreterException
+	 */
+	protected Value computeString(ExecutionContext executionContext, Value left, Value right) throws InterpreterException {
+		return compute(executionContext, left, right);
+	}
+
 	/** Replies the operator as a string.
 	 * 
 	 * @return the operator.
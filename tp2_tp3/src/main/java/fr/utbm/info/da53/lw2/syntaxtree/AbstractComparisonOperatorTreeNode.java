@@ -18,11 +18,13 @@
  */
 package fr.utbm.info.da53.lw2.syntaxtree;
 
+import java.util.BitSet;
 import java.util.List;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
 import fr.utbm.info.da53.lw2.type.VariableType;
@@ -82,6 +84,48 @@ public abstract class AbstractComparisonOperatorTreeNode extends AbstractBinaryO
 		return new Value(translate(cr));
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isNumberSpecializable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Value computeNumber(ExecutionContext executionContext, Number left, Number right) {
+		return new Value(translate(NumberUtil.compare(left, right)));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isPrimitiveNumberComputable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Value computeNumber(ExecutionContext executionContext, double left, double right) {
+		return new Value(translate(Double.compare(left, right)));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, AbstractValueTreeNode leftOperand,
+			AbstractValueTreeNode rightOperand, BitSet slots) {
+		// The result of a comparison is not a number
+		return null;
+	}
+	
 	/** Compare.
 	 * 
 	 * @param comparisonResult is the numerical representation of the comparison of the two operands.
@@ -19,6 +19,7 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 
 /**
  * This abstract class represents any node in the syntax tree
@@ -35,4 +36,14 @@ public abstract class AbstractStatementTreeNode extends AbstractSyntaxTreeNode i
 		//
 	}
 	
+	/** Compile the given node.
+	 * 
+	 * @param node is the node to compile, may be <code>null</code>.
+	 * @param symbolTable is the table of the variables of the program.
+	 * @return the compiled statement, or <code>null</code> if the node is <code>null</code>.
+	 */
+	static Statement compile(AbstractStatementTreeNode node, SymbolTable symbolTable) {
+		return node==null ? null : node.compile(symbolTable);
+	}
+	
 }
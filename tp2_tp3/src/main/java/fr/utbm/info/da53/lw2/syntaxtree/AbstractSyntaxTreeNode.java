@@ -23,6 +23,8 @@ import fr.utbm.info.da53.lw2.error.ErrorRepository;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.error.InterpreterWarning;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
 
 /**
  * This abstract class represents any node in the syntax tree.
@@ -30,7 +32,7 @@ import fr.utbm.info.da53.lw2.error.InterpreterWarning;
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
  */
-public abstract class AbstractSyntaxTreeNode {
+public abstract class AbstractSyntaxTreeNode implements Cloneable {
 	
 	/** Children in the syntax tree.
 	 */
@@ -70,6 +72,46 @@ public abstract class AbstractSyntaxTreeNode {
 		return this.children.length;
 	}
 	
+	/** Replies a shallow copy of this node in which the children
+	 * are replaced by the given nodes. This node is not changed.
+	 * 
+	 * @param newChildren are the children of the copy.
+	 * @return the copy.
+	 */
+	protected AbstractSyntaxTreeNode copyWithChildren(AbstractSyntaxTreeNode... newChildren) {
+		try {
+			AbstractSyntaxTreeNode copy = (AbstractSyntaxTreeNode)clone();
+			copy.children = newChildren;
+			return copy;
+		}
+		catch (CloneNotSupportedException e) {
+			throw new Error(e);
+		}
+	}
+	
+	/** Replies the slot of the given variable.
+	 * 
+	 * @param symbolTable is the table of the variables, may be <code>null</code>.
+	 * @param identifier is the identifier of the variable.
+	 * @return the slot, or <code>-1</code> if the variable is not declared.
+	 */
+	static int slot(SymbolTable symbolTable, String identifier) {
+		SymbolTableEntry entry = (symbolTable==null) ? null : symbolTable.get(identifier);
+		return (entry==null) ? -1 : entry.slot();
+	}
+	
+	/** Replies the entry of the given variable. The entry is
+	 * found by its slot if it is known, or by its identifier.
+	 * 
+	 * @param context is the execution context.
+	 * @param slot is the slot of the variable, or <code>-1</code> if unknown.
+	 * @param identifier is the identifier of the variable.
+	 * @return the entry, or <code>null</code> if the variable is not declared.
+	 */
+	static SymbolTableEntry lookup(ExecutionContext context, int slot, String identifier) {
+		return (slot>=0) ? context.getSymbolTableEntry(slot) : context.getSymbolTableEntry(identifier);
+	}
+	
 	/** Warn the user.
 	 * 
 	 * @param context is the execution context.
@@ -21,6 +21,7 @@ package fr.utbm.info.da53.lw2.syntaxtree;
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.Value;
 
 /**
@@ -77,6 +78,31 @@ public abstract class AbstractUnaryOperatorTreeNode extends AbstractValueTreeNod
 			left = Value.UNDEF;
 		}
 
+		return evaluate(executionContext, left);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompiledExpression compile(SymbolTable symbolTable) {
+		final CompiledExpression operand = compile(getOperand(), symbolTable);
+		if (operand==null) {
+			return this;
+		}
+		return (executionContext) -> evaluate(
+				executionContext,
+				operand.evaluate(executionContext));
+	}
+	
+	/** Compute the result from the value of the operand.
+	 * 
+	 * @param executionContext is the context of execution.
+	 * @param left is the value of the operand.
+	 * @return the value, never <code>null</code>.
+	 * @throws InterpreterException
+	 */
+	private Value evaluate(ExecutionContext executionContext, Value left) throws InterpreterException {
 		if (left.isUnset()) {
 			warn(executionContext, InterpreterErrorType.UNSET_VALUE, "left operand of "+getOperatorString()); //$NON-NLS-1$
 		}
@@ -18,9 +18,14 @@
  */
 package fr.utbm.info.da53.lw2.syntaxtree;
 
+import java.util.BitSet;
+
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
 import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.VariableType;
 
 /**
  * This abstract class represents any node that is representing a value
@@ -29,7 +34,7 @@ import fr.utbm.info.da53.lw2.type.Value;
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
  */
-public abstract class AbstractValueTreeNode extends AbstractSyntaxTreeNode {
+public abstract class AbstractValueTreeNode extends AbstractSyntaxTreeNode implements CompiledExpression {
 	
 	/**
 	 */
@@ -43,6 +48,74 @@ public abstract class AbstractValueTreeNode extends AbstractSyntaxTreeNode {
 	 * @return the value, never <code>null</code>.
 	 * @throws InterpreterException when something bad occurs during the evaluation.
 	 */
+	@Override
 	public abstract Value evaluate(ExecutionContext executionContext) throws InterpreterException;
 	
+	/** Replies an expression that computes the same value as this node,
+	 * and in which the operands were bound once for all.
+	 * 
+	 * @param symbolTable is the table of the variables of the program.
+	 * @return the compiled expression; by default this node.
+	 */
+	public CompiledExpression compile(SymbolTable symbolTable) {
+		return this;
+	}
+	
+	/** Compile the given node.
+	 * 
+	 * @param node is the node to compile, may be <code>null</code>.
+	 * @param symbolTable is the table of the variables of the program.
+	 * @return the compiled expression, or <code>null</code> if the node is <code>null</code>.
+	 */
+	static CompiledExpression compile(AbstractValueTreeNode node, SymbolTable symbolTable) {
+		return node==null ? null : node.compile(symbolTable);
+	}
+	
+	/** Replies an expression that computes the value of this node
+	 * on primitive numbers. The expression may be evaluated only
+	 * when the variables in the given slots contain numbers.
+	 * 
+	 * @param symbolTable is the table of the variables of the program.
+	 * @param slots is filled with the slots of the variables that are read by the expression.
+	 * @return the compiled expression, or <code>null</code> if the value of
+	 * this node is not always computed on numbers; by default <code>null</code>.
+	 */
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, BitSet slots) {
+		return null;
+	}
+	
+	/** Compile the given node on primitive numbers.
+	 * 
+	 * @param node is the node to compile, may be <code>null</code>.
+	 * @param symbolTable is the table of the variables of the program.
+	 * @param slots is filled with the slots of the variables that are read by the expression.
+	 * @return the compiled expression, or <code>null</code> if the node
+	 * could not be computed on primitive numbers.
+	 */
+	static CompiledNumberExpression compileNumber(AbstractValueTreeNode node, SymbolTable symbolTable, BitSet slots) {
+		return node==null ? null : node.compileNumber(symbolTable, slots);
+	}
+	
+	/** Replies if all the variables at the given slots contain numbers.
+	 * This is the guard of the expressions that are compiled on
+	 * primitive numbers.
+	 * 
+	 * @param executionContext is the current execution context.
+	 * @param slots are the slots of the variables.
+	 * @return <code>true</code> if all the variables contain numbers.
+	 */
+	static boolean containNumbers(ExecutionContext executionContext, int[] slots) {
+		for(int slot : slots) {
+			SymbolTableEntry entry = executionContext.getSymbolTableEntry(slot);
+			if (entry==null) {
+				return false;
+			}
+			Value value = entry.getValue();
+			if (value.isUnset() || value.getType()!=VariableType.NUMBER) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 }
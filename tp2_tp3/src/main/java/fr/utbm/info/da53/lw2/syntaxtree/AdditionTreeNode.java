@@ -47,7 +47,7 @@ public class AdditionTreeNode extends AbstractBinaryOperatorTreeNode {
 	@Override
 	protected Value compute(ExecutionContext executionContext, Value left, Value right) throws InterpreterException {
 		if (left.getType()==VariableType.STRING || right.getType()==VariableType.STRING) {
-			return new Value(left.getValue().toString() + right.getValue().toString());
+			return Value.concat(left, right);
 		}
 		
 		if (left.getType()!=VariableType.NUMBER) {
@@ -56,9 +56,55 @@ public class AdditionTreeNode extends AbstractBinaryOperatorTreeNode {
 		if (right.getType()!=VariableType.NUMBER) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "right operand of "+getOperatorString()); //$NON-NLS-1$
 		}
-		Number l = left.getValue(Number.class);
-		Number r = right.getValue(Number.class);
-		return new Value(NumberUtil.toNumber(l.doubleValue() + r.doubleValue()));
+		return computeNumber(executionContext, left.getValue(Number.class), right.getValue(Number.class));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isNumberSpecializable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Value computeNumber(ExecutionContext executionContext, Number left, Number right) {
+		return new Value(NumberUtil.toNumber(computeNumber(left.doubleValue(), right.doubleValue())));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isPrimitiveNumberComputable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected double computeNumber(double left, double right) {
+		return left + right;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isStringSpecializable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Value computeString(ExecutionContext executionContext, Value left, Value right) {
+		return Value.concat(left, right);
 	}
 	
 	/**
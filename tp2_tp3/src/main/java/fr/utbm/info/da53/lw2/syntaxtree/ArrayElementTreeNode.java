@@ -18,8 +18,6 @@
  */
 package fr.utbm.info.da53.lw2.syntaxtree;
 
-import java.util.List;
-
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
@@ -27,6 +25,7 @@ import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.ValueArray;
 import fr.utbm.info.da53.lw2.type.VariableType;
 
 /**
@@ -91,7 +90,7 @@ public class ArrayElementTreeNode extends AbstractValueTreeNode {
 			warn(executionContext, InterpreterErrorType.INVALID_ARRAY_INDEX, toString());
 		}
 		
-		List<Value> array = value.getValueArray();
+		ValueArray array = value.getValueArray();
 		assert(array!=null);
 		
 		int javaPosition = position.intValue() - 1;
@@ -19,8 +19,10 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
@@ -45,13 +47,38 @@ public class AssignmentTreeNode extends AbstractStatementTreeNode {
 		if (expression!=null) setChildren(expression);
 	}
 
+	/** Replies the assigned variable.
+	 * 
+	 * @return the variable.
+	 */
+	VariableName getIdentifier() {
+		return this.identifier;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
+		return assign(executionContext,
+				(AbstractValueTreeNode)getChildAt(0),
+				this.identifier.getArrayIndex(),
+				-1);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final CompiledExpression expression = AbstractValueTreeNode.compile((AbstractValueTreeNode)getChildAt(0), symbolTable);
+		final CompiledExpression indexExpression = AbstractValueTreeNode.compile(this.identifier.getArrayIndex(), symbolTable);
+		final int slot = slot(symbolTable, this.identifier.id());
+		return (executionContext) -> assign(executionContext, expression, indexExpression, slot);
+	}
+	
+	private ExecutionContext assign(ExecutionContext executionContext, CompiledExpression expression, CompiledExpression indexExpression, int slot) throws InterpreterException {
 		Value value = Value.UNDEF;
-		AbstractValueTreeNode expression = (AbstractValueTreeNode)getChildAt(0);
 		if (expression!=null) {
 			value = expression.evaluate(executionContext);
 		}
@@ -59,13 +86,12 @@ public class AssignmentTreeNode extends AbstractStatementTreeNode {
 			warn(executionContext, InterpreterErrorType.UNSET_VALUE);
 		}
 
-		SymbolTableEntry entry = executionContext.getSymbolTableEntry(this.identifier.id());
+		SymbolTableEntry entry = lookup(executionContext, slot, this.identifier.id());
 		if (entry==null) {
 			fail(executionContext, InterpreterErrorType.UNDEFINED_VARIABLE, this.identifier.id());
 			return executionContext;
 		}
 		
-		AbstractValueTreeNode indexExpression = this.identifier.getArrayIndex();
 		if (indexExpression!=null) {
 			Value indexValue = indexExpression.evaluate(executionContext);
 			if (indexValue.getType()!=VariableType.NUMBER) {
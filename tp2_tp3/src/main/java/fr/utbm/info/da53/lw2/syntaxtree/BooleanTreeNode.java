@@ -39,6 +39,14 @@ public class BooleanTreeNode extends AbstractValueTreeNode {
 		this.literal = new Value(Boolean.valueOf(v));
 	}
 
+	/** Replies the value of the literal.
+	 * 
+	 * @return the value of the literal.
+	 */
+	Value getLiteral() {
+		return this.literal;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,43 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+
+/**
+ * Expression that computes a number on primitive values.
+ * It is built when a node is compiled, and it is evaluated
+ * only when the variables that it reads contain numbers.
+ * The replied value is the one of the number that the node
+ * would reply, so that the intermediate results are rounded
+ * as in the syntax tree.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public interface CompiledNumberExpression {
+
+	/** Evaluate and replies the numerical value.
+	 * 
+	 * @param executionContext is the current execution context.
+	 * @return the value.
+	 */
+	public double evaluateNumber(ExecutionContext executionContext);
+	
+}
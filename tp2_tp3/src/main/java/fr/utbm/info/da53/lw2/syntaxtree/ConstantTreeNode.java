@@ -0,0 +1,91 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import java.util.BitSet;
+
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.VariableType;
+
+/**
+ * Node for a constant value computed before the execution
+ * of the program by the {@link TreeSimplifier}.
+ * <p>
+ * The string representation of the node is the one of
+ * the original expression, so that the messages of the
+ * interpreter are not changed by the simplification.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ConstantTreeNode extends AbstractValueTreeNode {
+	
+	private final Value literal;
+	private final String source;
+	
+	/**
+	 * @param value is the constant value.
+	 * @param source is the string representation of the original expression.
+	 */
+	public ConstantTreeNode(Value value, String source) {
+		assert(value!=null && value.isSet());
+		this.literal = value;
+		this.source = source;
+	}
+
+	/** Replies the value of the literal.
+	 * 
+	 * @return the value of the literal.
+	 */
+	Value getLiteral() {
+		return this.literal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value evaluate(ExecutionContext executionContext) throws InterpreterException {
+		return this.literal;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, BitSet slots) {
+		if (this.literal.getType()!=VariableType.NUMBER) {
+			return null;
+		}
+		final double value = this.literal.getValue(Number.class).doubleValue();
+		return (executionContext) -> value;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.source;
+	}
+	
+}
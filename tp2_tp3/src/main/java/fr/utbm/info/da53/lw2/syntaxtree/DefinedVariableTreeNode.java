@@ -0,0 +1,57 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Node for a variable that is proved to have a value
+ * each time the node is evaluated. The value is not checked.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ * @see TypeInference
+ */
+public class DefinedVariableTreeNode extends VariableTreeNode {
+	
+	/**
+	 * @param identifier
+	 */
+	public DefinedVariableTreeNode(String identifier) {
+		super(identifier);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value evaluate(ExecutionContext executionContext) throws InterpreterException {
+		SymbolTableEntry entry = executionContext.getSymbolTableEntry(getIdentifier());
+		if (entry==null) {
+			warn(executionContext, InterpreterErrorType.UNDEFINED_VARIABLE, getIdentifier());
+			return Value.UNDEF;
+		}
+		return entry.getValue();
+	}
+	
+}
@@ -52,13 +52,27 @@ public class DivisionTreeNode extends AbstractBinaryOperatorTreeNode {
 		if (right.getType()!=VariableType.NUMBER) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "right operand of "+getOperatorString()); //$NON-NLS-1$
 		}
-		Number l = left.getValue(Number.class);
-		Number r = right.getValue(Number.class);
-		if (r.doubleValue()==0.) {
+		return computeNumber(executionContext, left.getValue(Number.class), right.getValue(Number.class));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isNumberSpecializable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Value computeNumber(ExecutionContext executionContext, Number left, Number right) throws InterpreterException {
+		if (right.doubleValue()==0.) {
 			fail(executionContext, InterpreterErrorType.DIVISION_BY_ZERO,
-					l.toString()+getOperatorString()+r.toString());
+					left.toString()+getOperatorString()+right.toString());
 		}
-		return new Value(NumberUtil.toNumber(l.doubleValue() / r.doubleValue()));
+		return new Value(NumberUtil.toNumber(left.doubleValue() / right.doubleValue()));
 	}
 	
 	/**
@@ -19,6 +19,8 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Interpreter;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.symbol.SymbolTable;
@@ -36,6 +38,10 @@ import fr.utbm.info.da53.lw2.type.VariableType;
 public class ForTreeNode extends AbstractStatementTreeNode {
 
 	private final String identifier;
+	
+	/** Indicates if the types of the start, end and step values are checked.
+	 */
+	private boolean checked = true;
 
 	/**
 	 * @param identifier
@@ -49,34 +55,87 @@ public class ForTreeNode extends AbstractStatementTreeNode {
 		setChildren(startValue, endValue, stepValue, statement);
 	}
 
+	/** Replies the identifier of the counter.
+	 * 
+	 * @return the identifier.
+	 */
+	String getIdentifier() {
+		return this.identifier;
+	}
+	
+	/** Replies a copy of this node that does not check the start,
+	 * end and step values. The caller must have proved that these
+	 * values are always numbers.
+	 * 
+	 * @param startValue
+	 * @param endValue
+	 * @param stepValue
+	 * @param statement
+	 * @return the copy.
+	 */
+	ForTreeNode uncheckedCopy(AbstractValueTreeNode startValue, AbstractValueTreeNode endValue, AbstractValueTreeNode stepValue, AbstractStatementTreeNode statement) {
+		ForTreeNode copy = (ForTreeNode)copyWithChildren(startValue, endValue, stepValue, statement);
+		copy.checked = false;
+		return copy;
+	}
+	
+	/** Replies if the start, end and step values are checked.
+	 * 
+	 * @return <code>true</code> if the values are checked.
+	 */
+	boolean isChecked() {
+		return this.checked;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
-		AbstractValueTreeNode startExpression = (AbstractValueTreeNode)getChildAt(0);
+		return loop(executionContext,
+				(AbstractValueTreeNode)getChildAt(0),
+				(AbstractValueTreeNode)getChildAt(1),
+				(AbstractValueTreeNode)getChildAt(2),
+				(AbstractStatementTreeNode)getChildAt(3),
+				-1);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final CompiledExpression startExpression = AbstractValueTreeNode.compile((AbstractValueTreeNode)getChildAt(0), symbolTable);
+		final CompiledExpression endExpression = AbstractValueTreeNode.compile((AbstractValueTreeNode)getChildAt(1), symbolTable);
+		final CompiledExpression stepExpression = AbstractValueTreeNode.compile((AbstractValueTreeNode)getChildAt(2), symbolTable);
+		final Statement statement = AbstractStatementTreeNode.compile((AbstractStatementTreeNode)getChildAt(3), symbolTable);
+		final int slot = slot(symbolTable, this.identifier);
+		return (executionContext) -> loop(executionContext, startExpression, endExpression, stepExpression, statement, slot);
+	}
+	
+	private ExecutionContext loop(ExecutionContext executionContext, CompiledExpression startExpression,
+			CompiledExpression endExpression, CompiledExpression stepExpression, Statement statement, int slot) throws InterpreterException {
 		if (startExpression==null) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "from"); //$NON-NLS-1$
 		}
 		assert(startExpression!=null);
 		Value startValue = startExpression.evaluate(executionContext);
-		if (startValue.isUnset()) {
+		if (this.checked && startValue.isUnset()) {
 			fail(executionContext, InterpreterErrorType.UNSET_VALUE, "from"); //$NON-NLS-1$
 		}
-		if (startValue.getType()!=VariableType.NUMBER) {
+		if (this.checked && startValue.getType()!=VariableType.NUMBER) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "from"); //$NON-NLS-1$
 		}
 		
-		AbstractValueTreeNode endExpression = (AbstractValueTreeNode)getChildAt(1);
 		if (endExpression==null) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "to"); //$NON-NLS-1$
 		}
 		assert(endExpression!=null);
 		Value endValue = endExpression.evaluate(executionContext);
-		if (endValue.isUnset()) {
+		if (this.checked && endValue.isUnset()) {
 			fail(executionContext, InterpreterErrorType.UNSET_VALUE, "to"); //$NON-NLS-1$
 		}
-		if (endValue.getType()!=VariableType.NUMBER) {
+		if (this.checked && endValue.getType()!=VariableType.NUMBER) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "to"); //$NON-NLS-1$
 		}
 		
@@ -84,13 +143,12 @@ public class ForTreeNode extends AbstractStatementTreeNode {
 		Number endNumber = endValue.getValue(Number.class);
 		
 		Number step = 1;
-		AbstractValueTreeNode stepExpression = (AbstractValueTreeNode)getChildAt(2);
 		if (stepExpression!=null) {
 			Value stepValue = stepExpression.evaluate(executionContext);
-			if (stepValue.isUnset()) {
+			if (this.checked && stepValue.isUnset()) {
 				fail(executionContext, InterpreterErrorType.UNSET_VALUE, "step"); //$NON-NLS-1$
 			}
-			if (stepValue.getType()!=VariableType.NUMBER) {
+			if (this.checked && stepValue.getType()!=VariableType.NUMBER) {
 				fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "step"); //$NON-NLS-1$
 			}
 			
@@ -115,24 +173,23 @@ public class ForTreeNode extends AbstractStatementTreeNode {
 			step = -1;
 		}
 		
-		AbstractStatementTreeNode statement = (AbstractStatementTreeNode)getChildAt(3);
 		if (statement==null) {
 			warn(executionContext, InterpreterErrorType.NOTHING_TO_RUN);
 		}
 		else {
-			SymbolTableEntry counter = executionContext.getSymbolTableEntry(this.identifier);
+			SymbolTableEntry counter = lookup(executionContext, slot, this.identifier);
 			if (counter==null) {
 				fail(executionContext, InterpreterErrorType.UNDEFINED_VARIABLE);
 			}
 			else {
+				Interpreter interpreter = executionContext.getInterpreter();
+				double end = endNumber.doubleValue();
+				double increment = step.doubleValue();
 				counter.setValue(startNumber);
-				while (NumberUtil.compare(counter.getValue().getValue(Number.class), endNumber) <= 0) {
-					executionContext.getInterpreter().reentrantRun(executionContext, statement);
-					counter.setValue(
-							NumberUtil.add(
-									counter.getValue().getValue(Number.class), 
-									step,
-									executionContext.getCurrentLine()));
+				while (!interpreter.isKilled()
+						&& Double.compare(counterValue(counter), end) <= 0) {
+					interpreter.reentrantRun(executionContext, statement);
+					counter.setValue(NumberUtil.toValue(counterValue(counter) + increment));
 				}
 			}
 		}
@@ -140,6 +197,19 @@ public class ForTreeNode extends AbstractStatementTreeNode {
 		return executionContext;
 	}
 
+	/** Replies the value of the counter without unboxing it when it is a number.
+	 * 
+	 * @param counter
+	 * @return the value of the counter.
+	 */
+	private static double counterValue(SymbolTableEntry counter) {
+		Value value = counter.getValue();
+		if (value.getType()==VariableType.NUMBER && value.isSet()) {
+			return value.getNumber();
+		}
+		return value.getValue(Number.class).doubleValue();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -19,8 +19,10 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
 import fr.utbm.info.da53.lw2.type.VariableType;
@@ -33,6 +35,10 @@ import fr.utbm.info.da53.lw2.type.VariableType;
  */
 public class GosubTreeNode extends AbstractStatementTreeNode {
 	
+	/** Indicates if the type of the target line is checked.
+	 */
+	private boolean checked = true;
+	
 	/**
 	 * @param line
 	 */
@@ -40,28 +46,62 @@ public class GosubTreeNode extends AbstractStatementTreeNode {
 		setChildren(line);
 	}
 
+	/** Replies a copy of this node that does not check the target
+	 * line. The caller must have proved that the target is always
+	 * an integer number.
+	 * 
+	 * @return the copy.
+	 */
+	GosubTreeNode uncheckedCopy() {
+		GosubTreeNode copy = (GosubTreeNode)copyWithChildren(getChildAt(0));
+		copy.checked = false;
+		return copy;
+	}
+
+	/** Replies if the target line is checked.
+	 * 
+	 * @return <code>true</code> if the target line is checked.
+	 */
+	boolean isChecked() {
+		return this.checked;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
-		ExecutionContext context = executionContext;
 		AbstractValueTreeNode expression = (AbstractValueTreeNode)getChildAt(0);
+		return call(executionContext, expression, expression);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final AbstractValueTreeNode expressionNode = (AbstractValueTreeNode)getChildAt(0);
+		final CompiledExpression expression = AbstractValueTreeNode.compile(expressionNode, symbolTable);
+		return (executionContext) -> call(executionContext, expressionNode, expression);
+	}
+	
+	private ExecutionContext call(ExecutionContext executionContext, AbstractValueTreeNode expressionNode, CompiledExpression expression) throws InterpreterException {
+		ExecutionContext context = executionContext;
 		if (expression==null) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_INTEGER, toString());
 		}
 		else {
 			Value v = expression.evaluate(executionContext);
-			if (v.isSet() && v.getType()==VariableType.NUMBER) {
+			if (!this.checked || (v.isSet() && v.getType()==VariableType.NUMBER)) {
 				Number n = v.getValue(Number.class);
-				if (!NumberUtil.isInteger(n)) {
-					warn(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expression.toString());
+				if (this.checked && !NumberUtil.isInteger(n)) {
+					warn(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expressionNode.toString());
 				}
 				context = new ExecutionContext(context);
 				context.setNextLine(n.intValue());
 			}
 			else {
-				fail(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expression.toString());
+				fail(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expressionNode.toString());
 			}
 		}
 		return context;
@@ -19,8 +19,10 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
 import fr.utbm.info.da53.lw2.type.VariableType;
@@ -46,6 +48,20 @@ public class GotoTreeNode extends AbstractStatementTreeNode {
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
 		AbstractValueTreeNode expression = (AbstractValueTreeNode)getChildAt(0);
+		return jump(executionContext, expression, expression);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final AbstractValueTreeNode expressionNode = (AbstractValueTreeNode)getChildAt(0);
+		final CompiledExpression expression = AbstractValueTreeNode.compile(expressionNode, symbolTable);
+		return (executionContext) -> jump(executionContext, expressionNode, expression);
+	}
+	
+	private ExecutionContext jump(ExecutionContext executionContext, AbstractValueTreeNode expressionNode, CompiledExpression expression) throws InterpreterException {
 		if (expression==null) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_INTEGER, toString());
 		}
@@ -54,12 +70,12 @@ public class GotoTreeNode extends AbstractStatementTreeNode {
 			if (v.isSet() && v.getType()==VariableType.NUMBER) {
 				Number n = v.getValue(Number.class);
 				if (NumberUtil.isInteger(n)) {
-					warn(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expression.toString());
+					warn(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expressionNode.toString());
 				}
 				executionContext.setNextLine(n.intValue());
 			}
 			else {
-				fail(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expression.toString());
+				fail(executionContext, InterpreterErrorType.EXPECTING_INTEGER, expressionNode.toString());
 			}
 		}
 		return executionContext;
@@ -19,8 +19,10 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.Value;
 import fr.utbm.info.da53.lw2.type.VariableType;
 
@@ -47,6 +49,25 @@ public class IfThenTreeNode extends AbstractStatementTreeNode {
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
 		AbstractComparisonOperatorTreeNode condition = (AbstractComparisonOperatorTreeNode)getChildAt(0);
+		return runIf(executionContext, condition, condition,
+				(AbstractStatementTreeNode)getChildAt(1),
+				(AbstractStatementTreeNode)getChildAt(2));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final AbstractComparisonOperatorTreeNode conditionNode = (AbstractComparisonOperatorTreeNode)getChildAt(0);
+		final CompiledExpression condition = AbstractValueTreeNode.compile(conditionNode, symbolTable);
+		final Statement thenStatement = AbstractStatementTreeNode.compile((AbstractStatementTreeNode)getChildAt(1), symbolTable);
+		final Statement elseStatement = AbstractStatementTreeNode.compile((AbstractStatementTreeNode)getChildAt(2), symbolTable);
+		return (executionContext) -> runIf(executionContext, conditionNode, condition, thenStatement, elseStatement);
+	}
+	
+	private ExecutionContext runIf(ExecutionContext executionContext, AbstractComparisonOperatorTreeNode conditionNode,
+			CompiledExpression condition, Statement thenStatement, Statement elseStatement) throws InterpreterException {
 		if (condition==null) {
 			warn(executionContext, InterpreterErrorType.EXPECTING_BOOLEAN);
 		}
@@ -54,7 +75,7 @@ public class IfThenTreeNode extends AbstractStatementTreeNode {
 			Value r = condition.evaluate(executionContext);
 			if (r.getType()==VariableType.BOOLEAN) {
 				if (r.getValue(Boolean.class)) {
-					AbstractStatementTreeNode statement = (AbstractStatementTreeNode)getChildAt(1);
+					Statement statement = thenStatement;
 					if (statement==null) {
 						warn(executionContext, InterpreterErrorType.NOTHING_TO_RUN, toString());
 					}
@@ -63,14 +84,14 @@ public class IfThenTreeNode extends AbstractStatementTreeNode {
 					}
 				}
 				else {
-					AbstractStatementTreeNode statement = (AbstractStatementTreeNode)getChildAt(2);
+					Statement statement = elseStatement;
 					if (statement!=null) {
 						return statement.run(executionContext);
 					}
 				}
 			}
 			else {
-				warn(executionContext, InterpreterErrorType.EXPECTING_BOOLEAN, condition.toString());
+				warn(executionContext, InterpreterErrorType.EXPECTING_BOOLEAN, conditionNode.toString());
 			}
 		}
 		return executionContext;
@@ -0,0 +1,156 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the changes applied by the {@link TypeInference}.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class InferenceReport {
+	
+	private int definedVariables = 0;
+	private int numberOperations = 0;
+	private int uncheckedStatements = 0;
+	private String skipReason = null;
+	private final List<String> changes = new ArrayList<String>();
+	
+	/**
+	 */
+	public InferenceReport() {
+		//
+	}
+	
+	/** Notify that a variable always has a value when it is read.
+	 * 
+	 * @param line is the Basic line of the variable.
+	 * @param variable is the name of the variable.
+	 */
+	void variableDefined(int line, String variable) {
+		++this.definedVariables;
+		this.changes.add(line+": "+variable+" is always set"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Notify that the operands of an operator are always numbers.
+	 * 
+	 * @param line is the Basic line of the operator.
+	 * @param expression is the expression of the operator.
+	 */
+	void numberOperation(int line, String expression) {
+		++this.numberOperations;
+		this.changes.add(line+": "+expression+" computes numbers"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Notify that a statement does not need to check its operands.
+	 * 
+	 * @param line is the Basic line of the statement.
+	 * @param statement is the statement.
+	 */
+	void statementUnchecked(int line, String statement) {
+		++this.uncheckedStatements;
+		this.changes.add(line+": unchecked "+statement); //$NON-NLS-1$
+	}
+
+	/** Notify that the program was not analyzed.
+	 * 
+	 * @param reason is the reason.
+	 */
+	void skipped(String reason) {
+		this.skipReason = reason;
+	}
+	
+	/** Replies the number of variables that are always set when they are read.
+	 * 
+	 * @return the number of variables.
+	 */
+	public int getDefinedVariableCount() {
+		return this.definedVariables;
+	}
+
+	/** Replies the number of operators that always compute numbers.
+	 * 
+	 * @return the number of operators.
+	 */
+	public int getNumberOperationCount() {
+		return this.numberOperations;
+	}
+
+	/** Replies the number of FOR and GOSUB statements that do not
+	 * check their operands.
+	 * 
+	 * @return the number of statements.
+	 */
+	public int getUncheckedStatementCount() {
+		return this.uncheckedStatements;
+	}
+	
+	/** Replies if the program was not analyzed.
+	 * 
+	 * @return <code>true</code> if the program was not analyzed.
+	 */
+	public boolean isSkipped() {
+		return this.skipReason!=null;
+	}
+	
+	/** Replies if the inference has changed the program.
+	 * 
+	 * @return <code>true</code> if the program was changed.
+	 */
+	public boolean hasChanged() {
+		return !this.changes.isEmpty();
+	}
+
+	/** Replies the descriptions of the changes.
+	 * 
+	 * @return the descriptions of the changes.
+	 */
+	public List<String> getChanges() {
+		return Collections.unmodifiableList(this.changes);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		if (this.skipReason!=null) {
+			b.append("Type inference skipped: "); //$NON-NLS-1$
+			b.append(this.skipReason);
+			return b.toString();
+		}
+		b.append("Defined variables: "); //$NON-NLS-1$
+		b.append(this.definedVariables);
+		b.append("\nNumber operations: "); //$NON-NLS-1$
+		b.append(this.numberOperations);
+		b.append("\nUnchecked statements: "); //$NON-NLS-1$
+		b.append(this.uncheckedStatements);
+		for(String change : this.changes) {
+			b.append("\n\t"); //$NON-NLS-1$
+			b.append(change);
+		}
+		return b.toString();
+	}
+
+}
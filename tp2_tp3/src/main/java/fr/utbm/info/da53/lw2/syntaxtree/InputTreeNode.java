@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.List;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
@@ -51,6 +52,43 @@ public class InputTreeNode extends AbstractStatementTreeNode {
 		}
 	}
 
+	/** Replies the variables that are read.
+	 * 
+	 * @return the variables.
+	 */
+	List<VariableName> getIdentifiers() {
+		return this.identifiers;
+	}
+	
+	/** Replies the number of values that are read by the INPUT
+	 * statements inside the given statement. The statements inside
+	 * the loops are counted once.
+	 * 
+	 * @param statement
+	 * @return the number of values that are read, <code>0</code> if
+	 * the statement does not read the standard input.
+	 */
+	public static int getInputCount(Statement statement) {
+		if (statement instanceof AbstractSyntaxTreeNode) {
+			return getInputCount((AbstractSyntaxTreeNode)statement);
+		}
+		return 0;
+	}
+	
+	private static int getInputCount(AbstractSyntaxTreeNode node) {
+		if (node instanceof InputTreeNode) {
+			return Math.max(1, ((InputTreeNode)node).identifiers.size());
+		}
+		int count = 0;
+		for(int i=0; i<node.getChildCount(); ++i) {
+			AbstractSyntaxTreeNode child = node.getChildAt(i);
+			if (child!=null) {
+				count += getInputCount(child);
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -52,9 +52,39 @@ public class MultiplicationTreeNode extends AbstractBinaryOperatorTreeNode {
 		if (right.getType()!=VariableType.NUMBER) {
 			fail(executionContext, InterpreterErrorType.EXPECTING_NUMBER, "right operand of "+getOperatorString()); //$NON-NLS-1$
 		}
-		Number l = left.getValue(Number.class);
-		Number r = right.getValue(Number.class);
-		return new Value(NumberUtil.toNumber(l.doubleValue() * r.doubleValue()));
+		return computeNumber(executionContext, left.getValue(Number.class), right.getValue(Number.class));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isNumberSpecializable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Value computeNumber(ExecutionContext executionContext, Number left, Number right) {
+		return new Value(NumberUtil.toNumber(computeNumber(left.doubleValue(), right.doubleValue())));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isPrimitiveNumberComputable() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected double computeNumber(double left, double right) {
+		return left * right;
 	}
 	
 	/**
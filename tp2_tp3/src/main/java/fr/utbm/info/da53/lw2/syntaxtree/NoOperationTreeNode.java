@@ -0,0 +1,60 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+
+/**
+ * Node for a statement that does nothing.
+ * It replaces the statements that were proved to never
+ * have effect by the {@link TreeSimplifier}. The line
+ * is kept in the program so that it remains a valid
+ * target for GOTO and GOSUB.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class NoOperationTreeNode extends AbstractStatementTreeNode {
+	
+	private final String comment;
+	
+	/**
+	 * @param comment is the text of the removed statement.
+	 */
+	public NoOperationTreeNode(String comment) {
+		this.comment = comment;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ExecutionContext run(ExecutionContext executionContext) {
+		return executionContext;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "REM " + this.comment; //$NON-NLS-1$
+	}
+
+}
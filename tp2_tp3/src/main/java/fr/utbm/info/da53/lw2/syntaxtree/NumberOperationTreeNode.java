@@ -0,0 +1,106 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import java.util.BitSet;
+
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Node for a binary operator whose operands are proved to
+ * be numbers each time the node is evaluated. The operands
+ * are not checked, and the numerical implementation of the
+ * operator is directly invoked: the result is computed on the
+ * numerical values of the operands, without type guard and
+ * without decimal conversion.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ * @see TypeInference
+ * @see AbstractBinaryOperatorTreeNode#computeNumber(ExecutionContext, Number, Number)
+ */
+public class NumberOperationTreeNode extends AbstractValueTreeNode {
+	
+	private final AbstractBinaryOperatorTreeNode operator;
+	
+	/**
+	 * @param operator is the operator to compute.
+	 * @param leftOperand
+	 * @param rightOperand
+	 */
+	NumberOperationTreeNode(AbstractBinaryOperatorTreeNode operator, AbstractValueTreeNode leftOperand, AbstractValueTreeNode rightOperand) {
+		assert(operator.isNumberSpecializable());
+		this.operator = operator;
+		setChildren(leftOperand, rightOperand);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value evaluate(ExecutionContext executionContext) throws InterpreterException {
+		return this.operator.computeNumber(executionContext,
+				((AbstractValueTreeNode)getChildAt(0)).evaluate(executionContext).getValue(Number.class),
+				((AbstractValueTreeNode)getChildAt(1)).evaluate(executionContext).getValue(Number.class));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompiledExpression compile(SymbolTable symbolTable) {
+		final CompiledExpression left = compile((AbstractValueTreeNode)getChildAt(0), symbolTable);
+		final CompiledExpression right = compile((AbstractValueTreeNode)getChildAt(1), symbolTable);
+		final AbstractBinaryOperatorTreeNode op = this.operator;
+		final CompiledExpression generic = (executionContext) -> op.computeNumber(executionContext,
+				left.evaluate(executionContext).getValue(Number.class),
+				right.evaluate(executionContext).getValue(Number.class));
+		return op.compileNumber(symbolTable,
+				(AbstractValueTreeNode)getChildAt(0),
+				(AbstractValueTreeNode)getChildAt(1),
+				generic);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, BitSet slots) {
+		return this.operator.compileNumber(symbolTable,
+				(AbstractValueTreeNode)getChildAt(0),
+				(AbstractValueTreeNode)getChildAt(1),
+				slots);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "(" //$NON-NLS-1$
+				+getChildAt(0).toString()
+				+this.operator.getOperatorString()
+				+getChildAt(1).toString()
+				+")"; //$NON-NLS-1$
+	}
+	
+}
@@ -18,11 +18,15 @@
  */
 package fr.utbm.info.da53.lw2.syntaxtree;
 
+import java.util.BitSet;
+
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.CompilerException;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
 import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.VariableType;
 
 /**
  * Node for the number literal.
@@ -44,6 +48,14 @@ public class NumberTreeNode extends AbstractValueTreeNode {
 		this.number = new Value(n);
 	}
 
+	/** Replies the value of the literal.
+	 * 
+	 * @return the value of the literal.
+	 */
+	Value getLiteral() {
+		return this.number;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -52,6 +64,18 @@ public class NumberTreeNode extends AbstractValueTreeNode {
 		return this.number;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, BitSet slots) {
+		if (this.number.getType()!=VariableType.NUMBER) {
+			return null;
+		}
+		final double value = this.number.getValue(Number.class).doubleValue();
+		return (executionContext) -> value;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
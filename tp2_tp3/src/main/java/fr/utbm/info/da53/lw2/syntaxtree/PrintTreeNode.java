@@ -19,8 +19,10 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.Value;
 
 /**
@@ -43,7 +45,19 @@ public class PrintTreeNode extends AbstractStatementTreeNode {
 	 */
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
-		AbstractValueTreeNode expression = (AbstractValueTreeNode)getChildAt(0);
+		return print(executionContext, (AbstractValueTreeNode)getChildAt(0));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final CompiledExpression expression = AbstractValueTreeNode.compile((AbstractValueTreeNode)getChildAt(0), symbolTable);
+		return (executionContext) -> print(executionContext, expression);
+	}
+	
+	private ExecutionContext print(ExecutionContext executionContext, CompiledExpression expression) throws InterpreterException {
 		if (expression!=null) {
 			Value v = expression.evaluate(executionContext);
 			assert(v!=null);
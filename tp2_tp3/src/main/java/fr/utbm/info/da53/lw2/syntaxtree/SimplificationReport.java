@@ -0,0 +1,143 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the changes applied by the {@link TreeSimplifier}.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class SimplificationReport {
+	
+	private int foldedExpressions = 0;
+	private int constantJumpTargets = 0;
+	private int removedBranches = 0;
+	private final List<String> changes = new ArrayList<String>();
+	
+	/**
+	 */
+	public SimplificationReport() {
+		//
+	}
+	
+	/** Notify that an expression was replaced by its value.
+	 * 
+	 * @param line is the Basic line of the expression.
+	 * @param expression is the original expression.
+	 * @param value is the constant value.
+	 */
+	void expressionFolded(int line, String expression, String value) {
+		++this.foldedExpressions;
+		this.changes.add(line+": "+expression+" -> "+value); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Notify that the target of a GOTO or a GOSUB is a constant.
+	 * The jump is not pre-resolved: the target line is still searched
+	 * by the interpreter when the jump is run.
+	 * 
+	 * @param line is the Basic line of the jump.
+	 * @param target is the target line.
+	 * @param exists indicates if the target line exists in the program.
+	 */
+	void constantJumpTarget(int line, int target, boolean exists) {
+		++this.constantJumpTargets;
+		if (exists) {
+			this.changes.add(line+": jump to "+target); //$NON-NLS-1$
+		}
+		else {
+			this.changes.add(line+": jump to the unknown line "+target); //$NON-NLS-1$
+		}
+	}
+
+	/** Notify that a statement was removed because it is never run.
+	 * 
+	 * @param line is the Basic line of the statement.
+	 * @param statement is the removed statement.
+	 */
+	void branchRemoved(int line, String statement) {
+		++this.removedBranches;
+		this.changes.add(line+": dead code "+statement); //$NON-NLS-1$
+	}
+	
+	/** Replies the number of expressions that were replaced by constants.
+	 * 
+	 * @return the number of folded expressions.
+	 */
+	public int getFoldedExpressionCount() {
+		return this.foldedExpressions;
+	}
+
+	/** Replies the number of GOTO and GOSUB with a constant target.
+	 * 
+	 * @return the number of constant jump targets.
+	 */
+	public int getConstantJumpTargetCount() {
+		return this.constantJumpTargets;
+	}
+
+	/** Replies the number of statements that were removed because
+	 * they are never run.
+	 * 
+	 * @return the number of removed statements.
+	 */
+	public int getRemovedBranchCount() {
+		return this.removedBranches;
+	}
+	
+	/** Replies if the simplification has changed the program.
+	 * 
+	 * @return <code>true</code> if the program was changed.
+	 */
+	public boolean hasChanged() {
+		return this.foldedExpressions>0 || this.removedBranches>0;
+	}
+
+	/** Replies the descriptions of the changes.
+	 * 
+	 * @return the descriptions of the changes.
+	 */
+	public List<String> getChanges() {
+		return Collections.unmodifiableList(this.changes);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("Folded expressions: "); //$NON-NLS-1$
+		b.append(this.foldedExpressions);
+		b.append("\nConstant jump targets: "); //$NON-NLS-1$
+		b.append(this.constantJumpTargets);
+		b.append("\nRemoved branches: "); //$NON-NLS-1$
+		b.append(this.removedBranches);
+		for(String change : this.changes) {
+			b.append("\n\t"); //$NON-NLS-1$
+			b.append(change);
+		}
+		return b.toString();
+	}
+
+}
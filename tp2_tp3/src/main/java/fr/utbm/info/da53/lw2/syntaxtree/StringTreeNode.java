@@ -56,6 +56,14 @@ public class StringTreeNode extends AbstractValueTreeNode {
 		this.literal = new Value(s);
 	}
 
+	/** Replies the value of the literal.
+	 * 
+	 * @return the value of the literal.
+	 */
+	Value getLiteral() {
+		return this.literal;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
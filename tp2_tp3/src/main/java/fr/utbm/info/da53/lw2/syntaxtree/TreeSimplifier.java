@@ -0,0 +1,280 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.VariableType;
+
+/**
+ * Simplify the syntax trees of a program before its execution.
+ * <p>
+ * The simplifier replaces the expressions with constant operands by
+ * their values, and removes the branches of the IF and WHILE statements
+ * that are never run. The original trees are not changed: the changed
+ * nodes are copied. The GOTO and GOSUB statements with a constant target
+ * are only counted in the report: their target line is still searched
+ * by the interpreter when the jump is run.
+ * <p>
+ * An expression is replaced only when its evaluation cannot produce
+ * a warning or an error, so that the simplified program has the
+ * same outputs and the same warnings as the original program.
+ * For the same reason, the algebraic identities (<code>x*1</code>,
+ * <code>x+0</code>...) are not applied on the variables: the operator
+ * is the source of the warning when the variable has no value.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class TreeSimplifier {
+	
+	private final SortedMap<Integer,Statement> code;
+	private final SimplificationReport report = new SimplificationReport();
+	private int currentLine = -1;
+	
+	/**
+	 * @param code is the code to simplify.
+	 */
+	public TreeSimplifier(SortedMap<Integer,Statement> code) {
+		this.code = code;
+	}
+	
+	/** Replies the report on the last simplification.
+	 * 
+	 * @return the report.
+	 */
+	public SimplificationReport getReport() {
+		return this.report;
+	}
+	
+	/** Simplify the code.
+	 * 
+	 * @return the simplified code.
+	 */
+	public SortedMap<Integer,Statement> simplify() {
+		SortedMap<Integer,Statement> simplified = new TreeMap<Integer,Statement>();
+		for(Entry<Integer,Statement> entry : this.code.entrySet()) {
+			Statement statement = entry.getValue();
+			this.currentLine = entry.getKey();
+			if (statement instanceof AbstractStatementTreeNode) {
+				AbstractStatementTreeNode s = simplifyStatement((AbstractStatementTreeNode)statement);
+				simplified.put(entry.getKey(), s);
+			}
+			else {
+				simplified.put(entry.getKey(), statement);
+			}
+		}
+		this.currentLine = -1;
+		return simplified;
+	}
+	
+	private AbstractStatementTreeNode simplifyStatement(AbstractStatementTreeNode statement) {
+		if (statement==null) return null;
+		
+		if (statement instanceof IfThenTreeNode) {
+			AbstractComparisonOperatorTreeNode condition = (AbstractComparisonOperatorTreeNode)statement.getChildAt(0);
+			AbstractStatementTreeNode thenStatement = (AbstractStatementTreeNode)statement.getChildAt(1);
+			AbstractStatementTreeNode elseStatement = (AbstractStatementTreeNode)statement.getChildAt(2);
+			AbstractValueTreeNode c = simplifyValue(condition);
+			Value v = getLiteral(c);
+			if (v!=null && v.getType()==VariableType.BOOLEAN) {
+				if (v.getValue(Boolean.class).booleanValue()) {
+					// The IF statement warns when there is nothing to run
+					if (thenStatement!=null) {
+						if (elseStatement!=null) {
+							this.report.branchRemoved(this.currentLine, elseStatement.toString());
+						}
+						return simplifyStatement(thenStatement);
+					}
+				}
+				else {
+					if (thenStatement!=null) {
+						this.report.branchRemoved(this.currentLine, thenStatement.toString());
+					}
+					if (elseStatement!=null) {
+						return simplifyStatement(elseStatement);
+					}
+					return new NoOperationTreeNode(statement.toString());
+				}
+			}
+			return (AbstractStatementTreeNode)copyIfChanged(statement,
+					(c instanceof AbstractComparisonOperatorTreeNode) ? c : condition,
+					simplifyStatement(thenStatement),
+					simplifyStatement(elseStatement));
+		}
+		
+		if (statement instanceof WhileTreeNode) {
+			AbstractComparisonOperatorTreeNode condition = (AbstractComparisonOperatorTreeNode)statement.getChildAt(0);
+			AbstractStatementTreeNode body = (AbstractStatementTreeNode)statement.getChildAt(1);
+			AbstractValueTreeNode c = simplifyValue(condition);
+			Value v = getLiteral(c);
+			if (v!=null && v.getType()==VariableType.BOOLEAN
+				&& !v.getValue(Boolean.class).booleanValue()) {
+				this.report.branchRemoved(this.currentLine, statement.toString());
+				return new NoOperationTreeNode(statement.toString());
+			}
+			return (AbstractStatementTreeNode)copyIfChanged(statement,
+					(c instanceof AbstractComparisonOperatorTreeNode) ? c : condition,
+					simplifyStatement(body));
+		}
+		
+		AbstractStatementTreeNode result = (AbstractStatementTreeNode)simplifyChildren(statement);
+		
+		if (result instanceof GotoTreeNode || result instanceof GosubTreeNode) {
+			Value target = getLiteral((AbstractValueTreeNode)result.getChildAt(0));
+			if (target!=null && target.getType()==VariableType.NUMBER) {
+				int line = target.getValue(Number.class).intValue();
+				this.report.constantJumpTarget(this.currentLine, line, this.code.containsKey(line));
+			}
+		}
+		
+		return result;
+	}
+	
+	private AbstractValueTreeNode simplifyValue(AbstractValueTreeNode value) {
+		if (value==null) return null;
+		
+		if (value instanceof AbstractBinaryOperatorTreeNode) {
+			AbstractBinaryOperatorTreeNode operator = (AbstractBinaryOperatorTreeNode)value;
+			AbstractValueTreeNode left = simplifyValue(operator.getLeftOperand());
+			AbstractValueTreeNode right = simplifyValue(operator.getRightOperand());
+			Value l = getLiteral(left);
+			Value r = getLiteral(right);
+			if (l!=null && r!=null && isComputable(operator, l, r)) {
+				try {
+					return fold(operator, operator.compute(null, l, r));
+				}
+				catch (InterpreterException e) {
+					// Not computable before the execution
+				}
+			}
+			return (AbstractValueTreeNode)copyIfChanged(operator, left, right);
+		}
+		
+		if (value instanceof AbstractUnaryOperatorTreeNode) {
+			AbstractUnaryOperatorTreeNode operator = (AbstractUnaryOperatorTreeNode)value;
+			AbstractValueTreeNode operand = simplifyValue(operator.getOperand());
+			Value o = getLiteral(operand);
+			if (o!=null && operator instanceof BooleanNotTreeNode
+				&& o.getType()==VariableType.BOOLEAN) {
+				try {
+					return fold(operator, operator.compute(null, o));
+				}
+				catch (InterpreterException e) {
+					// Not computable before the execution
+				}
+			}
+			return (AbstractValueTreeNode)copyIfChanged(operator, operand);
+		}
+		
+		return (AbstractValueTreeNode)simplifyChildren(value);
+	}
+	
+	private AbstractValueTreeNode fold(AbstractValueTreeNode expression, Value value) {
+		String source = expression.toString();
+		this.report.expressionFolded(this.currentLine, source, value.toString());
+		return new ConstantTreeNode(value, source);
+	}
+	
+	/** Replies if the given operator could be computed without
+	 * warning nor error with the given operands.
+	 */
+	private static boolean isComputable(AbstractBinaryOperatorTreeNode operator, Value left, Value right) {
+		VariableType l = left.getType();
+		VariableType r = right.getType();
+		if (operator instanceof AdditionTreeNode) {
+			return l==VariableType.STRING || r==VariableType.STRING
+					|| (l==VariableType.NUMBER && r==VariableType.NUMBER);
+		}
+		if (operator instanceof SubstractionTreeNode
+			|| operator instanceof MultiplicationTreeNode) {
+			return l==VariableType.NUMBER && r==VariableType.NUMBER;
+		}
+		if (operator instanceof DivisionTreeNode) {
+			return l==VariableType.NUMBER && r==VariableType.NUMBER
+					&& right.getValue(Number.class).doubleValue()!=0.;
+		}
+		if (operator instanceof BooleanAndTreeNode
+			|| operator instanceof BooleanOrTreeNode
+			|| operator instanceof BooleanXorTreeNode) {
+			return l==VariableType.BOOLEAN && r==VariableType.BOOLEAN;
+		}
+		if (operator instanceof AbstractComparisonOperatorTreeNode) {
+			return l==VariableType.STRING || (l==r && l!=VariableType.ARRAY);
+		}
+		return false;
+	}
+	
+	private AbstractSyntaxTreeNode simplifyChildren(AbstractSyntaxTreeNode node) {
+		AbstractSyntaxTreeNode[] children = new AbstractSyntaxTreeNode[node.getChildCount()];
+		for(int i=0; i<children.length; ++i) {
+			AbstractSyntaxTreeNode child = node.getChildAt(i);
+			if (child instanceof AbstractValueTreeNode) {
+				children[i] = simplifyValue((AbstractValueTreeNode)child);
+			}
+			else if (child instanceof AbstractStatementTreeNode) {
+				children[i] = simplifyStatement((AbstractStatementTreeNode)child);
+			}
+			else {
+				children[i] = child;
+			}
+		}
+		return copyIfChanged(node, children);
+	}
+	
+	private static AbstractSyntaxTreeNode copyIfChanged(AbstractSyntaxTreeNode node, AbstractSyntaxTreeNode... children) {
+		boolean changed = children.length!=node.getChildCount();
+		for(int i=0; !changed && i<children.length; ++i) {
+			changed = children[i]!=node.getChildAt(i);
+		}
+		if (changed) {
+			return node.copyWithChildren(children);
+		}
+		return node;
+	}
+	
+	/** Replies the value of the given node if it is a literal.
+	 * 
+	 * @return the value of the literal, or <code>null</code> if
+	 * the node is not a literal.
+	 */
+	static Value getLiteral(AbstractValueTreeNode node) {
+		Value v = null;
+		if (node instanceof NumberTreeNode) {
+			v = ((NumberTreeNode)node).getLiteral();
+		}
+		else if (node instanceof StringTreeNode) {
+			v = ((StringTreeNode)node).getLiteral();
+		}
+		else if (node instanceof BooleanTreeNode) {
+			v = ((BooleanTreeNode)node).getLiteral();
+		}
+		else if (node instanceof ConstantTreeNode) {
+			v = ((ConstantTreeNode)node).getLiteral();
+		}
+		if (v!=null && v.isSet()) return v;
+		return null;
+	}
+	
+}
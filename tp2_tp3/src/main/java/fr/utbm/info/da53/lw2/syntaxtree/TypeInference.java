@@ -0,0 +1,645 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.syntaxtree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.type.NumberUtil;
+import fr.utbm.info.da53.lw2.type.Value;
+import fr.utbm.info.da53.lw2.type.VariableType;
+
+/**
+ * Infer the types of the variables of a program, and replace
+ * the nodes that are proved to be safe by nodes that do not
+ * check their operands.
+ * <p>
+ * The inference is a flow-sensitive analysis over the lines of the
+ * program that follows the GOTO, GOSUB and RETURN statements. For each
+ * line, it computes the set of the types that each variable may have
+ * when the line is run, including the absence of value. The nodes are
+ * replaced as follow:
+ * <ul>
+ * <li>a variable that is always set when it is read becomes a
+ * {@link DefinedVariableTreeNode};</li>
+ * <li>a numerical operator whose operands are always numbers becomes a
+ * {@link NumberOperationTreeNode};</li>
+ * <li>a FOR statement with numerical bounds does not check them;</li>
+ * <li>a GOSUB statement with a constant integer target does not check it.</li>
+ * </ul>
+ * The replaced nodes could not produce a warning with any run of the
+ * program, so that the outputs and the warnings are the same as with the
+ * original program. The nodes that are not proved to be safe are not changed.
+ * The original trees are not changed: the changed nodes are copied.
+ * <p>
+ * A RETURN inside a FOR or a WHILE continues the execution after the loop
+ * with a context that is never closed; the programs with this construct
+ * are not changed.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class TypeInference {
+	
+	private static final int NUMBER = 1;
+	private static final int STRING = 2;
+	private static final int BOOLEAN = 4;
+	private static final int ARRAY = 8;
+	private static final int UNSET = 16;
+	private static final int ANY = NUMBER | STRING | BOOLEAN | ARRAY | UNSET;
+	
+	private final SortedMap<Integer,Statement> code;
+	private final InferenceReport report = new InferenceReport();
+	
+	private int[] lines;
+	private final Map<String,Integer> variables = new HashMap<String,Integer>();
+	
+	/** States of the variables before each line; <code>null</code> if the line is not reached.
+	 */
+	private int[][] states;
+	/** Joined states of the variables at the RETURN statements.
+	 */
+	private int[] returnState;
+	/** Joined states of the variables when the program reaches its end.
+	 */
+	private int[] exitState;
+	/** Indexes of the lines that are run after a RETURN.
+	 */
+	private final BitSet returnSites = new BitSet();
+	/** Indexes of the lines with a GOSUB in a loop, which depend on the
+	 * return and exit states.
+	 */
+	private final BitSet nestedCalls = new BitSet();
+	/** Indexes of the lines that may be followed by the end of the program.
+	 * When a GOSUB that is run by a loop reaches the end of the program,
+	 * the line-based interpreter has consumed its line iterator, and
+	 * the line after the loop is the last line to be run.
+	 */
+	private final BitSet unknownSuccessors = new BitSet();
+	private final Deque<Integer> worklist = new ArrayDeque<Integer>();
+	private final BitSet queued = new BitSet();
+	/** Joined types of the values of the expressions.
+	 */
+	private final Map<AbstractValueTreeNode,Integer> facts = new IdentityHashMap<AbstractValueTreeNode,Integer>();
+	private int currentIndex = -1;
+	private int currentLine = -1;
+	private boolean nestedCall = false;
+	private String unsupported = null;
+	
+	/**
+	 * @param code is the code to analyze.
+	 */
+	public TypeInference(SortedMap<Integer,Statement> code) {
+		this.code = code;
+	}
+	
+	/** Replies the report on the last inference.
+	 * 
+	 * @return the report.
+	 */
+	public InferenceReport getReport() {
+		return this.report;
+	}
+	
+	/** Infer the types and replace the nodes that are proved to be safe.
+	 * 
+	 * @return the optimized code.
+	 */
+	public SortedMap<Integer,Statement> optimize() {
+		Statement[] statements = new Statement[this.code.size()];
+		this.lines = new int[statements.length];
+		int i = 0;
+		for(Entry<Integer,Statement> entry : this.code.entrySet()) {
+			this.lines[i] = entry.getKey();
+			statements[i] = entry.getValue();
+			if (statements[i]!=null && !(statements[i] instanceof AbstractStatementTreeNode)) {
+				this.report.skipped("line "+this.lines[i]+" is not a syntax tree"); //$NON-NLS-1$ //$NON-NLS-2$
+				return this.code;
+			}
+			declare((AbstractSyntaxTreeNode)statements[i]);
+			++i;
+		}
+		
+		analyze(statements);
+		if (this.unsupported!=null) {
+			this.report.skipped(this.unsupported);
+			return this.code;
+		}
+		
+		SortedMap<Integer,Statement> optimized = new TreeMap<Integer,Statement>();
+		for(i=0; i<statements.length; ++i) {
+			this.currentLine = this.lines[i];
+			optimized.put(this.currentLine, rewriteStatement((AbstractStatementTreeNode)statements[i]));
+		}
+		this.currentLine = -1;
+		return optimized;
+	}
+	
+	private void declare(AbstractSyntaxTreeNode node) {
+		if (node==null) return;
+		if (node instanceof VariableTreeNode) {
+			variable(((VariableTreeNode)node).getIdentifier());
+		}
+		else if (node instanceof AssignmentTreeNode) {
+			variable(((AssignmentTreeNode)node).getIdentifier().id());
+		}
+		else if (node instanceof InputTreeNode) {
+			for(VariableName name : ((InputTreeNode)node).getIdentifiers()) {
+				variable(name.id());
+			}
+		}
+		else if (node instanceof ForTreeNode) {
+			variable(((ForTreeNode)node).getIdentifier());
+		}
+		for(int i=0; i<node.getChildCount(); ++i) {
+			declare(node.getChildAt(i));
+		}
+	}
+	
+	private int variable(String identifier) {
+		Integer index = this.variables.get(identifier);
+		if (index==null) {
+			index = this.variables.size();
+			this.variables.put(identifier, index);
+		}
+		return index.intValue();
+	}
+	
+	//------------------------------------------
+	// Analysis
+	//------------------------------------------
+	
+	private void analyze(Statement[] statements) {
+		this.states = new int[statements.length][];
+		if (statements.length==0) return;
+		int[] entry = new int[this.variables.size()];
+		Arrays.fill(entry, UNSET);
+		flow(0, entry);
+		while (!this.worklist.isEmpty() && this.unsupported==null) {
+			int index = this.worklist.removeFirst();
+			this.queued.clear(index);
+			this.currentIndex = index;
+			this.nestedCall = false;
+			int[] out = transfer((AbstractStatementTreeNode)statements[index], this.states[index], false);
+			if (this.nestedCall && this.nestedCalls.get(index) && index+1<this.lines.length
+				&& !this.unknownSuccessors.get(index+1)) {
+				this.unknownSuccessors.set(index+1);
+				enqueue(index+1);
+			}
+			fallThrough(index, out);
+		}
+		this.currentIndex = -1;
+	}
+	
+	private void fallThrough(int index, int[] state) {
+		if (state==null) return;
+		flow(index+1, state);
+		if (this.unknownSuccessors.get(index)) {
+			flow(this.lines.length, state);
+		}
+	}
+	
+	/** Propagate the state to the line at the given index.
+	 * The index after the last line is the end of the program.
+	 */
+	private void flow(int index, int[] state) {
+		if (state==null) return;
+		if (index>=this.lines.length) {
+			int[] s = join(this.exitState, state);
+			if (s!=this.exitState) {
+				this.exitState = s;
+				enqueueNestedCalls();
+			}
+		}
+		else {
+			int[] s = join(this.states[index], state);
+			if (s!=this.states[index]) {
+				this.states[index] = s;
+				enqueue(index);
+			}
+		}
+	}
+	
+	private void enqueue(int index) {
+		if (!this.queued.get(index)) {
+			this.queued.set(index);
+			this.worklist.addLast(index);
+		}
+	}
+	
+	private void enqueueNestedCalls() {
+		for(int i=this.nestedCalls.nextSetBit(0); i>=0; i=this.nestedCalls.nextSetBit(i+1)) {
+			enqueue(i);
+		}
+	}
+	
+	private void returnTo(int[] state) {
+		int[] s = join(this.returnState, state);
+		if (s!=this.returnState) {
+			this.returnState = s;
+			for(int i=this.returnSites.nextSetBit(0); i>=0; i=this.returnSites.nextSetBit(i+1)) {
+				flow(i, s);
+			}
+			enqueueNestedCalls();
+		}
+	}
+	
+	/** Replies the join of the two states. The first state is
+	 * replied if it is not changed by the join.
+	 */
+	private static int[] join(int[] a, int[] b) {
+		if (b==null) return a;
+		if (a==null) return b;
+		int[] r = a;
+		for(int i=0; i<a.length; ++i) {
+			int v = a[i] | b[i];
+			if (v!=a[i]) {
+				if (r==a) r = a.clone();
+				r[i] = v;
+			}
+		}
+		return r;
+	}
+	
+	private static int[] set(int[] state, int variable, int types) {
+		if (state[variable]==types) return state;
+		int[] r = state.clone();
+		r[variable] = types;
+		return r;
+	}
+	
+	/** Replies the indexes of the lines that may be run by a jump
+	 * to the given expression.
+	 */
+	private BitSet targets(AbstractValueTreeNode expression) {
+		BitSet targets = new BitSet();
+		Value v = TreeSimplifier.getLiteral(expression);
+		if (v!=null && v.getType()==VariableType.NUMBER) {
+			int index = Arrays.binarySearch(this.lines, v.getValue(Number.class).intValue());
+			targets.set(index>=0 ? index : -(index + 1));
+		}
+		else {
+			targets.set(0, this.lines.length+1);
+		}
+		return targets;
+	}
+	
+	/** Compute the state after the statement.
+	 * 
+	 * @param statement
+	 * @param state is the state before the statement.
+	 * @param nested indicates if the statement is run by a loop.
+	 * @return the state after the statement, or <code>null</code> if the
+	 * statement is not followed by the next statement.
+	 */
+	private int[] transfer(AbstractStatementTreeNode statement, int[] state, boolean nested) {
+		if (statement==null || state==null) return state;
+		
+		if (statement instanceof AssignmentTreeNode) {
+			AssignmentTreeNode assignment = (AssignmentTreeNode)statement;
+			AbstractValueTreeNode expression = (AbstractValueTreeNode)assignment.getChildAt(0);
+			int value = (expression==null) ? UNSET : evaluate(expression, state);
+			VariableName name = assignment.getIdentifier();
+			if (name.getArrayIndex()!=null) {
+				evaluate(name.getArrayIndex(), state);
+				value = ANY;
+			}
+			return set(state, variable(name.id()), value);
+		}
+		
+		if (statement instanceof InputTreeNode) {
+			int[] s = state;
+			for(VariableName name : ((InputTreeNode)statement).getIdentifiers()) {
+				s = set(s, variable(name.id()), ANY);
+			}
+			return s;
+		}
+		
+		if (statement instanceof IfThenTreeNode) {
+			evaluate((AbstractValueTreeNode)statement.getChildAt(0), state);
+			AbstractStatementTreeNode thenStatement = (AbstractStatementTreeNode)statement.getChildAt(1);
+			AbstractStatementTreeNode elseStatement = (AbstractStatementTreeNode)statement.getChildAt(2);
+			return join(
+					transfer(thenStatement, state, nested),
+					transfer(elseStatement, state, nested));
+		}
+		
+		if (statement instanceof ForTreeNode) {
+			ForTreeNode forStatement = (ForTreeNode)statement;
+			for(int i=0; i<3; ++i) {
+				evaluate((AbstractValueTreeNode)forStatement.getChildAt(i), state);
+			}
+			AbstractStatementTreeNode body = (AbstractStatementTreeNode)forStatement.getChildAt(3);
+			if (body==null) return state;
+			int counter = variable(forStatement.getIdentifier());
+			int[] head = set(state, counter, NUMBER);
+			int[] s;
+			do {
+				s = head;
+				int[] out = transfer(body, s, true);
+				if (out!=null) {
+					head = join(s, set(out, counter, NUMBER));
+				}
+			}
+			while (head!=s && this.unsupported==null);
+			return head;
+		}
+		
+		if (statement instanceof WhileTreeNode) {
+			AbstractValueTreeNode condition = (AbstractValueTreeNode)statement.getChildAt(0);
+			AbstractStatementTreeNode body = (AbstractStatementTreeNode)statement.getChildAt(1);
+			int[] head = state;
+			int[] s;
+			do {
+				s = head;
+				evaluate(condition, s);
+				int[] out = transfer(body, s, true);
+				head = join(s, out);
+			}
+			while (head!=s && this.unsupported==null);
+			return head;
+		}
+		
+		if (statement instanceof GotoTreeNode) {
+			AbstractValueTreeNode expression = (AbstractValueTreeNode)statement.getChildAt(0);
+			evaluate(expression, state);
+			if (nested) {
+				// The loops ignore the jumps of their statements
+				return state;
+			}
+			BitSet targets = targets(expression);
+			for(int i=targets.nextSetBit(0); i>=0; i=targets.nextSetBit(i+1)) {
+				flow(i, state);
+			}
+			return null;
+		}
+		
+		if (statement instanceof GosubTreeNode) {
+			AbstractValueTreeNode expression = (AbstractValueTreeNode)statement.getChildAt(0);
+			evaluate(expression, state);
+			BitSet targets = targets(expression);
+			for(int i=targets.nextSetBit(0); i>=0; i=targets.nextSetBit(i+1)) {
+				flow(i, state);
+			}
+			if (nested) {
+				// The loop runs the subroutine until its RETURN or the end of the program
+				this.nestedCalls.set(this.currentIndex);
+				this.nestedCall = true;
+				return join(this.returnState, this.exitState);
+			}
+			this.returnSites.set(this.currentIndex+1);
+			if (this.unknownSuccessors.get(this.currentIndex)) {
+				this.returnSites.set(this.lines.length);
+			}
+			for(int i=this.returnSites.nextSetBit(0); i>=0; i=this.returnSites.nextSetBit(i+1)) {
+				flow(i, this.returnState);
+			}
+			return null;
+		}
+		
+		if (statement instanceof ReturnTreeNode) {
+			if (nested) {
+				this.unsupported = "RETURN in a loop at line "+this.lines[this.currentIndex]; //$NON-NLS-1$
+			}
+			else {
+				returnTo(state);
+			}
+			return null;
+		}
+		
+		if (statement instanceof EndTreeNode) {
+			return null;
+		}
+		
+		for(int i=0; i<statement.getChildCount(); ++i) {
+			AbstractSyntaxTreeNode child = statement.getChildAt(i);
+			if (child instanceof AbstractValueTreeNode) {
+				evaluate((AbstractValueTreeNode)child, state);
+			}
+		}
+		return state;
+	}
+	
+	/** Replies the types of the values of the expression, and
+	 * record them for the rewriting of the nodes.
+	 */
+	private int evaluate(AbstractValueTreeNode expression, int[] state) {
+		if (expression==null) return UNSET;
+		int types;
+		if (expression instanceof VariableTreeNode) {
+			types = state[variable(((VariableTreeNode)expression).getIdentifier())];
+		}
+		else if (expression instanceof AbstractBinaryOperatorTreeNode) {
+			AbstractBinaryOperatorTreeNode operator = (AbstractBinaryOperatorTreeNode)expression;
+			int left = evaluate(operator.getLeftOperand(), state);
+			int right = evaluate(operator.getRightOperand(), state);
+			types = ((left | right) & UNSET) | compute(operator, left, right);
+		}
+		else if (expression instanceof UndefTreeNode) {
+			types = UNSET;
+		}
+		else {
+			Value v = TreeSimplifier.getLiteral(expression);
+			if (v!=null) {
+				types = type(v.getType());
+			}
+			else {
+				for(int i=0; i<expression.getChildCount(); ++i) {
+					AbstractSyntaxTreeNode child = expression.getChildAt(i);
+					if (child instanceof AbstractValueTreeNode) {
+						evaluate((AbstractValueTreeNode)child, state);
+					}
+				}
+				types = ANY;
+			}
+		}
+		Integer previous = this.facts.get(expression);
+		this.facts.put(expression, (previous==null) ? types : (previous.intValue() | types));
+		return types;
+	}
+	
+	/** Replies the types of the values of an operator when its
+	 * operands are set.
+	 */
+	private static int compute(AbstractBinaryOperatorTreeNode operator, int left, int right) {
+		if ((left & ~UNSET)==0 || (right & ~UNSET)==0) {
+			// The operator is never computed
+			return 0;
+		}
+		if (operator instanceof AdditionTreeNode) {
+			int types = 0;
+			if (((left | right) & STRING)!=0) types |= STRING;
+			if ((left & right & NUMBER)!=0) types |= NUMBER;
+			return types;
+		}
+		if (operator instanceof SubstractionTreeNode
+			|| operator instanceof MultiplicationTreeNode
+			|| operator instanceof DivisionTreeNode) {
+			return left & right & NUMBER;
+		}
+		if (operator instanceof AbstractComparisonOperatorTreeNode) {
+			return BOOLEAN;
+		}
+		if (operator instanceof BooleanAndTreeNode
+			|| operator instanceof BooleanOrTreeNode
+			|| operator instanceof BooleanXorTreeNode) {
+			return left & right & BOOLEAN;
+		}
+		return ANY & ~UNSET;
+	}
+	
+	private static int type(VariableType type) {
+		switch(type) {
+		case NUMBER:
+			return NUMBER;
+		case STRING:
+			return STRING;
+		case BOOLEAN:
+			return BOOLEAN;
+		case ARRAY:
+			return ARRAY;
+		default:
+		}
+		return ANY;
+	}
+	
+	/** Replies if the expression is always a number.
+	 */
+	private boolean isNumber(AbstractValueTreeNode expression) {
+		Integer types = this.facts.get(expression);
+		return types!=null && types.intValue()==NUMBER;
+	}
+	
+	//------------------------------------------
+	// Rewriting
+	//------------------------------------------
+	
+	private AbstractStatementTreeNode rewriteStatement(AbstractStatementTreeNode statement) {
+		if (statement==null) return null;
+		
+		if (statement instanceof IfThenTreeNode || statement instanceof WhileTreeNode) {
+			// The conditions must stay comparison operators
+			AbstractSyntaxTreeNode[] children = new AbstractSyntaxTreeNode[statement.getChildCount()];
+			children[0] = rewriteOperands((AbstractValueTreeNode)statement.getChildAt(0));
+			for(int i=1; i<children.length; ++i) {
+				children[i] = rewriteStatement((AbstractStatementTreeNode)statement.getChildAt(i));
+			}
+			return (AbstractStatementTreeNode)copyIfChanged(statement, children);
+		}
+		
+		if (statement instanceof ForTreeNode) {
+			ForTreeNode forStatement = (ForTreeNode)statement;
+			AbstractValueTreeNode start = (AbstractValueTreeNode)forStatement.getChildAt(0);
+			AbstractValueTreeNode end = (AbstractValueTreeNode)forStatement.getChildAt(1);
+			AbstractValueTreeNode step = (AbstractValueTreeNode)forStatement.getChildAt(2);
+			AbstractStatementTreeNode body = (AbstractStatementTreeNode)forStatement.getChildAt(3);
+			if (forStatement.isChecked() && isNumber(start) && isNumber(end)
+				&& (step==null || isNumber(step))) {
+				this.report.statementUnchecked(this.currentLine, forStatement.toString());
+				return forStatement.uncheckedCopy(
+						rewriteValue(start), rewriteValue(end), rewriteValue(step),
+						rewriteStatement(body));
+			}
+		}
+		
+		AbstractStatementTreeNode result = (AbstractStatementTreeNode)rewriteChildren(statement);
+		
+		if (result instanceof GosubTreeNode && ((GosubTreeNode)result).isChecked()) {
+			Value target = TreeSimplifier.getLiteral((AbstractValueTreeNode)result.getChildAt(0));
+			if (target!=null && target.getType()==VariableType.NUMBER
+				&& NumberUtil.isInteger(target.getValue(Number.class))) {
+				this.report.statementUnchecked(this.currentLine, result.toString());
+				return ((GosubTreeNode)result).uncheckedCopy();
+			}
+		}
+		
+		return result;
+	}
+	
+	private AbstractValueTreeNode rewriteValue(AbstractValueTreeNode value) {
+		if (value==null) return null;
+		
+		if (value instanceof VariableTreeNode && !(value instanceof DefinedVariableTreeNode)) {
+			Integer types = this.facts.get(value);
+			if (types!=null && (types.intValue() & UNSET)==0) {
+				String identifier = ((VariableTreeNode)value).getIdentifier();
+				this.report.variableDefined(this.currentLine, identifier);
+				return new DefinedVariableTreeNode(identifier);
+			}
+			return value;
+		}
+		
+		if (value instanceof AbstractBinaryOperatorTreeNode) {
+			AbstractBinaryOperatorTreeNode operator = (AbstractBinaryOperatorTreeNode)value;
+			if (operator.isNumberSpecializable()
+				&& isNumber(operator.getLeftOperand())
+				&& isNumber(operator.getRightOperand())) {
+				this.report.numberOperation(this.currentLine, operator.toString());
+				return new NumberOperationTreeNode(operator,
+						rewriteValue(operator.getLeftOperand()),
+						rewriteValue(operator.getRightOperand()));
+			}
+		}
+		
+		return rewriteOperands(value);
+	}
+	
+	private AbstractValueTreeNode rewriteOperands(AbstractValueTreeNode value) {
+		if (value==null) return null;
+		return (AbstractValueTreeNode)rewriteChildren(value);
+	}
+	
+	private AbstractSyntaxTreeNode rewriteChildren(AbstractSyntaxTreeNode node) {
+		AbstractSyntaxTreeNode[] children = new AbstractSyntaxTreeNode[node.getChildCount()];
+		for(int i=0; i<children.length; ++i) {
+			AbstractSyntaxTreeNode child = node.getChildAt(i);
+			if (child instanceof AbstractValueTreeNode) {
+				children[i] = rewriteValue((AbstractValueTreeNode)child);
+			}
+			else if (child instanceof AbstractStatementTreeNode) {
+				children[i] = rewriteStatement((AbstractStatementTreeNode)child);
+			}
+			else {
+				children[i] = child;
+			}
+		}
+		return copyIfChanged(node, children);
+	}
+	
+	private static AbstractSyntaxTreeNode copyIfChanged(AbstractSyntaxTreeNode node, AbstractSyntaxTreeNode... children) {
+		boolean changed = children.length!=node.getChildCount();
+		for(int i=0; !changed && i<children.length; ++i) {
+			changed = children[i]!=node.getChildAt(i);
+		}
+		if (changed) {
+			return node.copyWithChildren(children);
+		}
+		return node;
+	}
+	
+}
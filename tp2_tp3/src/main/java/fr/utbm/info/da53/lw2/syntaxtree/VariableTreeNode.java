@@ -18,6 +18,8 @@
  */
 package fr.utbm.info.da53.lw2.syntaxtree;
 
+import java.util.BitSet;
+
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
@@ -43,12 +45,48 @@ public class VariableTreeNode extends AbstractValueTreeNode {
 		this.identifier = SymbolTable.formatIdentifier(identifier);
 	}
 
+	/** Replies the identifier of the variable.
+	 * 
+	 * @return the identifier.
+	 */
+	String getIdentifier() {
+		return this.identifier;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public Value evaluate(ExecutionContext executionContext) throws InterpreterException {
-		SymbolTableEntry entry = executionContext.getSymbolTableEntry(this.identifier);
+		return read(executionContext, executionContext.getSymbolTableEntry(this.identifier));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompiledExpression compile(SymbolTable symbolTable) {
+		final int slot = slot(symbolTable, this.identifier);
+		if (slot<0) {
+			return this;
+		}
+		return (executionContext) -> read(executionContext, executionContext.getSymbolTableEntry(slot));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	CompiledNumberExpression compileNumber(SymbolTable symbolTable, BitSet slots) {
+		final int slot = slot(symbolTable, this.identifier);
+		if (slot<0) {
+			return null;
+		}
+		slots.set(slot);
+		return (executionContext) -> executionContext.getSymbolTableEntry(slot).getValue().getNumber();
+	}
+	
+	private Value read(ExecutionContext executionContext, SymbolTableEntry entry) {
 		if (entry==null) {
 			warn(executionContext, InterpreterErrorType.UNDEFINED_VARIABLE, this.identifier);
 			return Value.UNDEF;
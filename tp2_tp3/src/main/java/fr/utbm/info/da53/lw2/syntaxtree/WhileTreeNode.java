@@ -19,8 +19,11 @@
 package fr.utbm.info.da53.lw2.syntaxtree;
 
 import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Interpreter;
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.type.Value;
 import fr.utbm.info.da53.lw2.type.VariableType;
 
@@ -40,12 +43,12 @@ public class WhileTreeNode extends AbstractStatementTreeNode {
 		setChildren(condition, statement);
 	}
 	
-	private boolean isTrue(ExecutionContext executionContext, AbstractComparisonOperatorTreeNode condition)  throws InterpreterException {
+	private boolean isTrue(ExecutionContext executionContext, AbstractComparisonOperatorTreeNode conditionNode, CompiledExpression condition)  throws InterpreterException {
 		Value r = condition.evaluate(executionContext);
 		if (r.getType()==VariableType.BOOLEAN) {
 			return r.getValue(Boolean.class).booleanValue();
 		}
-		warn(executionContext, InterpreterErrorType.EXPECTING_BOOLEAN, condition.toString());
+		warn(executionContext, InterpreterErrorType.EXPECTING_BOOLEAN, conditionNode.toString());
 		return false;
 	}
 
@@ -55,19 +58,35 @@ public class WhileTreeNode extends AbstractStatementTreeNode {
 	@Override
 	public ExecutionContext run(ExecutionContext executionContext) throws InterpreterException {
 		AbstractComparisonOperatorTreeNode condition = (AbstractComparisonOperatorTreeNode)getChildAt(0);
+		return loop(executionContext, condition, condition, (AbstractStatementTreeNode)getChildAt(1));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement compile(SymbolTable symbolTable) {
+		final AbstractComparisonOperatorTreeNode conditionNode = (AbstractComparisonOperatorTreeNode)getChildAt(0);
+		final CompiledExpression condition = AbstractValueTreeNode.compile(conditionNode, symbolTable);
+		final Statement statement = AbstractStatementTreeNode.compile((AbstractStatementTreeNode)getChildAt(1), symbolTable);
+		return (executionContext) -> loop(executionContext, conditionNode, condition, statement);
+	}
+	
+	private ExecutionContext loop(ExecutionContext executionContext, AbstractComparisonOperatorTreeNode conditionNode,
+			CompiledExpression condition, Statement statement) throws InterpreterException {
 		if (condition==null) {
 			warn(executionContext, InterpreterErrorType.EXPECTING_BOOLEAN);
 		}
-		else if (isTrue(executionContext, condition)) {
-			AbstractStatementTreeNode statement = (AbstractStatementTreeNode)getChildAt(1);
+		else if (isTrue(executionContext, conditionNode, condition)) {
 			if (statement==null) {
 				warn(executionContext, InterpreterErrorType.NOTHING_TO_RUN, toString());
 			}
 			else {
+				Interpreter interpreter = executionContext.getInterpreter();
 				do {
-					executionContext.getInterpreter().reentrantRun(executionContext, statement);
+					interpreter.reentrantRun(executionContext, statement);
 				}
-				while (isTrue(executionContext, condition));
+				while (!interpreter.isKilled() && isTrue(executionContext, conditionNode, condition));
 			}
 		}
 		return executionContext;
@@ -0,0 +1,121 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.type;
+
+import java.io.Serializable;
+
+/**
+ * String that supports the concatenation in amortized constant time.
+ * <p>
+ * The characters are stored in a buffer that may be shared by several
+ * strings: each string is the prefix of the buffer with its own length.
+ * When the string is the longest prefix of the buffer, a concatenation
+ * appends the characters to the buffer; otherwise the prefix is copied
+ * in a new buffer. The Java string is built only when it is needed,
+ * and it is cached.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+final class AppendableString implements CharSequence, Serializable {
+
+	private static final long serialVersionUID = -2040815305932497467L;
+
+	private final StringBuilder buffer;
+	private final int length;
+	private transient String flat = null;
+	
+	/**
+	 * @param text is the initial text.
+	 */
+	AppendableString(String text) {
+		this.buffer = new StringBuilder(text);
+		this.length = text.length();
+		this.flat = text;
+	}
+	
+	private AppendableString(StringBuilder buffer, int length) {
+		this.buffer = buffer;
+		this.length = length;
+	}
+	
+	/** Replies the concatenation of this string and the given text.
+	 * This string is not changed.
+	 * 
+	 * @param text
+	 * @return the concatenation.
+	 */
+	AppendableString append(String text) {
+		synchronized(this.buffer) {
+			if (this.buffer.length()==this.length) {
+				this.buffer.append(text);
+				return new AppendableString(this.buffer, this.buffer.length());
+			}
+			StringBuilder b = new StringBuilder(Math.max(16, (this.length+text.length())*2));
+			b.append(this.buffer, 0, this.length);
+			b.append(text);
+			return new AppendableString(b, b.length());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int length() {
+		return this.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char charAt(int index) {
+		if (index<0 || index>=this.length) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+		synchronized(this.buffer) {
+			return this.buffer.charAt(index);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().subSequence(start, end);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		String s = this.flat;
+		if (s==null) {
+			synchronized(this.buffer) {
+				s = this.buffer.substring(0, this.length);
+			}
+			this.flat = s;
+		}
+		return s;
+	}
+	
+}
@@ -25,7 +25,6 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import fr.utbm.info.da53.lw2.error.CompilationErrorType;
 import fr.utbm.info.da53.lw2.error.CompilerException;
-import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 
 /**
@@ -35,6 +34,11 @@ import fr.utbm.info.da53.lw2.error.InterpreterException;
  * @version $Name$ $Revision$ $Date$
  */
 public class NumberUtil {
+
+	/** Bound of the integral double values that are exactly represented
+	 * by their decimal representations (2<sup>53</sup>).
+	 */
+	private static final double EXACT_INTEGRAL_DOUBLE = 9007199254740992.;
 	
 	private static Number parseInteger(String number, int line) throws CompilerException {
 		Number n = null;
@@ -126,20 +130,104 @@ public class NumberUtil {
 	}
 	
 	/** Convert the given double value into the smallest Number class.
+	 * <p>
+	 * The result is the number replied by {@link #parse(String, int)}
+	 * for the decimal representation of the value: the value is rounded
+	 * to a single precision number, which is replaced by the smallest
+	 * integer object when it is integral. The rounding and the range
+	 * checks are done on the numbers, without building and parsing the
+	 * string, except when a non-integral value, or an integral value
+	 * greater than 2<sup>53</sup>, is exactly halfway between two single
+	 * precision numbers, since the decimal representation may then be
+	 * rounded in another direction. Integral values below 2<sup>53</sup>
+	 * have an exact decimal representation, which is rounded as the cast.
 	 * 
 	 * @param v
 	 * @return the number.
 	 */
 	public static Number toNumber(double v) {
 		if (Double.isNaN(v)) return Float.NaN;
-		if (Double.isInfinite(v))
-			return Float.valueOf(((v>=0.) ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY));
-		try {
-			return parse(Double.toString(v), -1);
+		float f = (float)v;
+		if (f!=v && !isExactDecimal(v) && isHalfway(v, f)) {
+			try {
+				return parse(Double.toString(v), -1);
+			}
+			catch (CompilerException e) {
+				return Double.valueOf(v);
+			}
+		}
+		// Same integral test as in parse(String,int)
+		if ((f - (long)f)==0l) {
+			return toIntegerObject((long)f);
+		}
+		return Float.valueOf(f);
+	}
+	
+	/** Replies a value that contains the number replied by
+	 * {@link #toNumber(double)}. The value of the number is
+	 * stored in the replied value, so that it is not computed
+	 * again when the value is read.
+	 * 
+	 * @param v
+	 * @return the value.
+	 * @see Value#getNumber()
+	 */
+	public static Value toValue(double v) {
+		if (Double.isNaN(v)) return new Value(Float.valueOf(Float.NaN), v);
+		float f = (float)v;
+		if (f!=v && !isExactDecimal(v) && isHalfway(v, f)) {
+			return new Value(toNumber(v));
+		}
+		if ((f - (long)f)==0l) {
+			long l = (long)f;
+			return new Value(toIntegerObject(l), l);
+		}
+		return new Value(Float.valueOf(f), f);
+	}
+	
+	/** Replies the value of the number that is replied by
+	 * {@link #toNumber(double)}, without creating this number
+	 * when it is possible.
+	 * 
+	 * @param v
+	 * @return the value of <code>toNumber(v)</code>.
+	 */
+	public static double round(double v) {
+		if (Double.isNaN(v)) return v;
+		float f = (float)v;
+		if (f!=v && !isExactDecimal(v) && isHalfway(v, f)) {
+			return toNumber(v).doubleValue();
 		}
-		catch (CompilerException e) {
-			return Double.valueOf(v);
+		if ((f - (long)f)==0l) {
+			return (long)f;
 		}
+		return f;
+	}
+	
+	/** Replies if the given double value is an integral value that
+	 * is exactly written by {@link Double#toString(double)}.
+	 */
+	private static boolean isExactDecimal(double v) {
+		return Math.abs(v)<EXACT_INTEGRAL_DOUBLE && v==(long)v;
+	}
+	
+	/** Replies if the given double value is halfway between the given
+	 * single precision number and the next single precision number
+	 * in the direction of the value.
+	 */
+	private static boolean isHalfway(double v, float f) {
+		float next = Math.nextAfter(f, v);
+		return (v - f) * 2. == ((double)next - (double)f);
+	}
+	
+	/** Replies the smallest integer object that contains the given value,
+	 * as {@link #parseInteger(String, int)}.
+	 */
+	private static Number toIntegerObject(long v) {
+		if (v>=Byte.MIN_VALUE && v<=Byte.MAX_VALUE) return Byte.valueOf((byte)v);
+		if (v>=Short.MIN_VALUE && v<=Short.MAX_VALUE) return Short.valueOf((short)v);
+		if (v>=Integer.MIN_VALUE && v<=Integer.MAX_VALUE) return Integer.valueOf((int)v);
+		return Long.valueOf(v);
 	}
 	
 	/** Replies if the given number represents an integer.
@@ -193,12 +281,7 @@ public class NumberUtil {
 	 * @throws InterpreterException
 	 */
 	public static Number add(Number a, Number b, int line) throws InterpreterException {
-		try {
-			return parse(Double.toString(a.doubleValue() + b.doubleValue()), -1);
-		}
-		catch (CompilerException e) {
-			throw new InterpreterException(InterpreterErrorType.EXPECTING_NUMBER, line);
-		}
+		return toNumber(a.doubleValue() + b.doubleValue());
 	}
 
 	/** Replies if the given number is a byte.
@@ -90,6 +90,10 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	private VariableType type = null;
 	private Object value = null;
 	
+	/** Value of the number, when the type is {@link VariableType#NUMBER}.
+	 */
+	private double number;
+	
 	/**
 	 */
 	public Value() {
@@ -99,13 +103,12 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public Value clone() {
 		try {
 			Value clone = (Value)super.clone();
 			if (clone.type==VariableType.ARRAY && this.value!=null) {
-				clone.value = new ArrayList<Value>((List<Value>)this.value);
+				clone.value = ((ValueArray)this.value).clone();
 			}
 			return clone;
 		}
@@ -136,13 +139,24 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	public Value(Number v) {
 		this.value = v;
 		this.type = VariableType.NUMBER;
+		this.number = (v==null) ? 0. : v.doubleValue();
 	}
 	
 	/**
 	 * @param v
+	 * @param number is the value of <var>v</var>.
 	 */
-	public Value(List<Value> v) {
+	Value(Number v, double number) {
 		this.value = v;
+		this.type = VariableType.NUMBER;
+		this.number = number;
+	}
+	
+	/**
+	 * @param v
+	 */
+	public Value(List<Value> v) {
+		this.value = ValueArray.valueOf(v);
 		this.type = VariableType.ARRAY;
 	}
 
@@ -176,6 +190,9 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	 * @return the value, or <code>null</code> if unset.
 	 */
 	public Object getValue() {
+		if (this.value instanceof AppendableString) {
+			return this.value.toString();
+		}
 		return this.value;
 	}
 
@@ -184,15 +201,50 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	 * @return the value, or <code>null</code> if unset.
 	 */
 	public <T> T getValue(Class<T> type) {
-		return this.value==null ? null : type.cast(this.value);
+		return this.value==null ? null : type.cast(getValue());
+	}
+	
+	/** Replies the value of the number.
+	 * This function avoids the invocation of {@link Number#doubleValue()}
+	 * on the hot paths.
+	 * 
+	 * @return the value of the number, or <code>0</code> if
+	 * the value is not a number.
+	 */
+	public double getNumber() {
+		return (this.type==VariableType.NUMBER) ? this.number : 0.;
+	}
+	
+	/** Replies the string that is the concatenation of the string
+	 * representations of the given values.
+	 * <p>
+	 * When the left value is the result of a previous concatenation,
+	 * the characters are appended in amortized constant time; the
+	 * Java string is built only when the value is read.
+	 * 
+	 * @param left
+	 * @param right
+	 * @return the concatenation.
+	 */
+	public static Value concat(Value left, Value right) {
+		AppendableString l;
+		if (left.value instanceof AppendableString) {
+			l = (AppendableString)left.value;
+		}
+		else {
+			l = new AppendableString(left.getValue().toString());
+		}
+		Value v = new Value();
+		v.value = l.append(right.getValue().toString());
+		v.type = VariableType.STRING;
+		return v;
 	}
 
 	/** Replies the array of value.
 	 * @return the value, or <code>null</code> if unset.
 	 */
-	@SuppressWarnings("unchecked")
-	public <T> List<Value> getValueArray() {
-		return (List<Value>)this.value;
+	public ValueArray getValueArray() {
+		return (ValueArray)this.value;
 	}
 
 	/** Set the value.
@@ -206,6 +258,7 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 		else {
 			this.value = v.value;
 			this.type = v.type;
+			this.number = v.number;
 		}
 	}
 
@@ -232,7 +285,7 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	 * @param v
 	 */
 	public void set(List<Value> v) {
-		this.value = v;
+		this.value = ValueArray.valueOf(v);
 		this.type = VariableType.ARRAY;
 	}
 
@@ -242,6 +295,7 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	public void set(Number v) {
 		this.value = v;
 		this.type = VariableType.NUMBER;
+		this.number = (v==null) ? 0. : v.doubleValue();
 	}
 
 	/** Unset the value.
@@ -268,21 +322,23 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public boolean equals(Object obj) {
-		if (obj==this.value) return true;
+		Object value = getValue();
+		if (obj==value) return true;
 		if (obj instanceof Value) {
 			Value v = (Value)obj;
+			Object ovalue = v.getValue();
 			return this.type==v.type && 
-					(this.value==v.value ||
-						(this.value!=null && this.value.equals(v.value)));
+					(value==ovalue ||
+						(value!=null && value.equals(ovalue)));
 		}
 		else if (this.type==VariableType.NUMBER && obj instanceof Number) {
-			return (this.value!=null && this.value.equals(obj));
+			return (value!=null && value.equals(obj));
 		}
 		else if (this.type==VariableType.BOOLEAN && obj instanceof Boolean) {
-			return (this.value!=null && this.value.equals(obj));
+			return (value!=null && value.equals(obj));
 		}
 		else if (this.type==VariableType.STRING && obj!=null) {
-			return (this.value!=null && this.value.equals(obj));
+			return (value!=null && value.equals(obj));
 		}
 		else if (this.type==VariableType.ARRAY && obj instanceof List) {
 			return (this.value!=null && compare((List<Value>)this.value, (List<Value>)obj)==0);
@@ -296,7 +352,8 @@ public class Value implements Serializable, Cloneable, Comparable<Value> {
 	@Override
 	public int hashCode() {
 		int h = 1;
-		h = h * 37 + ((this.value!=null) ? this.value.hashCode() : 0);
+		Object value = getValue();
+		h = h * 37 + ((value!=null) ? value.hashCode() : 0);
 		h = h * 37 + ((this.type!=null) ? this.type.hashCode() : 0);
 		return h;
 	}
@@ -0,0 +1,357 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.type;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Array of values in TinyBasic.
+ * <p>
+ * As long as the array contains only numbers, they are stored in a
+ * dense array of primitive values: each slot is a <code>long</code>
+ * that contains the integer value or the bits of the floating-point
+ * value, and a byte that indicates the type of the number. This type
+ * permits to give back the number with its original class.
+ * When a value that is not a number is stored, the array falls back
+ * to a storage of {@link Value} objects.
+ * <p>
+ * The storage grows geometrically. The slots that are never
+ * set contain {@link Value#UNDEF}.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ValueArray extends AbstractList<Value> implements RandomAccess, Cloneable, Serializable {
+
+	private static final long serialVersionUID = 2736151208513935012L;
+
+	private static final int DEFAULT_CAPACITY = 8;
+	
+	private static final byte UNDEFINED = 0;
+	private static final byte BYTE = 1;
+	private static final byte SHORT = 2;
+	private static final byte INTEGER = 3;
+	private static final byte LONG = 4;
+	private static final byte FLOAT = 5;
+	private static final byte DOUBLE = 6;
+	
+	/** Replies the given list as a value array.
+	 * 
+	 * @param list
+	 * @return the given list if it is already a value array;
+	 * otherwise a copy of the list.
+	 */
+	public static ValueArray valueOf(Collection<Value> list) {
+		if (list==null) return null;
+		if (list instanceof ValueArray) return (ValueArray)list;
+		return new ValueArray(list);
+	}
+	
+	/** Types of the numbers, when the storage is dense.
+	 */
+	private byte[] kinds;
+	
+	/** Numbers, when the storage is dense.
+	 */
+	private long[] numbers;
+	
+	/** Values, when the storage is not dense.
+	 */
+	private Value[] objects = null;
+	
+	private int size = 0;
+	
+	/**
+	 */
+	public ValueArray() {
+		this.kinds = new byte[0];
+		this.numbers = new long[0];
+	}
+	
+	/**
+	 * @param values are the initial values.
+	 */
+	public ValueArray(Collection<Value> values) {
+		this();
+		ensureCapacity(values.size());
+		for(Value v : values) {
+			setAt(this.size, v);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ValueArray clone() {
+		try {
+			ValueArray clone = (ValueArray)super.clone();
+			if (this.objects!=null) {
+				clone.objects = Arrays.copyOf(this.objects, this.size);
+				for(int i=0; i<clone.size; ++i) {
+					clone.objects[i] = copy(clone.objects[i]);
+				}
+			}
+			else {
+				clone.kinds = Arrays.copyOf(this.kinds, this.size);
+				clone.numbers = Arrays.copyOf(this.numbers, this.size);
+			}
+			return clone;
+		}
+		catch(CloneNotSupportedException e) {
+			throw new Error(e);
+		}
+	}
+	
+	/** Replies if the values are stored in primitive arrays.
+	 * 
+	 * @return <code>true</code> if the storage is dense.
+	 */
+	public boolean isDense() {
+		return this.objects==null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value get(int index) {
+		if (index<0 || index>=this.size) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+		if (this.objects!=null) {
+			return this.objects[index];
+		}
+		long n = this.numbers[index];
+		switch(this.kinds[index]) {
+		case BYTE:
+			return new Value(Byte.valueOf((byte)n));
+		case SHORT:
+			return new Value(Short.valueOf((short)n));
+		case INTEGER:
+			return new Value(Integer.valueOf((int)n));
+		case LONG:
+			return new Value(Long.valueOf(n));
+		case FLOAT:
+			return new Value(Float.valueOf((float)Double.longBitsToDouble(n)));
+		case DOUBLE:
+			return new Value(Double.valueOf(Double.longBitsToDouble(n)));
+		default:
+		}
+		return Value.UNDEF;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value set(int index, Value element) {
+		Value old = get(index);
+		setAt(index, element);
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(int index, Value element) {
+		if (index<0 || index>this.size) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+		if (index==this.size) {
+			setAt(index, element);
+		}
+		else {
+			ensureCapacity(this.size+1);
+			if (this.objects!=null) {
+				System.arraycopy(this.objects, index, this.objects, index+1, this.size-index);
+			}
+			else {
+				System.arraycopy(this.kinds, index, this.kinds, index+1, this.size-index);
+				System.arraycopy(this.numbers, index, this.numbers, index+1, this.size-index);
+			}
+			++this.size;
+			setAt(index, element);
+		}
+		++this.modCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Value remove(int index) {
+		Value old = get(index);
+		int n = this.size-index-1;
+		if (this.objects!=null) {
+			System.arraycopy(this.objects, index+1, this.objects, index, n);
+			this.objects[this.size-1] = null;
+		}
+		else {
+			System.arraycopy(this.kinds, index+1, this.kinds, index, n);
+			System.arraycopy(this.numbers, index+1, this.numbers, index, n);
+		}
+		--this.size;
+		++this.modCount;
+		return old;
+	}
+
+	/** Replace the values of this array by copies of the values
+	 * of the given array.
+	 * 
+	 * @param array
+	 */
+	public void assign(ValueArray array) {
+		ValueArray copy = array.clone();
+		this.kinds = copy.kinds;
+		this.numbers = copy.numbers;
+		this.objects = copy.objects;
+		this.size = copy.size;
+		++this.modCount;
+	}
+
+	/** Remove the values at the given size and after.
+	 * 
+	 * @param newSize is the new size of the array.
+	 */
+	public void truncate(int newSize) {
+		if (newSize>=0 && newSize<this.size) {
+			if (this.objects!=null) {
+				Arrays.fill(this.objects, newSize, this.size, null);
+			}
+			this.size = newSize;
+			++this.modCount;
+		}
+	}
+
+	/** Set the value at the given index. If the index is greater
+	 * than the size of the array, the array is extended, and the new
+	 * slots are filled with {@link Value#UNDEF}. The value is copied.
+	 * 
+	 * @param index is the position of the value, starting from <code>0</code>.
+	 * @param value is the new value, or <code>null</code> for {@link Value#UNDEF}.
+	 */
+	public void setAt(int index, Value value) {
+		if (index<0) return;
+		if (index>=this.size) {
+			ensureCapacity(index+1);
+			if (this.objects!=null) {
+				Arrays.fill(this.objects, this.size, index, Value.UNDEF);
+			}
+			else {
+				Arrays.fill(this.kinds, this.size, index, UNDEFINED);
+			}
+			this.size = index + 1;
+		}
+		if (value==null || value.isUnset()) {
+			if (this.objects!=null) {
+				this.objects[index] = Value.UNDEF;
+			}
+			else {
+				this.kinds[index] = UNDEFINED;
+			}
+		}
+		else if (this.objects==null && value.getType()==VariableType.NUMBER
+				&& setNumber(index, value.getValue(Number.class))) {
+			//
+		}
+		else {
+			if (this.objects==null) {
+				inflate();
+			}
+			this.objects[index] = copy(value);
+		}
+	}
+	
+	private boolean setNumber(int index, Number n) {
+		if (NumberUtil.isByteObject(n)) {
+			this.kinds[index] = BYTE;
+			this.numbers[index] = n.longValue();
+		}
+		else if (NumberUtil.isShortIntegerObject(n)) {
+			this.kinds[index] = SHORT;
+			this.numbers[index] = n.longValue();
+		}
+		else if (n instanceof Integer) {
+			this.kinds[index] = INTEGER;
+			this.numbers[index] = n.longValue();
+		}
+		else if (n instanceof Long) {
+			this.kinds[index] = LONG;
+			this.numbers[index] = n.longValue();
+		}
+		else if (n instanceof Float) {
+			this.kinds[index] = FLOAT;
+			this.numbers[index] = Double.doubleToRawLongBits(n.doubleValue());
+		}
+		else if (n instanceof Double) {
+			this.kinds[index] = DOUBLE;
+			this.numbers[index] = Double.doubleToRawLongBits(n.doubleValue());
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+	
+	private static Value copy(Value value) {
+		if (value==null || value.isUnset()) return Value.UNDEF;
+		return value.clone();
+	}
+	
+	/** Switch to the storage of value objects.
+	 */
+	private void inflate() {
+		Value[] values = new Value[this.numbers.length];
+		for(int i=0; i<this.size; ++i) {
+			values[i] = get(i);
+		}
+		this.objects = values;
+		this.kinds = null;
+		this.numbers = null;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		int current = (this.objects!=null) ? this.objects.length : this.numbers.length;
+		if (capacity>current) {
+			int newCapacity = Math.max(Math.max(DEFAULT_CAPACITY, current + (current >> 1)), capacity);
+			if (this.objects!=null) {
+				this.objects = Arrays.copyOf(this.objects, newCapacity);
+			}
+			else {
+				this.kinds = Arrays.copyOf(this.kinds, newCapacity);
+				this.numbers = Arrays.copyOf(this.numbers, newCapacity);
+			}
+		}
+	}
+
+}
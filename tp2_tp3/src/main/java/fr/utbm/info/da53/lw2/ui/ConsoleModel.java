@@ -0,0 +1,132 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.ui;
+
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * Bounded model of the lines of a console.
+ * <p>
+ * The lines are stored in a ring buffer: when the capacity is
+ * reached, the oldest lines are discarded. The last line of the
+ * model is the line that is currently written, i.e. the text
+ * after the last new-line character.
+ * <p>
+ * This model must be used from the AWT event dispatching thread only.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $FullVersion$
+ */
+class ConsoleModel extends AbstractListModel<String> {
+
+	private static final long serialVersionUID = -1866390364512367015L;
+
+	private final String[] lines;
+	private int start = 0;
+	private int size = 0;
+	private String currentLine = ""; //$NON-NLS-1$
+	
+	/**
+	 * @param capacity is the maximal number of complete lines in the model.
+	 */
+	public ConsoleModel(int capacity) {
+		if (capacity<=0) throw new IllegalArgumentException();
+		this.lines = new String[capacity];
+	}
+	
+	/** Replies the maximal number of complete lines in the model.
+	 * 
+	 * @return the capacity.
+	 */
+	public int getCapacity() {
+		return this.lines.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return this.size + 1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getElementAt(int index) {
+		if (index==this.size) {
+			return this.currentLine;
+		}
+		return this.lines[(this.start + index) % this.lines.length];
+	}
+	
+	/** Append lines at the end of the console.
+	 * 
+	 * @param completedLines are the lines that are terminated by a new-line character.
+	 * The first one terminates the current line of the console.
+	 * @param partialLine is the text that follows the completed lines.
+	 * @param appendToCurrentLine indicates if the text must be appended to
+	 * the current line of the console, or must replace it.
+	 */
+	public void append(List<String> completedLines, String partialLine, boolean appendToCurrentLine) {
+		int oldSize = this.size;
+		int removed = 0;
+		String prefix = appendToCurrentLine ? this.currentLine : ""; //$NON-NLS-1$
+		for(String line : completedLines) {
+			String text = prefix.isEmpty() ? line : prefix + line;
+			prefix = ""; //$NON-NLS-1$
+			if (this.size<this.lines.length) {
+				this.lines[(this.start + this.size) % this.lines.length] = text;
+				++this.size;
+			}
+			else {
+				this.lines[this.start] = text;
+				this.start = (this.start + 1) % this.lines.length;
+				++removed;
+			}
+		}
+		this.currentLine = prefix.isEmpty() ? partialLine : prefix + partialLine;
+		
+		if (removed>0) {
+			fireIntervalRemoved(this, 0, Math.min(removed, oldSize) - 1);
+			oldSize -= Math.min(removed, oldSize);
+		}
+		if (this.size>oldSize) {
+			fireIntervalAdded(this, oldSize, this.size - 1);
+		}
+		fireContentsChanged(this, this.size, this.size);
+	}
+	
+	/** Remove all the lines.
+	 */
+	public void clear() {
+		int oldSize = this.size;
+		this.start = 0;
+		this.size = 0;
+		this.currentLine = ""; //$NON-NLS-1$
+		if (oldSize>0) {
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		}
+		fireContentsChanged(this, 0, 0);
+	}
+
+}
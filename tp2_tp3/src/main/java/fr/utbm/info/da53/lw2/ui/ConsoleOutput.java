@@ -0,0 +1,189 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw2.ui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import fr.utbm.info.da53.lw2.context.StandardOutput;
+
+/**
+ * Standard output that is writing into a {@link ConsoleModel}.
+ * <p>
+ * The interpreter may write from any thread. The texts are
+ * accumulated in a pending buffer that is transfered to the
+ * console model by a timer on the AWT event dispatching thread,
+ * at most once per period. The pending buffer never contains
+ * more lines than the console model may display, and the lines
+ * longer than {@link #MAX_LINE_LENGTH} are wrapped; so that the
+ * memory used by the output is bounded whatever the quantity of
+ * text that is printed by the program.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $FullVersion$
+ */
+class ConsoleOutput implements StandardOutput, ActionListener {
+
+	/** Maximal number of characters in a line of the console.
+	 */
+	public static final int MAX_LINE_LENGTH = 256;
+
+	private final ConsoleModel model;
+	private final Timer timer;
+	private final Runnable listener;
+	
+	private final ArrayDeque<String> pendingLines = new ArrayDeque<String>();
+	private final StringBuilder pendingLine = new StringBuilder();
+	private boolean appendToCurrentLine = true;
+	private boolean dirty = false;
+	
+	/**
+	 * @param model is the model to fill.
+	 * @param period is the minimal delay between two updates of the model, in milliseconds.
+	 * @param listener is invoked on the AWT event dispatching thread after each update of the model.
+	 */
+	public ConsoleOutput(ConsoleModel model, int period, Runnable listener) {
+		this.model = model;
+		this.listener = listener;
+		this.timer = new Timer(period, this);
+		this.timer.setCoalesce(true);
+		this.timer.start();
+	}
+	
+	/** Stop the periodic updates of the model.
+	 */
+	public void dispose() {
+		this.timer.stop();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void print(String message) {
+		int startIndex = 0;
+		int index = message.indexOf('\n');
+		while (index>=0) {
+			appendText(message, startIndex, index);
+			newLine();
+			startIndex = index + 1;
+			index = message.indexOf('\n', startIndex);
+		}
+		appendText(message, startIndex, message.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void println(String message) {
+		print(message);
+		newLine();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void println() {
+		newLine();
+	}
+
+	/** Transfer the pending text into the model. If this function is
+	 * not invoked on the AWT event dispatching thread, it waits for
+	 * the transfer.
+	 */
+	@Override
+	public void flush() {
+		if (SwingUtilities.isEventDispatchThread()) {
+			transfer();
+		}
+		else {
+			try {
+				SwingUtilities.invokeAndWait(() -> transfer());
+			}
+			catch (Exception e) {
+				//
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		transfer();
+	}
+	
+	private void appendText(String text, int startIndex, int endIndex) {
+		int start = startIndex;
+		while (start<endIndex) {
+			int room = MAX_LINE_LENGTH - this.pendingLine.length();
+			if (room<=0) {
+				newLine();
+				room = MAX_LINE_LENGTH;
+			}
+			int end = Math.min(endIndex, start + room);
+			this.pendingLine.append(text, start, end);
+			this.dirty = true;
+			start = end;
+		}
+	}
+	
+	private void newLine() {
+		this.pendingLines.addLast(this.pendingLine.toString());
+		this.pendingLine.setLength(0);
+		this.dirty = true;
+		if (this.pendingLines.size()>this.model.getCapacity()) {
+			this.pendingLines.removeFirst();
+			// The beginning of the current line of the console is lost.
+			this.appendToCurrentLine = false;
+		}
+	}
+
+	private void transfer() {
+		List<String> lines;
+		String partialLine;
+		boolean append;
+		synchronized(this) {
+			if (!this.dirty) {
+				return;
+			}
+			lines = new ArrayList<String>(this.pendingLines);
+			partialLine = this.pendingLine.toString();
+			append = this.appendToCurrentLine;
+			this.pendingLines.clear();
+			this.pendingLine.setLength(0);
+			this.appendToCurrentLine = true;
+			this.dirty = false;
+		}
+		this.model.append(lines, partialLine, append);
+		if (this.listener!=null) {
+			this.listener.run();
+		}
+	}
+
+}
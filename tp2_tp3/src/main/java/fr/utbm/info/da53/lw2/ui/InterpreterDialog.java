@@ -23,15 +23,20 @@ import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -39,16 +44,18 @@ import javax.swing.JSplitPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 
+import fr.utbm.info.da53.lw2.context.Breakpoints;
 import fr.utbm.info.da53.lw2.context.DebugInterpreter;
 import fr.utbm.info.da53.lw2.context.Interpreter;
 import fr.utbm.info.da53.lw2.context.InterpreterListener;
 import fr.utbm.info.da53.lw2.context.StandardInput;
-import fr.utbm.info.da53.lw2.context.StandardOutput;
 import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.ErrorRepository;
+import fr.utbm.info.da53.lw2.error.InterpreterCanceledException;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
 import fr.utbm.info.da53.lw2.type.NumberUtil;
@@ -67,17 +74,33 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 	
 	private static final String SIGN = "#>"; //$NON-NLS-1$
 	private static final String NO_SIGN = "  "; //$NON-NLS-1$
+	private static final String BREAK_SIGN = "* "; //$NON-NLS-1$
+	private static final String BREAK_CURRENT_SIGN = "*>"; //$NON-NLS-1$
+	
+	/** Maximal number of lines in the standard console.
+	 */
+	private static final int CONSOLE_CAPACITY = 10000;
+	
+	/** Minimal delay between two updates of the standard console, in milliseconds.
+	 */
+	private static final int CONSOLE_REFRESH_PERIOD = 100;
 	
 	/** Debug context.
 	 */
 	final DebugInterpreter context;
-	private boolean freeze = false;
+	private volatile boolean freeze = false;
+	private boolean running = false;
 	
-	private final JButton[] buttons = new JButton[3];
+	private final JButton[] buttons = new JButton[6];
+	private final JButton stopButton;
 	private final JTable code;
 	private final DefaultTableModel symbolTable;
+	private final Map<Integer,Integer> codeRows = new HashMap<Integer,Integer>();
+	private final Map<String,Integer> symbolRows = new HashMap<String,Integer>();
+	private int currentRow = -1;
 	private final JTextArea errorConsole;
-	private final JTextArea stdoutConsole;
+	private final JList<String> stdoutConsole;
+	private final ConsoleOutput stdout;
 
 	/**
 	 * @param title
@@ -107,13 +130,48 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 		this.buttons[1].addActionListener(this);
 		tools.add(this.buttons[1]);
 
-		this.buttons[2] = new JButton("Run to End"); //$NON-NLS-1$
-		this.buttons[2].setActionCommand("END"); //$NON-NLS-1$
+		this.buttons[2] = new JButton("Continue"); //$NON-NLS-1$
+		this.buttons[2].setActionCommand("CONTINUE"); //$NON-NLS-1$
 		this.buttons[2].addActionListener(this);
 		tools.add(this.buttons[2]);
 
-		DefaultTableModel model = new DefaultTableModel(0, 3);
+		this.buttons[3] = new JButton("Run to End"); //$NON-NLS-1$
+		this.buttons[3].setActionCommand("END"); //$NON-NLS-1$
+		this.buttons[3].addActionListener(this);
+		tools.add(this.buttons[3]);
+
+		this.buttons[4] = new JButton("Step Back"); //$NON-NLS-1$
+		this.buttons[4].setActionCommand("BACK"); //$NON-NLS-1$
+		this.buttons[4].addActionListener(this);
+		tools.add(this.buttons[4]);
+
+		this.buttons[5] = new JButton("Back to Line"); //$NON-NLS-1$
+		this.buttons[5].setActionCommand("BACKLINE"); //$NON-NLS-1$
+		this.buttons[5].addActionListener(this);
+		tools.add(this.buttons[5]);
+
+		this.stopButton = new JButton("Stop"); //$NON-NLS-1$
+		this.stopButton.setActionCommand("STOP"); //$NON-NLS-1$
+		this.stopButton.addActionListener(this);
+		this.stopButton.setEnabled(false);
+		tools.add(this.stopButton);
+
+		DefaultTableModel model = new DefaultTableModel(0, 3) {
+			private static final long serialVersionUID = 2391702870528146043L;
+			@Override
+			public boolean isCellEditable(int row, int column) {
+				return false;
+			}
+		};
 		this.code = new JTable(model);
+		this.code.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount()==2) {
+					toggleBreakpoint(InterpreterDialog.this.code.rowAtPoint(e.getPoint()));
+				}
+			}
+		});
 		this.code.getColumnModel().getColumn(0).setHeaderValue("CS"); //$NON-NLS-1$
 		this.code.getColumnModel().getColumn(0).setMaxWidth(30);
 		this.code.getColumnModel().getColumn(0).setResizable(false);
@@ -126,6 +184,7 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 		if (this.context!=null) {
 			SortedMap<Integer,Statement> code = this.context.getCode();
 			for(Entry<Integer,Statement> entry : code.entrySet()) {
+				this.codeRows.put(entry.getKey(), model.getRowCount());
 				model.addRow(new Object[] { NO_SIGN, entry.getKey(), entry.getValue() });
 			}
 		}
@@ -147,14 +206,31 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 		sp = new JScrollPane(this.errorConsole);
 		consoles.add(sp);
 
-		this.stdoutConsole = new JTextArea();
-		this.stdoutConsole.append("Standard Console:\n"); //$NON-NLS-1$
+		ConsoleModel stdoutModel = new ConsoleModel(CONSOLE_CAPACITY);
+		this.stdoutConsole = new JList<String>(stdoutModel);
+		// Fixed cell sizes avoid to measure all the lines of the console.
+		this.stdoutConsole.setPrototypeCellValue(
+				String.format("%" + ConsoleOutput.MAX_LINE_LENGTH + "s", "")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		this.stdout = new ConsoleOutput(stdoutModel, CONSOLE_REFRESH_PERIOD, () -> {
+			int last = getStdoutConsole().getModel().getSize() - 1;
+			getStdoutConsole().ensureIndexIsVisible(last);
+		});
+		this.stdout.println("Standard Console:"); //$NON-NLS-1$
 		sp = new JScrollPane(this.stdoutConsole);
 		sp.setPreferredSize(new Dimension(200, 200));
 		consoles.add(sp);
 
 		add(new JSplitPane(JSplitPane.VERTICAL_SPLIT, debugPanel, consoles), BorderLayout.CENTER);
 		
+		if (this.context!=null) {
+			try {
+				this.context.enableTimeTravel();
+			}
+			catch(IllegalStateException e) {
+				// The interpreter cannot be rewound
+			}
+		}
+		
 		refreshContent();
 		
 		if (enableRun) enableGUI();
@@ -162,7 +238,7 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 		
 		if (this.context!=null) {
 			this.context.getRootContext().getInterpreter().setStandardInput(new StdIn());
-			this.context.getRootContext().getInterpreter().setStandardOutput(new StdOut());
+			this.context.getRootContext().getInterpreter().setStandardOutput(this.stdout);
 			this.context.getRootContext().getInterpreter().addInterpreterListener(this);
 		}
 
@@ -173,7 +249,7 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 	 * 
 	 * @return the stdout console.
 	 */
-	JTextArea getStdoutConsole() {
+	JList<String> getStdoutConsole() {
 		return this.stdoutConsole;
 	}
 
@@ -190,56 +266,82 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 	 */
 	@Override
 	public void actionPerformed(ActionEvent e) {
+		final DebugInterpreter ctx = this.context;
 		if ("STEP".equals(e.getActionCommand())) { //$NON-NLS-1$
-			disableGUI();
-			SwingUtilities.invokeLater(new Runnable() {
-				@Override
-				public void run() {
-					try {
-						InterpreterDialog.this.context.step();
-						enableGUI();
-					}
-					catch (InterpreterException e1) {
-						ErrorRepository.add(e1);
-						disableGUI();
-					}
-					refreshContent();
-				}
-			});
+			execute(() -> ctx.step());
 		}
 		else if ("LINE".equals(e.getActionCommand())) { //$NON-NLS-1$
 			disableGUI();
 			String input = JOptionPane.showInputDialog(this, "Enter a line number"); //$NON-NLS-1$
-			Integer line = NumberUtil.parseInt(input);
+			final Integer line = NumberUtil.parseInt(input);
 			if (line!=null) {
-				SwingUtilities.invokeLater(new LineRunner(line.intValue()));
+				execute(() -> ctx.runUntilLine(line.intValue()));
+			}
+			else {
+				enableGUI();
 			}
 		}
+		else if ("CONTINUE".equals(e.getActionCommand())) { //$NON-NLS-1$
+			execute(() -> ctx.runToBreakpoint());
+		}
 		else if ("END".equals(e.getActionCommand())) { //$NON-NLS-1$
+			execute(() -> ctx.runToEnd());
+		}
+		else if ("BACK".equals(e.getActionCommand())) { //$NON-NLS-1$
+			execute(() -> rewound(ctx.stepBack()));
+		}
+		else if ("BACKLINE".equals(e.getActionCommand())) { //$NON-NLS-1$
 			disableGUI();
-			SwingUtilities.invokeLater(new Runnable() {
-				@Override
-				public void run() {
-					try {
-						InterpreterDialog.this.context.runToEnd();
-						enableGUI();
-					}
-					catch (InterpreterException e1) {
-						ErrorRepository.add(e1);
-						disableGUI();
-					}
-					refreshContent();
-				}
-			});
+			String input = JOptionPane.showInputDialog(this, "Enter a line number"); //$NON-NLS-1$
+			final Integer line = NumberUtil.parseInt(input);
+			if (line!=null) {
+				execute(() -> rewound(ctx.runBackToLine(line.intValue())));
+			}
+			else {
+				enableGUI();
+			}
+		}
+		else if ("STOP".equals(e.getActionCommand())) { //$NON-NLS-1$
+			this.stopButton.setEnabled(false);
+			ctx.cancel();
+		}
+	}
+	
+	/** Run the given task outside the AWT event dispatching thread.
+	 * The UI is disabled until the end of the task, except the
+	 * button that permits to stop the task.
+	 * 
+	 * @param task
+	 */
+	private void execute(DebugTask task) {
+		disableGUI();
+		this.running = true;
+		this.stopButton.setEnabled(true);
+		new DebugWorker(task).execute();
+	}
+
+	/** Unfreeze the UI when the debugger has gone back in time,
+	 * since the program may be run again from this point.
+	 * 
+	 * @param success indicates if the debugger has gone back in time.
+	 */
+	private void rewound(boolean success) {
+		if (success) {
+			this.freeze = false;
 		}
 	}
 
 	/** Enable the UI components.
+	 * The buttons that go back in time stay enabled when
+	 * the program is terminated.
 	 */
 	void enableGUI() {
-		for(JButton bt : this.buttons) {
-			bt.setEnabled(!this.freeze);
+		for(int i=0; i<4; ++i) {
+			this.buttons[i].setEnabled(!this.freeze);
 		}
+		boolean back = this.context!=null && this.context.canStepBack();
+		this.buttons[4].setEnabled(back);
+		this.buttons[5].setEnabled(back);
 	}
 	
 	/** Disable the UI components.
@@ -250,7 +352,29 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 		}
 	}
 	
-	/** Refresh the content of the debugger
+	/** Add or remove a breakpoint on the line at the given row of the code.
+	 * 
+	 * @param row
+	 */
+	void toggleBreakpoint(int row) {
+		if (this.context!=null && !this.running && row>=0) {
+			int line = (Integer)this.code.getModel().getValueAt(row, 1);
+			this.context.getBreakpoints().toggle(line);
+			this.code.getModel().setValueAt(getSign(line, row==this.currentRow), row, 0);
+		}
+	}
+	
+	private String getSign(int line, boolean current) {
+		Breakpoints breakpoints = (this.context==null) ? null : this.context.getBreakpoints();
+		if (breakpoints!=null && breakpoints.get(line)!=null) {
+			return current ? BREAK_CURRENT_SIGN : BREAK_SIGN;
+		}
+		return current ? SIGN : NO_SIGN;
+	}
+	
+	/** Refresh the content of the debugger.
+	 * Only the rows of the current line and of the changed
+	 * variables are updated.
 	 */
 	void refreshContent() {
 		int basicLine = -1; 
@@ -258,31 +382,42 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 			basicLine = this.context.getCurrentContext().getCurrentLine();
 		}
 		TableModel tm = this.code.getModel();
-		int selectedRow = -1;
-		for(int i=0; i<tm.getRowCount(); ++i) {
-			if (basicLine == (Integer)tm.getValueAt(i, 1)) {
-				tm.setValueAt(SIGN, i, 0);
-				selectedRow = i;
-			}
-			else {
-				tm.setValueAt(NO_SIGN, i, 0);
-			}
+		if (this.currentRow>=0) {
+			tm.setValueAt(getSign((Integer)tm.getValueAt(this.currentRow, 1), false), this.currentRow, 0);
 		}
-		this.code.getSelectionModel().setSelectionInterval(selectedRow, selectedRow);
-		
-		while(this.symbolTable.getRowCount()>0) {
-			this.symbolTable.removeRow(0);
+		Integer selectedRow = this.codeRows.get(basicLine);
+		this.currentRow = (selectedRow==null) ? -1 : selectedRow.intValue();
+		if (this.currentRow>=0) {
+			tm.setValueAt(getSign(basicLine, true), this.currentRow, 0);
 		}
+		this.code.getSelectionModel().setSelectionInterval(this.currentRow, this.currentRow);
 		
 		if (this.context!=null && this.context.getCurrentContext()!=null) {
-			for(SymbolTableEntry entry : this.context.getCurrentContext().snapshot()) {
+			Iterable<SymbolTableEntry> entries;
+			if (this.symbolRows.isEmpty()) {
+				this.context.getChangedVariables();
+				entries = this.context.getCurrentContext().snapshot();
+			}
+			else {
+				entries = this.context.getChangedVariables();
+			}
+			for(SymbolTableEntry entry : entries) {
 				Value value = entry.getValue();
 				VariableType type = value.getType();
-				this.symbolTable.addRow(new Object[] {
-						entry.id(),
-						(type==null ? "undef" : type), //$NON-NLS-1$
-						value
-				});
+				Object typeLabel = (type==null ? "undef" : type); //$NON-NLS-1$
+				Integer row = this.symbolRows.get(entry.id());
+				if (row==null) {
+					this.symbolRows.put(entry.id(), this.symbolTable.getRowCount());
+					this.symbolTable.addRow(new Object[] {
+							entry.id(),
+							typeLabel,
+							value
+					});
+				}
+				else {
+					this.symbolTable.setValueAt(typeLabel, row, 1);
+					this.symbolTable.setValueAt(value, row, 2);
+				}
 			}
 		}
 		
@@ -300,52 +435,63 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 	}
 
 	/**
+	 * Task to run on the debugger.
+	 * 
 	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
 	 * @version $FullVersion$
 	 */
-	private class LineRunner implements Runnable {
+	@FunctionalInterface
+	private interface DebugTask {
+		
+		public void run() throws InterpreterException;
+		
+	}
 
-		private final int line;
+	/**
+	 * Run a task on the debugger outside the AWT event dispatching thread.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $FullVersion$
+	 */
+	private class DebugWorker extends SwingWorker<Boolean,Void> {
+
+		private final DebugTask task;
 		
-		public LineRunner(int line) {
-			this.line = line;
+		public DebugWorker(DebugTask task) {
+			this.task = task;
 		}
 		
 		@Override
-		public void run() {
+		protected Boolean doInBackground() throws Exception {
 			try {
-				InterpreterDialog.this.context.runUntilLine(this.line);
-				enableGUI();
+				this.task.run();
+				return Boolean.TRUE;
+			}
+			catch (InterpreterCanceledException e1) {
+				// Stopped with the Stop button inside a loop;
+				// the program may be continued
+				return Boolean.TRUE;
 			}
 			catch (InterpreterException e1) {
 				ErrorRepository.add(e1);
-				disableGUI();
+				return Boolean.FALSE;
 			}
-			refreshContent();
 		}
 		
-	}
-	
-	/**
-	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
-	 * @version $FullVersion$
-	 */
-	private class StdIn implements StandardInput {
-
-		/**
-		 */
-		public StdIn() {
-			//
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
 		@Override
-		public Value readString(String message) {
-			String line = JOptionPane.showInputDialog(
-					InterpreterDialog.this, message);
-			return Value.parseValue(line);
+		protected void done() {
+			InterpreterDialog.this.running = false;
+			InterpreterDialog.this.stopButton.setEnabled(false);
+			boolean success;
+			try {
+				success = get().booleanValue();
+			}
+			catch (Exception e) {
+				success = false;
+			}
+			if (success) enableGUI();
+			else disableGUI();
+			refreshContent();
 		}
 		
 	}
@@ -354,11 +500,11 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
 	 * @version $FullVersion$
 	 */
-	private class StdOut implements StandardOutput {
+	private class StdIn implements StandardInput {
 
 		/**
 		 */
-		public StdOut() {
+		public StdIn() {
 			//
 		}
 
@@ -366,28 +512,23 @@ public class InterpreterDialog extends JFrame implements ActionListener, Interpr
 		 * {@inheritDoc}
 		 */
 		@Override
-		public void println(String message) {
-			JTextArea console = getStdoutConsole();
-			console.append(message);
-			console.append("\n"); //$NON-NLS-1$
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void print(String message) {
-			JTextArea console = getStdoutConsole();
-			console.append(message);
-		}
-
-		/**
-		 * {@inheritDoc}
-		 */
-		@Override
-		public void println() {
-			JTextArea console = getStdoutConsole();
-			console.append("\n"); //$NON-NLS-1$
+		public Value readString(final String message) {
+			InterpreterDialog.this.stdout.flush();
+			if (SwingUtilities.isEventDispatchThread()) {
+				return Value.parseValue(JOptionPane.showInputDialog(
+						InterpreterDialog.this, message));
+			}
+			final String[] line = new String[1];
+			try {
+				SwingUtilities.invokeAndWait(() -> {
+					line[0] = JOptionPane.showInputDialog(
+							InterpreterDialog.this, message);
+				});
+			}
+			catch (Exception e) {
+				//
+			}
+			return Value.parseValue(line[0]);
 		}
 		
 	}
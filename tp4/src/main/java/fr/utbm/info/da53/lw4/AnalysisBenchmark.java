@@ -0,0 +1,169 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw4.construct.Statement;
+import fr.utbm.info.da53.lw4.error.ErrorRepository;
+import fr.utbm.info.da53.lw4.error.IntermediateCodeGenerationException;
+import fr.utbm.info.da53.lw4.parser.BasicParser;
+import fr.utbm.info.da53.lw4.symbol.SymbolTable;
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.ControlFlowGraph;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.DominatorTree;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.LivenessAnalysis;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.ReachingDefinitions;
+
+/**
+ * Measure the time of the analyses of the three-address code
+ * for generated programs of increasing sizes.
+ * <p>
+ * The number of lines doubles from one program to the next one.
+ * The programs contain subroutines and a jump to a computed line, so
+ * that the control flow graph has the edges of the calls, of the returns
+ * and of the computed jumps. The first argument is the greatest number of
+ * lines (by default 262144, ie. about one million records).
+ * <p>
+ * The parser is recursive on the lines of the program, so the
+ * benchmark runs in a thread with a large stack.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class AnalysisBenchmark {
+	
+	/** Size of the stack of the thread that runs the benchmark.
+	 */
+	private static final long STACK_SIZE = 1L << 31;
+	
+	/** Run the benchmark.
+	 * 
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		final int maxLines = (args.length>0) ? Integer.parseInt(args[0]) : 262144;
+		Thread thread = new Thread(null, () -> {
+			try {
+				run(maxLines);
+			}
+			catch(Exception e) {
+				throw new RuntimeException(e);
+			}
+		}, "benchmark", STACK_SIZE); //$NON-NLS-1$
+		thread.start();
+		thread.join();
+	}
+	
+	private static void run(int maxLines) throws Exception {
+		// Warm up the JVM
+		analyze(generate(1000));
+		System.out.println("lines\trecords\tblocks\tcfg (ms)\tdominators (ms)\tliveness (ms)\treaching (ms)"); //$NON-NLS-1$
+		for(int lines=1000; lines<=maxLines; lines*=2) {
+			ThreeAddressCode code = generate(lines);
+			System.out.println(lines + "\t" + code.getRecordCount() + analyze(code)); //$NON-NLS-1$
+			ErrorRepository.clear();
+		}
+	}
+	
+	private static String analyze(ThreeAddressCode code) {
+		long start = System.nanoTime();
+		ControlFlowGraph graph = new ControlFlowGraph(code);
+		long built = System.nanoTime();
+		new DominatorTree(graph);
+		long dominated = System.nanoTime();
+		new LivenessAnalysis(graph).solve();
+		long live = System.nanoTime();
+		new ReachingDefinitions(graph).solve();
+		long end = System.nanoTime();
+		return "\t" + graph.getBlockCount() //$NON-NLS-1$
+				+ "\t" + ((built-start)/1000000) //$NON-NLS-1$
+				+ "\t" + ((dominated-built)/1000000) //$NON-NLS-1$
+				+ "\t" + ((live-dominated)/1000000) //$NON-NLS-1$
+				+ "\t" + ((end-live)/1000000); //$NON-NLS-1$
+	}
+	
+	/** Build a program with the given number of lines.
+	 * Each group of lines contains assignments, a test,
+	 * a loop, a subroutine call, a return and jumps to other lines.
+	 * The second line jumps to a computed line.
+	 * 
+	 * @param lines
+	 * @return the source code.
+	 */
+	private static byte[] program(int lines) {
+		StringBuilder b = new StringBuilder();
+		int line = 10;
+		b.append(line).append(" LET A = 0\n"); //$NON-NLS-1$
+		for(int i=1; i<lines-1; ++i) {
+			line += 10;
+			b.append(line);
+			if (i==1) {
+				b.append(" IF A < 0 THEN GOTO A\n"); //$NON-NLS-1$
+				continue;
+			}
+			switch(i%8) {
+			case 0:
+				b.append(" LET A = A + ").append(i).append(" * 2\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 1:
+				b.append(" IF A > ").append(i).append(" THEN LET B = A - 1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 2:
+				b.append(" FOR I = 1 TO 3 LET A = A + I NEXT I\n"); //$NON-NLS-1$
+				break;
+			case 3:
+				b.append(" GOSUB ").append(line+40).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 4:
+				b.append(" GOTO ").append(line+20).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 5:
+				b.append(" PRINT \"A = \" + A + B\n"); //$NON-NLS-1$
+				break;
+			case 6:
+				b.append(" LET B = B + 1\n"); //$NON-NLS-1$
+				break;
+			default:
+				b.append(" RETURN\n"); //$NON-NLS-1$
+			}
+		}
+		line += 10;
+		b.append(line).append(" END\n"); //$NON-NLS-1$
+		return b.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static ThreeAddressCode generate(int lines) throws Exception {
+		BasicParser parser = new BasicParser(new ByteArrayInputStream(program(lines)));
+		return generate(parser.executeCompiler(), parser.getSymbolTable());
+	}
+	
+	private static ThreeAddressCode generate(SortedMap<Integer,Statement> code, SymbolTable symbolTable) throws IntermediateCodeGenerationException {
+		ThreeAddressCode _3code = new ThreeAddressCode(symbolTable);
+		for(Statement statement : code.values()) {
+			statement.generate(_3code);
+		}
+		_3code.finalizeGeneration();
+		return _3code;
+	}
+	
+}
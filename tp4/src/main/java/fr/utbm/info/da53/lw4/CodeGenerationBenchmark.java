@@ -0,0 +1,193 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw4.construct.Statement;
+import fr.utbm.info.da53.lw4.error.ErrorRepository;
+import fr.utbm.info.da53.lw4.error.IntermediateCodeGenerationException;
+import fr.utbm.info.da53.lw4.parser.BasicParser;
+import fr.utbm.info.da53.lw4.symbol.SymbolTable;
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Measure the time of the generation of the three-address code
+ * for generated programs of increasing sizes.
+ * <p>
+ * The number of lines doubles from one program to the next one,
+ * so that the time should roughly double too when the generation
+ * is linear. The first argument is the greatest number of lines
+ * (by default one million); it is always the size of the last program.
+ * <p>
+ * The benchmark fails with an {@link IllegalStateException} when the
+ * time per line of a program is greater than {@link #TOLERANCE} times
+ * the smallest time per line of the previous programs, i.e. when the
+ * generation is not near-linear. The small programs are measured several
+ * times, and their best time is kept, to reduce the noise.
+ * <p>
+ * The programs of one million lines need a heap of about 4 GB
+ * (<code>-Xmx4g</code>).
+ * <p>
+ * The parser is recursive on the lines of the program, so the
+ * benchmark runs in a thread with a large stack.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class CodeGenerationBenchmark {
+	
+	/** Size of the stack of the thread that runs the benchmark.
+	 */
+	private static final long STACK_SIZE = 1L << 31;
+	
+	/** Maximal ratio between the time per line of a program and the
+	 * smallest time per line of the smaller programs. A quadratic
+	 * generation multiplies the time per line by four every two sizes.
+	 */
+	private static final double TOLERANCE = 3.;
+	
+	/** Number of lines under which a program is measured several times.
+	 */
+	private static final int SMALL_PROGRAM = 100000;
+	
+	/** Number of measures of the small programs.
+	 */
+	private static final int REPETITIONS = 3;
+	
+	/** Run the benchmark.
+	 * 
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		final int maxLines = (args.length>0) ? Integer.parseInt(args[0]) : 1000000;
+		final Throwable[] failure = new Throwable[1];
+		Thread thread = new Thread(null, () -> {
+			try {
+				run(maxLines);
+			}
+			catch(Throwable e) {
+				failure[0] = e;
+			}
+		}, "benchmark", STACK_SIZE); //$NON-NLS-1$
+		thread.start();
+		thread.join();
+		if (failure[0] instanceof Error) {
+			throw (Error)failure[0];
+		}
+		if (failure[0]!=null) {
+			throw (Exception)failure[0];
+		}
+	}
+	
+	private static void run(int maxLines) throws Exception {
+		// Warm up the JVM
+		BasicParser warmUp = new BasicParser(new ByteArrayInputStream(program(1000)));
+		generate(warmUp.executeCompiler(), warmUp.getSymbolTable());
+		System.out.println("lines\tparse (ms)\tgeneration (ms)\trecords\tns/line"); //$NON-NLS-1$
+		long smallest = Long.MAX_VALUE;
+		int lines = Math.min(1000, maxLines);
+		while (true) {
+			byte[] source = program(lines);
+			String row = null;
+			long best = Long.MAX_VALUE;
+			int runs = (lines<SMALL_PROGRAM) ? REPETITIONS : 1;
+			for(int r=0; r<runs; ++r) {
+				long start = System.nanoTime();
+				BasicParser parser = new BasicParser(new ByteArrayInputStream(source));
+				SortedMap<Integer,Statement> code = parser.executeCompiler();
+				long parsed = System.nanoTime();
+				ThreeAddressCode _3code = generate(code, parser.getSymbolTable());
+				long end = System.nanoTime();
+				if (end-start<best) {
+					best = end-start;
+					row = lines
+						+"\t"+((parsed-start)/1000000) //$NON-NLS-1$
+						+"\t"+((end-parsed)/1000000) //$NON-NLS-1$
+						+"\t"+_3code.getRecordCount(); //$NON-NLS-1$
+				}
+				ErrorRepository.clear();
+			}
+			long nsPerLine = best / lines;
+			System.out.println(row + "\t" + nsPerLine); //$NON-NLS-1$
+			if (nsPerLine>smallest*TOLERANCE) {
+				throw new IllegalStateException("the time per line has grown from " //$NON-NLS-1$
+						+ smallest + " to " + nsPerLine + " ns for " + lines + " lines"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			smallest = Math.min(smallest, nsPerLine);
+			if (lines>=maxLines) {
+				break;
+			}
+			// The last program has always the greatest number of lines
+			lines = Math.min(lines*2, maxLines);
+		}
+	}
+	
+	/** Build a program with the given number of lines.
+	 * Each group of lines contains assignments, a test,
+	 * a loop, a subroutine call and jumps to other lines.
+	 * 
+	 * @param lines
+	 * @return the source code.
+	 */
+	private static byte[] program(int lines) {
+		StringBuilder b = new StringBuilder();
+		int line = 10;
+		b.append(line).append(" LET A = 0\n"); //$NON-NLS-1$
+		for(int i=1; i<lines-1; ++i) {
+			line += 10;
+			b.append(line);
+			switch(i%6) {
+			case 0:
+				b.append(" LET A = A + ").append(i).append(" * 2\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 1:
+				b.append(" IF A > ").append(i).append(" THEN LET A = A - 1\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 2:
+				b.append(" FOR I = 1 TO 3 LET A = A + I NEXT I\n"); //$NON-NLS-1$
+				break;
+			case 3:
+				b.append(" GOSUB ").append(line+20).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			case 4:
+				b.append(" GOTO ").append(line+20).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				break;
+			default:
+				b.append(" PRINT \"A = \" + A\n"); //$NON-NLS-1$
+			}
+		}
+		line += 10;
+		b.append(line).append(" END\n"); //$NON-NLS-1$
+		return b.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static ThreeAddressCode generate(SortedMap<Integer,Statement> code, SymbolTable symbolTable) throws IntermediateCodeGenerationException {
+		ThreeAddressCode _3code = new ThreeAddressCode(symbolTable);
+		for(Statement statement : code.values()) {
+			statement.generate(_3code);
+		}
+		_3code.finalizeGeneration();
+		return _3code;
+	}
+	
+}
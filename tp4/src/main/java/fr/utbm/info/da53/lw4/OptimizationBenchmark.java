@@ -0,0 +1,155 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw4.construct.Statement;
+import fr.utbm.info.da53.lw4.error.IntermediateCodeGenerationException;
+import fr.utbm.info.da53.lw4.interpreter.ThreeAddressCodeInterpreter;
+import fr.utbm.info.da53.lw4.parser.BasicParser;
+import fr.utbm.info.da53.lw4.symbol.SymbolTable;
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw4.threeaddresscode.optimization.ConstantPropagation;
+import fr.utbm.info.da53.lw4.threeaddresscode.optimization.DeadCodeElimination;
+import fr.utbm.info.da53.lw4.threeaddresscode.optimization.LoopInvariantCodeMotion;
+
+/**
+ * Measure the size of the three-address code and the time of its
+ * interpretation, with and without the optimizations.
+ * <p>
+ * The program contains loops that compute with constants and with copies
+ * of variables, that print string literals, and that test a bound
+ * computed from a variable. The first argument is
+ * the number of iterations of the loops (by default 200000).
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class OptimizationBenchmark {
+	
+	/** Number of runs of each code.
+	 */
+	private static final int RUNS = 5;
+	
+	/** Run the benchmark.
+	 * 
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String args[]) throws Exception {
+		int iterations = (args.length>0) ? Integer.parseInt(args[0]) : 200000;
+		byte[] source = program(iterations);
+		
+		ThreeAddressCode original = generate(source);
+		ThreeAddressCode optimized = generate(source);
+		ConstantPropagation propagation = new ConstantPropagation(optimized);
+		propagation.optimize();
+		System.out.println(propagation.toString());
+		DeadCodeElimination elimination = new DeadCodeElimination(optimized);
+		elimination.optimize();
+		System.out.println(elimination.toString());
+		LoopInvariantCodeMotion motion = new LoopInvariantCodeMotion(optimized);
+		motion.optimize();
+		System.out.println(motion.toString());
+		
+		// Warm up the JVM
+		run(original);
+		run(optimized);
+		
+		System.out.println("code\trecords\tinterpretation (ms)"); //$NON-NLS-1$
+		System.out.println("original\t" + original.getRecordCount() + "\t" + run(original)); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.println("optimized\t" + optimized.getRecordCount() + "\t" + run(optimized)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	/** Interpret the code, and reply the best time of the runs.
+	 * The output of the program is ignored.
+	 * 
+	 * @param code
+	 * @return the time in milliseconds.
+	 */
+	private static long run(ThreeAddressCode code) {
+		PrintStream out = System.out;
+		long best = Long.MAX_VALUE;
+		try {
+			System.setOut(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+					//
+				}
+				@Override
+				public void write(byte[] b, int off, int len) {
+					//
+				}
+			}));
+			for(int i=0; i<RUNS; ++i) {
+				long start = System.nanoTime();
+				new ThreeAddressCodeInterpreter(code).run();
+				best = Math.min(best, System.nanoTime() - start);
+			}
+		}
+		finally {
+			System.setOut(out);
+		}
+		return best / 1000000;
+	}
+	
+	/** Build a program with loops of the given number of iterations.
+	 * 
+	 * @param iterations
+	 * @return the source code.
+	 */
+	private static byte[] program(int iterations) {
+		StringBuilder b = new StringBuilder();
+		b.append("10 LET K = 3\n"); //$NON-NLS-1$
+		b.append("20 LET N = ").append(iterations).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		b.append("30 LET M = N\n"); //$NON-NLS-1$
+		b.append("40 LET S = 0\n"); //$NON-NLS-1$
+		b.append("50 FOR I = 1 TO M LET S = S + K * 2 + I - (K + 1) NEXT I\n"); //$NON-NLS-1$
+		b.append("60 PRINT \"S = \" + S\n"); //$NON-NLS-1$
+		b.append("70 LET J = 0\n"); //$NON-NLS-1$
+		b.append("80 IF J >= M / 100 THEN GOTO 110\n"); //$NON-NLS-1$
+		b.append("90 PRINT \"J = \" + J + \" K = \" + K\n"); //$NON-NLS-1$
+		b.append("100 LET J = J + K - 2\n"); //$NON-NLS-1$
+		b.append("105 GOTO 80\n"); //$NON-NLS-1$
+		b.append("110 LET I = 0\n"); //$NON-NLS-1$
+		b.append("120 WHILE I < J * 50 + K DO LET I = I + 1 WEND\n"); //$NON-NLS-1$
+		b.append("130 END\n"); //$NON-NLS-1$
+		return b.toString().getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static ThreeAddressCode generate(byte[] source) throws Exception {
+		BasicParser parser = new BasicParser(new ByteArrayInputStream(source));
+		return generate(parser.executeCompiler(), parser.getSymbolTable());
+	}
+	
+	private static ThreeAddressCode generate(SortedMap<Integer,Statement> code, SymbolTable symbolTable) throws IntermediateCodeGenerationException {
+		ThreeAddressCode _3code = new ThreeAddressCode(symbolTable);
+		for(Statement statement : code.values()) {
+			statement.generate(_3code);
+		}
+		_3code.finalizeGeneration();
+		return _3code;
+	}
+	
+}
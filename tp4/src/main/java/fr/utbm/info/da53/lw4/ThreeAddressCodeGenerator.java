@@ -29,6 +29,9 @@ import fr.utbm.info.da53.lw4.error.LoggableException;
 import fr.utbm.info.da53.lw4.interpreter.ThreeAddressCodeInterpreter;
 import fr.utbm.info.da53.lw4.parser.BasicParser;
 import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw4.threeaddresscode.optimization.ConstantPropagation;
+import fr.utbm.info.da53.lw4.threeaddresscode.optimization.DeadCodeElimination;
+import fr.utbm.info.da53.lw4.threeaddresscode.optimization.LoopInvariantCodeMotion;
 
 /**
  * Generator of three-address code.
@@ -82,7 +85,18 @@ public class ThreeAddressCodeGenerator {
 		
 		_3code.finalizeGeneration();
 		
+		// Optimization
+		ConstantPropagation propagation = new ConstantPropagation(_3code);
+		propagation.optimize();
+		DeadCodeElimination elimination = new DeadCodeElimination(_3code);
+		elimination.optimize();
+		LoopInvariantCodeMotion motion = new LoopInvariantCodeMotion(_3code);
+		motion.optimize();
+		
 		// Output
+		System.out.println("# " + propagation.toString()); //$NON-NLS-1$
+		System.out.println("# " + elimination.toString()); //$NON-NLS-1$
+		System.out.println("# " + motion.toString()); //$NON-NLS-1$
 		System.out.println(_3code.toString());
 		
 		// Interpreter
@@ -0,0 +1,124 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.interpreter;
+
+/**
+ * Array in the registers of the interpreter of three-address code.
+ * <p>
+ * The elements are stored in a {@link RegisterFile}, whose capacity
+ * grows geometrically, so that an element is read or written in
+ * constant time. The string representation is built only when
+ * the array is printed or concatenated.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+class ArrayValue implements Cloneable {
+
+	private RegisterFile elements;
+	private int size = 0;
+	
+	/**
+	 * @param capacity is the initial number of elements.
+	 */
+	public ArrayValue(int capacity) {
+		this.elements = new RegisterFile(Math.max(capacity, 1));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ArrayValue clone() {
+		try {
+			ArrayValue clone = (ArrayValue)super.clone();
+			clone.elements = new RegisterFile(this.elements);
+			return clone;
+		}
+		catch(CloneNotSupportedException e) {
+			throw new Error(e);
+		}
+	}
+	
+	/** Replies the number of elements, including the elements without value.
+	 * 
+	 * @return the number of elements.
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/** Replies if the element at the given index has a value.
+	 * 
+	 * @param index
+	 * @return <code>true</code> if the element is set.
+	 */
+	public boolean isSet(int index) {
+		return index<this.size && this.elements.isSet(index);
+	}
+	
+	/** Copy the element at the given index in a register.
+	 * 
+	 * @param index
+	 * @param target is the registers in which the element is copied.
+	 * @param targetRegister is the register in which the element is copied.
+	 */
+	public void get(int index, RegisterFile target, int targetRegister) {
+		this.elements.copy(index, target, targetRegister);
+	}
+
+	/** Copy a register in the element at the given index.
+	 * The array grows when the index is greater than its size.
+	 * 
+	 * @param index
+	 * @param source is the registers from which the element is copied.
+	 * @param sourceRegister is the register from which the element is copied.
+	 */
+	public void set(int index, RegisterFile source, int sourceRegister) {
+		if (index>=this.size) {
+			this.elements.ensureCapacity(index + 1);
+			this.size = index + 1;
+		}
+		source.copy(sourceRegister, this.elements, index);
+	}
+	
+	/** Replies the string representation of the array.
+	 * The elements without value are ignored.
+	 * 
+	 * @return the string representation.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("["); //$NON-NLS-1$
+		boolean first = true;
+		for(int i=0; i<this.size; ++i) {
+			if (this.elements.isSet(i)) {
+				if (!first) {
+					b.append(", "); //$NON-NLS-1$
+				}
+				b.append(this.elements.toString(i));
+				first = false;
+			}
+		}
+		b.append("]"); //$NON-NLS-1$
+		return b.toString();
+	}
+	
+}
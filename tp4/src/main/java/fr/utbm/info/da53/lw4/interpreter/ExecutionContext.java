@@ -18,292 +18,226 @@
  */
 package fr.utbm.info.da53.lw4.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Stack;
-import java.util.TreeMap;
-
-import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
-import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressRecord;
-import fr.utbm.info.da53.lw4.util.Util;
+import java.util.Arrays;
 
 /**
  * Execution context for the nterpreter of three-address code.
+ * <p>
+ * The values of the variables are stored in a {@link RegisterFile};
+ * the registers are given by the {@link LoadedCode}.
+ * <p>
+ * The actual parameters are pushed in a second {@link RegisterFile}.
+ * A call does not copy them: the frame of the function is a window
+ * in this file, given by an offset and a size. The frames are stored
+ * in preallocated arrays which grow when the calls are nested, up to
+ * the maximal depth given to the context.
  * 
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
  */
 class ExecutionContext {
 
-	private final Map<String,String> values = new TreeMap<String,String>();
-	private final Stack<Context> functionCalls = new Stack<Context>();
-	private final List<String> params = new ArrayList<String>();
-	private int ordinalCounter = 0;
+	private final LoadedCode code;
+	private final RegisterFile registers;
+	private final RegisterFile params = new RegisterFile(8);
+	private int paramStart = 0;
+	private int paramEnd = 0;
+	private final int maxDepth;
+	private int depth = 0;
+	private int[] frameOffsets = new int[16];
+	private int[] frameSizes = new int[16];
+	private int[] returnVariables = new int[16];
+	private int[] returnAddresses = new int[16];
 		
 	/**
+	 * @param code is the code to run.
+	 * @param maxDepth is the maximal number of nested function calls.
 	 */
-	public ExecutionContext() {
-		//
-	}
-	
-	/** Replies the next record to run from the given code.
-	 * 
-	 * @param code
-	 * @return the record to run or <code>null</code>.
-	 */
-	public ThreeAddressRecord getRecord(ThreeAddressCode code) {
-		return code.getRecord(this.ordinalCounter);
-	}
-	
-	/** Move the ordinal counter from one address.
-	 */
-	public void moveOrdinalCounter() {
-		this.ordinalCounter++;
+	public ExecutionContext(LoadedCode code, int maxDepth) {
+		this.code = code;
+		this.maxDepth = maxDepth;
+		this.registers = new RegisterFile(code.getInitialRegisters());
 	}
 	
-	/** Move the ordinal counter from one address.
+	/** Replies the registers that contain the values of the variables.
 	 * 
-	 * @param address
+	 * @return the registers.
 	 */
-	public void moveOrdinalCounter(int address) {
-		this.ordinalCounter = address;
+	public RegisterFile getRegisters() {
+		return this.registers;
 	}
 	
 	/** Add a parameter to a procedure or a function.
 	 * 
-	 * @param param
+	 * @param register is the register that contains the value of the parameter.
 	 */
-	public void addParameter(String param) {
-		this.params.add(param);
+	public void addParameter(int register) {
+		this.params.ensureCapacity(this.paramEnd + 1);
+		getValue(register, this.params, this.paramEnd);
+		++this.paramEnd;
 	}
 	
-	/** Replies the instruction number that is corresponding
-	 * to the given label.
-	 * @param label
-	 * @param code
-	 * @return the instruction number.
+	/** Replies the address of the target of the jump or
+	 * of the call at the given address.
+	 * 
+	 * @param address is the address of the jump or of the call.
+	 * @return the address of the target, or {@link LoadedCode#NO_TARGET}.
 	 */
-	public int getInstructionPosition(String label, ThreeAddressCode code) {
-		String l = label;
-		if (Util.isString(label)) {
-			l = Util.unstringify(label);
-		}
-		else if (Util.isNumber(label) || Util.isBoolean(label)) {
-			l = label;
-		}
-		else {
-			String val = this.values.get(label);
-			if (val!=null) l = val;
-		}
-		if (l!=null) {
-			if (Util.isString(l)) {
-				l = Util.unstringify(l);
-			}
-			int i=0; 
-			for(ThreeAddressRecord record : code.getRecords()) {
-				if (l.equals(record.getLabel())) {
-					return i;
-				}
-				++i;
-			}
-		}
-		return -1;
+	public int getInstructionPosition(int address) {
+		return this.code.getTarget(address, this.registers);
 	}
 
-	/** Replies the value of the given variable.
+	/** Check that the given register contains a value.
 	 * 
-	 * @param variable is the name of the variable.
-	 * @return the value
+	 * @param register is the register of the variable.
+	 * @return the register.
 	 */
-	public String getValue(String variable) {
-		if (variable==null || Util.isString(variable)
-			|| Util.isNumber(variable) || Util.isBoolean(variable))
-			return variable;
-		String val = this.values.get(variable);
-		if (val!=null) return val;
-		throw new RuntimeException("undeclared variable: "+variable); //$NON-NLS-1$
+	public int checkValue(int register) {
+		if (!this.registers.isSet(register)) {
+			throw new RuntimeException("undeclared variable: "+this.code.getRegisterName(register)); //$NON-NLS-1$
+		}
+		return register;
 	}
 
-	/** Set the value of the given variable.
+	/** Copy the value of the given variable.
 	 * 
-	 * @param id is the name of the variable
-	 * @param value is the value of the variable.
+	 * @param register is the register of the variable.
+	 * @param target is the registers in which the value is copied.
+	 * @param targetRegister is the register in which the value is copied.
 	 */
-	public void setValue(String id, String value) {
-		this.values.put(id, value);
+	public void getValue(int register, RegisterFile target, int targetRegister) {
+		this.registers.copy(checkValue(register), target, targetRegister);
 	}
-	
+
 	/** Set the i-th element of the variable as it is an array.
 	 * 
-	 * @param array is the identifier of the array.
-	 * @param i is the index.
-	 * @param value is the value to put inside.
+	 * @param array is the register of the array.
+	 * @param i is the register of the index.
+	 * @param value is the register of the value to put inside.
 	 */
-	public void setArrayElement(String array, String i, String value) {
-		String ii = getValue(i);
-		if (!Util.isInteger(ii))
-			throw new RuntimeException("Integer is expected for the array index"); //$NON-NLS-1$
-		int index = Integer.parseInt(ii);
-		if (index<0)
-			throw new RuntimeException("Index out of bounds: "+index); //$NON-NLS-1$
+	public void setArrayElement(int array, int i, int value) {
+		int index = getIndex(i);
+		checkValue(value);
 		
-		String v = this.values.get(array);
-		if (v==null || !Util.isArray(v)) {
-			String[] tab = new String[index+1];
-			tab[index] = getValue(value);
-			this.values.put(array, Util.toString(tab));
+		ArrayValue tab;
+		if (this.registers.getKind(array)!=RegisterFile.ARRAY) {
+			tab = new ArrayValue(index+1);
+			this.registers.setArray(array, tab);
 		}
 		else {
-			String[] tab = Util.parseArray(v);
-			if (index>=tab.length) {
-				String[] tab2 = new String[index+1];
-				System.arraycopy(tab, 0, tab2, 0, tab.length);
-				tab = tab2;
-			}
-			tab[index] = getValue(value);
-			this.values.put(array, Util.toString(tab));
+			tab = (ArrayValue)this.registers.getObject(array);
 		}
+		tab.set(index, this.registers, value);
 	}
 
-	/** Replies the i-th element of the variable as it is an array.
+	/** Put the i-th element of the variable as it is an array in the given register.
 	 * 
-	 * @param array is the identifier of the array.
-	 * @param i is the index.
-	 * @return the value from the array.
+	 * @param array is the register of the array.
+	 * @param i is the register of the index.
+	 * @param result is the register in which the value is put.
 	 */
-	public String getArrayElement(String array, String i) {
-		String ii = getValue(i);
-		if (!Util.isInteger(ii))
-			throw new RuntimeException("Integer is expected for the array index"); //$NON-NLS-1$
-		int index = Integer.parseInt(ii);
-		if (index<0)
-			throw new RuntimeException("Index out of bounds: "+index); //$NON-NLS-1$
+	public void getArrayElement(int array, int i, int result) {
+		int index = getIndex(i);
 		
-		String v = this.values.get(array);
-		if (v==null || !Util.isArray(v)) {
-			throw new RuntimeException(array+" is not an array"); //$NON-NLS-1$
+		if (this.registers.getKind(array)!=RegisterFile.ARRAY) {
+			throw new RuntimeException(this.code.getRegisterName(array)+" is not an array"); //$NON-NLS-1$
 		}
 
-		String[] tab = Util.parseArray(v);
-		if (index>=tab.length) {
+		ArrayValue tab = (ArrayValue)this.registers.getObject(array);
+		if (!tab.isSet(index)) {
 			throw new RuntimeException("Index out of bounds: "+index); //$NON-NLS-1$
 		}
-		return tab[index];
+		tab.get(index, this.registers, result);
+	}
+	
+	private int getIndex(int register) {
+		checkValue(register);
+		if (this.registers.getKind(register)!=RegisterFile.INTEGER)
+			throw new RuntimeException("Integer is expected for the array index"); //$NON-NLS-1$
+		long index = this.registers.getInteger(register);
+		if (index<0 || index>=Integer.MAX_VALUE)
+			throw new RuntimeException("Index out of bounds: "+index); //$NON-NLS-1$
+		return (int)index;
 	}
 
 	/** Open a function context.
+	 * <p>
+	 * The first pushed parameters become the formal parameters
+	 * of the function.
 	 * 
 	 * @param position is the address of the instruction to run.
 	 * @param nbParams is the numbers of parameters to pass to the function.
-	 * @param result is the name of the variable in which the result should be saved.
+	 * @param result is the register in which the result should be saved,
+	 * or {@link LoadedCode#NO_REGISTER}.
+	 * @param returnAddress is the address of the instruction to run after the function.
+	 * @return the address of the instruction to run.
 	 */
-	public void callFunction(int position, int nbParams, String result) {
-		if (this.params.size()<nbParams) {
+	public int callFunction(int position, int nbParams, int result, int returnAddress) {
+		if (this.paramEnd-this.paramStart<nbParams) {
 			throw new RuntimeException("Not enough parameters to a function call"); //$NON-NLS-1$
 		}
-		List<String> formalParams = new ArrayList<String>();
-		for(int i=0; i<nbParams; ++i) {
-			formalParams.add(this.params.remove(0));
-		}
-		Context context = new Context(formalParams, result, this.ordinalCounter+1);
-		this.functionCalls.push(context);
-		this.ordinalCounter = position;
+		if (this.depth>=this.maxDepth) {
+			throw new RuntimeException("Too many nested function calls"); //$NON-NLS-1$
+		}
+		if (this.depth>=this.frameOffsets.length) {
+			int newSize = (int)Math.min((long)this.maxDepth, this.frameOffsets.length * 2L);
+			this.frameOffsets = Arrays.copyOf(this.frameOffsets, newSize);
+			this.frameSizes = Arrays.copyOf(this.frameSizes, newSize);
+			this.returnVariables = Arrays.copyOf(this.returnVariables, newSize);
+			this.returnAddresses = Arrays.copyOf(this.returnAddresses, newSize);
+		}
+		this.frameOffsets[this.depth] = this.paramStart;
+		this.frameSizes[this.depth] = nbParams;
+		this.returnVariables[this.depth] = result;
+		this.returnAddresses[this.depth] = returnAddress;
+		++this.depth;
+		this.paramStart += nbParams;
+		return position;
 	}
 	
-	/** Replies the n-th formal parameter.
+	/** Put the n-th formal parameter in the given register.
 	 * 
 	 * @param n
-	 * @return the n-th formal parameter.
+	 * @param result is the register in which the parameter is put.
 	 */
-	public String getFormalParameter(int n) {
-		if (this.functionCalls.isEmpty()) {
-			throw new RuntimeException("Cannot invoke formal parameter outside a function call"); //$NON-NLS-1$
-		}
-		Context c = this.functionCalls.peek();
-		if (c==null) {
+	public void getFormalParameter(int n, int result) {
+		if (this.depth==0) {
 			throw new RuntimeException("Cannot invoke formal parameter outside a function call"); //$NON-NLS-1$
 		}
-		return c.getFormalParameter(n);
+		int frame = this.depth - 1;
+		if (n<0 || n>=this.frameSizes[frame])
+			throw new RuntimeException("not enough parameter to the function"); //$NON-NLS-1$
+		this.params.copy(this.frameOffsets[frame] + n, this.registers, result);
 	}
 	
 	/** Close a function context.
+	 * <p>
+	 * The window of the function is released when no
+	 * parameter is waiting for a call.
 	 * 
-	 * @param value is the value to return, or <code>null</code>.
+	 * @param value is the register of the value to return, or {@link LoadedCode#NO_REGISTER}.
+	 * @return the address of the instruction to run.
 	 */
-	public void returnFunction(String value) {
-		if (this.functionCalls.isEmpty()) {
-			throw new RuntimeException("Cannot invoke formal parameter outside a function call"); //$NON-NLS-1$
-		}
-		Context c = this.functionCalls.pop();
-		if (c==null) {
+	public int returnFunction(int value) {
+		if (this.depth==0) {
 			throw new RuntimeException("Cannot invoke formal parameter outside a function call"); //$NON-NLS-1$
 		}
+		--this.depth;
 
-		String v = getValue(value);
-
-		String var = c.getReturnVariable();
-		if (var!=null) {
-			if (v==null) {
+		int var = this.returnVariables[this.depth];
+		if (var!=LoadedCode.NO_REGISTER) {
+			if (value==LoadedCode.NO_REGISTER) {
 				throw new RuntimeException("Excepting a return value"); //$NON-NLS-1$
 			}
-			setValue(var, v);
-		}
-		
-		this.ordinalCounter = c.getReturnAddress();
-	}
-
-	/**
-	 * Execution context for the nterpreter of three-address code.
-	 * 
-	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
-	 * @version $Name$ $Revision$ $Date$
-	 */
-	private class Context {
-
-		private final List<String> formalParams;
-		private final String returnVariable;
-		private final int returnAddress;
-		
-		/**
-		 * @param formalParams
-		 * @param returnVariable
-		 * @param returnAddress
-		 */
-		public Context(List<String> formalParams, String returnVariable, int returnAddress) {
-			this.formalParams = formalParams;
-			this.returnVariable = returnVariable;
-			this.returnAddress = returnAddress;
-		}
-		
-		/** Replies the n-th formal parameter.
-		 * 
-		 * @param n
-		 * @return the n-th formal parameter.
-		 */
-		public String getFormalParameter(int n) {
-			if (n<0 || n>= this.formalParams.size())
-				throw new RuntimeException("not enough parameter to the function"); //$NON-NLS-1$
-			return this.formalParams.get(n);
-		}
-		
-		/** Replies the name of the variable that should contains
-		 * the returned value.
-		 * @return the name of the variable that should contains
-		 * the returned value.
-		 */
-		public String getReturnVariable() {
-			return this.returnVariable;
+			getValue(value, this.registers, var);
 		}
 		
-		/** Replies the address where to return.
-		 * 
-		 * @return the address.
-		 */
-		public int getReturnAddress() {
-			return this.returnAddress;
+		if (this.paramStart==this.paramEnd) {
+			this.paramStart = this.frameOffsets[this.depth];
+			this.paramEnd = this.paramStart;
 		}
 		
+		return this.returnAddresses[this.depth];
 	}
 	
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.interpreter;
+
+/**
+ * Handler of a three-address record which is decoded by the interpreter.
+ * <p>
+ * The operands of the record are bound to the handler when the code
+ * is prepared, so that the handler does not read the record at run time.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+interface InstructionHandler {
+
+	/** Address that stops the interpreter.
+	 */
+	public static final int STOP = -1;
+	
+	/** Run the instruction.
+	 * 
+	 * @param context is the execution context.
+	 * @return the address of the next instruction to run, or {@link #STOP}.
+	 */
+	public int execute(ExecutionContext context);
+	
+}
@@ -0,0 +1,336 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressRecord;
+import fr.utbm.info.da53.lw4.util.Util;
+
+/**
+ * Three-address code prepared for the interpreter.
+ * <p>
+ * When the code is loaded, each variable, temporary variable and
+ * literal that is an operand of a record is given a register.
+ * The registers of the literals are initialized once for all
+ * in {@link #getInitialRegisters()}. The operands of the record at
+ * a given address are replied by {@link #getArgument1(int)},
+ * {@link #getArgument2(int)} and {@link #getResult(int)}.
+ * <p>
+ * The code is also linked: the label of each jump and
+ * call is replaced by the address of the target record,
+ * replied by {@link #getTarget(int, RegisterFile)}. When the label is a variable
+ * that contains the label computed at run time, such as the label
+ * replied by <code>JMPMAP</code>, the address is found in an index
+ * of the labels. The tables of the <code>LOOKUP_SWITCH</code>
+ * records are stored in sorted arrays.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+class LoadedCode {
+
+	/** Operand that is not used by a record.
+	 */
+	public static final int NO_REGISTER = -1;
+
+	/** Target of a jump to a label that does not exist.
+	 */
+	public static final int NO_TARGET = -1;
+
+	/** Target of a jump to a label that is computed at run time.
+	 */
+	private static final int DYNAMIC_TARGET = -2;
+	
+	private final ThreeAddressCode code;
+	private final ThreeAddressRecord[] records;
+	private final int[] operands;
+	private final int[] targets;
+	private final long[][] tableKeys;
+	private final int[][] tableValues;
+	private final Map<String,Integer> labels = new HashMap<String,Integer>();
+	private final Map<String,Integer> registers = new HashMap<String,Integer>();
+	private final List<String> names = new ArrayList<String>();
+	private final RegisterFile initialRegisters;
+	
+	/**
+	 * @param code is the code to load.
+	 */
+	public LoadedCode(ThreeAddressCode code) {
+		this.code = code;
+		this.records = code.getRecords().toArray(new ThreeAddressRecord[code.getRecordCount()]);
+		this.operands = new int[this.records.length * 3];
+		this.targets = new int[this.records.length];
+		this.tableKeys = new long[this.records.length][];
+		this.tableValues = new int[this.records.length][];
+		List<String> literals = new ArrayList<String>();
+		for(int address=0; address<this.records.length; ++address) {
+			String label = this.records[address].getLabel();
+			if (label!=null && !this.labels.containsKey(label)) {
+				this.labels.put(label, address);
+			}
+		}
+		for(int address=0; address<this.records.length; ++address) {
+			ThreeAddressRecord record = this.records[address];
+			int index = address * 3;
+			switch(record.instruction()) {
+			case JUMP:
+				this.operands[index] = NO_REGISTER;
+				this.operands[index+1] = NO_REGISTER;
+				this.operands[index+2] = NO_REGISTER;
+				break;
+			case JUMP_IF_FALSE:
+			case JUMP_IF_TRUE:
+			case CALL:
+				this.operands[index] = NO_REGISTER;
+				this.operands[index+1] = register(record.getArgument2(), literals);
+				this.operands[index+2] = register(record.getResult(), literals);
+				break;
+			case LOOKUP_SWITCH:
+				this.operands[index] = register(record.getArgument1(), literals);
+				this.operands[index+1] = NO_REGISTER;
+				this.operands[index+2] = register(record.getResult(), literals);
+				SortedMap<Integer,String> table = record.getTable();
+				int size = (table==null) ? 0 : table.size();
+				long[] keys = new long[size];
+				int[] values = new int[size];
+				if (table!=null) {
+					int i = 0;
+					for(Entry<Integer,String> entry : table.entrySet()) {
+						keys[i] = entry.getKey().longValue();
+						values[i] = register(entry.getValue(), literals);
+						++i;
+					}
+				}
+				this.tableKeys[address] = keys;
+				this.tableValues[address] = values;
+				break;
+			default:
+				this.operands[index] = register(record.getArgument1(), literals);
+				this.operands[index+1] = register(record.getArgument2(), literals);
+				this.operands[index+2] = register(record.getResult(), literals);
+			}
+		}
+		link();
+		this.initialRegisters = new RegisterFile(this.names.size());
+		for(String literal : literals) {
+			this.initialRegisters.setLiteral(this.registers.get(literal), literal);
+		}
+	}
+	
+	/** Replace the labels of the jumps and of the calls by addresses.
+	 * A label is computed at run time when it is also the name
+	 * of a variable.
+	 */
+	private void link() {
+		for(int address=0; address<this.records.length; ++address) {
+			ThreeAddressRecord record = this.records[address];
+			switch(record.instruction()) {
+			case JUMP:
+			case JUMP_IF_FALSE:
+			case JUMP_IF_TRUE:
+			case CALL:
+				String label = record.getArgument1();
+				Integer register = (label==null || Util.isString(label)) ? null : this.registers.get(label);
+				if (register!=null) {
+					this.operands[address * 3] = register.intValue();
+					this.targets[address] = DYNAMIC_TARGET;
+				}
+				else {
+					this.targets[address] = getAddressFor(
+							(label!=null && Util.isString(label)) ? Util.unstringify(label) : label);
+				}
+				break;
+			case LOOKUP_SWITCH:
+				String defaultLabel = record.getArgument2();
+				this.targets[address] = getAddressFor(defaultLabel);
+				break;
+			default:
+				this.targets[address] = NO_TARGET;
+			}
+		}
+	}
+	
+	/** Replies the address of the record with the given label.
+	 * 
+	 * @param label
+	 * @return the address, or {@link #NO_TARGET} if no record has the label.
+	 */
+	public int getAddressFor(String label) {
+		Integer address = (label==null) ? null : this.labels.get(label);
+		return (address==null) ? NO_TARGET : address.intValue();
+	}
+	
+	/** Replies the address of the target of the jump or of the call at the given address.
+	 * 
+	 * @param address is the address of the jump or of the call.
+	 * @param registers are the registers that contain the labels computed at run time.
+	 * @return the address of the target, or {@link #NO_TARGET} if the label does not exist.
+	 */
+	public int getTarget(int address, RegisterFile registers) {
+		int target = this.targets[address];
+		if (target==DYNAMIC_TARGET) {
+			int register = this.operands[address * 3];
+			if (registers.isSet(register)) {
+				return getAddressFor(registers.toString(register));
+			}
+			return getAddressFor(this.names.get(register));
+		}
+		return target;
+	}
+	
+	/** Replies if the target of the jump or of the call at the given address
+	 * is computed at run time from the value of a variable.
+	 * 
+	 * @param address is the address of the jump or of the call.
+	 * @return <code>true</code> if the target depends on the registers.
+	 */
+	public boolean isComputedTarget(int address) {
+		return this.targets[address]==DYNAMIC_TARGET;
+	}
+	
+	/** Replies if the given register contains a literal value.
+	 * 
+	 * @param register
+	 * @return <code>true</code> if the register is initialized with a literal.
+	 */
+	public boolean isLiteral(int register) {
+		return register!=NO_REGISTER && this.initialRegisters.isSet(register);
+	}
+	
+	private int register(String operand, List<String> literals) {
+		if (operand==null) {
+			return NO_REGISTER;
+		}
+		Integer register = this.registers.get(operand);
+		if (register==null) {
+			register = this.names.size();
+			this.registers.put(operand, register);
+			this.names.add(operand);
+			if (Util.isString(operand) || Util.isBoolean(operand) || Util.isNumber(operand)) {
+				literals.add(operand);
+			}
+		}
+		return register.intValue();
+	}
+	
+	/** Replies the loaded code.
+	 * 
+	 * @return the code.
+	 */
+	public ThreeAddressCode getCode() {
+		return this.code;
+	}
+	
+	/** Replies the number of records.
+	 * 
+	 * @return the number of records.
+	 */
+	public int getRecordCount() {
+		return this.records.length;
+	}
+	
+	/** Replies the record at the given address.
+	 * 
+	 * @param address
+	 * @return the record, or <code>null</code> if the address is outside the code.
+	 */
+	public ThreeAddressRecord getRecord(int address) {
+		if (address>=0 && address<this.records.length) {
+			return this.records[address];
+		}
+		return null;
+	}
+	
+	/** Replies the register of the first argument of the record at the given address.
+	 * 
+	 * @param address
+	 * @return the register, or {@link #NO_REGISTER}.
+	 */
+	public int getArgument1(int address) {
+		return this.operands[address * 3];
+	}
+
+	/** Replies the register of the second argument of the record at the given address.
+	 * 
+	 * @param address
+	 * @return the register, or {@link #NO_REGISTER}.
+	 */
+	public int getArgument2(int address) {
+		return this.operands[address * 3 + 1];
+	}
+
+	/** Replies the register of the result of the record at the given address.
+	 * 
+	 * @param address
+	 * @return the register, or {@link #NO_REGISTER}.
+	 */
+	public int getResult(int address) {
+		return this.operands[address * 3 + 2];
+	}
+	
+	/** Search a key in the table of the record at the given address.
+	 * The keys are sorted, so that the search is dichotomic.
+	 * 
+	 * @param address is the address of the record.
+	 * @param key is the key to search for.
+	 * @return the register of the value, or {@link #NO_REGISTER} if the key is not in the table.
+	 */
+	public int lookup(int address, long key) {
+		long[] keys = this.tableKeys[address];
+		int index = Arrays.binarySearch(keys, key);
+		return (index>=0) ? this.tableValues[address][index] : NO_REGISTER;
+	}
+	
+	/** Replies the register of the given variable.
+	 * 
+	 * @param name is the name of the variable.
+	 * @return the register, or {@link #NO_REGISTER} if the variable is not used by the code.
+	 */
+	public int getRegister(String name) {
+		Integer register = this.registers.get(name);
+		return (register==null) ? NO_REGISTER : register.intValue();
+	}
+
+	/** Replies the name of the variable or the literal of the given register.
+	 * 
+	 * @param register
+	 * @return the name.
+	 */
+	public String getRegisterName(int register) {
+		return this.names.get(register);
+	}
+	
+	/** Replies the registers in which the literals are set.
+	 * These registers must be copied before any change.
+	 * 
+	 * @return the registers.
+	 */
+	public RegisterFile getInitialRegisters() {
+		return this.initialRegisters;
+	}
+	
+}
@@ -0,0 +1,316 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.interpreter;
+
+import java.util.Arrays;
+
+import fr.utbm.info.da53.lw4.util.Util;
+
+/**
+ * Typed registers of the interpreter of three-address code.
+ * <p>
+ * Each register has a kind, and its value is stored in the
+ * array that is corresponding to this kind: integer numbers
+ * and booleans in an array of <code>long</code>, real numbers
+ * in an array of <code>double</code>, and the other values in
+ * an array of objects. The strings are stored without quotes
+ * and escape sequences.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+class RegisterFile {
+
+	/** Kind of a register without value.
+	 */
+	public static final byte UNSET = 0;
+
+	/** Kind of a register that contains an integer number.
+	 */
+	public static final byte INTEGER = 1;
+
+	/** Kind of a register that contains a real number.
+	 */
+	public static final byte REAL = 2;
+
+	/** Kind of a register that contains a boolean.
+	 */
+	public static final byte BOOLEAN = 3;
+
+	/** Kind of a register that contains a string.
+	 */
+	public static final byte STRING = 4;
+
+	/** Kind of a register that contains an array.
+	 */
+	public static final byte ARRAY = 5;
+	
+	/** Greatest real number that is stored as an integer number.
+	 */
+	private static final double MAX_INTEGER = 9.2e18;
+
+	private byte[] kinds;
+	private long[] integers;
+	private double[] reals;
+	private Object[] objects;
+	
+	/**
+	 * @param size is the number of registers.
+	 */
+	public RegisterFile(int size) {
+		this.kinds = new byte[size];
+		this.integers = new long[size];
+		this.reals = new double[size];
+		this.objects = new Object[size];
+	}
+	
+	/** Create a copy of the given registers.
+	 * 
+	 * @param registers
+	 */
+	public RegisterFile(RegisterFile registers) {
+		this.kinds = registers.kinds.clone();
+		this.integers = registers.integers.clone();
+		this.reals = registers.reals.clone();
+		this.objects = registers.objects.clone();
+	}
+	
+	/** Replies the number of registers.
+	 * 
+	 * @return the number of registers.
+	 */
+	public int size() {
+		return this.kinds.length;
+	}
+	
+	/** Ensure that the registers with an index lower than the given size exist.
+	 * 
+	 * @param size
+	 */
+	public void ensureCapacity(int size) {
+		if (size>this.kinds.length) {
+			int newSize = Math.max(size, this.kinds.length * 2);
+			this.kinds = Arrays.copyOf(this.kinds, newSize);
+			this.integers = Arrays.copyOf(this.integers, newSize);
+			this.reals = Arrays.copyOf(this.reals, newSize);
+			this.objects = Arrays.copyOf(this.objects, newSize);
+		}
+	}
+
+	/** Replies the kind of the given register.
+	 * 
+	 * @param register
+	 * @return the kind.
+	 */
+	public byte getKind(int register) {
+		return this.kinds[register];
+	}
+	
+	/** Replies if the given register contains a value.
+	 * 
+	 * @param register
+	 * @return <code>true</code> if the register is set.
+	 */
+	public boolean isSet(int register) {
+		return this.kinds[register]!=UNSET;
+	}
+
+	/** Replies if the given register contains a number.
+	 * 
+	 * @param register
+	 * @return <code>true</code> if the register contains a number.
+	 */
+	public boolean isNumber(int register) {
+		byte kind = this.kinds[register];
+		return kind==INTEGER || kind==REAL;
+	}
+
+	/** Replies the number in the given register.
+	 * 
+	 * @param register
+	 * @return the number.
+	 */
+	public double getNumber(int register) {
+		return (this.kinds[register]==INTEGER) ? this.integers[register] : this.reals[register];
+	}
+
+	/** Replies the integer number in the given register.
+	 * 
+	 * @param register
+	 * @return the number.
+	 */
+	public long getInteger(int register) {
+		return this.integers[register];
+	}
+
+	/** Replies the boolean in the given register.
+	 * 
+	 * @param register
+	 * @return the boolean.
+	 */
+	public boolean getBoolean(int register) {
+		return this.integers[register]!=0;
+	}
+
+	/** Replies the object in the given register.
+	 * 
+	 * @param register
+	 * @return the string or the array.
+	 */
+	public Object getObject(int register) {
+		return this.objects[register];
+	}
+
+	/** Put a number in the given register. The number
+	 * is stored as an integer number when it has no
+	 * fractional part.
+	 * 
+	 * @param register
+	 * @param value
+	 */
+	public void setNumber(int register, double value) {
+		if (value==Math.rint(value) && Math.abs(value)<MAX_INTEGER) {
+			setInteger(register, (long)value);
+		}
+		else {
+			this.kinds[register] = REAL;
+			this.reals[register] = value;
+			this.objects[register] = null;
+		}
+	}
+
+	/** Put an integer number in the given register.
+	 * 
+	 * @param register
+	 * @param value
+	 */
+	public void setInteger(int register, long value) {
+		this.kinds[register] = INTEGER;
+		this.integers[register] = value;
+		this.objects[register] = null;
+	}
+
+	/** Put a boolean in the given register.
+	 * 
+	 * @param register
+	 * @param value
+	 */
+	public void setBoolean(int register, boolean value) {
+		this.kinds[register] = BOOLEAN;
+		this.integers[register] = value ? 1 : 0;
+		this.objects[register] = null;
+	}
+
+	/** Put a string in the given register.
+	 * 
+	 * @param register
+	 * @param value is the string without quotes.
+	 */
+	public void setString(int register, String value) {
+		this.kinds[register] = STRING;
+		this.objects[register] = value;
+	}
+
+	/** Put an array in the given register.
+	 * 
+	 * @param register
+	 * @param value
+	 */
+	public void setArray(int register, ArrayValue value) {
+		this.kinds[register] = ARRAY;
+		this.objects[register] = value;
+	}
+	
+	/** Copy the value of a register. The arrays are copied,
+	 * so that the registers do not share them.
+	 * 
+	 * @param register is the register to read.
+	 * @param target is the registers to write.
+	 * @param targetRegister is the register to write.
+	 */
+	public void copy(int register, RegisterFile target, int targetRegister) {
+		target.kinds[targetRegister] = this.kinds[register];
+		target.integers[targetRegister] = this.integers[register];
+		target.reals[targetRegister] = this.reals[register];
+		Object object = this.objects[register];
+		if (object instanceof ArrayValue) {
+			object = ((ArrayValue)object).clone();
+		}
+		target.objects[targetRegister] = object;
+	}
+	
+	/** Put in the given register the value of a literal of the
+	 * three-address code.
+	 * 
+	 * @param register
+	 * @param literal is a quoted string, a number or a boolean.
+	 */
+	public void setLiteral(int register, String literal) {
+		if (Util.isString(literal)) {
+			setString(register, Util.unstringify(literal));
+		}
+		else if (Util.isBoolean(literal)) {
+			setBoolean(register, Boolean.parseBoolean(literal));
+		}
+		else {
+			setNumber(register, Double.parseDouble(literal));
+		}
+	}
+
+	/** Put in the given register the value that is
+	 * represented by the given text.
+	 * 
+	 * @param register
+	 * @param text is a number, a boolean, or a string without quotes.
+	 */
+	public void setText(int register, String text) {
+		if (text!=null && Util.isNumber(text)) {
+			setNumber(register, Double.parseDouble(text));
+		}
+		else if (text!=null && Util.isBoolean(text)) {
+			setBoolean(register, Boolean.parseBoolean(text));
+		}
+		else {
+			setString(register, (text==null) ? "" : text); //$NON-NLS-1$
+		}
+	}
+	
+	/** Replies the string representation of the value
+	 * of the given register, as it is printed.
+	 * 
+	 * @param register
+	 * @return the string representation.
+	 */
+	public String toString(int register) {
+		switch(this.kinds[register]) {
+		case INTEGER:
+			return Long.toString(this.integers[register]);
+		case REAL:
+			return Util.toString(this.reals[register]);
+		case BOOLEAN:
+			return Boolean.toString(this.integers[register]!=0);
+		case STRING:
+		case ARRAY:
+			return this.objects[register].toString();
+		default:
+		}
+		return null;
+	}
+	
+}
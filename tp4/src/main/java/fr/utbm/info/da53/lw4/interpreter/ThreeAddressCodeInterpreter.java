@@ -21,203 +21,320 @@ package fr.utbm.info.da53.lw4.interpreter;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Arrays;
 
 import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
-import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressRecord;
-import fr.utbm.info.da53.lw4.util.Util;
 
 /**
  * Interpreter of three-address code.
+ * <p>
+ * The code is loaded once in a {@link LoadedCode}, which
+ * gives a register to each variable and literal. The values
+ * are stored in typed registers, so that the operations
+ * do not parse or build strings. The labels of the jumps
+ * and of the calls are replaced by addresses when the code
+ * is loaded.
+ * <p>
+ * Before running, each record is decoded into an {@link InstructionHandler}
+ * to which the registers of the operands and the addresses of the
+ * targets are bound. The interpreter only invokes the handler at the
+ * current address, which replies the address of the next one.
+ * <p>
+ * The additions and the substractions of integer numbers are done
+ * on longs, as long as the result is lower than 2^53 in absolute value.
+ * Beyond this limit, they are done on real numbers, so that the
+ * rounded values are the same as when all the numbers were reals.
  * 
  * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
  * @version $Name$ $Revision$ $Date$
  */
 public class ThreeAddressCodeInterpreter {
 
-	private final ThreeAddressCode code;
+	/** Default maximal number of nested function calls.
+	 */
+	public static final int DEFAULT_MAX_CALL_DEPTH = 1000000;
+
+	/** Greatest integer number from which all the integer numbers
+	 * are exactly represented by a real number (2^53).
+	 */
+	private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+	private final LoadedCode code;
+	private final InstructionHandler[] handlers;
+	private int maxCallDepth = DEFAULT_MAX_CALL_DEPTH;
 	
 	/**
 	 * @param code is the code to interprete.
 	 */
 	public ThreeAddressCodeInterpreter(ThreeAddressCode code) {
-		this.code = code;
+		this.code = new LoadedCode(code);
+		this.handlers = new InstructionHandler[this.code.getRecordCount()];
+		for(int address=0; address<this.handlers.length; ++address) {
+			this.handlers[address] = decode(address);
+		}
+	}
+	
+	/** Replies the maximal number of nested function calls.
+	 * 
+	 * @return the maximal depth of the calls.
+	 */
+	public int getMaxCallDepth() {
+		return this.maxCallDepth;
+	}
+	
+	/** Set the maximal number of nested function calls.
+	 * 
+	 * @param depth is the maximal depth of the calls.
+	 */
+	public void setMaxCallDepth(int depth) {
+		if (depth<1)
+			throw new IllegalArgumentException("depth must be positive"); //$NON-NLS-1$
+		this.maxCallDepth = depth;
 	}
 	
 	/** Run the interpreter.
 	 */
 	public void run() {
-		ExecutionContext rootContext = new ExecutionContext();
-		boolean stop = false;
-		while (!stop) {
-			ThreeAddressRecord record = rootContext.getRecord(this.code);
-			if (record!=null) {
-				stop = run(record, rootContext);
-			}
-			else {
-				stop = true;
-			}
+		ExecutionContext context = new ExecutionContext(this.code, this.maxCallDepth);
+		InstructionHandler[] code = this.handlers;
+		int pc = 0;
+		while (pc>=0 && pc<code.length) {
+			pc = code[pc].execute(context);
 		}
 	}
 	
-	private boolean run(ThreeAddressRecord record, ExecutionContext context) {
-		switch(record.instruction()) {
+	/** Decode the record at the given address.
+	 * 
+	 * @param address
+	 * @return the handler of the record.
+	 */
+	private InstructionHandler decode(final int address) {
+		final int arg1 = this.code.getArgument1(address);
+		final int arg2 = this.code.getArgument2(address);
+		final int result = this.code.getResult(address);
+		final int next = address + 1;
+		switch(this.code.getRecord(address).instruction()) {
 		case ADDITION:
-			add(record, context);
-			break;
+			return (context) -> {
+				add(context, arg1, arg2, result);
+				return next;
+			};
 		case SUBSTRACTION:
-			substract(record, context);
-			break;
+			return (context) -> {
+				substract(context, arg1, arg2, result);
+				return next;
+			};
 		case MULTIPLICATION:
-			multiply(record, context);
-			break;
+			return (context) -> {
+				multiply(context, arg1, arg2, result);
+				return next;
+			};
 		case DIVISION:
-			divide(record, context);
-			break;
+			return (context) -> {
+				divide(context, arg1, arg2, result);
+				return next;
+			};
 		case MINUS:
-			minus(record, context);
-			break;
+			return (context) -> {
+				minus(context, arg1, result);
+				return next;
+			};
 		case BOOLEAN_AND:
-			and(record, context);
-			break;
+			return (context) -> {
+				RegisterFile registers = context.getRegisters();
+				booleanOperands(context, arg1, arg2);
+				registers.setBoolean(result, registers.getBoolean(arg1) && registers.getBoolean(arg2));
+				return next;
+			};
 		case BOOLEAN_OR:
-			or(record, context);
-			break;
+			return (context) -> {
+				RegisterFile registers = context.getRegisters();
+				booleanOperands(context, arg1, arg2);
+				registers.setBoolean(result, registers.getBoolean(arg1) || registers.getBoolean(arg2));
+				return next;
+			};
 		case BOOLEAN_XOR:
-			xor(record, context);
-			break;
+			return (context) -> {
+				RegisterFile registers = context.getRegisters();
+				booleanOperands(context, arg1, arg2);
+				registers.setBoolean(result, registers.getBoolean(arg1) ^ registers.getBoolean(arg2));
+				return next;
+			};
 		case BOOLEAN_NOT:
-			not(record, context);
-			break;
+			return (context) -> {
+				not(context, arg1, result);
+				return next;
+			};
 		case BOOLEAN_EQUAL:
-			equal(record, context);
-			break;
+			return (context) -> {
+				context.getRegisters().setBoolean(result, isEqual(context, arg1, arg2));
+				return next;
+			};
 		case BOOLEAN_DIFF:
-			diff(record, context);
-			break;
+			return (context) -> {
+				context.getRegisters().setBoolean(result, !isEqual(context, arg1, arg2));
+				return next;
+			};
 		case BOOLEAN_GREATER:
-			gt(record, context);
-			break;
+			return (context) -> {
+				context.getRegisters().setBoolean(result, compare(context, arg1, arg2)>0);
+				return next;
+			};
 		case BOOLEAN_GREATER_EQUAL:
-			ge(record, context);
-			break;
+			return (context) -> {
+				context.getRegisters().setBoolean(result, compare(context, arg1, arg2)>=0);
+				return next;
+			};
 		case BOOLEAN_LESS:
-			lt(record, context);
-			break;
+			return (context) -> {
+				context.getRegisters().setBoolean(result, compare(context, arg1, arg2)<0);
+				return next;
+			};
 		case BOOLEAN_LESS_EQUAL:
-			le(record, context);
-			break;
+			return (context) -> {
+				context.getRegisters().setBoolean(result, compare(context, arg1, arg2)<=0);
+				return next;
+			};
 		case EXIT:
-			return true;
+			return (context) -> InstructionHandler.STOP;
 		case JUMP:
-			jmp(record, context);
-			break;
+			if (this.code.isComputedTarget(address)) {
+				return (context) -> context.getInstructionPosition(address);
+			}
+			final int target = this.code.getTarget(address, null);
+			return (context) -> target;
 		case JUMP_IF_FALSE:
-			jmpf(record, context);
-			break;
+			if (this.code.isComputedTarget(address)) {
+				return (context) -> jumpIf(context, arg2, false, context.getInstructionPosition(address), next);
+			}
+			final int falseTarget = this.code.getTarget(address, null);
+			return (context) -> jumpIf(context, arg2, false, falseTarget, next);
 		case JUMP_IF_TRUE:
-			jmpt(record, context);
-			break;
+			if (this.code.isComputedTarget(address)) {
+				return (context) -> jumpIf(context, arg2, true, context.getInstructionPosition(address), next);
+			}
+			final int trueTarget = this.code.getTarget(address, null);
+			return (context) -> jumpIf(context, arg2, true, trueTarget, next);
+		case LOOKUP_SWITCH:
+			return (context) -> lookupSwitch(context, address, arg1, result, next);
 		case SET:
-			set(record, context);
-			break;
+			return (context) -> {
+				context.getValue(arg1, context.getRegisters(), result);
+				return next;
+			};
 		case PRINT:
-			print(record, context);
-			break;
+			return (context) -> {
+				context.checkValue(arg1);
+				System.out.print(context.getRegisters().toString(arg1));
+				return next;
+			};
 		case ERROR:
-			error(record, context);
-			break;
+			return (context) -> {
+				context.checkValue(arg1);
+				System.err.println(context.getRegisters().toString(arg1));
+				System.exit(1);
+				return InstructionHandler.STOP;
+			};
 		case READ:
-			read(record, context);
-			break;
+			return (context) -> {
+				read(context, result);
+				return next;
+			};
 		case CALL_PARAMETER:
-			param(record, context);
-			break;
+			return (context) -> {
+				context.addParameter(arg1);
+				return next;
+			};
 		case CALL:
-			callFunction(record, context);
-			break;
+			return decodeCall(address, arg2, result, next);
 		case FORMAL_PARAMETER:
-			formalParameter(record, context);
-			break;
+			return decodeFormalParameter(arg1, result, next);
 		case RETURN:
-			returnFunction(record, context);
-			break;
+			return (context) -> context.returnFunction(arg1);
 		case ARRAY_GET:
-			getArray(record, context);
-			break;
+			return (context) -> {
+				context.getArrayElement(arg1, arg2, result);
+				return next;
+			};
 		case ARRAY_SET:
-			setArray(record, context);
-			break;
+			return (context) -> {
+				context.setArrayElement(result, arg1, arg2);
+				return next;
+			};
 		}
-		return false;
+		throw new IllegalStateException();
 	}
 	
-	private void setArray(ThreeAddressRecord record, ExecutionContext context) {
-		String index = record.getArgument1();
-		String value = record.getArgument2();
-		String array = record.getResult();
-		
-		value = context.getValue(value);
-		index = context.getValue(index);
-		
-		context.setArrayElement(array, index, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void getArray(ThreeAddressRecord record, ExecutionContext context) {
-		String array = record.getArgument1();
-		String index = record.getArgument2();
-		String result = record.getResult();
-
-		index = context.getValue(index);
-		String value = context.getArrayElement(array, index);
-
-		context.setValue(result, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void returnFunction(ThreeAddressRecord record, ExecutionContext context) {
-		context.returnFunction(record.getArgument1());
-	}
-
-	private void formalParameter(ThreeAddressRecord record, ExecutionContext context) {
-		String n = record.getArgument1();
-		if (!Util.isInteger(n))
-			throw new RuntimeException("the parameter of the formal_parameter must be an integer."); //$NON-NLS-1$
-		int number = Integer.parseInt(n);
-		
-		String result = record.getResult();
-		
-		String value = context.getFormalParameter(number);
-		
-		context.setValue(result, value);
-		context.moveOrdinalCounter();
+	/** Decode a call. The number of parameters is read
+	 * once if it is given by a literal.
+	 * 
+	 * @param address is the address of the call.
+	 * @param nbParams is the register of the number of parameters.
+	 * @param result is the register of the returned value.
+	 * @param next is the address of the instruction that follows the call.
+	 * @return the handler.
+	 */
+	private InstructionHandler decodeCall(final int address, final int nbParams, final int result, final int next) {
+		RegisterFile literals = this.code.getInitialRegisters();
+		if (!this.code.isComputedTarget(address)
+			&& this.code.isLiteral(nbParams) && literals.getKind(nbParams)==RegisterFile.INTEGER) {
+			final int target = this.code.getTarget(address, null);
+			final int n = (int)literals.getInteger(nbParams);
+			return (context) -> context.callFunction(target, n, result, next);
+		}
+		return (context) -> {
+			int position = context.getInstructionPosition(address);
+			RegisterFile registers = context.getRegisters();
+			context.checkValue(nbParams);
+			if (registers.getKind(nbParams)!=RegisterFile.INTEGER)
+				throw new RuntimeException("the second parameter of CALL must be an integer"); //$NON-NLS-1$
+			return context.callFunction(position, (int)registers.getInteger(nbParams), result, next);
+		};
 	}
 
-	private void callFunction(ThreeAddressRecord record, ExecutionContext context) {
-		String adr = record.getArgument1();
-		int position = context.getInstructionPosition(adr, this.code);
-
-		String n = record.getArgument2();
-		n = context.getValue(n);
-		if (!Util.isInteger(n))
-			throw new RuntimeException("the second parameter of CALL must be an integer"); //$NON-NLS-1$
-		int nbParams = Integer.parseInt(n);
-		
-		String result = record.getResult();
-		
-		context.callFunction(position, nbParams, result);
+	/** Decode the read of a formal parameter. The index of the
+	 * parameter is read once if it is given by a literal.
+	 * 
+	 * @param n is the register of the index of the parameter.
+	 * @param result is the register in which the parameter is put.
+	 * @param next is the address of the next instruction.
+	 * @return the handler.
+	 */
+	private InstructionHandler decodeFormalParameter(final int n, final int result, final int next) {
+		RegisterFile literals = this.code.getInitialRegisters();
+		if (this.code.isLiteral(n) && literals.getKind(n)==RegisterFile.INTEGER) {
+			final int number = (int)literals.getInteger(n);
+			return (context) -> {
+				context.getFormalParameter(number, result);
+				return next;
+			};
+		}
+		return (context) -> {
+			RegisterFile registers = context.getRegisters();
+			if (registers.getKind(n)!=RegisterFile.INTEGER)
+				throw new RuntimeException("the parameter of the formal_parameter must be an integer."); //$NON-NLS-1$
+			context.getFormalParameter((int)registers.getInteger(n), result);
+			return next;
+		};
 	}
 
-	private void param(ThreeAddressRecord record, ExecutionContext context) {
-		String value = record.getArgument1();
-		value = context.getValue(value);
-		context.addParameter(value);
-		context.moveOrdinalCounter();
+	private int lookupSwitch(ExecutionContext context, int address, int value, int result, int next) {
+		RegisterFile registers = context.getRegisters();
+		context.checkValue(value);
+		if (!registers.isNumber(value)) {
+			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
+		}
+		int entry = LoadedCode.NO_REGISTER;
+		if (registers.getKind(value)==RegisterFile.INTEGER) {
+			entry = this.code.lookup(address, registers.getInteger(value));
+		}
+		if (entry!=LoadedCode.NO_REGISTER) {
+			registers.copy(entry, registers, result);
+			return next;
+		}
+		return context.getInstructionPosition(address);
 	}
 
-	private void read(ThreeAddressRecord record, ExecutionContext context) {
-		String variable = record.getResult();
+	private static void read(ExecutionContext context, int result) {
 		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 		String line;
 		try {
@@ -226,499 +343,208 @@ public class ThreeAddressCodeInterpreter {
 		catch (IOException e) {
 			throw new RuntimeException(e);
 		}
-		if (!Util.isNumber(line) && !Util.isBoolean(line))
-			line = Util.stringify(line);
-		context.setValue(variable, line);
-		context.moveOrdinalCounter();
+		context.getRegisters().setText(result, line);
 	}
 
-	private void print(ThreeAddressRecord record, ExecutionContext context) {
-		String value = record.getArgument1();
-		value = context.getValue(value);
-		if (Util.isString(value)) {
-			System.out.print(Util.unstringify(value));
+	private static int jumpIf(ExecutionContext context, int condition, boolean expected, int position, int next) {
+		context.checkValue(condition);
+		RegisterFile registers = context.getRegisters();
+		if (position>=0 && registers.getKind(condition)==RegisterFile.BOOLEAN) {
+			return (registers.getBoolean(condition)==expected) ? position : next;
 		}
-		else {
-			System.out.print(value);
-		}
-		context.moveOrdinalCounter();
-	}
-
-	private void error(ThreeAddressRecord record, ExecutionContext context) {
-		String value = record.getArgument1();
-		value = context.getValue(value);
-		if (Util.isString(value)) {
-			System.err.println(Util.unstringify(value));
-		}
-		else {
-			System.err.println(value);
-		}
-		System.exit(1);
-	}
-
-	private void set(ThreeAddressRecord record, ExecutionContext context) {
-		String value = record.getArgument1();
-		String result = record.getResult();
-		value = context.getValue(value);
-		context.setValue(result, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void jmp(ThreeAddressRecord record, ExecutionContext context) {
-		String address = record.getArgument1();
-		int position = context.getInstructionPosition(address, this.code);
-		context.moveOrdinalCounter(position);
+		throw new RuntimeException("Illegal instruction"); //$NON-NLS-1$
 	}
 	
-	private void jmpf(ThreeAddressRecord record, ExecutionContext context) {
-		String address = record.getArgument1();
-		int position = context.getInstructionPosition(address, this.code);
-		String arg = record.getArgument2();
-		arg = context.getValue(arg);
-		if (position>=0 && Util.isBoolean(arg)) {
-			if (Boolean.parseBoolean(arg))
-				context.moveOrdinalCounter();
-			else
-				context.moveOrdinalCounter(position);
-		}
-		else
-			throw new RuntimeException("Illegal instruction"); //$NON-NLS-1$
-	}
-
-	private void jmpt(ThreeAddressRecord record, ExecutionContext context) {
-		String address = record.getArgument1();
-		int position = context.getInstructionPosition(address, this.code);
-		String arg = record.getArgument2();
-		arg = context.getValue(arg);
-		if (position>=0 && Util.isBoolean(arg)) {
-			if (Boolean.parseBoolean(arg))
-				context.moveOrdinalCounter(position);
-			else
-				context.moveOrdinalCounter();
-		}
-		else
-			throw new RuntimeException("Illegal instruction"); //$NON-NLS-1$
-	}
-
-	private void lt(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isString(left) && Util.isString(right)) {
-			value = Boolean.toString(left.compareTo(right)<0);
-		}
-		else if (Util.isNumber(left) && Util.isNumber(right)) {
-			value = Boolean.toString(Double.parseDouble(left) < Double.parseDouble(right));
-		}
-		else {
-			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void le(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isString(left) && Util.isString(right)) {
-			value = Boolean.toString(left.compareTo(right)<=0);
-		}
-		else if (Util.isNumber(left) && Util.isNumber(right)) {
-			value = Boolean.toString(Double.parseDouble(left) <= Double.parseDouble(right));
-		}
-		else {
-			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void gt(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
+	/** Compare the given operands.
+	 * 
+	 * @param context
+	 * @param left is the register of the left operand.
+	 * @param right is the register of the right operand.
+	 * @return the comparison of the strings or of the numbers.
+	 */
+	private static int compare(ExecutionContext context, int left, int right) {
+		context.checkValue(left);
+		context.checkValue(right);
+		RegisterFile registers = context.getRegisters();
 		
-		if (Util.isString(left) && Util.isString(right)) {
-			value = Boolean.toString(left.compareTo(right)>0);
-		}
-		else if (Util.isNumber(left) && Util.isNumber(right)) {
-			value = Boolean.toString(Double.parseDouble(left) > Double.parseDouble(right));
+		if (registers.getKind(left)==RegisterFile.STRING && registers.getKind(right)==RegisterFile.STRING) {
+			return ((String)registers.getObject(left)).compareTo((String)registers.getObject(right));
 		}
-		else {
-			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
+		else if (registers.isNumber(left) && registers.isNumber(right)) {
+			return Double.compare(registers.getNumber(left), registers.getNumber(right));
 		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+		throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
 	}
-
-	private void ge(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isString(left) && Util.isString(right)) {
-			value = Boolean.toString(left.compareTo(right)>=0);
-		}
-		else if (Util.isNumber(left) && Util.isNumber(right)) {
-			value = Boolean.toString(Double.parseDouble(left) >= Double.parseDouble(right));
-		}
-		else {
-			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void equal(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isString(left) && Util.isString(right)) {
-			value = Boolean.toString(left.equals(right));
-		}
-		else if (Util.isNumber(left) && Util.isNumber(right)) {
-			value = Boolean.toString(Double.parseDouble(left) == Double.parseDouble(right));
-		}
-		else if (Util.isBoolean(left) && Util.isBoolean(right)) {
-			value = Boolean.toString(Boolean.parseBoolean(left) == Boolean.parseBoolean(right));
-		}
-		else {
-			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
-	}
-
-	private void diff(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
+	
+	/** Replies if the given operands are equal.
+	 * 
+	 * @param context
+	 * @param left is the register of the left operand.
+	 * @param right is the register of the right operand.
+	 * @return <code>true</code> if the strings, the numbers or the booleans are equal.
+	 */
+	private static boolean isEqual(ExecutionContext context, int left, int right) {
+		context.checkValue(left);
+		context.checkValue(right);
+		RegisterFile registers = context.getRegisters();
+		byte leftKind = registers.getKind(left);
+		byte rightKind = registers.getKind(right);
 		
-		if (Util.isString(left) && Util.isString(right)) {
-			value = Boolean.toString(!left.equals(right));
-		}
-		else if (Util.isNumber(left) && Util.isNumber(right)) {
-			value = Boolean.toString(Double.parseDouble(left) != Double.parseDouble(right));
+		if (leftKind==RegisterFile.STRING && rightKind==RegisterFile.STRING) {
+			return registers.getObject(left).equals(registers.getObject(right));
 		}
-		else if (Util.isBoolean(left) && Util.isBoolean(right)) {
-			value = Boolean.toString(Boolean.parseBoolean(left) != Boolean.parseBoolean(right));
+		else if (registers.isNumber(left) && registers.isNumber(right)) {
+			return registers.getNumber(left) == registers.getNumber(right);
 		}
-		else {
-			throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
+		else if (leftKind==RegisterFile.BOOLEAN && rightKind==RegisterFile.BOOLEAN) {
+			return registers.getBoolean(left) == registers.getBoolean(right);
 		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+		throw new RuntimeException("Illegal type of operand"); //$NON-NLS-1$
 	}
-
-	private void and(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
+	
+	/** Check that the given operands are booleans.
+	 * 
+	 * @param context
+	 * @param left is the register of the left operand.
+	 * @param right is the register of the right operand.
+	 */
+	private static void booleanOperands(ExecutionContext context, int left, int right) {
+		context.checkValue(left);
+		context.checkValue(right);
+		RegisterFile registers = context.getRegisters();
 		
-		if (Util.isBoolean(left)) {
-			if (Util.isBoolean(right)) {
-				value = Boolean.toString(Boolean.parseBoolean(left) && Boolean.parseBoolean(right));
-			}
-			else {
+		if (registers.getKind(left)==RegisterFile.BOOLEAN) {
+			if (registers.getKind(right)!=RegisterFile.BOOLEAN) {
 				throw new RuntimeException("Right operand is not a boolean value"); //$NON-NLS-1$
 			}
 		}
-		else if (Util.isBoolean(right)) {
+		else if (registers.getKind(right)==RegisterFile.BOOLEAN) {
 			throw new RuntimeException("Left operand is not a boolean value"); //$NON-NLS-1$
 		}
 		else {
 			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
 		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
 	}
 
-	private void or(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
+	private static void not(ExecutionContext context, int left, int result) {
+		RegisterFile registers = context.getRegisters();
+		context.checkValue(left);
 		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isBoolean(left)) {
-			if (Util.isBoolean(right)) {
-				value = Boolean.toString(Boolean.parseBoolean(left) || Boolean.parseBoolean(right));
-			}
-			else {
-				throw new RuntimeException("Right operand is not a boolean value"); //$NON-NLS-1$
-			}
-		}
-		else if (Util.isBoolean(right)) {
-			throw new RuntimeException("Left operand is not a boolean value"); //$NON-NLS-1$
-		}
-		else {
+		if (registers.getKind(left)!=RegisterFile.BOOLEAN) {
 			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
 		}
 		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+		registers.setBoolean(result, !registers.getBoolean(left));
 	}
-
-	private void xor(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
+	
+	/** Check that the given operands are numbers.
+	 * 
+	 * @param context
+	 * @param left is the register of the left operand.
+	 * @param right is the register of the right operand.
+	 */
+	private static void numberOperands(ExecutionContext context, int left, int right) {
+		context.checkValue(left);
+		context.checkValue(right);
+		RegisterFile registers = context.getRegisters();
 		
-		if (Util.isBoolean(left)) {
-			if (Util.isBoolean(right)) {
-				value = Boolean.toString(Boolean.parseBoolean(left) ^ Boolean.parseBoolean(right));
-			}
-			else {
-				throw new RuntimeException("Right operand is not a boolean value"); //$NON-NLS-1$
+		if (registers.isNumber(left)) {
+			if (!registers.isNumber(right)) {
+				throw new RuntimeException("Right operand is not a number"); //$NON-NLS-1$
 			}
 		}
-		else if (Util.isBoolean(right)) {
-			throw new RuntimeException("Left operand is not a boolean value"); //$NON-NLS-1$
+		else if (registers.isNumber(right)) {
+			throw new RuntimeException("Left operand is not a number"); //$NON-NLS-1$
 		}
 		else {
 			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
 		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
 	}
 
-	private void not(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		
-		String value;
-		
-		if (Util.isBoolean(left)) {
-			value = Boolean.toString(!Boolean.parseBoolean(left));
-		}
-		else {
-			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+	/** Replies if the given integer number is the exact result
+	 * of the same operation on real numbers. Beyond 2^53, the
+	 * integer operations are done on real numbers, as the
+	 * interpreter has always done.
+	 * 
+	 * @param value
+	 * @return <code>true</code> if the value is exactly represented
+	 * by a real number.
+	 */
+	private static boolean isExactDouble(long value) {
+		return value>=-MAX_EXACT_INTEGER && value<=MAX_EXACT_INTEGER;
 	}
 
-	private void add(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
+	private static void add(ExecutionContext context, int left, int right, int r) {
+		RegisterFile registers = context.getRegisters();
+		context.checkValue(left);
+		context.checkValue(right);
 		
-		if (Util.isString(left)) {
-			String rv;
-			if (Util.isArray(right)) {
-				String[] tab = Util.parseArray(right);
-				for(int i=0; i<tab.length; ++i) {
-					tab[i] = Util.unstringify(tab[i]);
-				}
-				rv = Arrays.toString(tab);
-			}
-			else {
-				rv = Util.unstringify(right);
-			}
-			value = Util.stringify(Util.unstringify(left) + rv);
+		if (registers.getKind(left)==RegisterFile.STRING || registers.getKind(right)==RegisterFile.STRING) {
+			registers.setString(r, registers.toString(left) + registers.toString(right));
 		}
-		else if (Util.isString(right)) {
-			String lv;
-			if (Util.isArray(left)) {
-				String[] tab = Util.parseArray(left);
-				for(int i=0; i<tab.length; ++i) {
-					tab[i] = Util.unstringify(tab[i]);
+		else {
+			numberOperands(context, left, right);
+			if (registers.getKind(left)==RegisterFile.INTEGER && registers.getKind(right)==RegisterFile.INTEGER) {
+				long a = registers.getInteger(left);
+				long b = registers.getInteger(right);
+				long s = a + b;
+				if (((a ^ s) & (b ^ s)) < 0 || !isExactDouble(s)) {
+					registers.setNumber(r, (double)a + (double)b);
+				}
+				else {
+					registers.setInteger(r, s);
 				}
-				lv = Arrays.toString(tab);
-			}
-			else {
-				lv = Util.unstringify(left);
-			}
-			value = Util.stringify(lv + Util.unstringify(right));
-		}
-		else if (Util.isNumber(left)) {
-			if (Util.isNumber(right)) {
-				value = Util.toString(Double.parseDouble(left) + Double.parseDouble(right));
 			}
 			else {
-				throw new RuntimeException("Right operand is not a number"); //$NON-NLS-1$
+				registers.setNumber(r, registers.getNumber(left) + registers.getNumber(right));
 			}
 		}
-		else if (Util.isNumber(right)) {
-			throw new RuntimeException("Left operand is not a number"); //$NON-NLS-1$
-		}
-		else {
-			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
 	}
 	
-	private void substract(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isNumber(left)) {
-			if (Util.isNumber(right)) {
-				value = Util.toString(Double.parseDouble(left) - Double.parseDouble(right));
+	private static void substract(ExecutionContext context, int left, int right, int r) {
+		RegisterFile registers = context.getRegisters();
+		numberOperands(context, left, right);
+		
+		if (registers.getKind(left)==RegisterFile.INTEGER && registers.getKind(right)==RegisterFile.INTEGER) {
+			long a = registers.getInteger(left);
+			long b = registers.getInteger(right);
+			long d = a - b;
+			if (((a ^ b) & (a ^ d)) < 0 || !isExactDouble(d)) {
+				registers.setNumber(r, (double)a - (double)b);
 			}
 			else {
-				throw new RuntimeException("Right operand is not a number"); //$NON-NLS-1$
+				registers.setInteger(r, d);
 			}
 		}
-		else if (Util.isNumber(right)) {
-			throw new RuntimeException("Left operand is not a number"); //$NON-NLS-1$
-		}
 		else {
-			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
+			registers.setNumber(r, registers.getNumber(left) - registers.getNumber(right));
 		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
 	}
 
-	private void multiply(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isNumber(left)) {
-			if (Util.isNumber(right)) {
-				value = Util.toString(Double.parseDouble(left) * Double.parseDouble(right));
-			}
-			else {
-				throw new RuntimeException("Right operand is not a number"); //$NON-NLS-1$
-			}
-		}
-		else if (Util.isNumber(right)) {
-			throw new RuntimeException("Left operand is not a number"); //$NON-NLS-1$
-		}
-		else {
-			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
-		}
-		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+	private static void multiply(ExecutionContext context, int left, int right, int r) {
+		RegisterFile registers = context.getRegisters();
+		numberOperands(context, left, right);
+		registers.setNumber(r, registers.getNumber(left) * registers.getNumber(right));
 	}
 
-	private void divide(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String right = record.getArgument2();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
-		right = context.getValue(right);
-		
-		String value;
-		
-		if (Util.isNumber(left)) {
-			if (Util.isNumber(right)) {
-				double op = Double.parseDouble(right);
-				if (op==0.) throw new RuntimeException("division by zero");  //$NON-NLS-1$
-				value = Util.toString(Double.parseDouble(left) / op);
-			}
-			else {
-				throw new RuntimeException("Right operand is not a number"); //$NON-NLS-1$
-			}
-		}
-		else if (Util.isNumber(right)) {
-			throw new RuntimeException("Left operand is not a number"); //$NON-NLS-1$
-		}
-		else {
-			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
-		}
+	private static void divide(ExecutionContext context, int left, int right, int r) {
+		RegisterFile registers = context.getRegisters();
+		numberOperands(context, left, right);
 		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+		double op = registers.getNumber(right);
+		if (op==0.) throw new RuntimeException("division by zero");  //$NON-NLS-1$
+		registers.setNumber(r, registers.getNumber(left) / op);
 	}
 
-	private void minus(ThreeAddressRecord record, ExecutionContext context) {
-		String left = record.getArgument1();
-		String r = record.getResult();
-		
-		left = context.getValue(left);
+	private static void minus(ExecutionContext context, int left, int r) {
+		RegisterFile registers = context.getRegisters();
+		context.checkValue(left);
 		
-		String value;
-		
-		if (Util.isNumber(left)) {
-			value = Util.toString(-Double.parseDouble(left));
-		}
-		else {
+		if (!registers.isNumber(left)) {
 			throw new RuntimeException("Invalid operand type"); //$NON-NLS-1$
 		}
 		
-		context.setValue(r, value);
-		context.moveOrdinalCounter();
+		registers.setNumber(r, -registers.getNumber(left));
 	}
 	
 }
@@ -46,7 +46,7 @@ public abstract class AbstractJumpTreeNode extends AbstractStatementTreeNode {
 	 */
 	protected String generateJumpMapping(ThreeAddressCode code, String line) {
 		code.addRecord(ThreeAddressInstruction.param(line));
-		code.addRecord(ThreeAddressInstruction.function("JMPMAP", 1, "@ret")); //$NON-NLS-1$ //$NON-NLS-2$
+		code.addRecord(ThreeAddressInstruction.function(ThreeAddressCode.BASIC_GOTO_FUNCTION, 1, "@ret")); //$NON-NLS-1$
 		return "@ret"; //$NON-NLS-1$
 	}
 	
@@ -20,15 +20,18 @@ package fr.utbm.info.da53.lw4.threeaddresscode;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import fr.utbm.info.da53.lw4.symbol.SymbolTable;
 import fr.utbm.info.da53.lw4.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw4.util.Util;
 
 /**
  * Three address code.
@@ -40,6 +43,11 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 
 	private static final long serialVersionUID = -5615410518220369534L;
 
+	/** Name of the function that is mapping a basic line number to an
+	 * three-address code label.
+	 */
+	public static final String BASIC_GOTO_FUNCTION = "JMPMAP"; //$NON-NLS-1$
+
 	private final SymbolTable symbolTable;
 	private List<ThreeAddressRecord> records = new ArrayList<ThreeAddressRecord>();
 
@@ -49,7 +57,11 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 
 	/** Basic line -&gt; Instruction address
 	 */
-	private Map<Integer, Integer> basicLines = new TreeMap<Integer, Integer>();
+	private SortedMap<Integer, Integer> basicLines = new TreeMap<Integer, Integer>();
+
+	/** Label -&gt; address
+	 */
+	private Map<String,Integer> labelMapping = new TreeMap<String,Integer>();
 
 	private int nbTempNames = 0;
 	private int labelNumber = 0;
@@ -61,7 +73,9 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 */
 	public ThreeAddressCode(SymbolTable symbolTable) {
 		this.symbolTable = symbolTable;
-		this.records.add(ThreeAddressInstruction.jump("INIT")); //$NON-NLS-1$
+		ThreeAddressRecord init = ThreeAddressInstruction.jump("INIT"); //$NON-NLS-1$
+		init.setIndex(0);
+		this.records.add(init);
 	}
 
 	/**
@@ -93,6 +107,7 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 			clone.stringLiterals = new TreeMap<String, String>(
 					this.stringLiterals);
 			clone.basicLines = new TreeMap<Integer, Integer>(this.basicLines);
+			clone.labelMapping = new TreeMap<String, Integer>(this.labelMapping);
 			return clone;
 		} catch (CloneNotSupportedException e) {
 			throw new Error(e);
@@ -106,6 +121,8 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 */
 	public void addRecord(ThreeAddressRecord record) {
 		if (record != null) {
+			int index = this.records.size();
+			record.setIndex(index);
 			this.records.add(record);
 			if (this.firstLabel == null) {
 				if (this.nextLabel != null) {
@@ -116,6 +133,9 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 				}
 			}
 			record.setLabel(this.nextLabel);
+			if (this.nextLabel != null && !this.labelMapping.containsKey(this.nextLabel)) {
+				this.labelMapping.put(this.nextLabel, index);
+			}
 			this.nextLabel = null;
 		}
 	}
@@ -127,6 +147,10 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 * @return the address, or <code>-1</code> if not found.
 	 */
 	public int getAddress(ThreeAddressRecord record) {
+		int index = record.getIndex();
+		if (index >= 0 && index < this.records.size() && this.records.get(index) == record) {
+			return index;
+		}
 		return this.records.indexOf(record);
 	}
 
@@ -169,14 +193,8 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 * @return the index or, {@code -1} if not found.
 	 */
 	public int getAddressFor(String label) {
-		int i = 0;
-		for (ThreeAddressRecord record : this.records) {
-			if (label.equals(record.getLabel())) {
-				return i;
-			}
-			++i;
-		}
-		return -1;
+		Integer address = this.labelMapping.get(label);
+		return (address == null) ? -1 : address.intValue();
 	}
 
 	/**
@@ -238,6 +256,210 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 		}
 	}
 
+	/**
+	 * Replies the addresses of the first records of the Basic lines.
+	 * 
+	 * @return the map from the Basic lines to the addresses.
+	 */
+	public SortedMap<Integer, Integer> getBasicLines() {
+		return Collections.unmodifiableSortedMap(this.basicLines);
+	}
+
+	/**
+	 * Remove the Basic lines that are not in the given collection.
+	 * The first records of the removed lines are no more the targets
+	 * of the jumps to a Basic line.
+	 * 
+	 * @param lines are the Basic lines to keep.
+	 */
+	public void retainBasicLines(Collection<Integer> lines) {
+		this.basicLines.keySet().retainAll(lines);
+	}
+
+	/**
+	 * Replace or remove records of the code.
+	 * <p>
+	 * The record at each address is replaced by the record at the same
+	 * index in the given array, or removed when this element is <code>null</code>.
+	 * A replacing record receives the label and the comment of the replaced
+	 * record. The nearest label and comment of the removed records that
+	 * precede a kept record are moved to it; the jumps to the other removed
+	 * labels are redirected to the label of the kept record. A Basic line
+	 * that starts with a removed record starts with the next kept record.
+	 *
+	 * @param replacements
+	 *            are the records of the code, indexed by address.
+	 * @return the number of removed records.
+	 */
+	public int rewrite(ThreeAddressRecord[] replacements) {
+		return rewrite(replacements, Collections.<Integer,List<ThreeAddressRecord>>emptyMap());
+	}
+
+	/**
+	 * Replace, remove or insert records of the code.
+	 * <p>
+	 * The records are replaced or removed as by {@link #rewrite(ThreeAddressRecord[])}.
+	 * The records associated to an address are inserted before the
+	 * record at this address. They are run only by the records that
+	 * precede them: the jumps to the record at this address, and the
+	 * Basic line that starts with it, are not changed.
+	 *
+	 * @param replacements
+	 *            are the records of the code, indexed by address.
+	 * @param insertions
+	 *            are the records to insert, indexed by the address of
+	 *            the record before which they are inserted.
+	 * @return the number of removed records.
+	 */
+	public int rewrite(ThreeAddressRecord[] replacements, Map<Integer,List<ThreeAddressRecord>> insertions) {
+		int n = this.records.size();
+		assert(replacements.length==n);
+		List<ThreeAddressRecord> newRecords = new ArrayList<ThreeAddressRecord>(n);
+		int[] newAddresses = new int[n];
+		Map<String,String> aliases = new TreeMap<String,String>();
+		List<String> pendingLabels = new ArrayList<String>();
+		String pendingComment = null;
+		int removed = 0;
+		for(int address=0; address<n; ++address) {
+			ThreeAddressRecord original = this.records.get(address);
+			ThreeAddressRecord record = replacements[address];
+			List<ThreeAddressRecord> inserted = insertions.get(address);
+			if (inserted!=null) {
+				for(ThreeAddressRecord insertedRecord : inserted) {
+					insertedRecord.setIndex(newRecords.size());
+					newRecords.add(insertedRecord);
+				}
+			}
+			newAddresses[address] = newRecords.size();
+			if (record==null) {
+				++removed;
+				if (original.getLabel()!=null) {
+					pendingLabels.add(original.getLabel());
+				}
+				if (original.getComment()!=null) {
+					pendingComment = original.getComment();
+				}
+				continue;
+			}
+			if (record!=original) {
+				record.copyAnnotations(original);
+			}
+			if (pendingComment!=null) {
+				if (record.getComment()==null) {
+					if (record==original) {
+						record = record.clone();
+					}
+					record.setComment(pendingComment);
+				}
+				pendingComment = null;
+			}
+			if (!pendingLabels.isEmpty()) {
+				String label = record.getLabel();
+				if (label==null) {
+					label = pendingLabels.get(pendingLabels.size() - 1);
+					if (record==original) {
+						record = record.clone();
+					}
+					record.setLabel(label);
+				}
+				for(String pendingLabel : pendingLabels) {
+					if (!pendingLabel.equals(label)) {
+						aliases.put(pendingLabel, label);
+					}
+				}
+				pendingLabels.clear();
+			}
+			record.setIndex(newRecords.size());
+			newRecords.add(record);
+		}
+
+		if (!aliases.isEmpty()) {
+			for(int address=0; address<newRecords.size(); ++address) {
+				ThreeAddressRecord record = redirect(newRecords.get(address), aliases);
+				if (record!=null) {
+					record.setIndex(address);
+					newRecords.set(address, record);
+				}
+			}
+			String first = aliases.get(this.firstLabel);
+			if (first!=null) {
+				this.firstLabel = first;
+			}
+		}
+
+		this.records = newRecords;
+		this.labelMapping.clear();
+		for(int address=0; address<newRecords.size(); ++address) {
+			String label = newRecords.get(address).getLabel();
+			if (label!=null && !this.labelMapping.containsKey(label)) {
+				this.labelMapping.put(label, address);
+			}
+		}
+		Iterator<Entry<Integer,Integer>> iterator = this.basicLines.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<Integer,Integer> entry = iterator.next();
+			int address = entry.getValue().intValue();
+			int newAddress = (address<n) ? newAddresses[address] : newRecords.size();
+			if (newAddress<newRecords.size()) {
+				entry.setValue(newAddress);
+			}
+			else {
+				iterator.remove();
+			}
+		}
+		return removed;
+	}
+
+	/** Replies a copy of the given record in which the labels are
+	 * replaced by their aliases.
+	 *
+	 * @param record
+	 * @param aliases
+	 * @return the copy, or <code>null</code> if the record does not refer to an alias.
+	 */
+	private static ThreeAddressRecord redirect(ThreeAddressRecord record, Map<String,String> aliases) {
+		String argument1 = record.getArgument1();
+		String argument2 = record.getArgument2();
+		SortedMap<Integer,String> table = record.getTable();
+		boolean changed = false;
+		switch(record.instruction()) {
+		case JUMP:
+		case JUMP_IF_TRUE:
+		case JUMP_IF_FALSE:
+		case CALL:
+			if (argument1!=null && aliases.containsKey(argument1)) {
+				argument1 = aliases.get(argument1);
+				changed = true;
+			}
+			break;
+		case LOOKUP_SWITCH:
+			if (argument2!=null && aliases.containsKey(argument2)) {
+				argument2 = aliases.get(argument2);
+				changed = true;
+			}
+			if (table!=null) {
+				SortedMap<Integer,String> newTable = new TreeMap<Integer,String>(table);
+				for(Entry<Integer,String> entry : newTable.entrySet()) {
+					String label = Util.unstringify(entry.getValue());
+					if (aliases.containsKey(label)) {
+						entry.setValue(stringify(aliases.get(label)));
+						changed = true;
+					}
+				}
+				table = newTable;
+			}
+			break;
+		default:
+		}
+		if (!changed) {
+			return null;
+		}
+		ThreeAddressRecord copy = new ThreeAddressRecord(record.instruction(),
+				argument1, argument2, record.getResult(), table);
+		copy.copyAnnotations(record);
+		return copy;
+	}
+
 	/**
 	 * Finalize the generation of the three-address code.
 	 */
@@ -249,44 +471,34 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 		//
 		// Generate the JUMPING function
 		//
-		String returnLabel = createLabel();
+		String errorLabel = createLabel();
 		String param1 = createTempVariable();
 		String returnVal = createTempVariable();
 		String tmp = createTempVariable();
-		String nextLabel = null;
 				
-		setNextLabel("JMPMAP"); //$NON-NLS-1$
+		setNextLabel(BASIC_GOTO_FUNCTION);
 		addRecord(ThreeAddressInstruction.formalParam(param1, 0));
 		getRecord(getRecordCount()-1).setComment("Mapping table from a Basic line to address into the three-address-code"); //$NON-NLS-1$
 		
-		Iterator<Entry<Integer,Integer>> iterator = this.basicLines.entrySet().iterator();
-
-		while (iterator.hasNext()) {
-			Entry<Integer,Integer> entry = iterator.next();
+		SortedMap<Integer,String> table = new TreeMap<Integer,String>();
+		for(Entry<Integer,Integer> entry : this.basicLines.entrySet()) {
 			ThreeAddressRecord record = this.records.get(entry.getValue());
-
-			setNextLabel(nextLabel);
-			nextLabel = createLabel();
-			
 			if (record.getLabel()==null) {
 				String nLabel = createLabel();
 				record.setLabel(nLabel);
+				this.labelMapping.put(nLabel, entry.getValue());
 			}
-			
-			addRecord(ThreeAddressInstruction.eq(tmp, param1, Integer.toString(entry.getKey())));
-			addRecord(ThreeAddressInstruction.jumpIfFalse(tmp, nextLabel));
-			addRecord(ThreeAddressInstruction.set(returnVal, stringify(record.getLabel())));
-			addRecord(ThreeAddressInstruction.jump(returnLabel));
+			table.put(entry.getKey(), stringify(record.getLabel()));
 		}
 		
-		setNextLabel(nextLabel);
+		addRecord(ThreeAddressInstruction.lookupSwitch(returnVal, param1, errorLabel, table));
+		addRecord(ThreeAddressInstruction.returnFunction(returnVal));
+		
+		setNextLabel(errorLabel);
 		String errorMsg = createConstant("Illegal line number: "); //$NON-NLS-1$
 		addRecord(ThreeAddressInstruction.addition(tmp, errorMsg, param1));
 		addRecord(ThreeAddressInstruction.error(tmp));
 		
-		setNextLabel(returnLabel);
-		addRecord(ThreeAddressInstruction.returnFunction(returnVal));
-		
 		//
 		// Generate the string constants.
 		//
@@ -305,6 +517,9 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	}
 
 	private static String stringify(String s) {
+		if (!needsEscape(s)) {
+			return "\"" + s + "\""; //$NON-NLS-1$//$NON-NLS-2$
+		}
 		String r = s.replaceAll("\"", "\\\""); //$NON-NLS-1$//$NON-NLS-2$
 		r = r.replaceAll("[\n\r]", "\\\\n"); //$NON-NLS-1$//$NON-NLS-2$
 		r = r.replaceAll("[\t]", "\\\\t"); //$NON-NLS-1$//$NON-NLS-2$
@@ -312,6 +527,21 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 		return "\"" + r + "\""; //$NON-NLS-1$//$NON-NLS-2$
 	}
 
+	private static boolean needsEscape(String s) {
+		for (int i = 0; i < s.length(); ++i) {
+			switch (s.charAt(i)) {
+			case '"':
+			case '\n':
+			case '\r':
+			case '\t':
+			case '\f':
+				return true;
+			default:
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
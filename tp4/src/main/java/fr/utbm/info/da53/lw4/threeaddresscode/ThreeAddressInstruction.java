@@ -18,6 +18,8 @@
  */
 package fr.utbm.info.da53.lw4.threeaddresscode;
 
+import java.util.SortedMap;
+
 /**
  * List of the instructions supported by the
  * three-address code.
@@ -207,6 +209,16 @@ public enum ThreeAddressInstruction {
 		}
 	},
 
+	/** a = table[b], or jump to adr if b is not a key of the table.
+	 * The table is replied by {@link ThreeAddressRecord#getTable()}.
+	 */
+	LOOKUP_SWITCH {
+		@Override
+		public String toString(String arg1, String arg2, String result) {
+			return displayQuadruple(name(), arg1, arg2, result);
+		}
+	},
+
 	/** Procedure call parameter.
 	 */
 	CALL_PARAMETER {
@@ -397,6 +409,19 @@ public enum ThreeAddressInstruction {
 		return new ThreeAddressRecord(JUMP, label, null, null);
 	}
 
+	/** Create a {@link ThreeAddressRecord} for the 
+	 * {@link #LOOKUP_SWITCH} instruction.
+	 * 
+	 * @param result is the name of the variable that receives the value from the table.
+	 * @param value is the key to search in the table.
+	 * @param label is the label to go to when the key is not in the table.
+	 * @param table is the table.
+	 * @return the record.
+	 */
+	public static ThreeAddressRecord lookupSwitch(String result, String value, String label, SortedMap<Integer,String> table) {
+		return new ThreeAddressRecord(LOOKUP_SWITCH, value, label, result, table);
+	}
+
 	/** Create a {@link ThreeAddressRecord} for the 
 	 * {@link #BOOLEAN_LESS} instruction.
 	 * 
@@ -18,7 +18,13 @@
  */
 package fr.utbm.info.da53.lw4.threeaddresscode;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
 /**
  * Record in a the quadruple form of three address code.
@@ -37,10 +43,16 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 	private final String argument2;
 	private final String result;
 	
+	private final SortedMap<Integer,String> table;
+	
 	private String comment = null;
 	
+	private transient Supplier<String> lazyComment = null;
+	
 	private String label = null;
 	
+	private int index = -1;
+	
 	/**
 	 * @param instruction
 	 * @param argument1
@@ -52,6 +64,22 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 		this.argument1 = argument1;
 		this.argument2 = argument2;
 		this.result = result;
+		this.table = null;
+	}
+	
+	/**
+	 * @param instruction
+	 * @param argument1
+	 * @param argument2
+	 * @param result
+	 * @param table is the table of values indexed by integer keys.
+	 */
+	public ThreeAddressRecord(ThreeAddressInstruction instruction, String argument1, String argument2, String result, SortedMap<Integer,String> table) {
+		this.instruction = instruction;
+		this.argument1 = argument1;
+		this.argument2 = argument2;
+		this.result = result;
+		this.table = (table==null) ? null : Collections.unmodifiableSortedMap(new TreeMap<Integer,String>(table));
 	}
 	
 	/**
@@ -60,6 +88,7 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 	public ThreeAddressRecord(ThreeAddressInstruction instruction) {
 		this.instruction = instruction;
 		this.argument1 = this.argument2 = this.result = null;
+		this.table = null;
 	}
 
 	/**
@@ -107,6 +136,15 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 		return this.result;
 	}
 
+	/** Replies the table of values of the instruction.
+	 * 
+	 * @return the values indexed by integer keys; or <code>null</code>
+	 * if the instruction has no table.
+	 */
+	public SortedMap<Integer,String> getTable() {
+		return this.table;
+	}
+
 	/** Replies the label of the instruction.
 	 * 
 	 * @return the label of the instruction; or <code>null</code>
@@ -125,12 +163,78 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 		this.label = label;
 	}
 	
+	/** Copy the label and the comment of the given record
+	 * into this record.
+	 *
+	 * @param record
+	 */
+	void copyAnnotations(ThreeAddressRecord record) {
+		this.label = record.label;
+		this.comment = record.comment;
+		this.lazyComment = record.lazyComment;
+	}
+
+	/** Replies the index of the instruction in the code.
+	 * 
+	 * @return the index given by the code when the record was added,
+	 * or <code>-1</code> if none.
+	 */
+	int getIndex() {
+		return this.index;
+	}
+	
+	/** Set the index of the instruction in the code.
+	 * 
+	 * @param index
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+	
 	/** Set the comment of the instruction.
-	 *  
+	 * 
 	 * @param comment
 	 */
 	public void setComment(String comment) {
 		this.comment = comment;
+		this.lazyComment = null;
+	}
+	
+	/** Set the comment of the instruction, which is built only
+	 * when the comment is displayed, so that the generation of
+	 * the code does not pay for it.
+	 * 
+	 * @param comment is the provider of the comment.
+	 */
+	public void setLazyComment(Supplier<String> comment) {
+		this.comment = null;
+		this.lazyComment = comment;
+	}
+	
+	/** Replies the comment of the instruction.
+	 * 
+	 * @return the comment, or <code>null</code> if none.
+	 */
+	public String getComment() {
+		if (this.lazyComment!=null) {
+			return this.lazyComment.get();
+		}
+		return this.comment;
+	}
+	
+	/** Serialize a copy of this record in which the lazy comment
+	 * is replaced by its text.
+	 * 
+	 * @return the serialized record.
+	 * @throws ObjectStreamException
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		if (this.lazyComment==null) {
+			return this;
+		}
+		ThreeAddressRecord record = clone();
+		record.setComment(getComment());
+		return record;
 	}
 	
 	/**
@@ -139,16 +243,25 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 	@Override
 	public String toString() {
 		StringBuilder b = new StringBuilder();
-		if (this.comment!=null && !this.comment.isEmpty()) {
+		String comment = getComment();
+		if (comment!=null && !comment.isEmpty()) {
 			for(int i=0; i<LABEL_SIZE; ++i) {
 				b.append(" "); //$NON-NLS-1$
 			}
 			b.append("#-- "); //$NON-NLS-1$
-			b.append(this.comment);
+			b.append(comment);
 			b.append("\n"); //$NON-NLS-1$
 		}
 		b.append(formatLabel(this.label));
 		b.append(this.instruction.toString(this.argument1, this.argument2, this.result));
+		if (this.table!=null) {
+			for(Entry<Integer,String> entry : this.table.entrySet()) {
+				b.append("\n"); //$NON-NLS-1$
+				b.append(formatLabel(null));
+				b.append(ThreeAddressInstruction.displayQuadruple("", //$NON-NLS-1$
+						entry.getKey().toString(), entry.getValue(), null));
+			}
+		}
 		return b.toString();
 	}
 	
@@ -0,0 +1,159 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.threeaddresscode.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Basic block of the three-address code: a sequence of records
+ * that is entered by its first record only and that is left
+ * by its last record only.
+ * <p>
+ * A block may also be virtual: it contains no record and is used
+ * by the {@link ControlFlowGraph} to join the edges of the jumps
+ * that have a target computed at run time, or the edges of the returns
+ * from the functions.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public final class BasicBlock {
+
+	private final int index;
+	private final int firstAddress;
+	private final int endAddress;
+	private final String name;
+	private final List<BasicBlock> successors = new ArrayList<BasicBlock>(2);
+	private final List<BasicBlock> predecessors = new ArrayList<BasicBlock>(2);
+
+	/**
+	 * @param index is the index of the block in the graph.
+	 * @param firstAddress is the address of the first record in the block.
+	 * @param endAddress is the address that follows the last record in the block.
+	 */
+	BasicBlock(int index, int firstAddress, int endAddress) {
+		this.index = index;
+		this.firstAddress = firstAddress;
+		this.endAddress = endAddress;
+		this.name = null;
+	}
+
+	/**
+	 * @param index is the index of the block in the graph.
+	 * @param name is the name of the virtual block.
+	 */
+	BasicBlock(int index, String name) {
+		this.index = index;
+		this.firstAddress = -1;
+		this.endAddress = -1;
+		this.name = name;
+	}
+
+	/** Replies the index of this block in the graph.
+	 * 
+	 * @return the index.
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	/** Replies if this block is virtual, ie. it contains no record.
+	 * 
+	 * @return <code>true</code> if the block is virtual.
+	 */
+	public boolean isVirtual() {
+		return this.name!=null;
+	}
+
+	/** Replies the address of the first record in this block.
+	 * 
+	 * @return the address, or <code>-1</code> if the block is virtual.
+	 */
+	public int getFirstAddress() {
+		return this.firstAddress;
+	}
+
+	/** Replies the address of the last record in this block.
+	 * 
+	 * @return the address, or <code>-2</code> if the block is virtual.
+	 */
+	public int getLastAddress() {
+		return this.endAddress - 1;
+	}
+
+	/** Replies the address that follows the last record in this block.
+	 * 
+	 * @return the address, or <code>-1</code> if the block is virtual.
+	 */
+	public int getEndAddress() {
+		return this.endAddress;
+	}
+
+	/** Replies the number of records in this block.
+	 * 
+	 * @return the number of records.
+	 */
+	public int size() {
+		return this.endAddress - this.firstAddress;
+	}
+
+	/** Replies the blocks that may be run after this block.
+	 * 
+	 * @return the successors.
+	 */
+	public List<BasicBlock> getSuccessors() {
+		return Collections.unmodifiableList(this.successors);
+	}
+
+	/** Replies the blocks that may be run before this block.
+	 * 
+	 * @return the predecessors.
+	 */
+	public List<BasicBlock> getPredecessors() {
+		return Collections.unmodifiableList(this.predecessors);
+	}
+
+	/** Add an edge from this block to the given block.
+	 * The successors of a virtual block are not checked for duplicates
+	 * because they are many and the graph adds each of them once.
+	 * 
+	 * @param successor
+	 */
+	void addSuccessor(BasicBlock successor) {
+		if (this.name!=null || !this.successors.contains(successor)) {
+			this.successors.add(successor);
+			successor.predecessors.add(this);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		if (this.name!=null) {
+			return "B" + this.index + "[" + this.name + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return "B" + this.index + "[" + this.firstAddress //$NON-NLS-1$ //$NON-NLS-2$
+				+ ".." + getLastAddress() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
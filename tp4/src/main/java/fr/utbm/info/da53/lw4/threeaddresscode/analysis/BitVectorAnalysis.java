@@ -0,0 +1,146 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.threeaddresscode.analysis;
+
+/**
+ * Dataflow analysis in which the facts are sets of bits, stored
+ * in {@link SparseBitSet sparse sets}.
+ * <p>
+ * The transfer function of a block removes the facts killed by the block,
+ * then adds the facts generated by the block. The meet is the union for
+ * a "may" analysis, and the intersection for a "must" analysis.
+ * The generated facts of each block are computed once before the iterations;
+ * the killed facts are removed by {@link #kill(BasicBlock, SparseBitSet)} so that
+ * an analysis is not forced to build a kill set for each block.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public abstract class BitVectorAnalysis extends DataflowAnalysis<SparseBitSet> {
+
+	private final boolean union;
+	private SparseBitSet[] generated = null;
+
+	/**
+	 * @param graph is the graph to analyze.
+	 * @param direction is the direction of the analysis.
+	 * @param union is <code>true</code> if the meet is the union of the sets,
+	 * <code>false</code> if it is the intersection.
+	 */
+	protected BitVectorAnalysis(ControlFlowGraph graph, Direction direction, boolean union) {
+		super(graph, direction);
+		this.union = union;
+	}
+
+	/** Replies the number of bits in the sets.
+	 * 
+	 * @return the number of bits.
+	 */
+	protected abstract int getUniverseSize();
+
+	/** Replies the facts generated by the given block.
+	 * 
+	 * @param block
+	 * @return the generated facts.
+	 */
+	protected abstract SparseBitSet computeGeneratedFacts(BasicBlock block);
+
+	/** Remove from the given facts the ones that are killed by the block.
+	 * 
+	 * @param block
+	 * @param facts
+	 */
+	protected abstract void kill(BasicBlock block, SparseBitSet facts);
+
+	/** Replies if the given block may kill facts.
+	 * 
+	 * @param block
+	 * @return <code>true</code> if {@link #kill(BasicBlock, SparseBitSet)} may remove facts.
+	 */
+	protected abstract boolean isKilling(BasicBlock block);
+
+	/** Replies the facts generated by the given block.
+	 * 
+	 * @param block
+	 * @return the generated facts, or <code>null</code> if the block is not reachable.
+	 */
+	protected SparseBitSet getGeneratedFacts(BasicBlock block) {
+		return this.generated[block.getIndex()];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void initialize() {
+		this.generated = new SparseBitSet[getGraph().getBlockCount()];
+		for(BasicBlock block : getGraph().getReversePostOrder()) {
+			this.generated[block.getIndex()] = computeGeneratedFacts(block);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SparseBitSet createInitialFact() {
+		SparseBitSet facts = new SparseBitSet();
+		if (!this.union) {
+			facts.setFirst(getUniverseSize());
+		}
+		return facts;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SparseBitSet createBoundaryFact(BasicBlock block) {
+		return new SparseBitSet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void meet(SparseBitSet target, SparseBitSet fact) {
+		if (this.union) {
+			target.or(fact);
+		}
+		else {
+			target.and(fact);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SparseBitSet transfer(BasicBlock block, SparseBitSet input) {
+		SparseBitSet generated = this.generated[block.getIndex()];
+		if (generated.isEmpty() && !isKilling(block)) {
+			return input;
+		}
+		SparseBitSet output = input.clone();
+		kill(block, output);
+		output.or(this.generated[block.getIndex()]);
+		return output;
+	}
+
+}
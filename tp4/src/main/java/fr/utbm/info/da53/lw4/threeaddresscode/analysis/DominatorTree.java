@@ -0,0 +1,178 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.threeaddresscode.analysis;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dominator tree of a control flow graph.
+ * <p>
+ * A block <code>A</code> dominates a block <code>B</code> when every
+ * path from a root of the graph to <code>B</code> passes through
+ * <code>A</code>. The immediate dominators are computed with the
+ * iterative algorithm of Cooper, Harvey and Kennedy on the reverse
+ * postorder of the graph. When the graph has several roots, they are
+ * the children of a virtual root. The tree is then numbered in preorder
+ * and in postorder so that the dominance test has a constant cost.
+ * Only the reachable blocks are in the tree.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class DominatorTree {
+
+	private final ControlFlowGraph graph;
+	/** Block index -&gt; index of the immediate dominator, or <code>-1</code>.
+	 */
+	private final int[] immediateDominators;
+	private final int[] preorder;
+	private final int[] postorder;
+
+	/**
+	 * @param graph
+	 */
+	public DominatorTree(ControlFlowGraph graph) {
+		this.graph = graph;
+		int blockCount = graph.getBlockCount();
+		List<BasicBlock> order = graph.getReversePostOrder();
+		int size = order.size();
+
+		// Position in the reverse postorder, starting at 1; 0 is the virtual root.
+		int[] positions = new int[blockCount];
+		for(int i=0; i<size; ++i) {
+			positions[order.get(i).getIndex()] = i + 1;
+		}
+		int[] dominators = new int[size + 1];
+		Arrays.fill(dominators, -1);
+		dominators[0] = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for(int i=1; i<=size; ++i) {
+				BasicBlock block = order.get(i - 1);
+				int dominator = graph.isRoot(block) ? 0 : -1;
+				for(BasicBlock predecessor : block.getPredecessors()) {
+					int position = positions[predecessor.getIndex()];
+					if (position>0 && dominators[position]>=0) {
+						dominator = (dominator<0) ? position : intersect(dominators, position, dominator);
+					}
+				}
+				if (dominator!=dominators[i]) {
+					dominators[i] = dominator;
+					changed = true;
+				}
+			}
+		}
+
+		this.immediateDominators = new int[blockCount];
+		Arrays.fill(this.immediateDominators, -1);
+		// Children of each node of the tree, stored as a linked list in arrays.
+		int[] firstChild = new int[size + 1];
+		int[] nextSibling = new int[size + 1];
+		Arrays.fill(firstChild, -1);
+		for(int i=size; i>=1; --i) {
+			int dominator = dominators[i];
+			if (dominator>0) {
+				this.immediateDominators[order.get(i - 1).getIndex()] = order.get(dominator - 1).getIndex();
+			}
+			nextSibling[i] = firstChild[dominator];
+			firstChild[dominator] = i;
+		}
+
+		this.preorder = new int[blockCount];
+		this.postorder = new int[blockCount];
+		Arrays.fill(this.preorder, -1);
+		Arrays.fill(this.postorder, -1);
+		int[] stack = new int[size + 1];
+		int[] current = new int[size + 1];
+		int top = 0;
+		stack[0] = 0;
+		current[0] = firstChild[0];
+		int preCounter = 0;
+		int postCounter = 0;
+		while (top>=0) {
+			int node = stack[top];
+			int child = current[top];
+			if (child>=0) {
+				current[top] = nextSibling[child];
+				++top;
+				stack[top] = child;
+				current[top] = firstChild[child];
+				this.preorder[order.get(child - 1).getIndex()] = preCounter++;
+			}
+			else {
+				if (node>0) {
+					this.postorder[order.get(node - 1).getIndex()] = postCounter++;
+				}
+				--top;
+			}
+		}
+	}
+
+	private static int intersect(int[] dominators, int position1, int position2) {
+		int finger1 = position1;
+		int finger2 = position2;
+		while (finger1!=finger2) {
+			while (finger1>finger2) {
+				finger1 = dominators[finger1];
+			}
+			while (finger2>finger1) {
+				finger2 = dominators[finger2];
+			}
+		}
+		return finger1;
+	}
+
+	/** Replies the graph.
+	 * 
+	 * @return the graph.
+	 */
+	public ControlFlowGraph getGraph() {
+		return this.graph;
+	}
+
+	/** Replies the immediate dominator of the given block.
+	 * 
+	 * @param block
+	 * @return the immediate dominator, or <code>null</code> if the block
+	 * is a root or is not reachable.
+	 */
+	public BasicBlock getImmediateDominator(BasicBlock block) {
+		int dominator = this.immediateDominators[block.getIndex()];
+		return (dominator<0) ? null : this.graph.getBlock(dominator);
+	}
+
+	/** Replies if the first block dominates the second block.
+	 * A block dominates itself.
+	 * 
+	 * @param dominator
+	 * @param block
+	 * @return <code>true</code> if <code>dominator</code> dominates <code>block</code>.
+	 */
+	public boolean dominates(BasicBlock dominator, BasicBlock block) {
+		int d = dominator.getIndex();
+		int b = block.getIndex();
+		if (this.preorder[d]<0 || this.preorder[b]<0) {
+			return false;
+		}
+		return this.preorder[d]<=this.preorder[b] && this.postorder[b]<=this.postorder[d];
+	}
+
+}
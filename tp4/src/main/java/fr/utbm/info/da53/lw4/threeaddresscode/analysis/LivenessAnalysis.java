@@ -0,0 +1,242 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.threeaddresscode.analysis;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Liveness of the variables: a variable is live at a point of the code
+ * when its value may be used after this point before being defined again.
+ * <p>
+ * The sets contain the global variables only, ie. the variables that
+ * are used in a block before being defined in this block. The other
+ * variables, such as most of the temporary variables, are never live
+ * at the boundaries of the blocks; their liveness inside a block is
+ * computed by {@link #getLiveAfter(int)}. This keeps the sets small on
+ * the large programs.
+ * A partial definition, such as the set of an array element, does not
+ * kill the variable.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class LivenessAnalysis extends BitVectorAnalysis {
+
+	/** Variable index -&gt; index of the variable in the sets, or <code>-1</code>.
+	 */
+	private final int[] globalIndexes;
+	private final int[] globalVariables;
+	private SparseBitSet[] killed = null;
+
+	/**
+	 * @param graph is the graph to analyze.
+	 */
+	public LivenessAnalysis(ControlFlowGraph graph) {
+		super(graph, Direction.BACKWARD, true);
+		int variableCount = graph.getVariableCount();
+		this.globalIndexes = new int[variableCount];
+		Arrays.fill(this.globalIndexes, -1);
+		BitSet defined = new BitSet(variableCount);
+		int count = 0;
+		for(BasicBlock block : graph.getReversePostOrder()) {
+			for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+				for(int i=0, n=graph.getUseCount(address); i<n; ++i) {
+					int variable = graph.getUse(address, i);
+					if (!defined.get(variable) && this.globalIndexes[variable]<0) {
+						this.globalIndexes[variable] = count++;
+					}
+				}
+				int definition = graph.getDefinition(address);
+				if (definition!=ControlFlowGraph.NO_VARIABLE && !graph.isPartialDefinition(address)) {
+					defined.set(definition);
+				}
+			}
+			clearDefinitions(graph, block, defined);
+		}
+		this.globalVariables = new int[count];
+		for(int variable=0; variable<variableCount; ++variable) {
+			if (this.globalIndexes[variable]>=0) {
+				this.globalVariables[this.globalIndexes[variable]] = variable;
+			}
+		}
+	}
+
+	private static void clearDefinitions(ControlFlowGraph graph, BasicBlock block, BitSet variables) {
+		for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+			int definition = graph.getDefinition(address);
+			if (definition!=ControlFlowGraph.NO_VARIABLE) {
+				variables.clear(definition);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int getUniverseSize() {
+		return this.globalVariables.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void initialize() {
+		this.killed = new SparseBitSet[getGraph().getBlockCount()];
+		super.initialize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SparseBitSet computeGeneratedFacts(BasicBlock block) {
+		ControlFlowGraph graph = getGraph();
+		SparseBitSet generated = new SparseBitSet();
+		SparseBitSet defined = new SparseBitSet();
+		for(int address=block.getLastAddress(); address>=block.getFirstAddress(); --address) {
+			int definition = graph.getDefinition(address);
+			if (definition!=ControlFlowGraph.NO_VARIABLE && !graph.isPartialDefinition(address)) {
+				int global = this.globalIndexes[definition];
+				if (global>=0) {
+					generated.clear(global);
+					defined.set(global);
+				}
+			}
+			for(int i=0, n=graph.getUseCount(address); i<n; ++i) {
+				int global = this.globalIndexes[graph.getUse(address, i)];
+				if (global>=0) {
+					generated.set(global);
+				}
+			}
+		}
+		this.killed[block.getIndex()] = defined;
+		return generated;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isKilling(BasicBlock block) {
+		return !this.killed[block.getIndex()].isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void kill(BasicBlock block, SparseBitSet facts) {
+		facts.andNot(this.killed[block.getIndex()]);
+	}
+
+	/** Replies the number of global variables, ie. the variables that
+	 * may be live at the boundaries of the blocks.
+	 * 
+	 * @return the number of global variables.
+	 */
+	public int getGlobalVariableCount() {
+		return this.globalVariables.length;
+	}
+
+	/** Replies if the given variable may be live at the boundaries of the blocks.
+	 * 
+	 * @param variable is the index of the variable in the graph.
+	 * @return <code>true</code> if the variable is global.
+	 */
+	public boolean isGlobal(int variable) {
+		return this.globalIndexes[variable]>=0;
+	}
+
+	private BitSet toVariables(SparseBitSet globals) {
+		BitSet variables = new BitSet();
+		if (globals!=null) {
+			for(int global=globals.nextSetBit(0); global>=0; global=globals.nextSetBit(global + 1)) {
+				variables.set(this.globalVariables[global]);
+			}
+		}
+		return variables;
+	}
+
+	/** Replies the variables that are live before the first record of the given block.
+	 * 
+	 * @param block
+	 * @return the indexes of the live variables.
+	 */
+	public BitSet getLiveIn(BasicBlock block) {
+		return toVariables(getEntryFact(block));
+	}
+
+	/** Replies the variables that are live after the last record of the given block.
+	 * 
+	 * @param block
+	 * @return the indexes of the live variables.
+	 */
+	public BitSet getLiveOut(BasicBlock block) {
+		return toVariables(getExitFact(block));
+	}
+
+	/** Replies if the given variable is live before the first record of the given block.
+	 * 
+	 * @param block
+	 * @param variable is the index of the variable in the graph.
+	 * @return <code>true</code> if the variable is live.
+	 */
+	public boolean isLiveIn(BasicBlock block, int variable) {
+		SparseBitSet facts = getEntryFact(block);
+		int global = this.globalIndexes[variable];
+		return facts!=null && global>=0 && facts.get(global);
+	}
+
+	/** Replies if the given variable is live after the last record of the given block.
+	 * 
+	 * @param block
+	 * @param variable is the index of the variable in the graph.
+	 * @return <code>true</code> if the variable is live.
+	 */
+	public boolean isLiveOut(BasicBlock block, int variable) {
+		SparseBitSet facts = getExitFact(block);
+		int global = this.globalIndexes[variable];
+		return facts!=null && global>=0 && facts.get(global);
+	}
+
+	/** Replies the variables that are live after the record at the given address.
+	 * 
+	 * @param address
+	 * @return the indexes of the live variables.
+	 */
+	public BitSet getLiveAfter(int address) {
+		ControlFlowGraph graph = getGraph();
+		BasicBlock block = graph.getBlockAt(address);
+		BitSet live = getLiveOut(block);
+		for(int current=block.getLastAddress(); current>address; --current) {
+			int definition = graph.getDefinition(current);
+			if (definition!=ControlFlowGraph.NO_VARIABLE && !graph.isPartialDefinition(current)) {
+				live.clear(definition);
+			}
+			for(int i=0, n=graph.getUseCount(current); i<n; ++i) {
+				live.set(graph.getUse(current, i));
+			}
+		}
+		return live;
+	}
+
+}
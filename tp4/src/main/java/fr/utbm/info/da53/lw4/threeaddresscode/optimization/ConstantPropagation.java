@@ -0,0 +1,798 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw4.threeaddresscode.optimization;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressInstruction;
+import fr.utbm.info.da53.lw4.threeaddresscode.ThreeAddressRecord;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.BasicBlock;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.ControlFlowGraph;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.DataflowAnalysis;
+import fr.utbm.info.da53.lw4.threeaddresscode.analysis.LivenessAnalysis;
+import fr.utbm.info.da53.lw4.util.Util;
+
+/**
+ * Propagation of the constants and of the copies in a three-address code.
+ * <p>
+ * A forward dataflow analysis computes, at the entry of each block, the
+ * variables that contain a literal, and the variables that contain a copy
+ * of another variable. Then, the operands of the records are replaced by
+ * these literals and variables, and:
+ * <ul>
+ * <li>an operation with literal operands is replaced by the <code>SET</code>
+ * of its result, computed as the interpreter does; an operation that fails
+ * at run time, such as a division by zero, is kept;</li>
+ * <li>a conditional jump with a literal condition is replaced by a jump,
+ * or removed when the jump is never done;</li>
+ * <li>the <code>SET</code> of a literal into a variable that is no more
+ * used is removed;</li>
+ * <li>a temporary variable that is only copied into another variable
+ * by the next record is replaced by this variable, eg.
+ * <code>@t1 = I + 1; I = @t1</code> becomes <code>I = I + 1</code>.</li>
+ * </ul>
+ * The temporary variables are never propagated as copies, so that their
+ * values are not kept alive across the blocks; and the arrays are never
+ * replaced, since they are copied by <code>SET</code>.
+ * <p>
+ * The code must be finalized.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ConstantPropagation {
+
+	/** Greatest real number that is stored as an integer number
+	 * by the interpreter.
+	 */
+	private static final double MAX_INTEGER = 9.2e18;
+
+	/** Greatest integer number that is exactly parsed from its literal.
+	 */
+	private static final long MAX_EXACT_INTEGER = 1L << 53;
+
+	/** Value of a variable that is not a known literal or copy.
+	 */
+	private static final Object UNKNOWN = new Object();
+
+	private final ThreeAddressCode code;
+	private ControlFlowGraph graph = null;
+	private int foldedRecords = 0;
+	private int resolvedJumps = 0;
+	private int propagatedOperands = 0;
+	private int removedRecords = 0;
+
+	/**
+	 * @param code is the code to optimize.
+	 */
+	public ConstantPropagation(ThreeAddressCode code) {
+		this.code = code;
+	}
+
+	/** Replies the optimized code.
+	 * 
+	 * @return the code.
+	 */
+	public ThreeAddressCode getCode() {
+		return this.code;
+	}
+
+	/** Optimize the code.
+	 * 
+	 * @return the number of removed records.
+	 */
+	public int optimize() {
+		this.graph = new ControlFlowGraph(this.code);
+		ConstantAnalysis analysis = new ConstantAnalysis(this.graph);
+		analysis.solve();
+
+		List<ThreeAddressRecord> list = this.code.getRecords();
+		ThreeAddressRecord[] records = list.toArray(new ThreeAddressRecord[list.size()]);
+		for(BasicBlock block : this.graph.getReversePostOrder()) {
+			Fact input = analysis.getEntryFact(block);
+			if (!block.isVirtual() && input!=null && !input.top) {
+				Evaluation evaluation = new Evaluation(input, true);
+				for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+					records[address] = evaluation.evaluate(address, records[address]);
+				}
+			}
+		}
+
+		int[] uses = new int[this.graph.getVariableCount()];
+		int[] definitions = new int[this.graph.getVariableCount()];
+		countOperands(records, uses, definitions);
+		removeUnusedLiterals(records, uses);
+		forwardTemporaries(records, uses, definitions);
+
+		this.removedRecords = this.code.rewrite(records);
+		this.graph = null;
+		return this.removedRecords;
+	}
+
+	/** Replies the number of operations that were replaced by literals.
+	 * 
+	 * @return the number of folded records.
+	 */
+	public int getFoldedRecordCount() {
+		return this.foldedRecords;
+	}
+
+	/** Replies the number of conditional jumps with a literal condition.
+	 * 
+	 * @return the number of replaced or removed conditional jumps.
+	 */
+	public int getResolvedJumpCount() {
+		return this.resolvedJumps;
+	}
+
+	/** Replies the number of operands that were replaced by a literal
+	 * or by another variable in the kept records.
+	 * 
+	 * @return the number of propagated operands.
+	 */
+	public int getPropagatedOperandCount() {
+		return this.propagatedOperands;
+	}
+
+	/** Replies the number of records removed by the last optimization.
+	 * 
+	 * @return the number of removed records.
+	 */
+	public int getRemovedRecordCount() {
+		return this.removedRecords;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "Constant propagation: " //$NON-NLS-1$
+				+ this.removedRecords + " removed records, " //$NON-NLS-1$
+				+ this.foldedRecords + " folded records, " //$NON-NLS-1$
+				+ this.resolvedJumps + " resolved jumps, " //$NON-NLS-1$
+				+ this.propagatedOperands + " propagated operands"; //$NON-NLS-1$
+	}
+
+	private void countOperands(ThreeAddressRecord[] records, int[] uses, int[] definitions) {
+		for(ThreeAddressRecord record : records) {
+			if (record!=null) {
+				count(uses, record.getArgument1());
+				count(uses, record.getArgument2());
+				switch(record.instruction()) {
+				case ARRAY_SET:
+					count(uses, record.getResult());
+					break;
+				case CALL:
+					if (ThreeAddressCode.BASIC_GOTO_FUNCTION.equals(record.getArgument1())) {
+						count(definitions, record.getResult());
+					}
+					else {
+						count(uses, record.getResult());
+					}
+					break;
+				default:
+					count(definitions, record.getResult());
+				}
+			}
+		}
+	}
+
+	private void count(int[] counts, String operand) {
+		int variable = variable(operand);
+		if (variable!=ControlFlowGraph.NO_VARIABLE) {
+			++counts[variable];
+		}
+	}
+
+	/** Remove the set of a literal into a variable that is never used.
+	 */
+	private void removeUnusedLiterals(ThreeAddressRecord[] records, int[] uses) {
+		for(int address=0; address<records.length; ++address) {
+			ThreeAddressRecord record = records[address];
+			if (record!=null && record.instruction()==ThreeAddressInstruction.SET
+				&& variable(record.getArgument1())==ControlFlowGraph.NO_VARIABLE) {
+				int variable = variable(record.getResult());
+				if (variable!=ControlFlowGraph.NO_VARIABLE && uses[variable]==0) {
+					records[address] = null;
+				}
+			}
+		}
+	}
+
+	/** Replace the temporary variables that are only copied by
+	 * the next record into another variable.
+	 */
+	private void forwardTemporaries(ThreeAddressRecord[] records, int[] uses, int[] definitions) {
+		for(int address=0; address<records.length; ++address) {
+			ThreeAddressRecord record = records[address];
+			if (record!=null && isForwardable(record.instruction()) && isTemporary(record.getResult())) {
+				int temporary = variable(record.getResult());
+				int next = address + 1;
+				while (next<records.length && records[next]==null && !isEntry(next)) {
+					++next;
+				}
+				if (next<records.length && records[next]!=null && !isEntry(next)
+					&& uses[temporary]==1 && definitions[temporary]==1) {
+					ThreeAddressRecord copy = records[next];
+					if (copy.instruction()==ThreeAddressInstruction.SET
+						&& record.getResult().equals(copy.getArgument1())
+						&& variable(copy.getResult())!=ControlFlowGraph.NO_VARIABLE) {
+						records[address] = new ThreeAddressRecord(record.instruction(),
+								record.getArgument1(), record.getArgument2(), copy.getResult());
+						records[next] = null;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isEntry(int address) {
+		return this.code.getRecord(address).getLabel()!=null || this.graph.isLineStart(address);
+	}
+
+	private static boolean isForwardable(ThreeAddressInstruction instruction) {
+		switch(instruction) {
+		case SET:
+		case ADDITION:
+		case SUBSTRACTION:
+		case MULTIPLICATION:
+		case DIVISION:
+		case MINUS:
+		case BOOLEAN_EQUAL:
+		case BOOLEAN_DIFF:
+		case BOOLEAN_LESS:
+		case BOOLEAN_GREATER:
+		case BOOLEAN_LESS_EQUAL:
+		case BOOLEAN_GREATER_EQUAL:
+		case BOOLEAN_NOT:
+		case BOOLEAN_AND:
+		case BOOLEAN_OR:
+		case BOOLEAN_XOR:
+		case ARRAY_GET:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private int variable(String operand) {
+		return (operand==null) ? ControlFlowGraph.NO_VARIABLE : this.graph.getVariable(operand);
+	}
+
+	private static boolean isTemporary(String operand) {
+		return operand!=null && operand.startsWith("@t"); //$NON-NLS-1$
+	}
+
+	/** Replies the literal that is the result of the given operation,
+	 * as computed by the interpreter.
+	 * 
+	 * @param instruction
+	 * @param left is the literal of the first operand.
+	 * @param right is the literal of the second operand, or <code>null</code>.
+	 * @return the literal of the result, or <code>null</code> if the
+	 * operation fails or if the result has no literal.
+	 */
+	static String fold(ThreeAddressInstruction instruction, String left, String right) {
+		Constant a = Constant.parse(left);
+		Constant b = (right==null) ? null : Constant.parse(right);
+		Constant result;
+		Integer comparison;
+		switch(instruction) {
+		case ADDITION:
+			if (a.kind==Constant.STRING || b.kind==Constant.STRING) {
+				result = Constant.string(a.toString() + b.toString());
+			}
+			else if (a.kind==Constant.INTEGER && b.kind==Constant.INTEGER) {
+				long s = a.integer + b.integer;
+				result = (((a.integer ^ s) & (b.integer ^ s)) < 0)
+						? Constant.number((double)a.integer + (double)b.integer)
+						: Constant.integer(s);
+			}
+			else {
+				result = (a.isNumber() && b.isNumber()) ? Constant.number(a.number() + b.number()) : null;
+			}
+			break;
+		case SUBSTRACTION:
+			if (a.kind==Constant.INTEGER && b.kind==Constant.INTEGER) {
+				long d = a.integer - b.integer;
+				result = (((a.integer ^ b.integer) & (a.integer ^ d)) < 0)
+						? Constant.number((double)a.integer - (double)b.integer)
+						: Constant.integer(d);
+			}
+			else {
+				result = (a.isNumber() && b.isNumber()) ? Constant.number(a.number() - b.number()) : null;
+			}
+			break;
+		case MULTIPLICATION:
+			result = (a.isNumber() && b.isNumber()) ? Constant.number(a.number() * b.number()) : null;
+			break;
+		case DIVISION:
+			result = (a.isNumber() && b.isNumber() && b.number()!=0.) ? Constant.number(a.number() / b.number()) : null;
+			break;
+		case MINUS:
+			result = a.isNumber() ? Constant.number(-a.number()) : null;
+			break;
+		case BOOLEAN_NOT:
+			result = (a.kind==Constant.BOOLEAN) ? Constant.bool(a.integer==0) : null;
+			break;
+		case BOOLEAN_AND:
+			result = (a.kind==Constant.BOOLEAN && b.kind==Constant.BOOLEAN) ? Constant.bool(a.integer!=0 && b.integer!=0) : null;
+			break;
+		case BOOLEAN_OR:
+			result = (a.kind==Constant.BOOLEAN && b.kind==Constant.BOOLEAN) ? Constant.bool(a.integer!=0 || b.integer!=0) : null;
+			break;
+		case BOOLEAN_XOR:
+			result = (a.kind==Constant.BOOLEAN && b.kind==Constant.BOOLEAN) ? Constant.bool((a.integer!=0) ^ (b.integer!=0)) : null;
+			break;
+		case BOOLEAN_EQUAL:
+		case BOOLEAN_DIFF:
+			Boolean equal = Constant.isEqual(a, b);
+			result = (equal==null) ? null
+					: Constant.bool(equal.booleanValue()==(instruction==ThreeAddressInstruction.BOOLEAN_EQUAL));
+			break;
+		case BOOLEAN_LESS:
+			comparison = Constant.compare(a, b);
+			result = (comparison==null) ? null : Constant.bool(comparison.intValue()<0);
+			break;
+		case BOOLEAN_LESS_EQUAL:
+			comparison = Constant.compare(a, b);
+			result = (comparison==null) ? null : Constant.bool(comparison.intValue()<=0);
+			break;
+		case BOOLEAN_GREATER:
+			comparison = Constant.compare(a, b);
+			result = (comparison==null) ? null : Constant.bool(comparison.intValue()>0);
+			break;
+		case BOOLEAN_GREATER_EQUAL:
+			comparison = Constant.compare(a, b);
+			result = (comparison==null) ? null : Constant.bool(comparison.intValue()>=0);
+			break;
+		default:
+			result = null;
+		}
+		return (result==null) ? null : result.toLiteral();
+	}
+
+	/**
+	 * Typed value of a literal, as it is stored in the registers of the interpreter.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static final class Constant {
+
+		static final byte INTEGER = 1;
+		static final byte REAL = 2;
+		static final byte BOOLEAN = 3;
+		static final byte STRING = 4;
+
+		final byte kind;
+		final long integer;
+		final double real;
+		final String text;
+
+		private Constant(byte kind, long integer, double real, String text) {
+			this.kind = kind;
+			this.integer = integer;
+			this.real = real;
+			this.text = text;
+		}
+
+		static Constant parse(String literal) {
+			if (Util.isString(literal)) {
+				return string(Util.unstringify(literal));
+			}
+			if (Util.isBoolean(literal)) {
+				return bool(Boolean.parseBoolean(literal));
+			}
+			return number(Double.parseDouble(literal));
+		}
+
+		static Constant integer(long value) {
+			return new Constant(INTEGER, value, 0., null);
+		}
+
+		static Constant number(double value) {
+			if (value==Math.rint(value) && Math.abs(value)<MAX_INTEGER) {
+				return integer((long)value);
+			}
+			return new Constant(REAL, 0, value, null);
+		}
+
+		static Constant bool(boolean value) {
+			return new Constant(BOOLEAN, value ? 1 : 0, 0., null);
+		}
+
+		static Constant string(String value) {
+			return new Constant(STRING, 0, 0., value);
+		}
+
+		boolean isNumber() {
+			return this.kind==INTEGER || this.kind==REAL;
+		}
+
+		double number() {
+			return (this.kind==INTEGER) ? this.integer : this.real;
+		}
+
+		static Boolean isEqual(Constant a, Constant b) {
+			if (a.kind==STRING && b.kind==STRING) {
+				return Boolean.valueOf(a.text.equals(b.text));
+			}
+			if (a.isNumber() && b.isNumber()) {
+				return Boolean.valueOf(a.number()==b.number());
+			}
+			if (a.kind==BOOLEAN && b.kind==BOOLEAN) {
+				return Boolean.valueOf(a.integer==b.integer);
+			}
+			return null;
+		}
+
+		static Integer compare(Constant a, Constant b) {
+			if (a.kind==STRING && b.kind==STRING) {
+				return Integer.valueOf(a.text.compareTo(b.text));
+			}
+			if (a.isNumber() && b.isNumber()) {
+				return Integer.valueOf(Double.compare(a.number(), b.number()));
+			}
+			return null;
+		}
+
+		/** Replies the literal that is loaded by the interpreter into this value.
+		 * 
+		 * @return the literal, or <code>null</code> if none.
+		 */
+		String toLiteral() {
+			switch(this.kind) {
+			case INTEGER:
+				return (Math.abs(this.integer)<=MAX_EXACT_INTEGER) ? Long.toString(this.integer) : null;
+			case REAL:
+				return (Double.isInfinite(this.real) || Double.isNaN(this.real)) ? null : Double.toString(this.real);
+			case BOOLEAN:
+				return Boolean.toString(this.integer!=0);
+			default:
+				String literal = Util.stringify(this.text);
+				return Util.unstringify(literal).equals(this.text) ? literal : null;
+			}
+		}
+
+		/** Replies the text of the value, as it is printed by the interpreter.
+		 * 
+		 * @return the text.
+		 */
+		@Override
+		public String toString() {
+			switch(this.kind) {
+			case INTEGER:
+				return Long.toString(this.integer);
+			case REAL:
+				return Util.toString(this.real);
+			case BOOLEAN:
+				return Boolean.toString(this.integer!=0);
+			default:
+				return this.text;
+			}
+		}
+
+	}
+
+	/**
+	 * Values of the variables at a point of the code. A value is a literal,
+	 * or the index of the variable that contains the same value. A variable
+	 * that is not in the map has an unknown value.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static final class Fact {
+
+		/** Indicates if the point is not reached by the analysis yet.
+		 */
+		boolean top;
+
+		final Map<Integer,Object> values;
+
+		Fact(boolean top, Map<Integer,Object> values) {
+			this.top = top;
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Fact) {
+				Fact fact = (Fact)obj;
+				return this.top==fact.top && this.values.equals(fact.values);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.values.hashCode();
+		}
+
+	}
+
+	/**
+	 * Forward analysis of the values of the variables. Only the variables
+	 * that are used before being defined in a block are kept in the facts.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private final class ConstantAnalysis extends DataflowAnalysis<Fact> {
+
+		private final LivenessAnalysis globals;
+
+		ConstantAnalysis(ControlFlowGraph graph) {
+			super(graph, Direction.FORWARD);
+			this.globals = new LivenessAnalysis(graph);
+		}
+
+		@Override
+		protected Fact createInitialFact() {
+			return new Fact(true, new HashMap<Integer,Object>());
+		}
+
+		@Override
+		protected Fact createBoundaryFact(BasicBlock block) {
+			return new Fact(false, new HashMap<Integer,Object>());
+		}
+
+		@Override
+		protected void meet(Fact target, Fact fact) {
+			if (!fact.top) {
+				if (target.top) {
+					target.top = false;
+					target.values.putAll(fact.values);
+				}
+				else {
+					Iterator<Entry<Integer,Object>> iterator = target.values.entrySet().iterator();
+					while (iterator.hasNext()) {
+						Entry<Integer,Object> entry = iterator.next();
+						if (!entry.getValue().equals(fact.values.get(entry.getKey()))) {
+							iterator.remove();
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		protected Fact transfer(BasicBlock block, Fact input) {
+			if (input.top || block.isVirtual()) {
+				return input;
+			}
+			Evaluation evaluation = new Evaluation(input, false);
+			for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+				evaluation.evaluate(address, getGraph().getRecord(address));
+			}
+			Map<Integer,Object> values = null;
+			for(Entry<Integer,Object> entry : evaluation.changes.entrySet()) {
+				int variable = entry.getKey().intValue();
+				if (this.globals.isGlobal(variable)) {
+					if (values==null) {
+						values = new HashMap<Integer,Object>(input.values);
+					}
+					if (entry.getValue()==UNKNOWN) {
+						values.remove(entry.getKey());
+					}
+					else {
+						values.put(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+			return (values==null) ? input : new Fact(false, values);
+		}
+
+	}
+
+	/**
+	 * Evaluation of the records of a block from the values at its entry.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private final class Evaluation {
+
+		private final Fact input;
+		private final boolean rewrite;
+
+		/** Values changed since the entry of the block; {@link ConstantPropagation#UNKNOWN}
+		 * for a variable that has no more a known value.
+		 */
+		final Map<Integer,Object> changes = new HashMap<Integer,Object>();
+
+		private boolean copies;
+
+		Evaluation(Fact input, boolean rewrite) {
+			this.input = input;
+			this.rewrite = rewrite;
+			for(Object value : input.values.values()) {
+				if (value instanceof Integer) {
+					this.copies = true;
+					break;
+				}
+			}
+		}
+
+		private Object get(int variable) {
+			Object value = this.changes.get(variable);
+			if (value==null) {
+				return this.input.values.get(variable);
+			}
+			return (value==UNKNOWN) ? null : value;
+		}
+
+		/** Replies the literal or the variable that may replace the given operand.
+		 */
+		private String read(String operand) {
+			int variable = variable(operand);
+			if (variable==ControlFlowGraph.NO_VARIABLE) {
+				return operand;
+			}
+			Object value = get(variable);
+			if (value instanceof String) {
+				return (String)value;
+			}
+			if (value instanceof Integer) {
+				return ConstantPropagation.this.graph.getVariableName(((Integer)value).intValue());
+			}
+			return operand;
+		}
+
+		private boolean isLiteral(String operand) {
+			return operand!=null && variable(operand)==ControlFlowGraph.NO_VARIABLE;
+		}
+
+		private void define(String operand, String value) {
+			int variable = variable(operand);
+			if (variable==ControlFlowGraph.NO_VARIABLE) {
+				return;
+			}
+			if (this.copies) {
+				Integer killed = Integer.valueOf(variable);
+				for(Entry<Integer,Object> entry : this.input.values.entrySet()) {
+					if (killed.equals(entry.getValue()) && !this.changes.containsKey(entry.getKey())) {
+						this.changes.put(entry.getKey(), UNKNOWN);
+					}
+				}
+				for(Entry<Integer,Object> entry : this.changes.entrySet()) {
+					if (killed.equals(entry.getValue())) {
+						entry.setValue(UNKNOWN);
+					}
+				}
+			}
+			Object newValue = UNKNOWN;
+			if (value!=null) {
+				if (isLiteral(value)) {
+					newValue = value;
+				}
+				else if (!isTemporary(value)) {
+					int source = variable(value);
+					if (source!=variable) {
+						newValue = Integer.valueOf(source);
+						this.copies = true;
+					}
+				}
+			}
+			this.changes.put(variable, newValue);
+		}
+
+		private ThreeAddressRecord replace(ThreeAddressRecord record, String argument1, String argument2) {
+			if (argument1==record.getArgument1() && argument2==record.getArgument2()) {
+				return record;
+			}
+			if (this.rewrite) {
+				if (argument1!=record.getArgument1()) {
+					++ConstantPropagation.this.propagatedOperands;
+				}
+				if (argument2!=record.getArgument2()) {
+					++ConstantPropagation.this.propagatedOperands;
+				}
+			}
+			return new ThreeAddressRecord(record.instruction(), argument1, argument2, record.getResult(), record.getTable());
+		}
+
+		/** Evaluate the given record, and reply the record that replaces it.
+		 * 
+		 * @param address
+		 * @param record
+		 * @return the replacing record, or <code>null</code> if the record is removed.
+		 */
+		ThreeAddressRecord evaluate(int address, ThreeAddressRecord record) {
+			ThreeAddressInstruction instruction = record.instruction();
+			switch(instruction) {
+			case SET:
+				String value = read(record.getArgument1());
+				define(record.getResult(), value);
+				return replace(record, value, record.getArgument2());
+			case ADDITION:
+			case SUBSTRACTION:
+			case MULTIPLICATION:
+			case DIVISION:
+			case BOOLEAN_EQUAL:
+			case BOOLEAN_DIFF:
+			case BOOLEAN_LESS:
+			case BOOLEAN_GREATER:
+			case BOOLEAN_LESS_EQUAL:
+			case BOOLEAN_GREATER_EQUAL:
+			case BOOLEAN_AND:
+			case BOOLEAN_OR:
+			case BOOLEAN_XOR:
+			case MINUS:
+			case BOOLEAN_NOT:
+				String left = read(record.getArgument1());
+				String right = (record.getArgument2()==null) ? null : read(record.getArgument2());
+				if (isLiteral(left) && (right==null || isLiteral(right))) {
+					String result = fold(instruction, left, right);
+					if (result!=null) {
+						define(record.getResult(), result);
+						if (this.rewrite) {
+							++ConstantPropagation.this.foldedRecords;
+						}
+						return ThreeAddressInstruction.set(record.getResult(), result);
+					}
+				}
+				define(record.getResult(), null);
+				return replace(record, left, right);
+			case JUMP_IF_TRUE:
+			case JUMP_IF_FALSE:
+				String condition = read(record.getArgument2());
+				if (Util.isBoolean(condition)) {
+					if (this.rewrite) {
+						++ConstantPropagation.this.resolvedJumps;
+					}
+					if (Boolean.parseBoolean(condition)==(instruction==ThreeAddressInstruction.JUMP_IF_TRUE)) {
+						return ThreeAddressInstruction.jump(record.getArgument1());
+					}
+					return null;
+				}
+				return replace(record, record.getArgument1(), condition);
+			case CALL_PARAMETER:
+			case PRINT:
+			case ERROR:
+			case RETURN:
+				return replace(record, (record.getArgument1()==null) ? null : read(record.getArgument1()), record.getArgument2());
+			case ARRAY_GET:
+				String index = read(record.getArgument2());
+				define(record.getResult(), null);
+				return replace(record, record.getArgument1(), index);
+			case ARRAY_SET:
+				String elementIndex = read(record.getArgument1());
+				String element = read(record.getArgument2());
+				define(record.getResult(), null);
+				return replace(record, elementIndex, element);
+			default:
+				int definition = ConstantPropagation.this.graph.getDefinition(address);
+				if (definition!=ControlFlowGraph.NO_VARIABLE) {
+					define(ConstantPropagation.this.graph.getVariableName(definition), null);
+				}
+				return record;
+			}
+		}
+
+	}
+
+}
@@ -31,6 +31,9 @@ import fr.utbm.info.da53.lw5.error.IntermediateCodeGenerationException;
 import fr.utbm.info.da53.lw5.error.LoggableException;
 import fr.utbm.info.da53.lw5.parser.BasicParser;
 import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw5.threeaddresscode.optimization.ConstantPropagation;
+import fr.utbm.info.da53.lw5.threeaddresscode.optimization.DeadCodeElimination;
+import fr.utbm.info.da53.lw5.threeaddresscode.optimization.LoopInvariantCodeMotion;
 
 /**
  * Generator of three-address code.
@@ -88,9 +91,20 @@ public class TinyBasicCompiler {
 			statement.generate(_3code);
 		}
 		
+		// Optimization
+		ConstantPropagation propagation = new ConstantPropagation(_3code);
+		propagation.optimize();
+		DeadCodeElimination elimination = new DeadCodeElimination(_3code);
+		elimination.optimize();
+		LoopInvariantCodeMotion motion = new LoopInvariantCodeMotion(_3code);
+		motion.optimize();
+		
 		_3code.finalizeGeneration();
 		
 		// Output
+		System.out.println("# " + propagation.toString()); //$NON-NLS-1$
+		System.out.println("# " + elimination.toString()); //$NON-NLS-1$
+		System.out.println("# " + motion.toString()); //$NON-NLS-1$
 		System.out.println(_3code.toString());
 		
 		// Byte code
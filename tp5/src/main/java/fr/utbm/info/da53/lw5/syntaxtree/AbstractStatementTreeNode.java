@@ -69,7 +69,7 @@ public abstract class AbstractStatementTreeNode extends AbstractSyntaxTreeNode i
 		int after = code.getRecordCount();
 		if (after>count) {
 			ThreeAddressRecord record = code.getRecord(count);
-			record.setComment(toString().replaceAll("[\n\r]+", " ")); //$NON-NLS-1$ //$NON-NLS-2$
+			record.setLazyComment(() -> toString().replaceAll("[\n\r]+", " ")); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 	}
 
@@ -20,11 +20,15 @@ package fr.utbm.info.da53.lw5.threeaddresscode;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import fr.utbm.info.da53.lw5.error.CompilerException;
@@ -59,7 +63,7 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	
 	/** Basic line -&gt; Instruction index
 	 */
-	private Map<Integer, Integer> basicLines = new TreeMap<Integer, Integer>();
+	private SortedMap<Integer, Integer> basicLines = new TreeMap<Integer, Integer>();
 
 	/** Label -&gt; address
 	 */
@@ -148,6 +152,13 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 * @return the address, or <code>-1</code> if not found.
 	 */
 	public int getAddress(ThreeAddressRecord record) {
+		Address address = record.getAddress();
+		if (address != null) {
+			int index = (int) (address.offset() / ThreeAddressRecord.RECORD_SIZE);
+			if (index >= 0 && index < this.records.size() && this.records.get(index) == record) {
+				return index;
+			}
+		}
 		return this.records.indexOf(record);
 	}
 
@@ -190,14 +201,8 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 * @return the index or, {@code -1} if not found.
 	 */
 	public int getAddressFor(String label) {
-		int i = 0;
-		for (ThreeAddressRecord record : this.records) {
-			if (label.equals(record.getLabel())) {
-				return i;
-			}
-			++i;
-		}
-		return -1;
+		Integer adr = this.labelMapping.get(label);
+		return (adr == null) ? -1 : adr.intValue() / ThreeAddressRecord.RECORD_SIZE;
 	}
 
 	/**
@@ -268,7 +273,7 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 	 * @return the address.
 	 */
 	public Address address(String str) {
-		if (Util.isNumber(str)) {
+		if (!isVariableName(str) && Util.isNumber(str)) {
 			try {
 				Number n = NumberUtil.parse(str, 0);
 				if (NumberUtil.isInteger(n))
@@ -288,6 +293,21 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 		return e.getAddress();
 	}
 	
+	/** Replies if the given string cannot be a number, without
+	 * trying to parse it: temporary variables and names that
+	 * start with a letter which does not start "NaN" or "Infinity".
+	 * 
+	 * @param str
+	 * @return <code>true</code> if the string is a variable name.
+	 */
+	private static boolean isVariableName(String str) {
+		if (str.isEmpty()) {
+			return false;
+		}
+		char c = str.charAt(0);
+		return c=='@' || (Character.isLetter(c) && c!='N' && c!='I');
+	}
+	
 	/** Replies the address of the label with the given name.
 	 * If the label was not allocated before, this function
 	 * marks the label for backpatching.
@@ -319,6 +339,178 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 		}
 	}
 	
+	/**
+	 * Replies the indexes of the first records of the Basic lines.
+	 * 
+	 * @return the map from the Basic lines to the record indexes.
+	 */
+	public SortedMap<Integer, Integer> getBasicLines() {
+		return Collections.unmodifiableSortedMap(this.basicLines);
+	}
+
+	/**
+	 * Remove the Basic lines that are not in the given collection.
+	 * The first records of the removed lines are no more the targets
+	 * of the jumps to a Basic line.
+	 * 
+	 * @param lines are the Basic lines to keep.
+	 */
+	public void retainBasicLines(Collection<Integer> lines) {
+		this.basicLines.keySet().retainAll(lines);
+	}
+	
+
+	/**
+	 * Replies the value of the string constant at the given address.
+	 * 
+	 * @param address
+	 * @return the value of the constant, or <code>null</code> if the
+	 * address is not the address of a string constant.
+	 */
+	public String getConstant(Address address) {
+		if (address!=null && address.isAddress() && address.base()==AddressBase.PROGRAM_END) {
+			for(Entry<String,String> entry : this.stringLiterals.entrySet()) {
+				SymbolTableEntry e = getSymbolTableEntry(entry.getValue());
+				if (e!=null && e.getAddress().offset()==address.offset()) {
+					return entry.getKey();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Replace or remove records of the code.
+	 * <p>
+	 * The record at each index is replaced by the record at the same
+	 * index in the given array, or removed when this element is <code>null</code>.
+	 * A replacing record receives the label and the comment of the replaced
+	 * record. The nearest label and comment of the removed records that precede
+	 * a kept record are moved to it when it has none; in all cases, a removed label
+	 * is mapped to the address of the next kept record. The addresses in the
+	 * program that are already resolved are updated, and a Basic line that
+	 * starts with a removed record starts with the next kept record.
+	 * The function {@link #BASIC_GOTO_FUNCTION} is generated only if it
+	 * is still called.
+	 * <p>
+	 * This function must be invoked before {@link #finalizeGeneration()}.
+	 *
+	 * @param replacements
+	 *            are the records of the code, indexed by record.
+	 * @return the number of removed records.
+	 */
+	public int rewrite(ThreeAddressRecord[] replacements) {
+		return rewrite(replacements, Collections.<Integer,List<ThreeAddressRecord>>emptyMap());
+	}
+
+	/**
+	 * Replace, remove or insert records of the code.
+	 * <p>
+	 * The records are replaced or removed as by {@link #rewrite(ThreeAddressRecord[])}.
+	 * The records associated to an index are inserted before the
+	 * record at this index. They are run only by the records that
+	 * precede them: the labels and the addresses of the record at this
+	 * index, and the Basic line that starts with it, are not changed.
+	 * <p>
+	 * This function must be invoked before {@link #finalizeGeneration()}.
+	 *
+	 * @param replacements
+	 *            are the records of the code, indexed by record.
+	 * @param insertions
+	 *            are the records to insert, indexed by the index of
+	 *            the record before which they are inserted.
+	 * @return the number of removed records.
+	 */
+	public int rewrite(ThreeAddressRecord[] replacements, Map<Integer,List<ThreeAddressRecord>> insertions) {
+		int n = this.records.size();
+		assert(replacements.length==n);
+		List<ThreeAddressRecord> newRecords = new ArrayList<ThreeAddressRecord>(n);
+		int[] newIndexes = new int[n];
+		String pendingLabel = null;
+		String pendingComment = null;
+		int removed = 0;
+		for(int index=0; index<n; ++index) {
+			ThreeAddressRecord original = this.records.get(index);
+			ThreeAddressRecord record = replacements[index];
+			List<ThreeAddressRecord> inserted = insertions.get(index);
+			if (inserted!=null) {
+				newRecords.addAll(inserted);
+			}
+			newIndexes[index] = newRecords.size();
+			if (record==null) {
+				++removed;
+				if (original.getLabel()!=null) {
+					pendingLabel = original.getLabel();
+				}
+				if (original.getComment()!=null) {
+					pendingComment = original.getComment();
+				}
+				continue;
+			}
+			if (record!=original) {
+				record.copyAnnotations(original);
+			}
+			if ((pendingLabel!=null && record.getLabel()==null)
+				|| (pendingComment!=null && record.getComment()==null)) {
+				if (record==original) {
+					record = new ThreeAddressRecord(original.instruction(),
+							original.getArgument1(), original.getArgument2(), original.getResult());
+					record.copyAnnotations(original);
+				}
+				if (record.getLabel()==null) {
+					record.setLabel(pendingLabel);
+				}
+				if (record.getComment()==null) {
+					record.setComment(pendingComment);
+				}
+			}
+			pendingLabel = null;
+			pendingComment = null;
+			newRecords.add(record);
+		}
+		if (pendingLabel!=null && (this.nextLabel==null || this.nextLabel.isEmpty())) {
+			this.nextLabel = pendingLabel;
+		}
+
+		int size = newRecords.size();
+		for(Entry<String,Integer> entry : this.labelMapping.entrySet()) {
+			entry.setValue(ThreeAddressRecord.RECORD_SIZE * newIndex(newIndexes, entry.getValue().intValue(), size));
+		}
+		Set<Address> updated = Collections.newSetFromMap(new IdentityHashMap<Address,Boolean>());
+		for(int index=0; index<size; ++index) {
+			ThreeAddressRecord record = newRecords.get(index);
+			record.setAddress(ThreeAddressRecord.RECORD_SIZE * index);
+			updateAddress(record.getArgument1(), newIndexes, size, updated);
+			updateAddress(record.getArgument2(), newIndexes, size, updated);
+			updateAddress(record.getResult(), newIndexes, size, updated);
+		}
+		for(Entry<Integer,Integer> entry : this.basicLines.entrySet()) {
+			int index = entry.getValue().intValue();
+			entry.setValue((index<n) ? newIndexes[index] : size);
+		}
+		this.records = newRecords;
+		this.isBasicGotoFunctionUsed = false;
+		for(ThreeAddressRecord record : newRecords) {
+			Address function = record.getArgument1();
+			if (record.instruction()==ThreeAddressInstruction.CALL && function!=null
+				&& function.isLabel() && BASIC_GOTO_FUNCTION.equals(function.toString())) {
+				this.isBasicGotoFunctionUsed = true;
+				break;
+			}
+		}
+		return removed;
+	}
+
+	private static int newIndex(int[] newIndexes, int address, int size) {
+		int index = address / ThreeAddressRecord.RECORD_SIZE;
+		return (index<newIndexes.length) ? newIndexes[index] : size;
+	}
+
+	private static void updateAddress(Address adr, int[] newIndexes, int size, Set<Address> updated) {
+		if (adr!=null && adr.isAddress() && adr.base()==AddressBase.PROGRAM_START && updated.add(adr)) {
+			adr.set(ThreeAddressRecord.RECORD_SIZE * newIndex(newIndexes, (int)adr.offset(), size));
+		}
+	}
 	
 	/**
 	 * Finalize the generation of the three-address code.
@@ -336,10 +528,13 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 			String param1 = createTempVariable();
 			String returnVal = createTempVariable();
 			String tmp = createTempVariable();
+			Address param1Address = address(param1);
+			Address tmpAddress = address(tmp);
+			Address returnValAddress = address(returnVal);
 					
 			setNextLabel(BASIC_GOTO_FUNCTION);
 	
-			addRecord(ThreeAddressInstruction.param(address(param1), new Address(0)));
+			addRecord(ThreeAddressInstruction.param(param1Address, new Address(0)));
 
 			Iterator<Entry<Integer,Integer>> iterator = this.basicLines.entrySet().iterator();
 			
@@ -352,24 +547,25 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 				if (record.getLabel()==null) {
 					String nLabel = createLabel();
 					record.setLabel(nLabel);
+					this.labelMapping.put(nLabel, entry.getValue() * ThreeAddressRecord.RECORD_SIZE);
 				}
 				
 				adr += 4 * ThreeAddressRecord.RECORD_SIZE;
 	
-				addRecord(ThreeAddressInstruction.eq(address(tmp), address(param1), new Address((long)entry.getKey())));
-				addRecord(ThreeAddressInstruction.jumpIfFalse(address(tmp), new Address(adr)));
-				addRecord(ThreeAddressInstruction.set(address(returnVal), record.getAddress()));
-				addRecord(ThreeAddressInstruction.returnFunction(address(returnVal)));
+				addRecord(ThreeAddressInstruction.eq(tmpAddress, param1Address, new Address((long)entry.getKey())));
+				addRecord(ThreeAddressInstruction.jumpIfFalse(tmpAddress, new Address(adr)));
+				addRecord(ThreeAddressInstruction.set(returnValAddress, record.getAddress()));
+				addRecord(ThreeAddressInstruction.returnFunction(returnValAddress));
 				
 			}
 			
 			String errorMsg = createConstant("Line not found: "); //$NON-NLS-1$
 			String cr = createConstant("\n"); //$NON-NLS-1$
 			addRecord(ThreeAddressInstruction.print(address(errorMsg)));
-			addRecord(ThreeAddressInstruction.print(address(tmp)));
+			addRecord(ThreeAddressInstruction.print(tmpAddress));
 			addRecord(ThreeAddressInstruction.print(address(cr)));
 			addRecord(ThreeAddressInstruction.exit(new Address(1234)));
-			addRecord(ThreeAddressInstruction.returnFunction(address(returnVal)));
+			addRecord(ThreeAddressInstruction.returnFunction(returnValAddress));
 		}
 		
 		// Backpatching
@@ -428,11 +624,12 @@ public class ThreeAddressCode implements Cloneable, Serializable {
 		iterator = this.symbolTable.constantIterator();
 		while (iterator.hasNext()) {
 			SymbolTableEntry e = iterator.next();
+			// The constants are not iterated in the order of their addresses
+			adr = codeSize + (int)e.getAddress().offset();
 			byte[] b = e.getValue().getValue(String.class).getBytes();
 			System.arraycopy(b, 0, quadruples, adr, b.length);
 			adr += b.length;
 			quadruples[adr] = '\0';
-			++adr;
 		}
 		
 		byte[] byteCode = new byte[9+2*NumberUtil.SIZEOF_LONG+quadruples.length];
@@ -18,7 +18,9 @@
  */
 package fr.utbm.info.da53.lw5.threeaddresscode;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.function.Supplier;
 
 import fr.utbm.info.da53.lw5.type.NumberUtil;
 
@@ -45,6 +47,8 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 	
 	private String comment = null;
 	
+	private transient Supplier<String> lazyComment = null;
+	
 	private String label = null;
 	private Address address = null;
 	
@@ -136,6 +140,17 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 		this.label = label;
 	}
 	
+	/** Copy the label and the comment of the given record
+	 * into this record.
+	 *
+	 * @param record
+	 */
+	void copyAnnotations(ThreeAddressRecord record) {
+		this.label = record.label;
+		this.comment = record.comment;
+		this.lazyComment = record.lazyComment;
+	}
+	
 	/** Replies the address of the instruction.
 	 * 
 	 * @return the address of the instruction; or <code>null</code>
@@ -155,11 +170,49 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 	}
 
 	/** Set the comment of the instruction.
-	 *  
+	 * 
 	 * @param comment
 	 */
 	public void setComment(String comment) {
 		this.comment = comment;
+		this.lazyComment = null;
+	}
+	
+	/** Set the comment of the instruction, which is built only
+	 * when the comment is displayed, so that the generation of
+	 * the code does not pay for it.
+	 * 
+	 * @param comment is the provider of the comment.
+	 */
+	public void setLazyComment(Supplier<String> comment) {
+		this.comment = null;
+		this.lazyComment = comment;
+	}
+	
+	/** Replies the comment of the instruction.
+	 * 
+	 * @return the comment, or <code>null</code> if none.
+	 */
+	public String getComment() {
+		if (this.lazyComment!=null) {
+			return this.lazyComment.get();
+		}
+		return this.comment;
+	}
+	
+	/** Serialize a copy of this record in which the lazy comment
+	 * is replaced by its text.
+	 * 
+	 * @return the serialized record.
+	 * @throws ObjectStreamException
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		if (this.lazyComment==null) {
+			return this;
+		}
+		ThreeAddressRecord record = clone();
+		record.setComment(getComment());
+		return record;
 	}
 	
 	/**
@@ -168,12 +221,13 @@ public class ThreeAddressRecord implements Cloneable, Serializable {
 	@Override
 	public String toString() {
 		StringBuilder b = new StringBuilder();
-		if (this.comment!=null && !this.comment.isEmpty()) {
+		String comment = getComment();
+		if (comment!=null && !comment.isEmpty()) {
 			for(int i=0; i<LABEL_SIZE; ++i) {
 				b.append(" "); //$NON-NLS-1$
 			}
 			b.append("#-- "); //$NON-NLS-1$
-			b.append(this.comment);
+			b.append(comment);
 			b.append("\n"); //$NON-NLS-1$
 		}
 		b.append(formatLabel(this.label));
@@ -0,0 +1,925 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw5.threeaddresscode.Address;
+import fr.utbm.info.da53.lw5.threeaddresscode.AddressBase;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressInstruction;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressRecord;
+
+/**
+ * Control flow graph of a three-address code.
+ * <p>
+ * The records are split into {@link BasicBlock basic blocks} at the labels,
+ * at the targets of the jumps, and after the jumps, the calls, the returns
+ * and the exits. The variables are the addresses in the memory context
+ * or in the heap; they are numbered, and the variables that are used and
+ * defined by each record are stored in arrays, so that the analyses do
+ * not need to decode the operands again. The target of a jump is a label,
+ * an address in the program, or a constant address in the program.
+ * <p>
+ * The jumps to a Basic line are modeled as follows:
+ * <ul>
+ * <li>a call to {@link ThreeAddressCode#BASIC_GOTO_FUNCTION} is a built-in
+ * lookup that defines its result, and that does not leave the block;</li>
+ * <li>a jump or a call to the label replied by the lookup goes to the
+ * record of the line when the line is a literal given just before
+ * the lookup;</li>
+ * <li>otherwise, the target is computed at run time, and the jump goes to
+ * a virtual block that has the first record of each Basic line as successor.</li>
+ * </ul>
+ * A call goes to the called subroutine. The returns of a subroutine go to
+ * a virtual block that has the record following each call to this subroutine
+ * as successor, so that the number of edges stays linear in the size of the code.
+ * The subroutines are not declared in the code: they are discovered from
+ * the targets of the calls, and are merged when their bodies share records.
+ * The body of the lookup function, if generated, is an additional root
+ * of the graph, and its returns have no successor; the variables it reads
+ * are used by each call to the lookup.
+ * <p>
+ * The code may be analyzed before or after it is finalized.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ControlFlowGraph {
+
+	/** Target of a record that is not a jump, or of a jump that cannot
+	 * be done (unknown label or Basic line).
+	 */
+	public static final int NO_TARGET = -1;
+
+	/** Target of a jump that is computed at run time.
+	 */
+	public static final int COMPUTED_TARGET = -2;
+
+	/** Index of an operand that is not a variable.
+	 */
+	public static final int NO_VARIABLE = -1;
+
+	private final ThreeAddressCode code;
+	private final ThreeAddressRecord[] records;
+
+	/** Variable key -&gt; variable index
+	 */
+	private final Map<Long,Integer> variables = new HashMap<Long,Integer>();
+	private final List<Address> variableAddresses = new ArrayList<Address>();
+	private int definedVariableCount;
+
+	/** Address -&gt; index of the defined variable
+	 */
+	private final int[] definitions;
+	/** Addresses of the records that define a part of the variable only.
+	 */
+	private final BitSet partialDefinitions = new BitSet();
+	/** The indexes of the variables used by the record at address
+	 * <code>a</code> are in <code>uses[useOffsets[a]..useOffsets[a+1]-1]</code>.
+	 */
+	private final int[] useOffsets;
+	private int[] uses;
+	/** Variables that are used by the body of the lookup function and
+	 * that are not defined in it; they are used by each call to the lookup.
+	 */
+	private int[] lookupUses = new int[0];
+	/** Address -&gt; address of the target record
+	 */
+	private final int[] targets;
+	private final int lookupFunction;
+	private final BitSet lookupCalls = new BitSet();
+	private final BitSet lineStarts = new BitSet();
+	private boolean computedTargets = false;
+
+	private final List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+	/** Address -&gt; index of the block
+	 */
+	private final int[] blockIndexes;
+	private final List<BasicBlock> roots = new ArrayList<BasicBlock>(2);
+	private BasicBlock dispatchBlock = null;
+	private List<BasicBlock> reversePostOrder;
+	private final BitSet reachable = new BitSet();
+
+	/**
+	 * @param code is the code to analyze.
+	 */
+	public ControlFlowGraph(ThreeAddressCode code) {
+		this.code = code;
+		List<ThreeAddressRecord> list = code.getRecords();
+		this.records = list.toArray(new ThreeAddressRecord[list.size()]);
+		int n = this.records.length;
+		this.definitions = new int[n];
+		this.useOffsets = new int[n + 1];
+		this.uses = new int[Math.max(16, n * 2)];
+		this.targets = new int[n];
+		this.blockIndexes = new int[n];
+		this.lookupFunction = code.getAddressFor(ThreeAddressCode.BASIC_GOTO_FUNCTION);
+		for(Integer address : code.getBasicLines().values()) {
+			if (address.intValue()<n) {
+				this.lineStarts.set(address.intValue());
+			}
+		}
+		collectDefinitions();
+		collectUsesAndTargets();
+		buildBlocks();
+		buildEdges();
+		computeOrder();
+	}
+
+	/** Replies if the given operand is a variable, ie. an address in
+	 * a memory region that may be written.
+	 * 
+	 * @param operand
+	 * @return <code>true</code> if the operand is a variable,
+	 * <code>false</code> if it is a constant, a label or an address
+	 * in the program.
+	 */
+	private static boolean isVariable(Address operand) {
+		return operand!=null && operand.isAddress() && !operand.base().isReadOnly();
+	}
+
+	private static long key(Address variable) {
+		return (variable.offset() << 1) | (variable.base()==AddressBase.HEAP ? 1 : 0);
+	}
+
+	/** Replies the operand that is defined by the given record.
+	 * 
+	 * @param record
+	 * @return the defined operand, or <code>null</code>.
+	 */
+	private static Address getDefinedOperand(ThreeAddressRecord record) {
+		switch(record.instruction()) {
+		case EXIT:
+		case JUMP:
+		case JUMP_IF_TRUE:
+		case JUMP_IF_FALSE:
+		case CALL_PARAMETER:
+		case RETURN:
+		case PRINT:
+			return null;
+		default:
+			return record.getResult();
+		}
+	}
+
+	/** Replies if the given record ends a basic block.
+	 * 
+	 * @param address
+	 * @return <code>true</code> if the record is the last of its block.
+	 */
+	private boolean isTerminator(int address) {
+		switch(this.records[address].instruction()) {
+		case JUMP:
+		case JUMP_IF_TRUE:
+		case JUMP_IF_FALSE:
+		case RETURN:
+		case EXIT:
+			return true;
+		case CALL:
+			return !this.lookupCalls.get(address);
+		default:
+			return false;
+		}
+	}
+
+	private int variable(Address address) {
+		Long key = Long.valueOf(key(address));
+		Integer index = this.variables.get(key);
+		if (index==null) {
+			index = this.variableAddresses.size();
+			this.variables.put(key, index);
+			this.variableAddresses.add(address);
+		}
+		return index.intValue();
+	}
+
+	private void collectDefinitions() {
+		for(int address=0; address<this.records.length; ++address) {
+			ThreeAddressRecord record = this.records[address];
+			Address defined = getDefinedOperand(record);
+			this.definitions[address] = isVariable(defined) ? variable(defined) : NO_VARIABLE;
+			if (record.instruction()==ThreeAddressInstruction.ARRAY_SET) {
+				this.partialDefinitions.set(address);
+			}
+		}
+		this.definedVariableCount = this.variableAddresses.size();
+	}
+
+	private void collectUsesAndTargets() {
+		int count = 0;
+		for(int address=0; address<this.records.length; ++address) {
+			ThreeAddressRecord record = this.records[address];
+			this.useOffsets[address] = count;
+			this.targets[address] = NO_TARGET;
+			switch(record.instruction()) {
+			case EXIT:
+			case FORMAL_PARAMETER:
+			case READ:
+				break;
+			case JUMP:
+				count = target(address, record.getArgument1(), count);
+				break;
+			case JUMP_IF_TRUE:
+			case JUMP_IF_FALSE:
+				count = target(address, record.getArgument1(), count);
+				count = use(record.getArgument2(), count);
+				break;
+			case CALL:
+				if (isLookupFunction(record.getArgument1())) {
+					this.lookupCalls.set(address);
+				}
+				else {
+					count = target(address, record.getArgument1(), count);
+				}
+				break;
+			case ARRAY_SET:
+				count = use(record.getArgument1(), count);
+				count = use(record.getArgument2(), count);
+				count = use(record.getResult(), count);
+				break;
+			default:
+				count = use(record.getArgument1(), count);
+				count = use(record.getArgument2(), count);
+			}
+		}
+		this.useOffsets[this.records.length] = count;
+		if (count<this.uses.length) {
+			this.uses = Arrays.copyOf(this.uses, count);
+		}
+	}
+
+	private int use(Address operand, int count) {
+		if (isVariable(operand)) {
+			if (count>=this.uses.length) {
+				this.uses = Arrays.copyOf(this.uses, this.uses.length * 2);
+			}
+			this.uses[count] = variable(operand);
+			return count + 1;
+		}
+		return count;
+	}
+
+	private int label(Address label) {
+		long address;
+		if (label==null) {
+			return NO_TARGET;
+		}
+		if (label.isLabel()) {
+			address = this.code.getAddressFor(label.toString());
+		}
+		else if (label.isConstant()) {
+			address = label.value().longValue() / ThreeAddressRecord.RECORD_SIZE;
+		}
+		else if (label.base()==AddressBase.PROGRAM_START) {
+			address = label.offset() / ThreeAddressRecord.RECORD_SIZE;
+		}
+		else {
+			return NO_TARGET;
+		}
+		return (address<0 || address>=this.records.length) ? NO_TARGET : (int)address;
+	}
+
+	private boolean isLookupFunction(Address label) {
+		if (label==null) {
+			return false;
+		}
+		if (label.isLabel()) {
+			return ThreeAddressCode.BASIC_GOTO_FUNCTION.equals(label.toString());
+		}
+		return this.lookupFunction>=0 && !isVariable(label) && label(label)==this.lookupFunction;
+	}
+
+	/** Compute the target of the jump or of the call at the given address.
+	 * The target is computed at run time when it is a defined variable;
+	 * then it is the first variable used by the record.
+	 */
+	private int target(int address, Address label, int count) {
+		if (isVariable(label)) {
+			Integer variable = this.variables.get(Long.valueOf(key(label)));
+			if (variable!=null && variable.intValue()<this.definedVariableCount) {
+				this.targets[address] = resolveLine(address, variable.intValue());
+				if (this.targets[address]==COMPUTED_TARGET) {
+					this.computedTargets = true;
+				}
+				return use(label, count);
+			}
+			this.targets[address] = NO_TARGET;
+			return count;
+		}
+		this.targets[address] = label(label);
+		return count;
+	}
+
+	/** Replies the first record of the Basic line that is the target
+	 * of the given jump when the line is a literal passed to the lookup
+	 * function just before the jump.
+	 */
+	private int resolveLine(int address, int variable) {
+		int call = address - 1;
+		int param = address - 2;
+		if (param>=0
+			&& this.lookupCalls.get(call)
+			&& this.definitions[call]==variable
+			&& this.records[param].instruction()==ThreeAddressInstruction.CALL_PARAMETER
+			&& !isEntry(address) && !isEntry(call)) {
+			Address line = this.records[param].getArgument1();
+			if (line!=null && line.isConstant() && line.value().doubleValue()==line.value().intValue()) {
+				Integer target = this.code.getBasicLines().get(Integer.valueOf(line.value().intValue()));
+				return (target==null || target.intValue()>=this.records.length) ? NO_TARGET : target.intValue();
+			}
+		}
+		return COMPUTED_TARGET;
+	}
+
+	private boolean isEntry(int address) {
+		return this.records[address].getLabel()!=null || this.lineStarts.get(address);
+	}
+
+	private void buildBlocks() {
+		int n = this.records.length;
+		BitSet leaders = new BitSet(n);
+		if (n>0) {
+			leaders.set(0);
+		}
+		if (this.computedTargets) {
+			leaders.or(this.lineStarts);
+		}
+		for(int address=0; address<n; ++address) {
+			if (this.records[address].getLabel()!=null) {
+				leaders.set(address);
+			}
+			if (this.targets[address]>=0) {
+				leaders.set(this.targets[address]);
+			}
+			if (address+1<n && isTerminator(address)) {
+				leaders.set(address + 1);
+			}
+		}
+		int first = leaders.nextSetBit(0);
+		while (first>=0) {
+			int end = leaders.nextSetBit(first + 1);
+			if (end<0) {
+				end = n;
+			}
+			BasicBlock block = new BasicBlock(this.blocks.size(), first, end);
+			Arrays.fill(this.blockIndexes, first, end, block.getIndex());
+			this.blocks.add(block);
+			first = (end<n) ? end : -1;
+		}
+	}
+
+	private void buildEdges() {
+		int n = this.records.length;
+		BitSet calls = new BitSet();
+		int blockCount = this.blocks.size();
+		for(int i=0; i<blockCount; ++i) {
+			BasicBlock block = this.blocks.get(i);
+			int address = block.getLastAddress();
+			switch(this.records[address].instruction()) {
+			case JUMP:
+				addTarget(block, address);
+				break;
+			case JUMP_IF_TRUE:
+			case JUMP_IF_FALSE:
+				addTarget(block, address);
+				addNext(block);
+				break;
+			case CALL:
+				if (this.lookupCalls.get(address)) {
+					addNext(block);
+				}
+				else {
+					addTarget(block, address);
+					if (address+1<n && this.targets[address]!=NO_TARGET) {
+						calls.set(address);
+					}
+				}
+				break;
+			case RETURN:
+			case EXIT:
+				break;
+			default:
+				addNext(block);
+			}
+		}
+		if (n>0) {
+			this.roots.add(this.blocks.get(0));
+		}
+		BitSet function = new BitSet();
+		if (this.lookupFunction>=0 && this.lookupFunction<n) {
+			BasicBlock functionBlock = getBlockAt(this.lookupFunction);
+			if (functionBlock.getIndex()!=0) {
+				this.roots.add(functionBlock);
+			}
+			visit(functionBlock, function);
+			collectLookupUses(function);
+		}
+		if (!calls.isEmpty()) {
+			buildReturnEdges(calls, function);
+		}
+	}
+
+	/** Link the returns to the records that follow the calls.
+	 * <p>
+	 * The body of a subroutine is the set of the blocks that are reachable
+	 * from its first block, when each call goes to the record that follows
+	 * it instead of the called subroutine, and when the returns have no successor.
+	 * The subroutines with bodies that share a block are merged, so that
+	 * each block is visited once. Then, the returns in the body of a subroutine
+	 * go to a virtual block that has the record following each call to
+	 * this subroutine as successor.
+	 */
+	private void buildReturnEdges(BitSet calls, BitSet function) {
+		int blockCount = this.blocks.size();
+		int[] owners = new int[blockCount];
+		Arrays.fill(owners, -1);
+		int[] subroutines = new int[blockCount];
+		for(int i=0; i<blockCount; ++i) {
+			subroutines[i] = i;
+		}
+		int[] stack = new int[blockCount];
+		int computedEntry = -1;
+		for(int call=calls.nextSetBit(0); call>=0; call=calls.nextSetBit(call + 1)) {
+			int target = this.targets[call];
+			if (target>=0) {
+				explore(this.blockIndexes[target], owners, subroutines, stack);
+			}
+			else if (computedEntry<0) {
+				for(int line=this.lineStarts.nextSetBit(0); line>=0; line=this.lineStarts.nextSetBit(line + 1)) {
+					int entry = this.blockIndexes[line];
+					explore(entry, owners, subroutines, stack);
+					if (computedEntry<0) {
+						computedEntry = entry;
+					}
+					else {
+						union(subroutines, computedEntry, entry);
+					}
+				}
+			}
+		}
+
+		BasicBlock[] returnBlocks = new BasicBlock[blockCount];
+		for(int call=calls.nextSetBit(0); call>=0; call=calls.nextSetBit(call + 1)) {
+			int target = this.targets[call];
+			int entry = (target>=0) ? this.blockIndexes[target] : computedEntry;
+			if (entry<0) {
+				continue;
+			}
+			int subroutine = find(subroutines, entry);
+			if (returnBlocks[subroutine]==null) {
+				returnBlocks[subroutine] = new BasicBlock(this.blocks.size(), "RETURN"); //$NON-NLS-1$
+				this.blocks.add(returnBlocks[subroutine]);
+			}
+			returnBlocks[subroutine].addSuccessor(getBlockAt(call + 1));
+		}
+		for(int i=0; i<blockCount; ++i) {
+			BasicBlock block = this.blocks.get(i);
+			if (!block.isVirtual() && owners[i]>=0 && !function.get(i)
+				&& this.records[block.getLastAddress()].instruction()==ThreeAddressInstruction.RETURN) {
+				BasicBlock returnBlock = returnBlocks[find(subroutines, owners[i])];
+				if (returnBlock!=null) {
+					block.addSuccessor(returnBlock);
+				}
+			}
+		}
+	}
+
+	/** Mark the blocks of the body of the subroutine that starts at the given block.
+	 * The exploration stops at the blocks of the bodies that are already
+	 * explored, and merges the subroutines.
+	 */
+	private void explore(int entry, int[] owners, int[] subroutines, int[] stack) {
+		if (owners[entry]>=0) {
+			union(subroutines, entry, owners[entry]);
+			return;
+		}
+		int top = 0;
+		stack[top++] = entry;
+		owners[entry] = entry;
+		while (top>0) {
+			BasicBlock block = this.blocks.get(stack[--top]);
+			List<BasicBlock> successors;
+			if (block.isVirtual()) {
+				successors = block.getSuccessors();
+			}
+			else {
+				int address = block.getLastAddress();
+				switch(this.records[address].instruction()) {
+				case CALL:
+					if (this.lookupCalls.get(address)) {
+						successors = block.getSuccessors();
+					}
+					else if (address+1<this.records.length && this.targets[address]!=NO_TARGET) {
+						successors = Collections.singletonList(getBlockAt(address + 1));
+					}
+					else {
+						successors = Collections.emptyList();
+					}
+					break;
+				case RETURN:
+					successors = Collections.emptyList();
+					break;
+				default:
+					successors = block.getSuccessors();
+				}
+			}
+			for(BasicBlock successor : successors) {
+				int index = successor.getIndex();
+				if (owners[index]<0) {
+					owners[index] = entry;
+					stack[top++] = index;
+				}
+				else if (owners[index]!=entry) {
+					union(subroutines, entry, owners[index]);
+				}
+			}
+		}
+	}
+
+	private static int find(int[] subroutines, int subroutine) {
+		int root = subroutine;
+		while (subroutines[root]!=root) {
+			root = subroutines[root];
+		}
+		int current = subroutine;
+		while (subroutines[current]!=root) {
+			int next = subroutines[current];
+			subroutines[current] = root;
+			current = next;
+		}
+		return root;
+	}
+
+	private static void union(int[] subroutines, int subroutine1, int subroutine2) {
+		int root1 = find(subroutines, subroutine1);
+		int root2 = find(subroutines, subroutine2);
+		if (root1!=root2) {
+			subroutines[root2] = root1;
+		}
+	}
+
+	private void collectLookupUses(BitSet function) {
+		BitSet used = new BitSet();
+		BitSet defined = new BitSet();
+		for(int index=function.nextSetBit(0); index>=0; index=function.nextSetBit(index + 1)) {
+			BasicBlock block = this.blocks.get(index);
+			for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+				for(int i=this.useOffsets[address]; i<this.useOffsets[address + 1]; ++i) {
+					used.set(this.uses[i]);
+				}
+				if (this.definitions[address]!=NO_VARIABLE) {
+					defined.set(this.definitions[address]);
+				}
+			}
+		}
+		used.andNot(defined);
+		this.lookupUses = used.stream().toArray();
+	}
+
+	private void addNext(BasicBlock block) {
+		int next = block.getEndAddress();
+		if (next<this.records.length) {
+			block.addSuccessor(getBlockAt(next));
+		}
+	}
+
+	private void addTarget(BasicBlock block, int address) {
+		int target = this.targets[address];
+		if (target>=0) {
+			block.addSuccessor(getBlockAt(target));
+		}
+		else if (target==COMPUTED_TARGET) {
+			if (this.dispatchBlock==null) {
+				this.dispatchBlock = new BasicBlock(this.blocks.size(), "DISPATCH"); //$NON-NLS-1$
+				this.blocks.add(this.dispatchBlock);
+				for(int line=this.lineStarts.nextSetBit(0); line>=0; line=this.lineStarts.nextSetBit(line + 1)) {
+					this.dispatchBlock.addSuccessor(getBlockAt(line));
+				}
+			}
+			block.addSuccessor(this.dispatchBlock);
+		}
+	}
+
+	/** Mark the blocks that are reachable from the given block.
+	 * 
+	 * @param start
+	 * @param visited are the indexes of the visited blocks.
+	 * @return the blocks in postorder.
+	 */
+	private static List<BasicBlock> visit(BasicBlock start, BitSet visited) {
+		List<BasicBlock> postOrder = new ArrayList<BasicBlock>();
+		if (visited.get(start.getIndex())) {
+			return postOrder;
+		}
+		List<BasicBlock> stack = new ArrayList<BasicBlock>();
+		List<Integer> positions = new ArrayList<Integer>();
+		visited.set(start.getIndex());
+		stack.add(start);
+		positions.add(0);
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			BasicBlock block = stack.get(top);
+			int position = positions.get(top);
+			List<BasicBlock> successors = block.getSuccessors();
+			if (position<successors.size()) {
+				positions.set(top, position + 1);
+				BasicBlock successor = successors.get(position);
+				if (!visited.get(successor.getIndex())) {
+					visited.set(successor.getIndex());
+					stack.add(successor);
+					positions.add(0);
+				}
+			}
+			else {
+				stack.remove(top);
+				positions.remove(top);
+				postOrder.add(block);
+			}
+		}
+		return postOrder;
+	}
+
+	private void computeOrder() {
+		List<BasicBlock> order = new ArrayList<BasicBlock>();
+		for(BasicBlock root : this.roots) {
+			List<BasicBlock> postOrder = visit(root, this.reachable);
+			Collections.reverse(postOrder);
+			postOrder.addAll(order);
+			order = postOrder;
+		}
+		this.reversePostOrder = Collections.unmodifiableList(order);
+	}
+
+	/** Replies the analyzed code.
+	 * 
+	 * @return the code.
+	 */
+	public ThreeAddressCode getCode() {
+		return this.code;
+	}
+
+	/** Replies the number of records in the graph.
+	 * 
+	 * @return the number of records.
+	 */
+	public int getRecordCount() {
+		return this.records.length;
+	}
+
+	/** Replies the record at the given address.
+	 * 
+	 * @param address
+	 * @return the record.
+	 */
+	public ThreeAddressRecord getRecord(int address) {
+		return this.records[address];
+	}
+
+	/** Replies the number of blocks, including the virtual blocks.
+	 * 
+	 * @return the number of blocks.
+	 */
+	public int getBlockCount() {
+		return this.blocks.size();
+	}
+
+	/** Replies the block with the given index.
+	 * 
+	 * @param index
+	 * @return the block.
+	 */
+	public BasicBlock getBlock(int index) {
+		return this.blocks.get(index);
+	}
+
+	/** Replies the blocks, including the virtual blocks.
+	 * 
+	 * @return the blocks.
+	 */
+	public List<BasicBlock> getBlocks() {
+		return Collections.unmodifiableList(this.blocks);
+	}
+
+	/** Replies the block that contains the record at the given address.
+	 * 
+	 * @param address
+	 * @return the block.
+	 */
+	public BasicBlock getBlockAt(int address) {
+		return this.blocks.get(this.blockIndexes[address]);
+	}
+
+	/** Replies the blocks from which the code may be run: the
+	 * block of the first record, and the block of the lookup function.
+	 * 
+	 * @return the roots.
+	 */
+	public List<BasicBlock> getRoots() {
+		return Collections.unmodifiableList(this.roots);
+	}
+
+	/** Replies if the given block is a root of the graph.
+	 * 
+	 * @param block
+	 * @return <code>true</code> if the block is a root.
+	 */
+	public boolean isRoot(BasicBlock block) {
+		return this.roots.contains(block);
+	}
+
+	/** Replies the virtual block that is the target of the jumps
+	 * computed at run time.
+	 * 
+	 * @return the block, or <code>null</code> if no target is computed.
+	 */
+	public BasicBlock getDispatchBlock() {
+		return this.dispatchBlock;
+	}
+
+	/** Replies the blocks that are reachable from the roots,
+	 * in reverse postorder: each block is before its successors,
+	 * except for the back edges of the loops.
+	 * 
+	 * @return the reachable blocks.
+	 */
+	public List<BasicBlock> getReversePostOrder() {
+		return this.reversePostOrder;
+	}
+
+	/** Replies if the given block is reachable from the roots.
+	 * 
+	 * @param block
+	 * @return <code>true</code> if the block is reachable.
+	 */
+	public boolean isReachable(BasicBlock block) {
+		return this.reachable.get(block.getIndex());
+	}
+
+	/** Replies if the record at the given address is reachable from the roots.
+	 * 
+	 * @param address
+	 * @return <code>true</code> if the record is reachable.
+	 */
+	public boolean isReachable(int address) {
+		return this.reachable.get(this.blockIndexes[address]);
+	}
+
+	/** Replies the number of variables.
+	 * 
+	 * @return the number of variables.
+	 */
+	public int getVariableCount() {
+		return this.variableAddresses.size();
+	}
+
+	/** Replies the address of the variable with the given index.
+	 * 
+	 * @param variable
+	 * @return the address.
+	 */
+	public Address getVariableAddress(int variable) {
+		return this.variableAddresses.get(variable);
+	}
+
+	/** Replies the index of the variable at the given address.
+	 * 
+	 * @param address
+	 * @return the index, or {@link #NO_VARIABLE} if the address is not a variable
+	 * of the code.
+	 */
+	public int getVariable(Address address) {
+		if (!isVariable(address)) {
+			return NO_VARIABLE;
+		}
+		Integer index = this.variables.get(Long.valueOf(key(address)));
+		return (index==null) ? NO_VARIABLE : index.intValue();
+	}
+
+	/** Replies the variable that is defined by the record at the given address.
+	 * 
+	 * @param address
+	 * @return the index of the variable, or {@link #NO_VARIABLE} if none.
+	 */
+	public int getDefinition(int address) {
+		return this.definitions[address];
+	}
+
+	/** Replies if the record at the given address defines a part of
+	 * its variable only, such as an array element. Such a definition
+	 * does not kill the previous definitions.
+	 * 
+	 * @param address
+	 * @return <code>true</code> if the definition is partial.
+	 */
+	public boolean isPartialDefinition(int address) {
+		return this.partialDefinitions.get(address);
+	}
+
+	/** Replies the number of variables used by the record at the given address.
+	 * 
+	 * @param address
+	 * @return the number of used variables.
+	 */
+	public int getUseCount(int address) {
+		int count = this.useOffsets[address + 1] - this.useOffsets[address];
+		return this.lookupCalls.get(address) ? count + this.lookupUses.length : count;
+	}
+
+	/** Replies a variable used by the record at the given address.
+	 * 
+	 * @param address
+	 * @param index is the index of the use, between <code>0</code>
+	 * and {@link #getUseCount(int)}.
+	 * @return the index of the variable.
+	 */
+	public int getUse(int address, int index) {
+		int position = this.useOffsets[address] + index;
+		if (position<this.useOffsets[address + 1]) {
+			return this.uses[position];
+		}
+		return this.lookupUses[position - this.useOffsets[address + 1]];
+	}
+
+	/** Replies the target of the jump or of the call at the given address.
+	 * 
+	 * @param address
+	 * @return the address of the target, {@link #NO_TARGET}, or
+	 * {@link #COMPUTED_TARGET} if the target is computed at run time and
+	 * may be any Basic line.
+	 */
+	public int getTarget(int address) {
+		return this.targets[address];
+	}
+
+	/** Replies if the record at the given address is a call to
+	 * the function that maps the Basic lines to the labels.
+	 * 
+	 * @param address
+	 * @return <code>true</code> if the record calls the lookup function.
+	 */
+	public boolean isLookupCall(int address) {
+		return this.lookupCalls.get(address);
+	}
+
+	/** Replies if the record at the given address is the first record
+	 * of a Basic line.
+	 * 
+	 * @param address
+	 * @return <code>true</code> if the record starts a Basic line.
+	 */
+	public boolean isLineStart(int address) {
+		return this.lineStarts.get(address);
+	}
+
+	/** Replies if at least one jump has a target that is computed
+	 * at run time.
+	 * 
+	 * @return <code>true</code> if a target is computed.
+	 */
+	public boolean hasComputedTargets() {
+		return this.computedTargets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		for(BasicBlock block : this.blocks) {
+			b.append(block.toString());
+			b.append(" ->"); //$NON-NLS-1$
+			for(BasicBlock successor : block.getSuccessors()) {
+				b.append(" "); //$NON-NLS-1$
+				b.append(successor.toString());
+			}
+			b.append("\n"); //$NON-NLS-1$
+		}
+		return b.toString();
+	}
+
+}
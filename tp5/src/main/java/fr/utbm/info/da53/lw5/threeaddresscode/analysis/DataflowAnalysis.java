@@ -0,0 +1,258 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.analysis;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Dataflow analysis over the blocks of a control flow graph, solved
+ * with a worklist.
+ * <p>
+ * The facts form a lattice: the analysis replies the initial fact
+ * (the top of the lattice), the fact at the boundary of the graph
+ * (the roots for a forward analysis, the blocks without successor for
+ * a backward analysis), the meet of two facts, and the transfer function
+ * of each block. The worklist is initialized with the reachable blocks in
+ * reverse postorder (in postorder for a backward analysis), and a block
+ * is put again in the worklist when the fact at one of its inputs changes.
+ * The unreachable blocks are not analyzed.
+ * <p>
+ * A computed fact is never changed: the input of a block with a single
+ * predecessor is the output of this predecessor, without copy, and
+ * the output of a block may be its input. This keeps the memory low when
+ * the facts are large.
+ * 
+ * @param <F> is the type of the facts.
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public abstract class DataflowAnalysis<F> {
+
+	/**
+	 * Direction of a dataflow analysis.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	public enum Direction {
+		/** The facts flow from the predecessors to the successors.
+		 */
+		FORWARD,
+		/** The facts flow from the successors to the predecessors.
+		 */
+		BACKWARD;
+	}
+
+	private final ControlFlowGraph graph;
+	private final Direction direction;
+	private Object[] entryFacts = null;
+	private Object[] exitFacts = null;
+	private int transferCount = 0;
+
+	/**
+	 * @param graph is the graph to analyze.
+	 * @param direction is the direction of the analysis.
+	 */
+	protected DataflowAnalysis(ControlFlowGraph graph, Direction direction) {
+		this.graph = graph;
+		this.direction = direction;
+	}
+
+	/** Replies the analyzed graph.
+	 * 
+	 * @return the graph.
+	 */
+	public ControlFlowGraph getGraph() {
+		return this.graph;
+	}
+
+	/** Replies the direction of the analysis.
+	 * 
+	 * @return the direction.
+	 */
+	public Direction getDirection() {
+		return this.direction;
+	}
+
+	/** Replies a new fact that is the top of the lattice, ie. the
+	 * neutral element of the meet.
+	 * 
+	 * @return the fact.
+	 */
+	protected abstract F createInitialFact();
+
+	/** Replies a new fact for the boundary of the graph.
+	 * 
+	 * @param block is a root of the graph for a forward analysis,
+	 * or a block without successor for a backward analysis.
+	 * @return the fact.
+	 */
+	protected abstract F createBoundaryFact(BasicBlock block);
+
+	/** Merge the given fact into the target.
+	 * 
+	 * @param target is the fact to change.
+	 * @param fact is the fact to merge.
+	 */
+	protected abstract void meet(F target, F fact);
+
+	/** Replies the fact at the output of the given block.
+	 * <p>
+	 * The facts are shared between the blocks: the input must not be
+	 * changed, and the output may be the input itself when the block
+	 * changes nothing.
+	 * 
+	 * @param block
+	 * @param input is the fact at the input of the block.
+	 * @return the fact at the output of the block.
+	 */
+	protected abstract F transfer(BasicBlock block, F input);
+
+	/** Replies if the two facts are equal.
+	 * 
+	 * @param fact1
+	 * @param fact2
+	 * @return <code>true</code> if the facts are equal.
+	 */
+	protected boolean isEqual(F fact1, F fact2) {
+		return fact1.equals(fact2);
+	}
+
+	/** Invoked before the iterations; the local information
+	 * of the blocks may be computed here.
+	 */
+	protected void initialize() {
+		//
+	}
+
+	/** Solve the dataflow equations.
+	 */
+	public void solve() {
+		int blockCount = this.graph.getBlockCount();
+		this.entryFacts = new Object[blockCount];
+		this.exitFacts = new Object[blockCount];
+		this.transferCount = 0;
+		initialize();
+
+		boolean forward = this.direction==Direction.FORWARD;
+		List<BasicBlock> order = this.graph.getReversePostOrder();
+		int size = order.size();
+		Object[] inputs = forward ? this.entryFacts : this.exitFacts;
+		Object[] outputs = forward ? this.exitFacts : this.entryFacts;
+
+		// Circular worklist; each block is at most once in the list.
+		int[] worklist = new int[size + 1];
+		BitSet pending = new BitSet(blockCount);
+		int head = 0;
+		int tail = 0;
+		for(int i=0; i<size; ++i) {
+			BasicBlock block = order.get(forward ? i : size - 1 - i);
+			outputs[block.getIndex()] = createInitialFact();
+			worklist[tail++] = block.getIndex();
+			pending.set(block.getIndex());
+		}
+		tail = tail % worklist.length;
+
+		while (head!=tail) {
+			int index = worklist[head];
+			head = (head + 1) % worklist.length;
+			pending.clear(index);
+			BasicBlock block = this.graph.getBlock(index);
+			List<BasicBlock> sources = forward ? block.getPredecessors() : block.getSuccessors();
+			boolean boundary = forward ? this.graph.isRoot(block) : sources.isEmpty();
+			F input = boundary ? null : singleFact(outputs, sources);
+			if (input==null) {
+				input = boundary ? createBoundaryFact(block) : createInitialFact();
+				for(BasicBlock source : sources) {
+					F fact = fact(outputs, source);
+					if (fact!=null) {
+						meet(input, fact);
+					}
+				}
+			}
+			inputs[index] = input;
+			F output = transfer(block, input);
+			++this.transferCount;
+			if (!isEqual(output, fact(outputs, block))) {
+				outputs[index] = output;
+				for(BasicBlock target : forward ? block.getSuccessors() : block.getPredecessors()) {
+					int targetIndex = target.getIndex();
+					if (outputs[targetIndex]!=null && !pending.get(targetIndex)) {
+						pending.set(targetIndex);
+						worklist[tail] = targetIndex;
+						tail = (tail + 1) % worklist.length;
+					}
+				}
+			}
+		}
+	}
+
+	/** Replies the fact of the only analyzed source, which is shared
+	 * without copy since the facts are never changed once computed.
+	 */
+	private F singleFact(Object[] outputs, List<BasicBlock> sources) {
+		F single = null;
+		for(BasicBlock source : sources) {
+			F fact = fact(outputs, source);
+			if (fact!=null) {
+				if (single!=null) {
+					return null;
+				}
+				single = fact;
+			}
+		}
+		return single;
+	}
+
+	@SuppressWarnings("unchecked")
+	private F fact(Object[] facts, BasicBlock block) {
+		return (F)facts[block.getIndex()];
+	}
+
+	/** Replies the fact before the first record of the given block.
+	 * 
+	 * @param block
+	 * @return the fact, or <code>null</code> if the block is not reachable
+	 * or if the analysis is not solved.
+	 */
+	public F getEntryFact(BasicBlock block) {
+		return (this.entryFacts==null) ? null : fact(this.entryFacts, block);
+	}
+
+	/** Replies the fact after the last record of the given block.
+	 * 
+	 * @param block
+	 * @return the fact, or <code>null</code> if the block is not reachable
+	 * or if the analysis is not solved.
+	 */
+	public F getExitFact(BasicBlock block) {
+		return (this.exitFacts==null) ? null : fact(this.exitFacts, block);
+	}
+
+	/** Replies the number of times a transfer function was applied
+	 * by the last resolution.
+	 * 
+	 * @return the number of transfers.
+	 */
+	public int getTransferCount() {
+		return this.transferCount;
+	}
+
+}
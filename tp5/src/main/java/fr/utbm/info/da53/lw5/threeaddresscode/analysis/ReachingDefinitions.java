@@ -0,0 +1,224 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.analysis;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reaching definitions: a definition reaches a point of the code when
+ * there is a path from the definition to this point on which the variable
+ * is not defined again.
+ * <p>
+ * The sets contain the definitions that may reach the end of their
+ * block, ie. that are not followed by another definition of the same
+ * variable in the block, and that define a global variable, ie. a variable
+ * that is used in a block before being defined in this block. The other
+ * definitions cannot reach a use that is in another block; they are found
+ * by {@link #getReachingDefinitions(int, int)} in the block of the use.
+ * The definitions are numbered in the order of their addresses. A block kills all the definitions of the
+ * variables it defines; the definitions of each variable are stored
+ * once, so that no kill set is built for the blocks.
+ * A partial definition, such as the set of an array element, does not
+ * kill the previous definitions.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ReachingDefinitions extends BitVectorAnalysis {
+
+	/** Address -&gt; index of the definition, or <code>-1</code>.
+	 */
+	private final int[] definitionIndexes;
+	/** Definition index -&gt; address.
+	 */
+	private final int[] definitionAddresses;
+	/** Variable index -&gt; definitions of the variable.
+	 */
+	private final SparseBitSet[] variableDefinitions;
+	/** Block index -&gt; variables killed by the block.
+	 */
+	private int[][] killedVariables = null;
+
+	/**
+	 * @param graph is the graph to analyze.
+	 */
+	public ReachingDefinitions(ControlFlowGraph graph) {
+		super(graph, Direction.FORWARD, true);
+		LivenessAnalysis liveness = new LivenessAnalysis(graph);
+		int recordCount = graph.getRecordCount();
+		BitSet exposed = new BitSet(recordCount);
+		BitSet defined = new BitSet();
+		for(BasicBlock block : graph.getReversePostOrder()) {
+			for(int address=block.getLastAddress(); address>=block.getFirstAddress(); --address) {
+				int variable = graph.getDefinition(address);
+				if (variable!=ControlFlowGraph.NO_VARIABLE && liveness.isGlobal(variable) && !defined.get(variable)) {
+					exposed.set(address);
+					if (!graph.isPartialDefinition(address)) {
+						defined.set(variable);
+					}
+				}
+			}
+			defined.clear();
+		}
+		this.definitionIndexes = new int[recordCount];
+		Arrays.fill(this.definitionIndexes, -1);
+		this.variableDefinitions = new SparseBitSet[graph.getVariableCount()];
+		int count = 0;
+		for(int address=exposed.nextSetBit(0); address>=0; address=exposed.nextSetBit(address + 1)) {
+			int variable = graph.getDefinition(address);
+			if (this.variableDefinitions[variable]==null) {
+				this.variableDefinitions[variable] = new SparseBitSet();
+			}
+			this.variableDefinitions[variable].set(count);
+			this.definitionIndexes[address] = count++;
+		}
+		this.definitionAddresses = new int[count];
+		for(int address=0; address<recordCount; ++address) {
+			if (this.definitionIndexes[address]>=0) {
+				this.definitionAddresses[this.definitionIndexes[address]] = address;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int getUniverseSize() {
+		return this.definitionAddresses.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void initialize() {
+		this.killedVariables = new int[getGraph().getBlockCount()][];
+		super.initialize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected SparseBitSet computeGeneratedFacts(BasicBlock block) {
+		ControlFlowGraph graph = getGraph();
+		SparseBitSet generated = new SparseBitSet();
+		BitSet defined = new BitSet();
+		for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+			int definition = this.definitionIndexes[address];
+			if (definition>=0) {
+				generated.set(definition);
+				if (!graph.isPartialDefinition(address)) {
+					defined.set(graph.getDefinition(address));
+				}
+			}
+		}
+		this.killedVariables[block.getIndex()] = defined.stream().toArray();
+		return generated;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isKilling(BasicBlock block) {
+		return this.killedVariables[block.getIndex()].length>0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void kill(BasicBlock block, SparseBitSet facts) {
+		for(int variable : this.killedVariables[block.getIndex()]) {
+			facts.andNot(this.variableDefinitions[variable]);
+		}
+	}
+
+	/** Replies the number of definitions in the sets.
+	 * 
+	 * @return the number of definitions.
+	 */
+	public int getDefinitionCount() {
+		return this.definitionAddresses.length;
+	}
+
+	/** Replies the address of the definition with the given index.
+	 * 
+	 * @param definition
+	 * @return the address of the record.
+	 */
+	public int getDefinitionAddress(int definition) {
+		return this.definitionAddresses[definition];
+	}
+
+	/** Replies the index of the definition made by the record at the given address.
+	 * 
+	 * @param address
+	 * @return the index of the definition, or <code>-1</code> if the definition
+	 * is not in the sets.
+	 */
+	public int getDefinitionIndex(int address) {
+		return this.definitionIndexes[address];
+	}
+
+	/** Replies the definitions that reach the first record of the given block.
+	 * 
+	 * @param block
+	 * @return the indexes of the definitions, or <code>null</code> if the block
+	 * is not reachable.
+	 */
+	public SparseBitSet getReachingIn(BasicBlock block) {
+		return getEntryFact(block);
+	}
+
+	/** Replies the addresses of the definitions of the given variable that
+	 * reach the record at the given address.
+	 * 
+	 * @param address
+	 * @param variable is the index of the variable in the graph.
+	 * @return the addresses of the definitions, in increasing order.
+	 */
+	public int[] getReachingDefinitions(int address, int variable) {
+		ControlFlowGraph graph = getGraph();
+		BasicBlock block = graph.getBlockAt(address);
+		BitSet found = new BitSet();
+		for(int current=address-1; current>=block.getFirstAddress(); --current) {
+			if (graph.getDefinition(current)==variable) {
+				found.set(current);
+				if (!graph.isPartialDefinition(current)) {
+					return found.stream().toArray();
+				}
+			}
+		}
+		SparseBitSet reaching = getEntryFact(block);
+		SparseBitSet definitions = this.variableDefinitions[variable];
+		if (reaching!=null && definitions!=null) {
+			SparseBitSet candidates = reaching.clone();
+			candidates.and(definitions);
+			for(int definition=candidates.nextSetBit(0); definition>=0; definition=candidates.nextSetBit(definition + 1)) {
+				found.set(this.definitionAddresses[definition]);
+			}
+		}
+		return found.stream().toArray();
+	}
+
+}
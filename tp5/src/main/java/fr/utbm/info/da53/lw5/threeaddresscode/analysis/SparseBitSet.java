@@ -0,0 +1,319 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.analysis;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of bits that stores the non-zero words only.
+ * <p>
+ * A {@link BitSet} allocates the words up to its greatest bit, so that
+ * a set that contains a single bit with a large index is large. In the
+ * dataflow analyses of large programs, most of the sets contain a few bits
+ * that are far from each other, eg. a definition at the start of the
+ * program and a definition in the current block. This set stores the
+ * indexes of the non-zero words in a sorted array and the words
+ * in another array; the operations between two sets merge the arrays.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public final class SparseBitSet implements Cloneable {
+
+	private static final int[] NO_KEY = new int[0];
+	private static final long[] NO_WORD = new long[0];
+
+	/** Indexes of the words, in increasing order.
+	 */
+	private int[] keys = NO_KEY;
+	/** Non-zero words.
+	 */
+	private long[] words = NO_WORD;
+	private int size = 0;
+
+	/** Create an empty set.
+	 */
+	public SparseBitSet() {
+		//
+	}
+
+	private int search(int key) {
+		// Most of the bits are added in increasing order.
+		if (this.size>0 && this.keys[this.size - 1]<key) {
+			return -(this.size + 1);
+		}
+		return Arrays.binarySearch(this.keys, 0, this.size, key);
+	}
+
+	/** Replies if the bit at the given index is set.
+	 * 
+	 * @param index
+	 * @return <code>true</code> if the bit is set.
+	 */
+	public boolean get(int index) {
+		int position = search(index >>> 6);
+		return position>=0 && (this.words[position] & (1L << index))!=0;
+	}
+
+	/** Set the bit at the given index.
+	 * 
+	 * @param index
+	 */
+	public void set(int index) {
+		int key = index >>> 6;
+		int position = search(key);
+		if (position<0) {
+			position = -(position + 1);
+			if (this.size==this.keys.length) {
+				int capacity = Math.max(4, this.size * 2);
+				this.keys = Arrays.copyOf(this.keys, capacity);
+				this.words = Arrays.copyOf(this.words, capacity);
+			}
+			System.arraycopy(this.keys, position, this.keys, position + 1, this.size - position);
+			System.arraycopy(this.words, position, this.words, position + 1, this.size - position);
+			this.keys[position] = key;
+			this.words[position] = 0;
+			++this.size;
+		}
+		this.words[position] |= 1L << index;
+	}
+
+	/** Set the bits from <code>0</code> to <code>count-1</code>.
+	 * 
+	 * @param count
+	 */
+	public void setFirst(int count) {
+		int wordCount = (count + 63) >>> 6;
+		this.keys = new int[wordCount];
+		this.words = new long[wordCount];
+		this.size = wordCount;
+		for(int i=0; i<wordCount; ++i) {
+			this.keys[i] = i;
+			this.words[i] = -1L;
+		}
+		if ((count & 63)!=0) {
+			this.words[wordCount - 1] = (1L << count) - 1;
+		}
+	}
+
+	/** Clear the bit at the given index.
+	 * 
+	 * @param index
+	 */
+	public void clear(int index) {
+		int position = search(index >>> 6);
+		if (position>=0) {
+			this.words[position] &= ~(1L << index);
+			if (this.words[position]==0) {
+				--this.size;
+				System.arraycopy(this.keys, position + 1, this.keys, position, this.size - position);
+				System.arraycopy(this.words, position + 1, this.words, position, this.size - position);
+			}
+		}
+	}
+
+	/** Replies if no bit is set.
+	 * 
+	 * @return <code>true</code> if the set is empty.
+	 */
+	public boolean isEmpty() {
+		return this.size==0;
+	}
+
+	/** Replies the number of bits that are set.
+	 * 
+	 * @return the number of bits.
+	 */
+	public int cardinality() {
+		int count = 0;
+		for(int i=0; i<this.size; ++i) {
+			count += Long.bitCount(this.words[i]);
+		}
+		return count;
+	}
+
+	/** Replies the index of the first bit that is set at or after the given index.
+	 * 
+	 * @param from
+	 * @return the index of the bit, or <code>-1</code> if none.
+	 */
+	public int nextSetBit(int from) {
+		int key = from >>> 6;
+		int position = Arrays.binarySearch(this.keys, 0, this.size, key);
+		long word;
+		if (position>=0) {
+			word = this.words[position] & (-1L << from);
+		}
+		else {
+			position = -(position + 1);
+			if (position>=this.size) {
+				return -1;
+			}
+			word = this.words[position];
+		}
+		while (word==0) {
+			++position;
+			if (position>=this.size) {
+				return -1;
+			}
+			word = this.words[position];
+		}
+		return (this.keys[position] << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/** Add the bits of the given set into this set.
+	 * 
+	 * @param set
+	 */
+	public void or(SparseBitSet set) {
+		if (set.size==0) {
+			return;
+		}
+		int[] newKeys = new int[this.size + set.size];
+		long[] newWords = new long[newKeys.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i<this.size || j<set.size) {
+			if (j>=set.size || (i<this.size && this.keys[i]<set.keys[j])) {
+				newKeys[k] = this.keys[i];
+				newWords[k++] = this.words[i++];
+			}
+			else if (i>=this.size || set.keys[j]<this.keys[i]) {
+				newKeys[k] = set.keys[j];
+				newWords[k++] = set.words[j++];
+			}
+			else {
+				newKeys[k] = this.keys[i];
+				newWords[k++] = this.words[i++] | set.words[j++];
+			}
+		}
+		this.keys = newKeys;
+		this.words = newWords;
+		this.size = k;
+	}
+
+	/** Keep the bits that are also in the given set.
+	 * 
+	 * @param set
+	 */
+	public void and(SparseBitSet set) {
+		combine(set, false);
+	}
+
+	/** Remove the bits that are in the given set.
+	 * 
+	 * @param set
+	 */
+	public void andNot(SparseBitSet set) {
+		combine(set, true);
+	}
+
+	private void combine(SparseBitSet set, boolean not) {
+		int k = 0;
+		int j = 0;
+		for(int i=0; i<this.size; ++i) {
+			int key = this.keys[i];
+			while (j<set.size && set.keys[j]<key) {
+				++j;
+			}
+			long mask = (j<set.size && set.keys[j]==key) ? set.words[j] : 0;
+			long word = this.words[i] & (not ? ~mask : mask);
+			if (word!=0) {
+				this.keys[k] = key;
+				this.words[k++] = word;
+			}
+		}
+		this.size = k;
+	}
+
+	/** Replies the bits of this set into a {@link BitSet}.
+	 * 
+	 * @return the bits.
+	 */
+	public BitSet toBitSet() {
+		BitSet bits = new BitSet();
+		for(int index=nextSetBit(0); index>=0; index=nextSetBit(index + 1)) {
+			bits.set(index);
+		}
+		return bits;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SparseBitSet clone() {
+		try {
+			SparseBitSet clone = (SparseBitSet)super.clone();
+			clone.keys = Arrays.copyOf(this.keys, this.size);
+			clone.words = Arrays.copyOf(this.words, this.size);
+			return clone;
+		}
+		catch(CloneNotSupportedException e) {
+			throw new Error(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this==obj) {
+			return true;
+		}
+		if (!(obj instanceof SparseBitSet)) {
+			return false;
+		}
+		SparseBitSet set = (SparseBitSet)obj;
+		if (this.size!=set.size) {
+			return false;
+		}
+		for(int i=0; i<this.size; ++i) {
+			if (this.keys[i]!=set.keys[i] || this.words[i]!=set.words[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for(int i=0; i<this.size; ++i) {
+			hash = hash * 31 + this.keys[i];
+			hash = hash * 31 + Long.hashCode(this.words[i]);
+		}
+		return hash;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return toBitSet().toString();
+	}
+
+}
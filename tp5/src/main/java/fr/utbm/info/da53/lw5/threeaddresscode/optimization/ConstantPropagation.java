@@ -0,0 +1,719 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.optimization;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import fr.utbm.info.da53.lw5.threeaddresscode.Address;
+import fr.utbm.info.da53.lw5.threeaddresscode.AddressBase;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressInstruction;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressRecord;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.BasicBlock;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.ControlFlowGraph;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.DataflowAnalysis;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.LivenessAnalysis;
+import fr.utbm.info.da53.lw5.type.NumberUtil;
+
+/**
+ * Propagation of the constants and of the copies in a three-address code.
+ * <p>
+ * A forward dataflow analysis computes, at the entry of each block, the
+ * variables that contain a constant, and the variables that contain a copy
+ * of another variable. Then, the operands of the records are replaced by
+ * these constants and variables, and:
+ * <ul>
+ * <li>an operation with constant operands is replaced by the <code>SET</code>
+ * of its result, computed as the virtual machine does;</li>
+ * <li>a conditional jump with a constant condition is replaced by a jump,
+ * or removed when the jump is never done;</li>
+ * <li>the <code>SET</code> of a constant into a variable that is no more
+ * used is removed;</li>
+ * <li>a temporary variable that is only copied into another variable
+ * by the next record is replaced by this variable, eg.
+ * <code>@t1 = I + 1; I = @t1</code> becomes <code>I = I + 1</code>.</li>
+ * </ul>
+ * The virtual machine stores the numbers computed by the operations with
+ * a single precision when they are not integer; so only the operations
+ * with an integer result are folded. A variable that contains a string
+ * contains the address of this string in the heap, not the string itself;
+ * so the string constants are only propagated into the operands that
+ * read the value of the string: <code>SET</code>, <code>ADDITION</code>
+ * and <code>PRINT</code>. The temporary variables are never propagated
+ * as copies, so that their values are not kept alive across the blocks.
+ * <p>
+ * The code must not be finalized.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class ConstantPropagation {
+
+	/** Value of a variable that is not a known constant or copy.
+	 */
+	private static final Object UNKNOWN = new Object();
+
+	private final ThreeAddressCode code;
+	private ControlFlowGraph graph = null;
+	/** Offset -&gt; value of the string constants.
+	 */
+	private final Map<Long,String> strings = new HashMap<Long,String>();
+	private int foldedRecords = 0;
+	private int resolvedJumps = 0;
+	private int propagatedOperands = 0;
+	private int removedRecords = 0;
+
+	/**
+	 * @param code is the code to optimize.
+	 */
+	public ConstantPropagation(ThreeAddressCode code) {
+		this.code = code;
+	}
+
+	/** Replies the optimized code.
+	 * 
+	 * @return the code.
+	 */
+	public ThreeAddressCode getCode() {
+		return this.code;
+	}
+
+	/** Optimize the code.
+	 * 
+	 * @return the number of removed records.
+	 */
+	public int optimize() {
+		this.graph = new ControlFlowGraph(this.code);
+		ConstantAnalysis analysis = new ConstantAnalysis(this.graph);
+		analysis.solve();
+
+		List<ThreeAddressRecord> list = this.code.getRecords();
+		ThreeAddressRecord[] records = list.toArray(new ThreeAddressRecord[list.size()]);
+		for(BasicBlock block : this.graph.getReversePostOrder()) {
+			Fact input = analysis.getEntryFact(block);
+			if (!block.isVirtual() && input!=null && !input.top) {
+				Evaluation evaluation = new Evaluation(input, true);
+				for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+					records[address] = evaluation.evaluate(address, records[address]);
+				}
+			}
+		}
+
+		int[] uses = new int[this.graph.getVariableCount()];
+		int[] definitions = new int[this.graph.getVariableCount()];
+		countOperands(records, uses, definitions);
+		removeUnusedConstants(records, uses);
+		forwardTemporaries(records, uses, definitions);
+
+		this.removedRecords = this.code.rewrite(records);
+		this.graph = null;
+		return this.removedRecords;
+	}
+
+	/** Replies the number of operations that were replaced by constants.
+	 * 
+	 * @return the number of folded records.
+	 */
+	public int getFoldedRecordCount() {
+		return this.foldedRecords;
+	}
+
+	/** Replies the number of conditional jumps with a constant condition.
+	 * 
+	 * @return the number of replaced or removed conditional jumps.
+	 */
+	public int getResolvedJumpCount() {
+		return this.resolvedJumps;
+	}
+
+	/** Replies the number of operands that were replaced by a constant
+	 * or by another variable in the kept records.
+	 * 
+	 * @return the number of propagated operands.
+	 */
+	public int getPropagatedOperandCount() {
+		return this.propagatedOperands;
+	}
+
+	/** Replies the number of records removed by the last optimization.
+	 * 
+	 * @return the number of removed records.
+	 */
+	public int getRemovedRecordCount() {
+		return this.removedRecords;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "Constant propagation: " //$NON-NLS-1$
+				+ this.removedRecords + " removed records, " //$NON-NLS-1$
+				+ this.foldedRecords + " folded records, " //$NON-NLS-1$
+				+ this.resolvedJumps + " resolved jumps, " //$NON-NLS-1$
+				+ this.propagatedOperands + " propagated operands"; //$NON-NLS-1$
+	}
+
+	private void countOperands(ThreeAddressRecord[] records, int[] uses, int[] definitions) {
+		for(ThreeAddressRecord record : records) {
+			if (record!=null) {
+				count(uses, record.getArgument1());
+				count(uses, record.getArgument2());
+				switch(record.instruction()) {
+				case ARRAY_SET:
+					count(uses, record.getResult());
+					break;
+				case CALL:
+					count(definitions, record.getResult());
+					count(uses, record.getResult());
+					break;
+				default:
+					count(definitions, record.getResult());
+				}
+			}
+		}
+	}
+
+	private void count(int[] counts, Address operand) {
+		int variable = variable(operand);
+		if (variable!=ControlFlowGraph.NO_VARIABLE) {
+			++counts[variable];
+		}
+	}
+
+	/** Remove the set of a constant into a variable that is never used.
+	 */
+	private void removeUnusedConstants(ThreeAddressRecord[] records, int[] uses) {
+		for(int address=0; address<records.length; ++address) {
+			ThreeAddressRecord record = records[address];
+			if (record!=null && record.instruction()==ThreeAddressInstruction.SET
+				&& !isVariable(record.getArgument1())) {
+				int variable = variable(record.getResult());
+				if (variable!=ControlFlowGraph.NO_VARIABLE && uses[variable]==0) {
+					records[address] = null;
+				}
+			}
+		}
+	}
+
+	/** Replace the temporary variables that are only copied by
+	 * the next record into another variable.
+	 */
+	private void forwardTemporaries(ThreeAddressRecord[] records, int[] uses, int[] definitions) {
+		for(int address=0; address<records.length; ++address) {
+			ThreeAddressRecord record = records[address];
+			if (record!=null && isForwardable(record.instruction()) && isTemporary(record.getResult())) {
+				int temporary = variable(record.getResult());
+				int next = address + 1;
+				while (next<records.length && records[next]==null && !isEntry(next)) {
+					++next;
+				}
+				if (next<records.length && records[next]!=null && !isEntry(next)
+					&& uses[temporary]==1 && definitions[temporary]==1) {
+					ThreeAddressRecord copy = records[next];
+					if (copy.instruction()==ThreeAddressInstruction.SET
+						&& variable(copy.getArgument1())==temporary
+						&& isVariable(copy.getResult())) {
+						records[address] = new ThreeAddressRecord(record.instruction(),
+								record.getArgument1(), record.getArgument2(), copy.getResult());
+						records[next] = null;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isEntry(int address) {
+		return this.code.getRecord(address).getLabel()!=null || this.graph.isLineStart(address);
+	}
+
+	private static boolean isForwardable(ThreeAddressInstruction instruction) {
+		switch(instruction) {
+		case SET:
+		case ADDITION:
+		case SUBSTRACTION:
+		case MULTIPLICATION:
+		case DIVISION:
+		case MINUS:
+		case BOOLEAN_EQUAL:
+		case BOOLEAN_DIFF:
+		case BOOLEAN_LESS:
+		case BOOLEAN_GREATER:
+		case BOOLEAN_LESS_EQUAL:
+		case BOOLEAN_GREATER_EQUAL:
+		case BOOLEAN_NOT:
+		case BOOLEAN_AND:
+		case BOOLEAN_OR:
+		case BOOLEAN_XOR:
+		case ARRAY_GET:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private int variable(Address operand) {
+		return this.graph.getVariable(operand);
+	}
+
+	private boolean isVariable(Address operand) {
+		return variable(operand)!=ControlFlowGraph.NO_VARIABLE;
+	}
+
+	private static boolean isTemporary(Address operand) {
+		return operand!=null && operand.isAddress() && operand.base()==AddressBase.MEMORY_CONTEXT
+				&& operand.toString().startsWith("@T"); //$NON-NLS-1$
+	}
+
+	/** Replies the constant value of the given operand, as it is seen
+	 * by the virtual machine.
+	 * 
+	 * @param operand
+	 * @return the number or the string; or <code>null</code> if the
+	 * operand is not a constant.
+	 */
+	private Object getConstant(Address operand) {
+		if (operand==null || operand.isLabel()) {
+			return null;
+		}
+		if (operand.isConstant()) {
+			Number n = operand.value();
+			if (NumberUtil.isInteger(n)) {
+				return Long.valueOf(n.longValue());
+			}
+			return Double.valueOf(n.doubleValue());
+		}
+		if (operand.base()==AddressBase.PROGRAM_END) {
+			Long key = Long.valueOf(operand.offset());
+			String value = this.strings.get(key);
+			if (value==null && !this.strings.containsKey(key)) {
+				value = this.code.getConstant(operand);
+				this.strings.put(key, value);
+			}
+			return value;
+		}
+		return null;
+	}
+
+	/** Replies the operand for the given constant.
+	 * 
+	 * @param value
+	 * @return the operand.
+	 */
+	private Address toOperand(Object value) {
+		if (value instanceof String) {
+			return this.code.address(this.code.createConstant((String)value));
+		}
+		if (value instanceof Long) {
+			return new Address(((Long)value).longValue());
+		}
+		return new Address(((Number)value).doubleValue());
+	}
+
+	/** Replies the constant that is the result of the given operation,
+	 * as computed by the virtual machine.
+	 * 
+	 * @param instruction
+	 * @param left is the first operand.
+	 * @param right is the second operand, or <code>null</code>.
+	 * @return the result, or <code>null</code> if it is not known at
+	 * compile time.
+	 */
+	static Object fold(ThreeAddressInstruction instruction, Object left, Object right) {
+		if (instruction==ThreeAddressInstruction.ADDITION && (left instanceof String || right instanceof String)) {
+			return left.toString() + right.toString();
+		}
+		if (!(left instanceof Number) || (right!=null && !(right instanceof Number))) {
+			return null;
+		}
+		Number a = (Number)left;
+		Number b = (right==null) ? a : (Number)right;
+		switch(instruction) {
+		case ADDITION:
+			return toInteger(a.doubleValue() + b.doubleValue());
+		case SUBSTRACTION:
+			return toInteger(a.doubleValue() - b.doubleValue());
+		case MULTIPLICATION:
+			return toInteger(a.doubleValue() * b.doubleValue());
+		case DIVISION:
+			return toInteger(a.doubleValue() / b.doubleValue());
+		case MINUS:
+			return toInteger(-a.doubleValue());
+		case BOOLEAN_EQUAL:
+			return toBoolean(a.doubleValue()==b.doubleValue());
+		case BOOLEAN_DIFF:
+			return toBoolean(a.doubleValue()!=b.doubleValue());
+		case BOOLEAN_LESS:
+			return toBoolean(NumberUtil.compare(a, b)<0);
+		case BOOLEAN_LESS_EQUAL:
+			return toBoolean(NumberUtil.compare(a, b)<=0);
+		case BOOLEAN_GREATER:
+			return toBoolean(NumberUtil.compare(a, b)>0);
+		case BOOLEAN_GREATER_EQUAL:
+			return toBoolean(NumberUtil.compare(a, b)>=0);
+		case BOOLEAN_NOT:
+			return toBoolean(a.intValue()==0);
+		case BOOLEAN_AND:
+			return toBoolean(a.intValue()!=0 && b.intValue()!=0);
+		case BOOLEAN_OR:
+			return toBoolean(a.intValue()!=0 || b.intValue()!=0);
+		case BOOLEAN_XOR:
+			return toBoolean((a.intValue()!=0) ^ (b.intValue()!=0));
+		default:
+			return null;
+		}
+	}
+
+	/** Replies the integer number that is stored by the virtual machine
+	 * for the given result of an operation.
+	 * 
+	 * @param value
+	 * @return the integer number, or <code>null</code> if the
+	 * virtual machine stores a single precision number.
+	 */
+	private static Long toInteger(double value) {
+		Number n = NumberUtil.toNumber(value);
+		if (n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte) {
+			return Long.valueOf(n.longValue());
+		}
+		return null;
+	}
+
+	private static Long toBoolean(boolean value) {
+		return Long.valueOf(value ? 1 : 0);
+	}
+
+	/**
+	 * Values of the variables at a point of the code. A value is a constant
+	 * number or string, or the index of the variable that contains the same
+	 * value. A variable that is not in the map has an unknown value.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private static final class Fact {
+
+		/** Indicates if the point is not reached by the analysis yet.
+		 */
+		boolean top;
+
+		final Map<Integer,Object> values;
+
+		Fact(boolean top, Map<Integer,Object> values) {
+			this.top = top;
+			this.values = values;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Fact) {
+				Fact fact = (Fact)obj;
+				return this.top==fact.top && this.values.equals(fact.values);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.values.hashCode();
+		}
+
+	}
+
+	/**
+	 * Forward analysis of the values of the variables. Only the variables
+	 * that are used before being defined in a block are kept in the facts.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private final class ConstantAnalysis extends DataflowAnalysis<Fact> {
+
+		private final LivenessAnalysis globals;
+
+		ConstantAnalysis(ControlFlowGraph graph) {
+			super(graph, Direction.FORWARD);
+			this.globals = new LivenessAnalysis(graph);
+		}
+
+		@Override
+		protected Fact createInitialFact() {
+			return new Fact(true, new HashMap<Integer,Object>());
+		}
+
+		@Override
+		protected Fact createBoundaryFact(BasicBlock block) {
+			return new Fact(false, new HashMap<Integer,Object>());
+		}
+
+		@Override
+		protected void meet(Fact target, Fact fact) {
+			if (!fact.top) {
+				if (target.top) {
+					target.top = false;
+					target.values.putAll(fact.values);
+				}
+				else {
+					Iterator<Entry<Integer,Object>> iterator = target.values.entrySet().iterator();
+					while (iterator.hasNext()) {
+						Entry<Integer,Object> entry = iterator.next();
+						if (!entry.getValue().equals(fact.values.get(entry.getKey()))) {
+							iterator.remove();
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		protected Fact transfer(BasicBlock block, Fact input) {
+			if (input.top || block.isVirtual()) {
+				return input;
+			}
+			Evaluation evaluation = new Evaluation(input, false);
+			for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+				evaluation.evaluate(address, getGraph().getRecord(address));
+			}
+			Map<Integer,Object> values = null;
+			for(Entry<Integer,Object> entry : evaluation.changes.entrySet()) {
+				int variable = entry.getKey().intValue();
+				if (this.globals.isGlobal(variable)) {
+					if (values==null) {
+						values = new HashMap<Integer,Object>(input.values);
+					}
+					if (entry.getValue()==UNKNOWN) {
+						values.remove(entry.getKey());
+					}
+					else {
+						values.put(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+			return (values==null) ? input : new Fact(false, values);
+		}
+
+	}
+
+	/**
+	 * Evaluation of the records of a block from the values at its entry.
+	 * 
+	 * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+	 * @version $Name$ $Revision$ $Date$
+	 */
+	private final class Evaluation {
+
+		private final Fact input;
+		private final boolean rewrite;
+
+		/** Values changed since the entry of the block; {@link ConstantPropagation#UNKNOWN}
+		 * for a variable that has no more a known value.
+		 */
+		final Map<Integer,Object> changes = new HashMap<Integer,Object>();
+
+		private boolean copies;
+
+		Evaluation(Fact input, boolean rewrite) {
+			this.input = input;
+			this.rewrite = rewrite;
+			for(Object value : input.values.values()) {
+				if (value instanceof Integer) {
+					this.copies = true;
+					break;
+				}
+			}
+		}
+
+		private Object get(int variable) {
+			Object value = this.changes.get(variable);
+			if (value==null) {
+				return this.input.values.get(variable);
+			}
+			return (value==UNKNOWN) ? null : value;
+		}
+
+		/** Replies the value of the given operand: a constant number or string,
+		 * or the operand itself.
+		 */
+		private Object value(Address operand) {
+			int variable = variable(operand);
+			if (variable==ControlFlowGraph.NO_VARIABLE) {
+				Object constant = getConstant(operand);
+				return (constant==null) ? operand : constant;
+			}
+			Object value = get(variable);
+			if (value instanceof Integer) {
+				return ConstantPropagation.this.graph.getVariableAddress(((Integer)value).intValue());
+			}
+			return (value==null) ? operand : value;
+		}
+
+		/** Replies the operand that may replace the given operand.
+		 * 
+		 * @param operand
+		 * @param strings indicates if the string constants may replace the operand.
+		 */
+		private Address read(Address operand, boolean strings) {
+			if (operand==null || !isVariable(operand)) {
+				return operand;
+			}
+			Object value = value(operand);
+			if (value instanceof Address) {
+				return (Address)value;
+			}
+			if (value instanceof Number || (strings && value instanceof String)) {
+				return this.rewrite ? toOperand(value) : operand;
+			}
+			return operand;
+		}
+
+		private void define(Address operand, Object value) {
+			int variable = variable(operand);
+			if (variable==ControlFlowGraph.NO_VARIABLE) {
+				return;
+			}
+			if (this.copies) {
+				Integer killed = Integer.valueOf(variable);
+				for(Entry<Integer,Object> entry : this.input.values.entrySet()) {
+					if (killed.equals(entry.getValue()) && !this.changes.containsKey(entry.getKey())) {
+						this.changes.put(entry.getKey(), UNKNOWN);
+					}
+				}
+				for(Entry<Integer,Object> entry : this.changes.entrySet()) {
+					if (killed.equals(entry.getValue())) {
+						entry.setValue(UNKNOWN);
+					}
+				}
+			}
+			Object newValue = UNKNOWN;
+			if (value instanceof Address) {
+				Address source = (Address)value;
+				int sourceVariable = variable(source);
+				if (sourceVariable!=ControlFlowGraph.NO_VARIABLE && sourceVariable!=variable && !isTemporary(source)) {
+					newValue = Integer.valueOf(sourceVariable);
+					this.copies = true;
+				}
+			}
+			else if (value!=null) {
+				newValue = value;
+			}
+			this.changes.put(variable, newValue);
+		}
+
+		private ThreeAddressRecord replace(ThreeAddressRecord record, Address argument1, Address argument2) {
+			if (!this.rewrite || (argument1==record.getArgument1() && argument2==record.getArgument2())) {
+				return record;
+			}
+			if (argument1!=record.getArgument1()) {
+				++ConstantPropagation.this.propagatedOperands;
+			}
+			if (argument2!=record.getArgument2()) {
+				++ConstantPropagation.this.propagatedOperands;
+			}
+			return new ThreeAddressRecord(record.instruction(), argument1, argument2, record.getResult());
+		}
+
+		/** Evaluate the given record, and reply the record that replaces it.
+		 * 
+		 * @param address
+		 * @param record
+		 * @return the replacing record, or <code>null</code> if the record is removed.
+		 */
+		ThreeAddressRecord evaluate(int address, ThreeAddressRecord record) {
+			ThreeAddressInstruction instruction = record.instruction();
+			switch(instruction) {
+			case SET:
+				define(record.getResult(), value(record.getArgument1()));
+				return replace(record, read(record.getArgument1(), true), record.getArgument2());
+			case ADDITION:
+			case SUBSTRACTION:
+			case MULTIPLICATION:
+			case DIVISION:
+			case BOOLEAN_EQUAL:
+			case BOOLEAN_DIFF:
+			case BOOLEAN_LESS:
+			case BOOLEAN_GREATER:
+			case BOOLEAN_LESS_EQUAL:
+			case BOOLEAN_GREATER_EQUAL:
+			case BOOLEAN_AND:
+			case BOOLEAN_OR:
+			case BOOLEAN_XOR:
+			case MINUS:
+			case BOOLEAN_NOT:
+				Object left = value(record.getArgument1());
+				Object right = (record.getArgument2()==null) ? null : value(record.getArgument2());
+				if (!(left instanceof Address) && !(right instanceof Address)) {
+					Object result = fold(instruction, left, right);
+					if (result!=null) {
+						define(record.getResult(), result);
+						if (!this.rewrite) {
+							return record;
+						}
+						++ConstantPropagation.this.foldedRecords;
+						return ThreeAddressInstruction.set(record.getResult(), toOperand(result));
+					}
+				}
+				define(record.getResult(), null);
+				boolean strings = instruction==ThreeAddressInstruction.ADDITION;
+				return replace(record, read(record.getArgument1(), strings),
+						(record.getArgument2()==null) ? null : read(record.getArgument2(), strings));
+			case JUMP_IF_TRUE:
+			case JUMP_IF_FALSE:
+				Object condition = value(record.getArgument2());
+				if (condition instanceof Number) {
+					if (!this.rewrite) {
+						return record;
+					}
+					++ConstantPropagation.this.resolvedJumps;
+					if ((((Number)condition).intValue()!=0)==(instruction==ThreeAddressInstruction.JUMP_IF_TRUE)) {
+						return ThreeAddressInstruction.jump(record.getArgument1());
+					}
+					return null;
+				}
+				return replace(record, record.getArgument1(), read(record.getArgument2(), false));
+			case PRINT:
+				return replace(record, read(record.getArgument1(), true), record.getArgument2());
+			case CALL_PARAMETER:
+			case RETURN:
+				return replace(record, read(record.getArgument1(), false), record.getArgument2());
+			case ARRAY_GET:
+				Address index = read(record.getArgument2(), false);
+				define(record.getResult(), null);
+				return replace(record, record.getArgument1(), index);
+			case ARRAY_SET:
+				Address elementIndex = read(record.getArgument1(), false);
+				Address element = read(record.getArgument2(), false);
+				define(record.getResult(), null);
+				return replace(record, elementIndex, element);
+			default:
+				int definition = ConstantPropagation.this.graph.getDefinition(address);
+				if (definition!=ControlFlowGraph.NO_VARIABLE) {
+					define(ConstantPropagation.this.graph.getVariableAddress(definition), null);
+				}
+				return record;
+			}
+		}
+
+	}
+
+}
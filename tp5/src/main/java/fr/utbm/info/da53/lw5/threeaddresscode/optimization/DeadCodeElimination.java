@@ -0,0 +1,262 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.optimization;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import fr.utbm.info.da53.lw5.threeaddresscode.Address;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressInstruction;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressRecord;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.BasicBlock;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.ControlFlowGraph;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.LivenessAnalysis;
+import fr.utbm.info.da53.lw5.type.NumberUtil;
+
+/**
+ * Elimination of the dead code in a three-address code.
+ * <p>
+ * The records that cannot be reached from the first record are removed,
+ * such as the Basic lines after <code>END</code> that no <code>GOTO</code>
+ * or <code>GOSUB</code> targets.
+ * <p>
+ * When all the jumps to the Basic lines give the line as a constant, the
+ * lines that are not the target of a reachable jump are no more Basic
+ * lines of the code, so that they are not put in the table of
+ * {@link ThreeAddressCode#BASIC_GOTO_FUNCTION}; and this function is not
+ * generated when no reachable record calls it. Otherwise, any line may
+ * be the target of a jump, and all the lines are kept.
+ * <p>
+ * Finally, the liveness of the variables is used to remove the records
+ * that define a temporary variable, when this variable is not used after.
+ * The accesses to the arrays are kept, since they may stop the program
+ * with an error.
+ * <p>
+ * The code must not be finalized.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class DeadCodeElimination {
+
+	private final ThreeAddressCode code;
+	private int unreachableRecords = 0;
+	private int removedLines = 0;
+	private int deadStores = 0;
+
+	/**
+	 * @param code is the code to optimize.
+	 */
+	public DeadCodeElimination(ThreeAddressCode code) {
+		this.code = code;
+	}
+
+	/** Replies the optimized code.
+	 * 
+	 * @return the code.
+	 */
+	public ThreeAddressCode getCode() {
+		return this.code;
+	}
+
+	/** Optimize the code.
+	 * 
+	 * @return the number of removed records.
+	 */
+	public int optimize() {
+		ControlFlowGraph graph = new ControlFlowGraph(this.code);
+		List<ThreeAddressRecord> list = this.code.getRecords();
+		ThreeAddressRecord[] records = list.toArray(new ThreeAddressRecord[list.size()]);
+		this.unreachableRecords = 0;
+		this.removedLines = 0;
+		this.deadStores = 0;
+
+		BitSet reachable = new BitSet(graph.getBlockCount());
+		Set<Integer> targetedLines = new TreeSet<Integer>();
+		boolean bounded = computeReachability(graph, reachable, targetedLines);
+		for(BasicBlock block : graph.getBlocks()) {
+			if (!block.isVirtual() && !reachable.get(block.getIndex())) {
+				for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+					records[address] = null;
+					++this.unreachableRecords;
+				}
+			}
+		}
+
+		if (bounded) {
+			int lines = this.code.getBasicLines().size();
+			this.code.retainBasicLines(targetedLines);
+			this.removedLines = lines - this.code.getBasicLines().size();
+		}
+
+		removeDeadStores(graph, reachable, records);
+
+		return this.code.rewrite(records);
+	}
+
+	/** Replies the number of unreachable records that were removed.
+	 * 
+	 * @return the number of unreachable records.
+	 */
+	public int getUnreachableRecordCount() {
+		return this.unreachableRecords;
+	}
+
+	/** Replies the number of Basic lines that are no more the target of a jump.
+	 * 
+	 * @return the number of removed lines.
+	 */
+	public int getRemovedLineCount() {
+		return this.removedLines;
+	}
+
+	/** Replies the number of removed records that were defining a dead variable.
+	 * 
+	 * @return the number of dead stores.
+	 */
+	public int getDeadStoreCount() {
+		return this.deadStores;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "Dead code elimination: " //$NON-NLS-1$
+				+ this.unreachableRecords + " unreachable records, " //$NON-NLS-1$
+				+ this.deadStores + " dead stores, " //$NON-NLS-1$
+				+ this.removedLines + " removed Basic lines"; //$NON-NLS-1$
+	}
+
+	/** Mark the blocks that are reachable from the first block, and collect
+	 * the Basic lines that are the targets of the reachable jumps.
+	 * 
+	 * @return <code>true</code> if all the targeted lines are known,
+	 * <code>false</code> if a line is computed at run time.
+	 */
+	private boolean computeReachability(ControlFlowGraph graph, BitSet reachable, Set<Integer> targetedLines) {
+		boolean bounded = !graph.hasComputedTargets();
+		List<BasicBlock> stack = new ArrayList<BasicBlock>();
+		if (graph.getBlockCount()>0) {
+			stack.add(graph.getBlock(0));
+			reachable.set(0);
+		}
+		while (!stack.isEmpty()) {
+			BasicBlock block = stack.remove(stack.size() - 1);
+			if (!block.isVirtual()) {
+				for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+					if (graph.isLookupCall(address)) {
+						Integer line = getConstantLine(graph, address);
+						if (line==null) {
+							bounded = false;
+						}
+						else {
+							targetedLines.add(line);
+						}
+					}
+				}
+			}
+			for(BasicBlock successor : block.getSuccessors()) {
+				if (!reachable.get(successor.getIndex())) {
+					reachable.set(successor.getIndex());
+					stack.add(successor);
+				}
+			}
+		}
+		return bounded;
+	}
+
+	/** Replies the Basic line that is given as a constant to the lookup
+	 * call at the given address.
+	 */
+	private static Integer getConstantLine(ControlFlowGraph graph, int address) {
+		if (address>0) {
+			ThreeAddressRecord param = graph.getRecord(address - 1);
+			Address line = param.getArgument1();
+			if (param.instruction()==ThreeAddressInstruction.CALL_PARAMETER
+				&& !graph.isLineStart(address) && graph.getRecord(address).getLabel()==null
+				&& line!=null && line.isConstant() && NumberUtil.isInteger(line.value())) {
+				return Integer.valueOf(line.value().intValue());
+			}
+		}
+		return null;
+	}
+
+	/** Remove the definitions of the dead temporary variables.
+	 */
+	private void removeDeadStores(ControlFlowGraph graph, BitSet reachable, ThreeAddressRecord[] records) {
+		LivenessAnalysis liveness = new LivenessAnalysis(graph);
+		liveness.solve();
+		for(BasicBlock block : graph.getBlocks()) {
+			if (!block.isVirtual() && reachable.get(block.getIndex())) {
+				BitSet live = liveness.getLiveOut(block);
+				for(int address=block.getLastAddress(); address>=block.getFirstAddress(); --address) {
+					int definition = graph.getDefinition(address);
+					if (definition!=ControlFlowGraph.NO_VARIABLE && !graph.isPartialDefinition(address)) {
+						if (!live.get(definition) && isRemovable(records[address])
+							&& graph.getVariableAddress(definition).toString().startsWith("@T")) { //$NON-NLS-1$
+							records[address] = null;
+							++this.deadStores;
+							continue;
+						}
+						live.clear(definition);
+					}
+					for(int i=0, n=graph.getUseCount(address); i<n; ++i) {
+						live.set(graph.getUse(address, i));
+					}
+				}
+			}
+		}
+	}
+
+	/** Replies if the given record may be removed when its result is not used.
+	 */
+	private static boolean isRemovable(ThreeAddressRecord record) {
+		if (record==null) {
+			return false;
+		}
+		switch(record.instruction()) {
+		case SET:
+		case ADDITION:
+		case SUBSTRACTION:
+		case MULTIPLICATION:
+		case DIVISION:
+		case MINUS:
+		case BOOLEAN_EQUAL:
+		case BOOLEAN_DIFF:
+		case BOOLEAN_LESS:
+		case BOOLEAN_GREATER:
+		case BOOLEAN_LESS_EQUAL:
+		case BOOLEAN_GREATER_EQUAL:
+		case BOOLEAN_NOT:
+		case BOOLEAN_AND:
+		case BOOLEAN_OR:
+		case BOOLEAN_XOR:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
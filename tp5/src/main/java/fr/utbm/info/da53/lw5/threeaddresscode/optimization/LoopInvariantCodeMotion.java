@@ -0,0 +1,314 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (c) 2012-2021 Stephane GALLAND.
+ * 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.utbm.info.da53.lw5.threeaddresscode.optimization;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw5.threeaddresscode.ThreeAddressRecord;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.BasicBlock;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.ControlFlowGraph;
+import fr.utbm.info.da53.lw5.threeaddresscode.analysis.DominatorTree;
+
+/**
+ * Loop-invariant code motion in a three-address code.
+ * <p>
+ * The loops are the natural loops of the control flow graph: an edge
+ * from a block to a block that dominates it closes a loop, and the
+ * loop contains the blocks that reach this edge without passing through
+ * the header of the loop. The loops of <code>FOR</code> and
+ * <code>WHILE</code> statements compute their end value or their
+ * condition in their header, on each iteration.
+ * <p>
+ * A record of the header is loop-invariant when it computes a temporary
+ * variable that is defined only once in the code, and when its operands
+ * are not defined in the loop, or are defined by a loop-invariant record.
+ * Such records are moved into a preheader, ie. just before the header,
+ * when the header is entered from outside the loop only by the record
+ * that precedes it. The jumps that close the loop still go to the header,
+ * so that the records are run once per entry in the loop.
+ * <p>
+ * Only the records of the header are moved, and only until the first
+ * record that has an effect, such as a print or a call: they are run
+ * before any effect of the loop, so that moving them does not change
+ * the output of the program, even when they stop it with an error.
+ * <p>
+ * The code must not be finalized.
+ * 
+ * @author St&eacute;phane GALLAND &lt;stephane.galland@utbm.fr&gt;
+ * @version $Name$ $Revision$ $Date$
+ */
+public class LoopInvariantCodeMotion {
+
+	private final ThreeAddressCode code;
+	private int loops = 0;
+	private int optimizedLoops = 0;
+	private int hoistedRecords = 0;
+
+	/**
+	 * @param code is the code to optimize.
+	 */
+	public LoopInvariantCodeMotion(ThreeAddressCode code) {
+		this.code = code;
+	}
+
+	/** Replies the optimized code.
+	 * 
+	 * @return the code.
+	 */
+	public ThreeAddressCode getCode() {
+		return this.code;
+	}
+
+	/** Optimize the code.
+	 * 
+	 * @return the number of moved records.
+	 */
+	public int optimize() {
+		ControlFlowGraph graph = new ControlFlowGraph(this.code);
+		DominatorTree dominators = new DominatorTree(graph);
+		this.loops = 0;
+		this.optimizedLoops = 0;
+		this.hoistedRecords = 0;
+
+		int[] definitionCounts = new int[graph.getVariableCount()];
+		for(int address=0; address<graph.getRecordCount(); ++address) {
+			int definition = graph.getDefinition(address);
+			if (definition!=ControlFlowGraph.NO_VARIABLE) {
+				++definitionCounts[definition];
+			}
+		}
+
+		List<ThreeAddressRecord> list = this.code.getRecords();
+		ThreeAddressRecord[] records = list.toArray(new ThreeAddressRecord[list.size()]);
+		Map<Integer,List<ThreeAddressRecord>> preheaders = new TreeMap<Integer,List<ThreeAddressRecord>>();
+
+		// The buffers are shared by the loops, and cleared after each loop.
+		BitSet loop = new BitSet(graph.getBlockCount());
+		List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+		int[] loopDefinitions = new int[graph.getVariableCount()];
+		BitSet invariants = new BitSet(graph.getVariableCount());
+
+		for(BasicBlock header : graph.getReversePostOrder()) {
+			if (computeLoop(graph, dominators, header, loop, blocks)) {
+				++this.loops;
+				if (hasPreheader(graph, header, loop)) {
+					countDefinitions(graph, blocks, loopDefinitions, 1);
+					List<ThreeAddressRecord> hoisted = hoist(graph, header, definitionCounts,
+							loopDefinitions, invariants, records);
+					countDefinitions(graph, blocks, loopDefinitions, -1);
+					invariants.clear();
+					if (!hoisted.isEmpty()) {
+						++this.optimizedLoops;
+						this.hoistedRecords += hoisted.size();
+						preheaders.put(header.getFirstAddress(), hoisted);
+					}
+				}
+				for(BasicBlock block : blocks) {
+					loop.clear(block.getIndex());
+				}
+				blocks.clear();
+			}
+		}
+
+		if (preheaders.isEmpty()) {
+			return 0;
+		}
+		this.code.rewrite(records, preheaders);
+		return this.hoistedRecords;
+	}
+
+	/** Replies the number of loops in the code.
+	 * 
+	 * @return the number of loops.
+	 */
+	public int getLoopCount() {
+		return this.loops;
+	}
+
+	/** Replies the number of loops from which records were moved.
+	 * 
+	 * @return the number of optimized loops.
+	 */
+	public int getOptimizedLoopCount() {
+		return this.optimizedLoops;
+	}
+
+	/** Replies the number of records that were moved into the preheaders.
+	 * 
+	 * @return the number of moved records.
+	 */
+	public int getHoistedRecordCount() {
+		return this.hoistedRecords;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "Loop-invariant code motion: " //$NON-NLS-1$
+				+ this.hoistedRecords + " hoisted records, " //$NON-NLS-1$
+				+ this.optimizedLoops + " optimized loops on " //$NON-NLS-1$
+				+ this.loops;
+	}
+
+	/** Put the blocks of the loop with the given header in the given
+	 * set and in the given list.
+	 * 
+	 * @return <code>true</code> if the block is the header of a loop.
+	 */
+	private static boolean computeLoop(ControlFlowGraph graph, DominatorTree dominators, BasicBlock header,
+			BitSet loop, List<BasicBlock> blocks) {
+		for(BasicBlock predecessor : header.getPredecessors()) {
+			if (graph.isReachable(predecessor) && dominators.dominates(header, predecessor)) {
+				if (blocks.isEmpty()) {
+					loop.set(header.getIndex());
+					blocks.add(header);
+				}
+				if (!loop.get(predecessor.getIndex())) {
+					loop.set(predecessor.getIndex());
+					blocks.add(predecessor);
+				}
+			}
+		}
+		// The blocks after the header in the list are the blocks to explore.
+		for(int i=1; i<blocks.size(); ++i) {
+			for(BasicBlock predecessor : blocks.get(i).getPredecessors()) {
+				if (graph.isReachable(predecessor) && !loop.get(predecessor.getIndex())) {
+					loop.set(predecessor.getIndex());
+					blocks.add(predecessor);
+				}
+			}
+		}
+		return !blocks.isEmpty();
+	}
+
+	/** Add the given increment to the number of definitions of the variables
+	 * that are defined in the given blocks.
+	 */
+	private static void countDefinitions(ControlFlowGraph graph, List<BasicBlock> blocks, int[] loopDefinitions, int increment) {
+		for(BasicBlock block : blocks) {
+			if (!block.isVirtual()) {
+				for(int address=block.getFirstAddress(); address<block.getEndAddress(); ++address) {
+					int definition = graph.getDefinition(address);
+					if (definition!=ControlFlowGraph.NO_VARIABLE) {
+						loopDefinitions[definition] += increment;
+					}
+				}
+			}
+		}
+	}
+
+	/** Replies if the records that are inserted just before the header
+	 * are run each time the loop is entered, and only then.
+	 */
+	private static boolean hasPreheader(ControlFlowGraph graph, BasicBlock header, BitSet loop) {
+		if (header.isVirtual() || graph.isRoot(header)) {
+			return false;
+		}
+		int first = header.getFirstAddress();
+		if (first==0) {
+			return false;
+		}
+		boolean entered = false;
+		for(BasicBlock predecessor : header.getPredecessors()) {
+			if (!loop.get(predecessor.getIndex())) {
+				if (predecessor.isVirtual() || predecessor.getLastAddress()!=first - 1
+					|| graph.getTarget(first - 1)==first) {
+					return false;
+				}
+				entered = true;
+			}
+		}
+		return entered;
+	}
+
+	/** Replace the loop-invariant records of the header by <code>null</code>
+	 * and reply them.
+	 */
+	private static List<ThreeAddressRecord> hoist(ControlFlowGraph graph, BasicBlock header, int[] definitionCounts,
+			int[] loopDefinitions, BitSet invariants, ThreeAddressRecord[] records) {
+		List<ThreeAddressRecord> hoisted = new ArrayList<ThreeAddressRecord>();
+		for(int address=header.getFirstAddress(); address<header.getEndAddress(); ++address) {
+			ThreeAddressRecord record = records[address];
+			if (!isPure(record)) {
+				break;
+			}
+			int definition = graph.getDefinition(address);
+			if (definition!=ControlFlowGraph.NO_VARIABLE && !graph.isPartialDefinition(address)
+				&& definitionCounts[definition]==1
+				&& graph.getVariableAddress(definition).toString().startsWith("@T") //$NON-NLS-1$
+				&& isInvariant(graph, address, loopDefinitions, invariants)) {
+				invariants.set(definition);
+				hoisted.add(new ThreeAddressRecord(record.instruction(),
+						record.getArgument1(), record.getArgument2(), record.getResult()));
+				records[address] = null;
+			}
+		}
+		return hoisted;
+	}
+
+	/** Replies if the operands of the record at the given address are
+	 * not defined in the loop, or are defined by a loop-invariant record.
+	 */
+	private static boolean isInvariant(ControlFlowGraph graph, int address, int[] loopDefinitions, BitSet invariants) {
+		for(int i=0, n=graph.getUseCount(address); i<n; ++i) {
+			int use = graph.getUse(address, i);
+			if (loopDefinitions[use]!=0 && !invariants.get(use)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Replies if the given record only computes its result.
+	 */
+	private static boolean isPure(ThreeAddressRecord record) {
+		if (record==null) {
+			return false;
+		}
+		switch(record.instruction()) {
+		case SET:
+		case ADDITION:
+		case SUBSTRACTION:
+		case MULTIPLICATION:
+		case DIVISION:
+		case MINUS:
+		case BOOLEAN_EQUAL:
+		case BOOLEAN_DIFF:
+		case BOOLEAN_LESS:
+		case BOOLEAN_GREATER:
+		case BOOLEAN_LESS_EQUAL:
+		case BOOLEAN_GREATER_EQUAL:
+		case BOOLEAN_NOT:
+		case BOOLEAN_AND:
+		case BOOLEAN_OR:
+		case BOOLEAN_XOR:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}